@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.benchmark.media;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.mjsip.server.sbc.SelectorUdpRelay;
+import org.mjsip.server.sbc.SymmetricUdpRelay;
+import org.mjsip.server.sbc.UdpRelayEngine;
+import org.mjsip.time.ConfiguredScheduler;
+import org.mjsip.time.SchedulerConfig;
+import org.zoolu.net.IpAddress;
+import org.zoolu.net.SocketAddress;
+
+/**
+ * Load test comparing {@link SymmetricUdpRelay}s with a thread per port to {@link SelectorUdpRelay}s
+ * served by a {@link UdpRelayEngine}.
+ *
+ * <p>
+ * All relays share the same two peers. The left peer sends a 172 byte packet through each relay
+ * every 20ms, the right peer receives them. The test reports the number of threads, the used heap
+ * and the latency through the relay. Run with:
+ * </p>
+ *
+ * <pre>
+ * java -cp benchmarks.jar org.mjsip.benchmark.media.MediaRelayLoad [threads|selectors] [relays] [seconds] [selectors] [first-port]
+ * </pre>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+public class MediaRelayLoad {
+
+	private static final int PACKET_SIZE = 172;
+
+	private static final long PACKET_TIME_MS = 20;
+
+	/** Resolution of the latency histogram in microseconds. */
+	private static final int BUCKET_US = 10;
+
+	/** Number of buckets in the latency histogram, the last one collects all larger values. */
+	private static final int BUCKETS = 100000;
+
+	private final AtomicLongArray _latencies = new AtomicLongArray(BUCKETS);
+
+	private volatile boolean _measure;
+
+	private volatile boolean _stopped;
+
+	/**
+	 * Main entry point.
+	 */
+	public static void main(String[] args) throws Exception {
+		boolean selectors = args.length > 0 && args[0].equals("selectors");
+		int relays = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+		int selectorThreads = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+		int firstPort = args.length > 4 ? Integer.parseInt(args[4]) : 20000;
+
+		System.out.println("Java " + System.getProperty("java.version") + ", " + relays + " relays, "
+				+ (selectors ? selectorThreads + " selector threads" : "thread per port"));
+
+		new MediaRelayLoad().run(relays, seconds, selectors ? selectorThreads : 0, firstPort);
+	}
+
+	private void run(int relays, int seconds, int selectorThreads, int firstPort) throws Exception {
+		InetAddress localhost = InetAddress.getLoopbackAddress();
+		ConfiguredScheduler scheduler = new ConfiguredScheduler(new SchedulerConfig());
+
+		long heapBefore = usedHeap();
+		int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+
+		UdpRelayEngine engine = selectorThreads > 0 ? new UdpRelayEngine(selectorThreads) : null;
+		List<SymmetricUdpRelay> relayList = new ArrayList<>();
+		try (DatagramSocket left = new DatagramSocket(0, localhost);
+				DatagramSocket right = new DatagramSocket(0, localhost)) {
+			right.setSoTimeout(100);
+			right.setReceiveBufferSize(4 * 1024 * 1024);
+			SocketAddress leftPeer = new SocketAddress(new IpAddress(localhost), left.getLocalPort());
+			SocketAddress rightPeer = new SocketAddress(new IpAddress(localhost), right.getLocalPort());
+
+			int[] ports = new int[relays];
+			for (int n = 0; n < relays; n++) {
+				int leftPort = firstPort + 2 * n;
+				int rightPort = leftPort + 1;
+				ports[n] = leftPort;
+				relayList.add(engine != null
+						? new SelectorUdpRelay(engine, scheduler, leftPort, leftPeer, rightPort, rightPeer, 0, null)
+						: new SymmetricUdpRelay(scheduler, leftPort, leftPeer, rightPort, rightPeer, 0, null));
+			}
+
+			Thread sender = new Thread(() -> send(left, localhost, ports), "Sender");
+			Thread receiver = new Thread(() -> receive(right), "Receiver");
+			sender.start();
+			receiver.start();
+
+			// Warm up.
+			Thread.sleep(2000);
+
+			_measure = true;
+			Thread.sleep(seconds * 1000L);
+			_measure = false;
+
+			long heap = usedHeap() - heapBefore;
+			int threads = ManagementFactory.getThreadMXBean().getThreadCount() - threadsBefore;
+
+			System.out.printf("threads: %d%n", threads);
+			System.out.printf("heap: %.1f MB (%d B/relay)%n", heap / 1024.0 / 1024.0, heap / relays);
+			printLatencies(relays * seconds * 1000L / PACKET_TIME_MS);
+
+			_stopped = true;
+			sender.join();
+			receiver.join();
+		} finally {
+			for (SymmetricUdpRelay relay : relayList) {
+				relay.halt();
+			}
+			if (engine != null) {
+				engine.halt();
+			}
+		}
+	}
+
+	private void send(DatagramSocket socket, InetAddress target, int[] ports) {
+		byte[] data = new byte[PACKET_SIZE];
+		DatagramPacket packet = new DatagramPacket(data, data.length, target, 0);
+		long start = System.currentTimeMillis();
+		long time = 0;
+		try {
+			while (!_stopped) {
+				for (int port : ports) {
+					long now = System.nanoTime();
+					for (int n = 0; n < 8; n++) {
+						data[n] = (byte) (now >>> (8 * n));
+					}
+					packet.setPort(port);
+					socket.send(packet);
+				}
+
+				time += PACKET_TIME_MS;
+				long sleep = start + time - System.currentTimeMillis();
+				if (sleep > 0) {
+					Thread.sleep(sleep);
+				}
+			}
+		} catch (IOException | InterruptedException ex) {
+			// Stop.
+		}
+	}
+
+	private void receive(DatagramSocket socket) {
+		DatagramPacket packet = new DatagramPacket(new byte[2000], 2000);
+		while (!_stopped) {
+			try {
+				socket.receive(packet);
+			} catch (SocketTimeoutException ex) {
+				continue;
+			} catch (IOException ex) {
+				return;
+			}
+			if (!_measure) {
+				continue;
+			}
+			byte[] data = packet.getData();
+			long sent = 0;
+			for (int n = 0; n < 8; n++) {
+				sent |= (data[n] & 0xFFL) << (8 * n);
+			}
+			long latencyUs = (System.nanoTime() - sent) / 1000;
+			_latencies.incrementAndGet((int) Math.min(BUCKETS - 1, latencyUs / BUCKET_US));
+		}
+	}
+
+	private void printLatencies(long expected) {
+		long total = 0;
+		for (int n = 0; n < BUCKETS; n++) {
+			total += _latencies.get(n);
+		}
+		System.out.printf("packets: %d of %d%n", total, expected);
+		double[] quantiles = { 0.5, 0.9, 0.99, 0.999, 1.0 };
+		long count = 0;
+		int q = 0;
+		for (int n = 0; n < BUCKETS && q < quantiles.length; n++) {
+			count += _latencies.get(n);
+			while (q < quantiles.length && count >= Math.ceil(quantiles[q] * total) && total > 0) {
+				System.out.printf("latency p%s: %d us%n", quantiles[q] * 100, (n + 1) * BUCKET_US);
+				q++;
+			}
+		}
+	}
+
+	private static long usedHeap() throws InterruptedException {
+		for (int n = 0; n < 3; n++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.benchmark.media;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.mjsip.time.Threads;
+import org.zoolu.net.IpAddress;
+import org.zoolu.net.UdpPacket;
+import org.zoolu.net.UdpProvider;
+import org.zoolu.net.UdpProviderListener;
+import org.zoolu.net.UdpSocket;
+
+/**
+ * Load test comparing platform and virtual threads for the media loops of concurrent calls.
+ *
+ * <p>
+ * Each call has two RTP flows. For each flow, a sender loop sends a 172 byte packet every 20ms, as
+ * {@link org.mjsip.media.RtpStreamSender} does, and a {@link UdpProvider} receives it. The test
+ * reports the number of platform threads, the used heap and resident memory, and the latency
+ * from sending to receiving a packet. Run with:
+ * </p>
+ *
+ * <pre>
+ * java -cp benchmarks.jar org.mjsip.benchmark.media.MediaThreadsLoad [platform|virtual] [calls] [seconds]
+ * </pre>
+ *
+ * <p>
+ * The virtual mode requires Java 21 or later, with older JDKs it falls back to platform threads.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+public class MediaThreadsLoad {
+
+	private static final int PACKET_SIZE = 172;
+
+	private static final long PACKET_TIME_MS = 20;
+
+	/** Resolution of the latency histogram in microseconds. */
+	private static final int BUCKET_US = 10;
+
+	/** Number of buckets in the latency histogram, the last one collects all larger values. */
+	private static final int BUCKETS = 100000;
+
+	private final AtomicLongArray _latencies = new AtomicLongArray(BUCKETS);
+
+	private volatile boolean _measure;
+
+	private volatile boolean _stopped;
+
+	/**
+	 * Main entry point.
+	 */
+	public static void main(String[] args) throws Exception {
+		boolean virtual = args.length > 0 && args[0].equals("virtual");
+		int calls = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+		ThreadFactory threads = Threads.loopThreads(virtual);
+		System.out.println("Java " + System.getProperty("java.version") + ", " + calls + " calls, "
+				+ (Threads.isVirtual(threads) ? "virtual" : "platform") + " threads");
+
+		new MediaThreadsLoad().run(threads, calls, seconds);
+	}
+
+	private void run(ThreadFactory factory, int calls, int seconds) throws IOException, InterruptedException {
+		IpAddress localhost = new IpAddress(InetAddress.getLoopbackAddress());
+
+		long heapBefore = usedHeap();
+		long rssBefore = rss();
+		int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+
+		List<UdpProvider> receivers = new ArrayList<>();
+		List<UdpSocket> sockets = new ArrayList<>();
+		try {
+			UdpProviderListener listener = new UdpProviderListener() {
+				@Override
+				public void onReceivedPacket(UdpProvider udp, UdpPacket packet) {
+					record(packet);
+				}
+
+				@Override
+				public void onServiceTerminated(UdpProvider udp, Exception error) {
+					// Ignore.
+				}
+			};
+
+			for (int n = 0; n < calls; n++) {
+				UdpSocket left = new UdpSocket(0, localhost);
+				UdpSocket right = new UdpSocket(0, localhost);
+				sockets.add(left);
+				sockets.add(right);
+				receivers.add(new UdpProvider(left, 0, listener, factory));
+				receivers.add(new UdpProvider(right, 0, listener, factory));
+				Threads.start(factory, "Sender-" + n + "-l", () -> send(left, localhost, right.getLocalPort()));
+				Threads.start(factory, "Sender-" + n + "-r", () -> send(right, localhost, left.getLocalPort()));
+			}
+
+			// Warm up.
+			Thread.sleep(2000);
+
+			_measure = true;
+			Thread.sleep(seconds * 1000L);
+			_measure = false;
+
+			long heap = usedHeap() - heapBefore;
+			long rss = rss() - rssBefore;
+			int threads = ManagementFactory.getThreadMXBean().getThreadCount() - threadsBefore;
+
+			System.out.printf("platform threads: %d%n", threads);
+			System.out.printf("heap: %.1f MB (%d B/call)%n", heap / 1024.0 / 1024.0, heap / calls);
+			if (rss >= 0) {
+				System.out.printf("rss: %.1f MB (%d B/call)%n", rss / 1024.0 / 1024.0, rss / calls);
+			}
+			printLatencies();
+		} finally {
+			_stopped = true;
+			for (UdpProvider receiver : receivers) {
+				receiver.halt();
+			}
+			Thread.sleep(PACKET_TIME_MS * 2);
+			for (UdpSocket socket : sockets) {
+				socket.close();
+			}
+		}
+	}
+
+	private void send(UdpSocket socket, IpAddress target, int port) {
+		byte[] data = new byte[PACKET_SIZE];
+		data[0] = (byte) 0x80;
+		long start = System.currentTimeMillis();
+		long time = 0;
+		try {
+			while (!_stopped) {
+				long now = System.nanoTime();
+				for (int n = 0; n < 8; n++) {
+					data[12 + n] = (byte) (now >>> (8 * n));
+				}
+				socket.send(new UdpPacket(data, data.length, target, port));
+
+				// Pacing as in RtpStreamSender.
+				time += PACKET_TIME_MS;
+				long sleep = start + time - System.currentTimeMillis();
+				if (sleep > 0) {
+					Thread.sleep(sleep);
+				}
+			}
+		} catch (IOException | InterruptedException ex) {
+			// Stop.
+		}
+	}
+
+	void record(UdpPacket packet) {
+		if (!_measure) {
+			return;
+		}
+		byte[] data = packet.getData();
+		int offset = packet.getOffset() + 12;
+		long sent = 0;
+		for (int n = 0; n < 8; n++) {
+			sent |= (data[offset + n] & 0xFFL) << (8 * n);
+		}
+		long latencyUs = (System.nanoTime() - sent) / 1000;
+		_latencies.incrementAndGet((int) Math.min(BUCKETS - 1, latencyUs / BUCKET_US));
+	}
+
+	private void printLatencies() {
+		long total = 0;
+		for (int n = 0; n < BUCKETS; n++) {
+			total += _latencies.get(n);
+		}
+		System.out.printf("packets: %d%n", total);
+		double[] quantiles = { 0.5, 0.9, 0.99, 0.999, 1.0 };
+		long count = 0;
+		int q = 0;
+		for (int n = 0; n < BUCKETS && q < quantiles.length; n++) {
+			count += _latencies.get(n);
+			while (q < quantiles.length && count >= Math.ceil(quantiles[q] * total) && total > 0) {
+				System.out.printf("latency p%s: %d us%n", quantiles[q] * 100, (n + 1) * BUCKET_US);
+				q++;
+			}
+		}
+	}
+
+	private static long usedHeap() throws InterruptedException {
+		for (int n = 0; n < 3; n++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	/**
+	 * The resident set size of the process (Linux only), or -1.
+	 */
+	private static long rss() {
+		try {
+			for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+				if (line.startsWith("VmRSS:")) {
+					return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+				}
+			}
+		} catch (IOException | NumberFormatException ex) {
+			// Not available.
+		}
+		return -1;
+	}
+
+}
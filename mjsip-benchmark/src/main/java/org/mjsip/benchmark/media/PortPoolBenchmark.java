@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.benchmark.media;
+
+import java.util.concurrent.TimeUnit;
+
+import org.mjsip.pool.PortPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Allocation of media ports from a shared {@link PortPool} by 32 concurrent threads.
+ *
+ * <p>
+ * Each operation releases the oldest of the ports held by a thread and allocates a new one, as
+ * done when calls with a media stream terminate and new calls are set up. The
+ * <code>synchronized</code> pool is the former implementation serializing all threads on a single
+ * lock, the <code>striped</code> pool is the current {@link PortPool}. The result is the number of
+ * allocations per second across all threads.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(32)
+public class PortPoolBenchmark {
+
+	/** Number of ports in the pool. */
+	private static final int PORT_CNT = 10000;
+
+	/** Number of ports held by each thread. */
+	private static final int HELD = 16;
+
+	/**
+	 * Common interface of the compared pools.
+	 */
+	interface Pool {
+
+		int allocate();
+
+		void release(int port);
+
+	}
+
+	/**
+	 * The shared pool.
+	 */
+	@State(Scope.Benchmark)
+	public static class PoolState {
+
+		/** The pool implementation. */
+		@Param({ "synchronized", "striped" })
+		public String impl;
+
+		Pool pool;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			if ("synchronized".equals(impl)) {
+				pool = new SynchronizedPool(50000, PORT_CNT);
+			} else {
+				PortPool portPool = new PortPool(50000, PORT_CNT);
+				pool = new Pool() {
+					@Override
+					public int allocate() {
+						return portPool.allocate();
+					}
+
+					@Override
+					public void release(int port) {
+						portPool.release(port);
+					}
+				};
+			}
+		}
+	}
+
+	/**
+	 * The ports held by a thread.
+	 */
+	@State(Scope.Thread)
+	public static class HeldPorts {
+
+		Pool pool;
+
+		final int[] ports = new int[HELD];
+
+		int oldest;
+
+		@Setup(Level.Trial)
+		public void setUp(PoolState state) {
+			pool = state.pool;
+			for (int n = 0; n < HELD; n++) {
+				ports[n] = pool.allocate();
+			}
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			for (int port : ports) {
+				pool.release(port);
+			}
+		}
+	}
+
+	/**
+	 * Releasing the oldest port of a thread and allocating a new one.
+	 */
+	@Benchmark
+	public int allocate(HeldPorts held) {
+		int index = held.oldest;
+		held.pool.release(held.ports[index]);
+		int port = held.pool.allocate();
+		held.ports[index] = port;
+		held.oldest = (index + 1) % HELD;
+		return port;
+	}
+
+	/**
+	 * The former pool implementation with a single stack of free ports guarded by the pool's lock.
+	 */
+	static final class SynchronizedPool implements Pool {
+
+		private final int[] _ports;
+
+		private int _next;
+
+		SynchronizedPool(int firstPort, int portCnt) {
+			_ports = new int[portCnt];
+			for (int n = 0; n < portCnt; n++) {
+				_ports[n] = firstPort + n;
+			}
+		}
+
+		@Override
+		public synchronized int allocate() {
+			if (_next == _ports.length) {
+				throw new PortPool.Exhausted("No more ports available.");
+			}
+			return _ports[_next++];
+		}
+
+		@Override
+		public synchronized void release(int port) {
+			_ports[--_next] = port;
+		}
+
+	}
+
+}
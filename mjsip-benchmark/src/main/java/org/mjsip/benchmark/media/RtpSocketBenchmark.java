@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.benchmark.media;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+
+import org.mjsip.rtp.RtpPacket;
+import org.mjsip.rtp.RtpSocket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zoolu.net.IpAddress;
+import org.zoolu.net.SocketAddress;
+import org.zoolu.net.UdpSocket;
+
+/**
+ * Sending and receiving RTP packets through {@link RtpSocket}s over the loopback interface.
+ *
+ * <p>
+ * Each operation sends a 172 byte G.711 packet on one of the streams and receives it on the other
+ * end. Run with <code>-prof gc</code> to see the allocation per packet. What remains in steady state
+ * is allocated by the JDK's {@link java.net.DatagramSocket} and not by the RTP stack.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RtpSocketBenchmark {
+
+	private static final int PAYLOAD_SIZE = 160;
+
+	/**
+	 * Pairs of connected {@link RtpSocket}s.
+	 */
+	@State(Scope.Thread)
+	public static class StreamState {
+
+		/** Number of concurrent streams. */
+		@Param({ "1", "100" })
+		public int streams;
+
+		UdpSocket[] udpSockets;
+
+		RtpSocket[] senders;
+
+		RtpSocket[] receivers;
+
+		RtpPacket txPacket;
+
+		RtpPacket rxPacket;
+
+		int next;
+
+		@Setup(Level.Trial)
+		public void setUp() throws IOException {
+			IpAddress localhost = new IpAddress(InetAddress.getLoopbackAddress());
+			udpSockets = new UdpSocket[2 * streams];
+			senders = new RtpSocket[streams];
+			receivers = new RtpSocket[streams];
+			for (int n = 0; n < streams; n++) {
+				UdpSocket tx = new UdpSocket(0, localhost);
+				UdpSocket rx = new UdpSocket(0, localhost);
+				udpSockets[2 * n] = tx;
+				udpSockets[2 * n + 1] = rx;
+				senders[n] = new RtpSocket(tx, new SocketAddress(localhost, rx.getLocalPort()));
+				receivers[n] = new RtpSocket(rx, new SocketAddress(localhost, tx.getLocalPort()));
+			}
+			txPacket = new RtpPacket(0, 4711, 1, 0, new byte[PAYLOAD_SIZE], 0, PAYLOAD_SIZE);
+			rxPacket = new RtpPacket(new byte[2000], 0);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			for (UdpSocket socket : udpSockets) {
+				socket.close();
+			}
+		}
+
+		int next() {
+			int result = next++;
+			if (next == streams) {
+				next = 0;
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Sending a packet and receiving it on the other end of its stream.
+	 */
+	@Benchmark
+	public int sendReceive(StreamState state) throws IOException {
+		int n = state.next();
+		state.senders[n].send(state.txPacket);
+		state.receivers[n].receive(state.rxPacket);
+		return state.rxPacket.getPacketLength();
+	}
+
+}
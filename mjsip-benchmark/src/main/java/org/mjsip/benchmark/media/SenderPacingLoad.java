@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.benchmark.media;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.mjsip.media.RtpStreamSender;
+import org.mjsip.media.StreamerOptions;
+import org.mjsip.media.tx.MediaClock;
+import org.mjsip.time.Threads;
+import org.zoolu.net.IpAddress;
+import org.zoolu.net.UdpSocket;
+
+/**
+ * Load test comparing the pacing of {@link RtpStreamSender}s in their own threads with the pacing by
+ * a shared {@link MediaClock}.
+ *
+ * <p>
+ * Each stream sends a 160 byte G.711 frame every 20ms to a common sink socket. The test reports
+ * the deviation of the inter-packet time from the nominal 20ms (measured when the sender reads its
+ * next frame, directly before sending), the number of threads and the CPU use of the process.
+ * Run with:
+ * </p>
+ *
+ * <pre>
+ * java -cp benchmarks.jar org.mjsip.benchmark.media.SenderPacingLoad [threads|clock] [streams] [seconds] [clock-threads]
+ * </pre>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+public class SenderPacingLoad {
+
+	private static final int FRAME_SIZE = 160;
+
+	private static final long PACKET_TIME_MS = 20;
+
+	private static final long PACKET_TIME = TimeUnit.MILLISECONDS.toNanos(PACKET_TIME_MS);
+
+	/** Resolution of the jitter histogram in microseconds. */
+	private static final int BUCKET_US = 10;
+
+	/** Number of buckets in the jitter histogram, the last one collects all larger values. */
+	private static final int BUCKETS = 100000;
+
+	private final AtomicLongArray _jitter = new AtomicLongArray(BUCKETS);
+
+	private volatile boolean _measure;
+
+	/**
+	 * Main entry point.
+	 */
+	public static void main(String[] args) throws Exception {
+		boolean clock = args.length > 0 && args[0].equals("clock");
+		int streams = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+		int clockThreads = args.length > 3 ? Integer.parseInt(args[3])
+			: Runtime.getRuntime().availableProcessors();
+
+		System.out.println("Java " + System.getProperty("java.version") + ", " + streams + " streams, "
+				+ (clock ? "media clock with " + clockThreads + " threads" : "thread per stream"));
+
+		new SenderPacingLoad().run(streams, seconds, clock ? clockThreads : 0);
+	}
+
+	private void run(int streams, int seconds, int clockThreads) throws Exception {
+		int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+
+		IpAddress localhost = new IpAddress(InetAddress.getLoopbackAddress());
+		MediaClock clock = clockThreads > 0 ? new MediaClock(clockThreads) : null;
+		StreamerOptions options = StreamerOptions.builder().setMediaClock(clock).build();
+
+		List<RtpStreamSender> senders = new ArrayList<>();
+		UdpSocket sink = new UdpSocket(0, localhost);
+		try {
+			for (int n = 0; n < streams; n++) {
+				UdpSocket socket = new UdpSocket(0, localhost);
+				RtpStreamSender sender = new RtpStreamSender(options, new FrameInput(), true, 0, null, 8000, 1,
+					PACKET_TIME_MS, FRAME_SIZE, null, socket, localhost.toString(), sink.getLocalPort(), null, null);
+				senders.add(sender);
+				String name = "RtpSender-" + n;
+				sender.start(command -> Threads.start(name, command));
+			}
+
+			// Warm up.
+			Thread.sleep(2000);
+
+			int threads = ManagementFactory.getThreadMXBean().getThreadCount() - threadsBefore;
+			long cpuBefore = cpuTime();
+			long timeBefore = System.nanoTime();
+			_measure = true;
+			Thread.sleep(seconds * 1000L);
+			_measure = false;
+			long cpu = cpuTime() - cpuBefore;
+			long time = System.nanoTime() - timeBefore;
+
+			System.out.printf("threads: %d%n", threads);
+			if (cpu >= 0) {
+				System.out.printf("cpu: %.1f%% of one core%n", 100.0 * cpu / time);
+			}
+			printJitter();
+		} finally {
+			for (RtpStreamSender sender : senders) {
+				sender.halt();
+			}
+			for (RtpStreamSender sender : senders) {
+				sender.join();
+			}
+			sink.close();
+			if (clock != null) {
+				clock.stop();
+			}
+		}
+	}
+
+	void record(long interval) {
+		long jitterUs = Math.abs(interval - PACKET_TIME) / 1000;
+		_jitter.incrementAndGet((int) Math.min(BUCKETS - 1, jitterUs / BUCKET_US));
+	}
+
+	private void printJitter() {
+		long total = 0;
+		for (int n = 0; n < BUCKETS; n++) {
+			total += _jitter.get(n);
+		}
+		System.out.printf("packets: %d%n", total);
+		double[] quantiles = { 0.5, 0.9, 0.99, 0.999, 1.0 };
+		long count = 0;
+		int q = 0;
+		for (int n = 0; n < BUCKETS && q < quantiles.length; n++) {
+			count += _jitter.get(n);
+			while (q < quantiles.length && count >= Math.ceil(quantiles[q] * total) && total > 0) {
+				System.out.printf("jitter p%s: %d us%n", quantiles[q] * 100, (n + 1) * BUCKET_US);
+				q++;
+			}
+		}
+	}
+
+	/**
+	 * The CPU time of the process in nanoseconds, or -1, if not available.
+	 */
+	private static long cpuTime() {
+		java.lang.management.OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+		if (os instanceof com.sun.management.OperatingSystemMXBean) {
+			return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+		}
+		return -1;
+	}
+
+	/**
+	 * Endless silence, recording the time between two frames.
+	 */
+	private final class FrameInput extends InputStream {
+
+		private long _last;
+
+		@Override
+		public int read() throws IOException {
+			return 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			long now = System.nanoTime();
+			if (_last != 0 && _measure) {
+				record(now - _last);
+			}
+			_last = now;
+			return len;
+		}
+
+		@Override
+		public int available() {
+			// Frames are generated on demand.
+			return Integer.MAX_VALUE;
+		}
+
+	}
+
+}
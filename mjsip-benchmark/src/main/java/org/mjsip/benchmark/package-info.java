@@ -0,0 +1,8 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+
+/**
+ * JMH micro benchmarks for the mjSIP stack.
+ */
+package org.mjsip.benchmark;
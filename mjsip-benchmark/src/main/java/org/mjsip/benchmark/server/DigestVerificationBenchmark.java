@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.benchmark.server;
+
+import java.util.concurrent.TimeUnit;
+
+import org.mjsip.server.AuthenticationServerImpl;
+import org.mjsip.server.AuthenticationServiceImpl;
+import org.mjsip.sip.authentication.DigestAuthentication;
+import org.mjsip.sip.authentication.DigestVerifier;
+import org.mjsip.sip.header.AuthorizationHeader;
+import org.mjsip.sip.header.WwwAuthenticateHeader;
+import org.mjsip.sip.message.SipMessage;
+import org.mjsip.sip.provider.SipConfig;
+import org.mjsip.sip.provider.SipProvider;
+import org.mjsip.time.ConfiguredScheduler;
+import org.mjsip.time.SchedulerConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Digest authentication of REGISTER requests by the {@link AuthenticationServerImpl}.
+ *
+ * <p>
+ * The <code>challenge</code> benchmark answers a REGISTER without credentials with a 401 response
+ * carrying a new nonce. The <code>verifyPassword</code> benchmark checks the digest-response of the
+ * authorized REGISTER as done before, computing the complete MD5 chain from the password with
+ * hexadecimal strings. The <code>verifyHA1</code> benchmark checks the same response with the
+ * {@link DigestVerifier} from the H(A1) stored in the authentication DB. Run with <code>-t 4</code>
+ * to check that verification scales with the number of threads.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DigestVerificationBenchmark {
+
+	private static final String REALM = "example.com";
+
+	private static final String PASSWD = "secret";
+
+	/**
+	 * The authentication server with a REGISTER request and its authorized retry.
+	 */
+	@State(Scope.Benchmark)
+	public static class AuthState {
+
+		SipProvider provider;
+
+		AuthenticationServerImpl server;
+
+		SipMessage register;
+
+		SipMessage authorized;
+
+		byte[] ha1;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			SipConfig config = new SipConfig();
+			config.setTransportProtocols(new String[0]);
+			provider = new SipProvider(config, new ConfiguredScheduler(new SchedulerConfig()));
+			AuthenticationServiceImpl users = new AuthenticationServiceImpl(null, false) {
+				// In memory only.
+			};
+			users.addUser("alice@" + REALM, PASSWD.getBytes());
+			server = new AuthenticationServerImpl(provider, REALM, users);
+
+			register = register();
+			SipMessage challenge = server.authenticateRequest(register);
+			WwwAuthenticateHeader wah = challenge.getWwwAuthenticateHeader();
+			DigestAuthentication digest = new DigestAuthentication("REGISTER", "sip:" + REALM, wah, "auth", null, 1,
+				null, "alice", PASSWD);
+			authorized = register();
+			authorized.setAuthorizationHeader(digest.getAuthorizationHeader());
+			ha1 = users.getUserHA1("alice@" + REALM);
+
+			if (!checkPassword(this) || !checkHA1(this)) {
+				throw new IllegalStateException("Verification failed.");
+			}
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			provider.halt();
+		}
+
+		private static SipMessage register() {
+			return new SipMessage(
+				"REGISTER sip:" + REALM + " SIP/2.0\r\n" +
+				"Via: SIP/2.0/UDP 10.0.0.1:5060;branch=z9hG4bK776asdhds\r\n" +
+				"Max-Forwards: 70\r\n" +
+				"From: <sip:alice@" + REALM + ">;tag=9fxced76sl\r\n" +
+				"To: <sip:alice@" + REALM + ">\r\n" +
+				"Call-ID: 843817637684230@10.0.0.1\r\n" +
+				"CSeq: 1 REGISTER\r\n" +
+				"Contact: <sip:alice@10.0.0.1:5060>\r\n" +
+				"Expires: 3600\r\n" +
+				"Content-Length: 0\r\n" +
+				"\r\n");
+		}
+	}
+
+	/**
+	 * Answering a REGISTER without credentials with a 401 challenge.
+	 */
+	@Benchmark
+	public SipMessage challenge(AuthState state) {
+		return state.server.authenticateRequest(state.register);
+	}
+
+	/**
+	 * Verifying the digest-response from the user's password with string concatenation.
+	 */
+	@Benchmark
+	public boolean verifyPassword(AuthState state) {
+		return checkPassword(state);
+	}
+
+	/**
+	 * Verifying the digest-response from the stored H(A1) on byte arrays.
+	 */
+	@Benchmark
+	public boolean verifyHA1(AuthState state) {
+		return checkHA1(state);
+	}
+
+	static boolean checkPassword(AuthState state) {
+		SipMessage msg = state.authorized;
+		AuthorizationHeader ah = msg.getAuthorizationHeader();
+		return new DigestAuthentication(msg.getRequestLine().getMethod(), ah, msg.getBody(), PASSWD).checkResponse();
+	}
+
+	static boolean checkHA1(AuthState state) {
+		SipMessage msg = state.authorized;
+		AuthorizationHeader ah = msg.getAuthorizationHeader();
+		return DigestVerifier.checkResponse(msg.getRequestLine().getMethod(), ah, msg.getBody(), state.ha1);
+	}
+
+}
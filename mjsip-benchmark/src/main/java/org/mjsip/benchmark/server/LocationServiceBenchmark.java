@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.benchmark.server;
+
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.mjsip.server.LocationService;
+import org.mjsip.server.LocationServiceImpl;
+import org.mjsip.sip.address.NameAddress;
+import org.mjsip.sip.address.SipURI;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Registrations and lookups in a {@link LocationServiceImpl} with a large number of bindings.
+ *
+ * <p>
+ * The <code>register</code> benchmark refreshes the registration of a random user as the
+ * {@link org.mjsip.server.Registrar} does for a REGISTER request, the <code>lookup</code>
+ * benchmark collects the valid contacts of a random user as done for routing an INVITE. The
+ * <code>mixed</code> group runs lookups concurrently with registrations, lookups must not slow down
+ * because of concurrent writes. Run with <code>-jvmArgs -Xmx4g</code> for the default of one
+ * million bindings.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocationServiceBenchmark {
+
+	/** Registration interval in milliseconds. */
+	private static final long EXPIRES = 3600 * 1000L;
+
+	/**
+	 * The location service with registered users.
+	 */
+	@State(Scope.Benchmark)
+	public static class LocationState {
+
+		/** Number of registered users, each with one contact. */
+		@Param({ "1000000" })
+		public int users;
+
+		LocationService location;
+
+		String[] names;
+
+		NameAddress[] contacts;
+
+		String[] uris;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			location = new LocationServiceImpl(null);
+			names = new String[users];
+			contacts = new NameAddress[users];
+			uris = new String[users];
+			long now = System.currentTimeMillis();
+			for (int n = 0; n < users; n++) {
+				names[n] = "user" + n + "@example.com";
+				contacts[n] = new NameAddress(new SipURI("user" + n, "10." + (n >> 16 & 255) + "." + (n >> 8 & 255) + "." + (n & 255), 5060));
+				uris[n] = contacts[n].getAddress().toString();
+				location.addUserContact(names[n], contacts[n], new Date(now + EXPIRES));
+			}
+		}
+
+		int next() {
+			return ThreadLocalRandom.current().nextInt(users);
+		}
+	}
+
+	/**
+	 * Refreshing the registration of a contact.
+	 */
+	@Benchmark
+	public void register(LocationState state) {
+		doRegister(state);
+	}
+
+	/**
+	 * Looking up the valid contacts of a user.
+	 */
+	@Benchmark
+	public int lookup(LocationState state) {
+		return doLookup(state);
+	}
+
+	/**
+	 * Registrations concurrent to the lookups.
+	 */
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(1)
+	public void mixedRegister(LocationState state) {
+		doRegister(state);
+	}
+
+	/**
+	 * Lookups concurrent to registrations.
+	 */
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(3)
+	public int mixedLookup(LocationState state) {
+		return doLookup(state);
+	}
+
+	private static void doRegister(LocationState state) {
+		int n = state.next();
+		String user = state.names[n];
+		state.location.removeUserContact(user, state.uris[n]);
+		state.location.addUserContact(user, state.contacts[n], new Date(System.currentTimeMillis() + EXPIRES));
+	}
+
+	private static int doLookup(LocationState state) {
+		String user = state.names[state.next()];
+		int result = 0;
+		for (Enumeration<String> e = state.location.getUserContactURIs(user); e.hasMoreElements();) {
+			String contact = e.nextElement();
+			if (!state.location.isUserContactExpired(user, contact)) {
+				result++;
+			}
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.benchmark.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.mjsip.server.DomainProxyingRule;
+import org.mjsip.server.PrefixProxyingRule;
+import org.mjsip.server.ProxyingRule;
+import org.mjsip.server.ProxyingTable;
+import org.mjsip.sip.address.SipURI;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zoolu.net.SocketAddress;
+
+/**
+ * Routing of request URIs with a large number of proxying rules, scanned in order as before
+ * compared to the compiled {@link ProxyingTable}.
+ *
+ * <p>
+ * The phone rules consist of random carrier prefixes with 4 to 8 digits, the domain rules of
+ * random domain names. Each operation routes the next of a set of request URIs, most of which match
+ * some rule.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProxyingRuleBenchmark {
+
+	/** Number of request URIs routed in turn. */
+	private static final int URIS = 1024;
+
+	/**
+	 * The rules and the request URIs.
+	 */
+	@State(Scope.Thread)
+	public static class RuleState {
+
+		/** Number of rules of each kind. */
+		@Param({ "100", "100000" })
+		public int rules;
+
+		ProxyingRule[] phoneRules;
+
+		ProxyingRule[] domainRules;
+
+		ProxyingTable phoneTable;
+
+		ProxyingTable domainTable;
+
+		SipURI[] phoneUris;
+
+		SipURI[] domainUris;
+
+		int next;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			Random rnd = new Random(42);
+			SocketAddress nexthop = new SocketAddress("10.0.0.1:5060");
+			List<String> prefixes = new ArrayList<>();
+			List<String> domains = new ArrayList<>();
+			phoneRules = new ProxyingRule[rules];
+			domainRules = new ProxyingRule[rules];
+			for (int n = 0; n < rules; n++) {
+				String prefix = digits(rnd, 4 + rnd.nextInt(5));
+				String domain = "carrier" + n + ".example.net";
+				prefixes.add(prefix);
+				domains.add(domain);
+				phoneRules[n] = new PrefixProxyingRule(prefix, nexthop);
+				domainRules[n] = new DomainProxyingRule(domain, nexthop);
+			}
+			phoneTable = ProxyingTable.compile(phoneRules);
+			domainTable = ProxyingTable.compile(domainRules);
+
+			phoneUris = new SipURI[URIS];
+			domainUris = new SipURI[URIS];
+			for (int n = 0; n < URIS; n++) {
+				String prefix = prefixes.get(rnd.nextInt(rules));
+				phoneUris[n] = new SipURI(prefix + digits(rnd, 12 - prefix.length()), "example.com");
+				domainUris[n] = new SipURI("alice", domains.get(rnd.nextInt(rules)));
+			}
+		}
+
+		int next() {
+			int result = next;
+			next = (result + 1) % URIS;
+			return result;
+		}
+
+		private static String digits(Random rnd, int cnt) {
+			StringBuilder result = new StringBuilder();
+			for (int n = 0; n < cnt; n++) {
+				result.append((char) ('0' + rnd.nextInt(10)));
+			}
+			return result.toString();
+		}
+	}
+
+	/**
+	 * Routing a telephone number by scanning the prefix rules in order.
+	 */
+	@Benchmark
+	public SipURI phoneScan(RuleState state) {
+		return scan(state.phoneRules, state.phoneUris[state.next()]);
+	}
+
+	/**
+	 * Routing a telephone number by the longest matching prefix in the compiled table.
+	 */
+	@Benchmark
+	public SipURI phoneCompiled(RuleState state) {
+		return state.phoneTable.getNexthop(state.phoneUris[state.next()]);
+	}
+
+	/**
+	 * Routing a domain by scanning the domain rules in order.
+	 */
+	@Benchmark
+	public SipURI domainScan(RuleState state) {
+		return scan(state.domainRules, state.domainUris[state.next()]);
+	}
+
+	/**
+	 * Routing a domain by the hash index of the compiled table.
+	 */
+	@Benchmark
+	public SipURI domainCompiled(RuleState state) {
+		return state.domainTable.getNexthop(state.domainUris[state.next()]);
+	}
+
+	private static SipURI scan(ProxyingRule[] rules, SipURI uri) {
+		for (ProxyingRule rule : rules) {
+			SipURI nexthop = rule.getNexthop(uri);
+			if (nexthop != null) {
+				return nexthop;
+			}
+		}
+		return null;
+	}
+
+}
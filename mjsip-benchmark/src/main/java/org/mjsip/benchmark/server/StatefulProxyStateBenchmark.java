@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.benchmark.server;
+
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.mjsip.server.StatefulProxyState;
+import org.mjsip.sip.message.SipMessage;
+import org.mjsip.sip.message.SipResponses;
+import org.mjsip.sip.provider.SipConfig;
+import org.mjsip.sip.provider.SipId;
+import org.mjsip.sip.provider.SipProvider;
+import org.mjsip.sip.transaction.Transaction;
+import org.mjsip.sip.transaction.TransactionClient;
+import org.mjsip.sip.transaction.TransactionServer;
+import org.mjsip.time.ConfiguredScheduler;
+import org.mjsip.time.SchedulerConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Forking and response aggregation of unrelated calls in a {@link StatefulProxyState} shared by
+ * 32 concurrent threads.
+ *
+ * <p>
+ * Each operation forks a request to two branches and completes both branches with a failure
+ * response, as done by the stateful proxy for a call to a user with two registered contacts that
+ * does not answer. The <code>synchronized</code> state is the former implementation serializing
+ * all threads on a single lock, the <code>concurrent</code> state is the current
+ * {@link StatefulProxyState}. The result is the number of forked requests per second across all
+ * threads.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(32)
+public class StatefulProxyStateBenchmark {
+
+	/** Number of calls each thread handles in turn. */
+	private static final int CALLS = 64;
+
+	/** Number of branches of each call. */
+	private static final int FORKS = 2;
+
+	/**
+	 * Common interface of the compared implementations.
+	 */
+	interface ProxyState {
+
+		void addClient(TransactionServer ts, Transaction tc);
+
+		/**
+		 * Completes a branch with a failure response, returns the final response to send, if this
+		 * was the last branch.
+		 */
+		SipMessage completeClient(TransactionServer ts, TransactionClient tc, SipMessage resp);
+
+	}
+
+	/**
+	 * The shared state.
+	 */
+	@State(Scope.Benchmark)
+	public static class SharedState {
+
+		/** The state implementation. */
+		@Param({ "synchronized", "concurrent" })
+		public String impl;
+
+		SipProvider provider;
+
+		ProxyState state;
+
+		final AtomicInteger threadCnt = new AtomicInteger();
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			SipConfig config = new SipConfig();
+			config.setTransportProtocols(new String[0]);
+			provider = new SipProvider(config, new ConfiguredScheduler(new SchedulerConfig()));
+			if ("synchronized".equals(impl)) {
+				state = new SynchronizedState(provider);
+			} else {
+				StatefulProxyState proxyState = new StatefulProxyState(provider);
+				state = new ProxyState() {
+					@Override
+					public void addClient(TransactionServer ts, Transaction tc) {
+						proxyState.addClient(ts, tc);
+					}
+
+					@Override
+					public SipMessage completeClient(TransactionServer ts, TransactionClient tc, SipMessage resp) {
+						return proxyState.completeClient(tc, resp);
+					}
+				};
+			}
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			provider.halt();
+		}
+	}
+
+	/**
+	 * The calls handled by a thread.
+	 */
+	@State(Scope.Thread)
+	public static class Calls {
+
+		ProxyState state;
+
+		TransactionServer[] servers;
+
+		TransactionClient[][] clients;
+
+		SipMessage[] responses;
+
+		int next;
+
+		@Setup(Level.Trial)
+		public void setUp(SharedState shared) {
+			state = shared.state;
+			int thread = shared.threadCnt.incrementAndGet();
+			servers = new TransactionServer[CALLS];
+			clients = new TransactionClient[CALLS][FORKS];
+			responses = new SipMessage[CALLS];
+			for (int call = 0; call < CALLS; call++) {
+				String callId = "call-" + thread + "-" + call;
+				servers[call] = new TransactionServer(shared.provider, request(callId, "z9hG4bKserver"), null);
+				for (int fork = 0; fork < FORKS; fork++) {
+					clients[call][fork] =
+						new TransactionClient(shared.provider, request(callId, "z9hG4bKfork" + fork), null);
+				}
+				responses[call] = shared.provider.messageFactory().createResponse(servers[call].getRequestMessage(),
+					SipResponses.TEMPORARILY_UNAVAILABLE, null, null);
+			}
+		}
+
+		private static SipMessage request(String callId, String branch) {
+			return new SipMessage("INVITE sip:bob@example.com SIP/2.0\r\n"
+				+ "Via: SIP/2.0/UDP 127.0.0.1:5060;branch=" + branch + "\r\n"
+				+ "Max-Forwards: 70\r\n"
+				+ "From: <sip:alice@example.com>;tag=1\r\n"
+				+ "To: <sip:bob@example.com>\r\n"
+				+ "Call-ID: " + callId + "\r\n"
+				+ "CSeq: 1 INVITE\r\n"
+				+ "Content-Length: 0\r\n"
+				+ "\r\n");
+		}
+	}
+
+	/**
+	 * Forking a request and aggregating the failure responses of all branches.
+	 */
+	@Benchmark
+	public SipMessage fork(Calls calls) {
+		int call = calls.next;
+		calls.next = (call + 1) % CALLS;
+
+		TransactionServer ts = calls.servers[call];
+		TransactionClient[] clients = calls.clients[call];
+		for (TransactionClient tc : clients) {
+			calls.state.addClient(ts, tc);
+		}
+		SipMessage result = null;
+		for (TransactionClient tc : clients) {
+			result = calls.state.completeClient(ts, tc, calls.responses[call]);
+		}
+		return result;
+	}
+
+	/**
+	 * The former implementation with all tables guarded by a single lock, used as in the former
+	 * failure response handling of the stateful proxy.
+	 */
+	static final class SynchronizedState implements ProxyState {
+
+		private final Hashtable<SipId, TransactionServer> _clientServer = new Hashtable<>();
+
+		private final Hashtable<SipId, HashSet<Transaction>> _serverClients = new Hashtable<>();
+
+		private final Hashtable<SipId, SipMessage> _serverResponse = new Hashtable<>();
+
+		private final SipProvider _provider;
+
+		SynchronizedState(SipProvider provider) {
+			_provider = provider;
+		}
+
+		@Override
+		public synchronized void addClient(TransactionServer ts, Transaction tc) {
+			_clientServer.put(tc.getTransactionId(), ts);
+			SipId sid = ts.getTransactionId();
+			HashSet<Transaction> clients = _serverClients.get(sid);
+			if (clients == null) {
+				clients = new HashSet<>();
+			}
+			clients.add(tc);
+			_serverClients.put(sid, clients);
+			SipMessage request = new SipMessage(ts.getRequestMessage());
+			_serverResponse.put(sid,
+				_provider.messageFactory().createResponse(request, SipResponses.REQUEST_TIMEOUT, null, null));
+		}
+
+		@Override
+		public SipMessage completeClient(TransactionServer ts, TransactionClient tc, SipMessage resp) {
+			removeClient(tc);
+			if (!hasServer(ts)) {
+				return null;
+			}
+			setFinalResponse(ts, resp);
+			if (!getClients(ts).isEmpty()) {
+				return null;
+			}
+			SipMessage result = getFinalResponse(ts);
+			removeServer(ts);
+			return result;
+		}
+
+		private synchronized void removeClient(TransactionClient tc) {
+			SipId cid = tc.getTransactionId();
+			TransactionServer ts = _clientServer.remove(cid);
+			if (ts == null) {
+				return;
+			}
+			HashSet<Transaction> clients = _serverClients.get(ts.getTransactionId());
+			if (clients != null) {
+				clients.removeIf(client -> client.getTransactionId().equals(cid));
+			}
+		}
+
+		private boolean hasServer(TransactionServer ts) {
+			return _serverClients.containsKey(ts.getTransactionId());
+		}
+
+		private synchronized void setFinalResponse(TransactionServer ts, SipMessage resp) {
+			_serverResponse.put(ts.getTransactionId(), resp);
+		}
+
+		private synchronized HashSet<Transaction> getClients(TransactionServer ts) {
+			return _serverClients.get(ts.getTransactionId());
+		}
+
+		private synchronized SipMessage getFinalResponse(TransactionServer ts) {
+			return _serverResponse.get(ts.getTransactionId());
+		}
+
+		private synchronized void removeServer(TransactionServer ts) {
+			SipId sid = ts.getTransactionId();
+			_serverClients.remove(sid);
+			_serverResponse.remove(sid);
+		}
+
+	}
+
+}
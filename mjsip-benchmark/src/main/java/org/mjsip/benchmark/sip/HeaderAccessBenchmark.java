@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.benchmark.sip;
+
+import java.util.concurrent.TimeUnit;
+
+import org.mjsip.sip.header.ViaHeader;
+import org.mjsip.sip.message.SipMessage;
+import org.mjsip.sip.provider.SipId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Access to the typed header fields of a received message, as done while the message is
+ * dispatched by the {@link org.mjsip.sip.provider.SipProvider} and processed by a transaction and
+ * dialog.
+ *
+ * <p>
+ * The <code>access</code> benchmark repeats the lookups on the same message, where all but the
+ * first access of a header field hit the parsed form kept in the message. The
+ * <code>firstAccess</code> benchmark performs the same lookups on a fresh copy of the message.
+ * Run with <code>-prof gc</code> to compare the allocation rate per operation.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HeaderAccessBenchmark {
+
+	/**
+	 * The received message.
+	 */
+	@State(Scope.Thread)
+	public static class MessageState {
+
+		SipMessage message;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			message = SipTestMessages.receivedInvite(1);
+		}
+	}
+
+	/**
+	 * Header accesses on a message that has already been accessed before.
+	 */
+	@Benchmark
+	public void access(MessageState state, Blackhole bh) {
+		lookups(state.message, bh);
+	}
+
+	/**
+	 * Header accesses on a message that has not been accessed before.
+	 */
+	@Benchmark
+	public void firstAccess(MessageState state, Blackhole bh) {
+		lookups(new SipMessage(state.message), bh);
+	}
+
+	private static void lookups(SipMessage msg, Blackhole bh) {
+		// Received message: Check of the top Via.
+		ViaHeader via = msg.getViaHeader();
+		bh.consume(via.getHost());
+		bh.consume(via.hasRport());
+
+		// Dispatch to the transaction, dialog, and method listeners.
+		bh.consume(SipId.createTransactionServerId(msg));
+		bh.consume(SipId.createDialogId(msg));
+		bh.consume(SipId.createMethodId(msg));
+
+		// Processing in the transaction.
+		bh.consume(msg.getTransactionMethod());
+		bh.consume(msg.getCSeqHeader().getSequenceNumber());
+		bh.consume(msg.getCallIdHeader().getCallId());
+	}
+
+}
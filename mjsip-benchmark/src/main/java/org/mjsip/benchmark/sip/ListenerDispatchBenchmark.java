@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.benchmark.sip;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.mjsip.sip.message.SipMessage;
+import org.mjsip.sip.provider.SipConfig;
+import org.mjsip.sip.provider.SipId;
+import org.mjsip.sip.provider.SipProvider;
+import org.mjsip.sip.provider.SipProviderListener;
+import org.mjsip.time.ConfiguredScheduler;
+import org.mjsip.time.SchedulerConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Dispatch of received messages to the listeners registered at a {@link SipProvider}.
+ *
+ * <p>
+ * The <code>dispatch</code> benchmark measures pure lookup throughput and latency. Run it with
+ * increasing thread counts (e.g. <code>-t 1</code>, <code>-t 4</code>, <code>-t 16</code>) to see
+ * how dispatch scales with the number of receive threads. The <code>churn</code> group adds
+ * concurrent registration and removal of transaction listeners, as happens while transactions are
+ * created and terminated.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListenerDispatchBenchmark {
+
+	/**
+	 * The provider with registered transaction listeners.
+	 */
+	@State(Scope.Benchmark)
+	public static class ProviderState {
+
+		/** Number of active transactions. */
+		@Param({ "10000" })
+		public int transactions;
+
+		SipProvider provider;
+
+		SipMessage[] messages;
+
+		final AtomicInteger nextId = new AtomicInteger();
+
+		final SipProviderListener listener = (sipProvider, message) -> {
+			// Ignore.
+		};
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			SipConfig config = new SipConfig();
+			config.setTransportProtocols(new String[0]);
+			provider = new SipProvider(config, new ConfiguredScheduler(new SchedulerConfig()));
+
+			messages = new SipMessage[transactions];
+			for (int n = 0; n < transactions; n++) {
+				messages[n] = SipTestMessages.receivedInvite(n);
+				provider.addSelectiveListener(SipId.createTransactionServerId(messages[n]), listener);
+			}
+			provider.addSelectiveListener(SipId.ANY_METHOD, listener);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			provider.halt();
+		}
+	}
+
+	/**
+	 * Per-thread position in the received message sequence.
+	 */
+	@State(Scope.Thread)
+	public static class ReceiverState {
+
+		int next;
+
+		SipMessage next(ProviderState state) {
+			SipMessage[] messages = state.messages;
+			int index = next++;
+			if (next == messages.length) {
+				next = 0;
+			}
+			return messages[index];
+		}
+	}
+
+	/**
+	 * Dispatches a received message to its transaction.
+	 */
+	@Benchmark
+	public void dispatch(ProviderState state, ReceiverState receiver) {
+		state.provider.onReceivedMessage(null, receiver.next(state));
+	}
+
+	/**
+	 * Dispatches received messages while transactions are created and terminated concurrently.
+	 */
+	@Benchmark
+	@Group("churn")
+	@GroupThreads(3)
+	public void churnDispatch(ProviderState state, ReceiverState receiver) {
+		state.provider.onReceivedMessage(null, receiver.next(state));
+	}
+
+	/**
+	 * Creates and terminates a transaction.
+	 */
+	@Benchmark
+	@Group("churn")
+	@GroupThreads(1)
+	public void churnRegister(ProviderState state, Blackhole blackhole) {
+		int id = state.nextId.incrementAndGet();
+		SipId key = SipId.createTransactionServerId("churn" + id, 1, "INVITE", "client.example.com:5060",
+				"z9hG4bK" + id);
+		state.provider.addSelectiveListener(key, state.listener);
+		state.provider.removeSelectiveListener(key);
+		blackhole.consume(key);
+	}
+
+}
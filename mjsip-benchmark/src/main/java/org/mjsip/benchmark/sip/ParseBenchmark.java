@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.benchmark.sip;
+
+import java.util.concurrent.TimeUnit;
+
+import org.mjsip.sip.message.SipMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parsing of received messages, in messages per second.
+ *
+ * <p>
+ * The <code>parseBytes</code> benchmark parses the message as received from a transport with
+ * {@link org.mjsip.sip.provider.SipByteParser}. The <code>parseString</code> benchmark parses the
+ * same message from a string with {@link org.mjsip.sip.provider.SipParser} for comparison. The
+ * <code>parseAndDispatch</code> benchmark additionally accesses the header fields required for
+ * dispatching the message.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseBenchmark {
+
+	/**
+	 * The raw message.
+	 */
+	@State(Scope.Thread)
+	public static class MessageState {
+
+		byte[] data;
+
+		String str;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			data = SipTestMessages.invite(1);
+			str = new String(data);
+		}
+	}
+
+	/**
+	 * Parses the message from bytes.
+	 */
+	@Benchmark
+	public SipMessage parseBytes(MessageState state) {
+		return new SipMessage(state.data, 0, state.data.length);
+	}
+
+	/**
+	 * Parses the message from a string.
+	 */
+	@Benchmark
+	public SipMessage parseString(MessageState state) {
+		return new SipMessage(state.str);
+	}
+
+	/**
+	 * Parses the message from bytes and accesses the header fields required for dispatching it.
+	 */
+	@Benchmark
+	public void parseAndDispatch(MessageState state, Blackhole bh) {
+		SipMessage msg = new SipMessage(state.data, 0, state.data.length);
+		bh.consume(msg.getViaHeader().getBranch());
+		bh.consume(msg.getCallIdHeader().getCallId());
+		bh.consume(msg.getCSeqHeader().getMethod());
+		bh.consume(msg.getFromHeader().getTag());
+		bh.consume(msg.getToHeader().getTag());
+	}
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.benchmark.sip;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.mjsip.sip.provider.SipId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Creation and lookup of {@link SipId}s, as done for each message received by the
+ * {@link org.mjsip.sip.provider.SipProvider}.
+ *
+ * <p>
+ * The identifier components are taken from a set of pre-parsed values, so that only the costs of
+ * the identifier itself are measured. Run with <code>-prof gc</code> to see the allocation per
+ * lookup.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SipIdBenchmark {
+
+	/**
+	 * Registered identifiers and the components of received messages.
+	 */
+	@State(Scope.Thread)
+	public static class IdState {
+
+		/** Number of active transactions and dialogs. */
+		@Param({ "10000" })
+		public int size;
+
+		String[] callIds;
+
+		String[] branches;
+
+		String[] localTags;
+
+		String[] remoteTags;
+
+		final Map<SipId, Object> listeners = new HashMap<>();
+
+		int next;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			callIds = new String[size];
+			branches = new String[size];
+			localTags = new String[size];
+			remoteTags = new String[size];
+			for (int n = 0; n < size; n++) {
+				callIds[n] = n + "3848276298220188511@client.example.com";
+				branches[n] = "z9hG4bK" + n + "f9a3";
+				localTags[n] = n + "8321234356";
+				remoteTags[n] = n + "fxced76sl";
+
+				listeners.put(SipId.createTransactionServerId(callIds[n], 1, "INVITE", null, branches[n]), this);
+				listeners.put(SipId.createDialogId(callIds[n], localTags[n], remoteTags[n]), this);
+			}
+		}
+
+		int next() {
+			int result = next++;
+			if (next == size) {
+				next = 0;
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Lookup of the server transaction of a received request.
+	 */
+	@Benchmark
+	public Object transaction(IdState state) {
+		int n = state.next();
+		return state.listeners.get(SipId.createTransactionServerId(state.callIds[n], 1, "INVITE", null, state.branches[n]));
+	}
+
+	/**
+	 * Lookup of the dialog of a received request.
+	 */
+	@Benchmark
+	public Object dialog(IdState state) {
+		int n = state.next();
+		return state.listeners.get(SipId.createDialogId(state.callIds[n], state.localTags[n], state.remoteTags[n]));
+	}
+
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.benchmark.sip;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.mjsip.sip.message.SipMessage;
+import org.mjsip.sip.message.SipMethods;
+import org.mjsip.sip.provider.SipAdmission;
+import org.mjsip.sip.provider.SipAdmission.Priority;
+import org.mjsip.sip.provider.SipConfig;
+import org.mjsip.sip.provider.SipId;
+import org.mjsip.sip.provider.SipProvider;
+import org.mjsip.time.ConfiguredScheduler;
+import org.mjsip.time.SchedulerConfig;
+import org.zoolu.net.IpAddress;
+
+/**
+ * Load test for the admission control of a {@link SipProvider} under an INVITE flood.
+ *
+ * <p>
+ * A sender floods a {@link SipProvider} on the loopback interface with new INVITEs while
+ * interleaving BYEs at a low rate. The provider's listener simulates expensive processing of new
+ * INVITEs. The test reports how many INVITEs were rejected with 503, the processing latency of the
+ * BYEs, and the counters of the {@link SipAdmission} stage. With admission control disabled (queue
+ * size 0), all messages are processed in arrival order and the BYE latency grows with the backlog.
+ * Run with:
+ * </p>
+ *
+ * <pre>
+ * java -cp benchmarks.jar org.mjsip.benchmark.sip.SipOverloadLoad [seconds] [queue-size] [shed-threshold] [invite-cost-us] [port]
+ * </pre>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+public class SipOverloadLoad {
+
+	/** Number of INVITEs sent per BYE. */
+	private static final int INVITES_PER_BYE = 100;
+
+	private final AtomicLong _invitesSent = new AtomicLong();
+
+	private final AtomicLong _invitesProcessed = new AtomicLong();
+
+	private final AtomicLong _byesSent = new AtomicLong();
+
+	private final AtomicLong _byesProcessed = new AtomicLong();
+
+	private final AtomicLong _byeLatency = new AtomicLong();
+
+	private final AtomicLong _maxByeLatency = new AtomicLong();
+
+	private final AtomicLong _rejects = new AtomicLong();
+
+	private volatile boolean _stopped;
+
+	/**
+	 * Main entry point.
+	 */
+	public static void main(String[] args) throws Exception {
+		int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		int queueSize = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		int shedThreshold = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+		int inviteCost = args.length > 3 ? Integer.parseInt(args[3]) : 200;
+		int port = args.length > 4 ? Integer.parseInt(args[4]) : 5098;
+
+		System.out.println("Java " + System.getProperty("java.version") + ", admission "
+				+ (queueSize > 0 ? "queue " + queueSize + ", shed threshold " + shedThreshold : "disabled")
+				+ ", INVITE cost " + inviteCost + "us");
+
+		new SipOverloadLoad().run(seconds, queueSize, shedThreshold, inviteCost, port);
+	}
+
+	private void run(int seconds, int queueSize, int shedThreshold, int inviteCost, int port) throws Exception {
+		IpAddress localhost = new IpAddress(InetAddress.getLoopbackAddress());
+		SipConfig config = new SipConfig();
+		config.setBindingIpAddr(localhost);
+		config.setViaAddrIPv4(localhost.toString());
+		config.setHostPort(port);
+		config.setTransportProtocols(new String[] { SipProvider.PROTO_UDP });
+		config.setTransportPorts(new int[] { port });
+		config.setUdpReceiveBufferSize(4 * 1024 * 1024);
+		config.setAdmissionQueueSize(queueSize);
+		config.setAdmissionShedThreshold(shedThreshold);
+		SipProvider provider = new SipProvider(config, new ConfiguredScheduler(new SchedulerConfig()));
+
+		provider.addSelectiveListener(SipId.ANY_METHOD, (sipProvider, msg) -> {
+			if (msg.isBye()) {
+				long latency = System.nanoTime() - Long.parseLong(msg.getCallIdHeader().getCallId());
+				_byesProcessed.incrementAndGet();
+				_byeLatency.addAndGet(latency);
+				_maxByeLatency.accumulateAndGet(latency, Math::max);
+			} else {
+				_invitesProcessed.incrementAndGet();
+				long until = System.nanoTime() + inviteCost * 1000L;
+				while (System.nanoTime() < until) {
+					Thread.onSpinWait();
+				}
+			}
+		});
+
+		try {
+			Thread receiver;
+			long time;
+			try (DatagramSocket socket = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+				receiver = new Thread(() -> receive(socket), "Receiver");
+				receiver.start();
+				Thread sender = new Thread(() -> send(socket, port), "Sender");
+				sender.start();
+
+				long start = System.nanoTime();
+				Thread.sleep(seconds * 1000L);
+				_stopped = true;
+				sender.join();
+				// Let the provider work off its backlog.
+				Thread.sleep(1000);
+				time = System.nanoTime() - start;
+			}
+			// Closing the socket terminates the receiver.
+			receiver.join();
+
+			System.out.printf("INVITE sent: %d (%.0f/s), processed: %d, rejected with 503: %d%n", _invitesSent.get(),
+				_invitesSent.get() * 1e9 / time, _invitesProcessed.get(), _rejects.get());
+			long byes = _byesProcessed.get();
+			System.out.printf("BYE sent: %d, processed: %d, latency avg %.2fms, max %.2fms%n", _byesSent.get(), byes,
+				byes > 0 ? _byeLatency.get() / 1e6 / byes : 0.0, _maxByeLatency.get() / 1e6);
+
+			SipAdmission admission = provider.getAdmission();
+			if (admission != null) {
+				System.out.printf("admitted: high %d, normal %d, low %d, rejected %d, dropped %d, max pending %d%n",
+					admission.getAdmittedCount(Priority.HIGH), admission.getAdmittedCount(Priority.NORMAL),
+					admission.getAdmittedCount(Priority.LOW), admission.getRejectedCount(),
+					admission.getDroppedCount(), admission.getMaxPending());
+			}
+		} finally {
+			provider.halt();
+		}
+	}
+
+	private void send(DatagramSocket socket, int port) {
+		InetAddress localhost = InetAddress.getLoopbackAddress();
+		int localPort = socket.getLocalPort();
+		try {
+			long n = 0;
+			while (!_stopped) {
+				boolean bye = n % INVITES_PER_BYE == 0;
+				String callId = bye ? Long.toString(System.nanoTime()) : "invite-" + n;
+				byte[] data = message(bye ? SipMethods.BYE : SipMethods.INVITE, callId, n, localPort);
+				socket.send(new DatagramPacket(data, data.length, localhost, port));
+				if (bye) {
+					_byesSent.incrementAndGet();
+				} else {
+					_invitesSent.incrementAndGet();
+				}
+				if (++n % 50 == 0) {
+					Thread.yield();
+				}
+			}
+		} catch (IOException ex) {
+			ex.printStackTrace();
+		}
+	}
+
+	private void receive(DatagramSocket socket) {
+		DatagramPacket packet = new DatagramPacket(new byte[4096], 4096);
+		try {
+			while (true) {
+				socket.receive(packet);
+				SipMessage msg = new SipMessage(packet.getData(), packet.getOffset(), packet.getLength());
+				if (msg.isResponse() && msg.getStatusLine().getCode() == 503) {
+					_rejects.incrementAndGet();
+				}
+			}
+		} catch (SocketException ex) {
+			// Closed.
+		} catch (IOException ex) {
+			ex.printStackTrace();
+		}
+	}
+
+	private static byte[] message(String method, String callId, long n, int localPort) {
+		String toTag = method.equals(SipMethods.BYE) ? ";tag=a6c85cf" : "";
+		return (method + " sip:bob@127.0.0.1 SIP/2.0\r\n" +
+			"Via: SIP/2.0/UDP 127.0.0.1:" + localPort + ";branch=z9hG4bK" + n + "\r\n" +
+			"From: <sip:alice@127.0.0.1>;tag=9fxced76sl\r\n" +
+			"To: <sip:bob@127.0.0.1>" + toTag + "\r\n" +
+			"Call-ID: " + callId + "\r\n" +
+			"CSeq: 1 " + method + "\r\n" +
+			"Max-Forwards: 70\r\n" +
+			"Content-Length: 0\r\n" +
+			"\r\n").getBytes(StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.benchmark.sip;
+
+import java.nio.charset.StandardCharsets;
+
+import org.mjsip.sip.message.SipMessage;
+
+/**
+ * Factory for SIP messages used as benchmark input.
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+public class SipTestMessages {
+
+	/**
+	 * The raw bytes of an INVITE request of a typical size with an SDP body.
+	 *
+	 * @param n
+	 *        Number making Call-ID, tags, and branch of the request unique.
+	 */
+	public static byte[] invite(int n) {
+		String body =
+			"v=0\r\n" +
+			"o=alice 2890844526 2890844526 IN IP4 client.example.com\r\n" +
+			"s=-\r\n" +
+			"c=IN IP4 192.0.2.101\r\n" +
+			"t=0 0\r\n" +
+			"m=audio 49172 RTP/AVP 0 8 101\r\n" +
+			"a=rtpmap:0 PCMU/8000\r\n" +
+			"a=rtpmap:8 PCMA/8000\r\n" +
+			"a=rtpmap:101 telephone-event/8000\r\n";
+		String header =
+			"INVITE sip:bob" + n + "@example.com SIP/2.0\r\n" +
+			"Via: SIP/2.0/UDP client.example.com:5060;branch=z9hG4bK" + n + "f9a3\r\n" +
+			"Max-Forwards: 70\r\n" +
+			"From: \"Alice\" <sip:alice@example.com>;tag=" + n + "fxced76sl\r\n" +
+			"To: <sip:bob" + n + "@example.com>\r\n" +
+			"Call-ID: " + n + "3848276298220188511@client.example.com\r\n" +
+			"CSeq: 1 INVITE\r\n" +
+			"Contact: <sip:alice@192.0.2.101:5060>\r\n" +
+			"User-Agent: mjsip benchmark\r\n" +
+			"Allow: INVITE,ACK,OPTIONS,BYE,CANCEL,INFO,PRACK,NOTIFY,MESSAGE,UPDATE\r\n" +
+			"Content-Type: application/sdp\r\n" +
+			"Content-Length: " + body.length() + "\r\n" +
+			"\r\n";
+		return (header + body).getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Parses the INVITE request {@link #invite(int)} as received from a remote peer.
+	 */
+	public static SipMessage receivedInvite(int n) {
+		byte[] data = invite(n);
+		SipMessage result = new SipMessage(data, 0, data.length);
+		result.setRemoteAddress("192.0.2.101");
+		result.setRemotePort(5060);
+		result.setTransportProtocol("udp");
+		return result;
+	}
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.benchmark.sip;
+
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.mjsip.sip.message.SipMessage;
+import org.mjsip.sip.provider.SipTrace;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zoolu.util.PacketLogger;
+
+/**
+ * Cost of tracing a message on the receive or send path, with 4 threads tracing concurrently.
+ *
+ * <p>
+ * The <code>packetLogger</code> benchmark writes each message as hex dump line through the
+ * synchronized {@link PacketLogger}, the <code>text</code> benchmark formats the message as done
+ * by the message log of the {@link org.mjsip.sip.provider.SipProvider}. Both discard the output.
+ * The <code>ring</code> benchmark records the message in a {@link SipTrace}, which is all that is
+ * done in the transport threads when the trace is exported to pcap files.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class SipTraceBenchmark {
+
+	/**
+	 * The tracers shared by all threads.
+	 */
+	@State(Scope.Benchmark)
+	public static class Tracers {
+
+		PacketLogger packetLogger;
+
+		SipTrace trace;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			packetLogger = new PacketLogger(Writer.nullWriter());
+			trace = new SipTrace(4096, "10.0.0.1", 5060);
+		}
+	}
+
+	/**
+	 * The message traced by a thread.
+	 */
+	@State(Scope.Thread)
+	public static class MessageState {
+
+		SipMessage message;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			message = SipTestMessages.receivedInvite(1);
+			// Sent messages are already encoded, see SipMessage#getEncoded().
+			message.getEncoded();
+		}
+	}
+
+	/**
+	 * Writing the message as hex dump line.
+	 */
+	@Benchmark
+	public void packetLogger(Tracers tracers, MessageState state) {
+		byte[] data = state.message.getEncoded();
+		tracers.packetLogger.append("10.0.0.2:5070", "10.0.0.1:5060", "udp", data);
+	}
+
+	/**
+	 * Formatting the message for the message log.
+	 */
+	@Benchmark
+	public String text(MessageState state) {
+		SipMessage msg = state.message;
+		return "Received message from: 10.0.0.2:5070/udp (" + msg.getLength()
+			+ " bytes)\n-----Begin-of-message-----\n" + msg + "\n-----End-of-message-----";
+	}
+
+	/**
+	 * Recording the message in the trace ring.
+	 */
+	@Benchmark
+	public void ring(Tracers tracers, MessageState state) {
+		tracers.trace.record(false, "udp", "10.0.0.2", 5070, state.message.getEncoded());
+	}
+
+}
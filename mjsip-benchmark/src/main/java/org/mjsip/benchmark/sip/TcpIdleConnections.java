@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.benchmark.sip;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.mjsip.sip.message.SipMessage;
+import org.mjsip.sip.provider.NioTcpTransport;
+import org.mjsip.sip.provider.SipTransport;
+import org.mjsip.sip.provider.SipTransportListener;
+import org.zoolu.net.IpAddress;
+import org.zoolu.net.SocketAddress;
+
+/**
+ * Load test keeping a large number of idle clients connected to a {@link NioTcpTransport}.
+ *
+ * <p>
+ * Each client opens a connection, sends a REGISTER request and stays idle afterwards. The used heap
+ * is reported in steps, so that the memory per connection can be checked to stay flat. Run with:
+ * </p>
+ *
+ * <pre>
+ * java -cp benchmarks.jar org.mjsip.benchmark.sip.TcpIdleConnections [connections] [selectors]
+ * </pre>
+ *
+ * <p>
+ * Client and server run in the same process, so the limit of open files must be at least twice the
+ * number of connections (<code>ulimit -n</code>). To get more than about 28k connections, clients
+ * are distributed over several loopback source addresses (Linux routes all of 127.0.0.0/8 to the
+ * loopback interface).
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+public class TcpIdleConnections {
+
+	private static final int CLIENTS_PER_ADDRESS = 20000;
+
+	/**
+	 * Main entry point.
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int connections = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+		int selectors = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+		int step = Math.max(1, connections / 10);
+
+		IpAddress localhost = new IpAddress(InetAddress.getLoopbackAddress());
+		NioTcpTransport server = new NioTcpTransport(0, localhost, connections + 1, selectors);
+		int[] received = new int[1];
+		server.setListener(new SipTransportListener() {
+			@Override
+			public void onReceivedMessage(SipTransport transport, SipMessage msg) {
+				synchronized (received) {
+					received[0]++;
+				}
+			}
+
+			@Override
+			public void onIncomingTransportConnection(SipTransport transport, SocketAddress remote_soaddr) {
+				// Ignore.
+			}
+
+			@Override
+			public void onTransportConnectionTerminated(SipTransport transport, SocketAddress remote_soaddr,
+					Exception error) {
+				// Ignore.
+			}
+
+			@Override
+			public void onTransportTerminated(SipTransport transport, Exception error) {
+				// Ignore.
+			}
+		});
+
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		long baseline = usedHeap(memory);
+		System.out.printf("%10s %10s %12s %12s%n", "clients", "server", "heap [MB]", "B/conn");
+
+		InetSocketAddress target = new InetSocketAddress(localhost.getInetAddress(), server.getLocalPort());
+		List<SocketChannel> clients = new ArrayList<>(connections);
+		try {
+			for (int n = 0; n < connections; n++) {
+				SocketChannel client = SocketChannel.open();
+				int address = 1 + n / CLIENTS_PER_ADDRESS;
+				client.bind(new InetSocketAddress(InetAddress.getByAddress(new byte[] { 127, 0, 0, (byte) address }), 0));
+				client.connect(target);
+				client.write(ByteBuffer.wrap(register(n)));
+				clients.add(client);
+
+				if ((n + 1) % step == 0) {
+					int count = n + 1;
+					waitForServer(server, received, count);
+					long used = usedHeap(memory) - baseline;
+					System.out.printf("%10d %10d %12.1f %12d%n", count, server.getConnectionCount(),
+							used / 1024.0 / 1024.0, used / count);
+				}
+			}
+		} finally {
+			for (SocketChannel client : clients) {
+				client.close();
+			}
+			server.halt();
+		}
+	}
+
+	private static void waitForServer(NioTcpTransport server, int[] received, int count) throws InterruptedException {
+		long timeout = System.currentTimeMillis() + 30000;
+		while (System.currentTimeMillis() < timeout) {
+			synchronized (received) {
+				if (received[0] >= count && server.getConnectionCount() >= count) {
+					return;
+				}
+			}
+			Thread.sleep(10);
+		}
+		throw new IllegalStateException("Server did not accept " + count + " clients.");
+	}
+
+	private static long usedHeap(MemoryMXBean memory) throws InterruptedException {
+		for (int n = 0; n < 3; n++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+
+	private static byte[] register(int n) {
+		return ("REGISTER sip:example.com SIP/2.0\r\n" +
+			"Via: SIP/2.0/TCP client" + n + ".example.com;branch=z9hG4bK" + n + "\r\n" +
+			"From: <sip:user" + n + "@example.com>;tag=" + n + "\r\n" +
+			"To: <sip:user" + n + "@example.com>\r\n" +
+			"Call-ID: " + n + "@client.example.com\r\n" +
+			"CSeq: 1 REGISTER\r\n" +
+			"Contact: <sip:user" + n + "@client" + n + ".example.com;transport=tcp>\r\n" +
+			"Expires: 3600\r\n" +
+			"Content-Length: 0\r\n" +
+			"\r\n").getBytes();
+	}
+
+}
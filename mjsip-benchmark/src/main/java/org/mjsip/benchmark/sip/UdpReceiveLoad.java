@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.benchmark.sip;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.zoolu.net.IpAddress;
+import org.zoolu.net.UdpBatchProvider;
+import org.zoolu.net.UdpPacket;
+import org.zoolu.net.UdpProvider;
+import org.zoolu.net.UdpProviderListener;
+import org.zoolu.net.UdpSocket;
+
+/**
+ * Load test comparing the receive rate of a {@link UdpProvider} on a blocking socket with a
+ * {@link UdpBatchProvider} on a socket in channel mode.
+ *
+ * <p>
+ * Sender threads send SIP-sized datagrams in bursts as fast as possible, simulating a registration
+ * avalanche. The test reports the rate of datagrams received and the fraction lost, e.g. in the
+ * socket receive buffer. Run with:
+ * </p>
+ *
+ * <pre>
+ * java -cp benchmarks.jar org.mjsip.benchmark.sip.UdpReceiveLoad [blocking|batch] [seconds] [senders] [receive-buffer] [batch-size]
+ * </pre>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+public class UdpReceiveLoad {
+
+	/** Size of a typical REGISTER request. */
+	private static final int PACKET_SIZE = 600;
+
+	/** Number of datagrams per burst. */
+	private static final int BURST = 200;
+
+	private final AtomicLong _sent = new AtomicLong();
+
+	private final AtomicLong _received = new AtomicLong();
+
+	private volatile boolean _stopped;
+
+	/**
+	 * Main entry point.
+	 */
+	public static void main(String[] args) throws Exception {
+		boolean batch = args.length > 0 && args[0].equals("batch");
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		int senders = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+		int receiveBuffer = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+		int batchSize = args.length > 4 ? Integer.parseInt(args[4]) : UdpBatchProvider.DEFAULT_BATCH_SIZE;
+
+		System.out.println("Java " + System.getProperty("java.version") + ", " + senders + " senders, "
+				+ (batch ? "batches of " + batchSize : "blocking socket") + ", receive buffer "
+				+ (receiveBuffer > 0 ? receiveBuffer : "default"));
+
+		new UdpReceiveLoad().run(batch, seconds, senders, receiveBuffer, batchSize);
+	}
+
+	private void run(boolean batch, int seconds, int senders, int receiveBuffer, int batchSize) throws Exception {
+		IpAddress localhost = new IpAddress(InetAddress.getLoopbackAddress());
+		UdpSocket socket = batch ? UdpSocket.openChannel(0, localhost, false) : new UdpSocket(0, localhost);
+		if (receiveBuffer > 0) {
+			socket.setReceiverBufferSize(receiveBuffer);
+		}
+		System.out.println("SO_RCVBUF: " + socket.getReceiverBufferSize());
+
+		UdpProviderListener listener = new UdpProviderListener() {
+			@Override
+			public void onReceivedPacket(UdpProvider udp, UdpPacket packet) {
+				_received.incrementAndGet();
+			}
+
+			@Override
+			public void onServiceTerminated(UdpProvider udp, Exception error) {
+				// Ignore.
+			}
+		};
+		UdpProvider provider = batch ? new UdpBatchProvider(socket, batchSize, listener) : new UdpProvider(socket, listener);
+
+		Thread[] threads = new Thread[senders];
+		for (int n = 0; n < senders; n++) {
+			threads[n] = new Thread(() -> send(socket.getLocalPort()), "Sender-" + n);
+			threads[n].start();
+		}
+
+		long start = System.nanoTime();
+		Thread.sleep(seconds * 1000L);
+		_stopped = true;
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		// Let the receiver drain the socket buffer.
+		Thread.sleep(500);
+		long time = System.nanoTime() - start;
+
+		long sent = _sent.get();
+		long received = _received.get();
+		System.out.printf("sent: %d (%.0f/s)%n", sent, sent * 1e9 / time);
+		System.out.printf("received: %d (%.0f/s)%n", received, received * 1e9 / time);
+		System.out.printf("lost: %.1f%%%n", 100.0 * (sent - received) / sent);
+		if (provider instanceof UdpBatchProvider) {
+			UdpBatchProvider batchProvider = (UdpBatchProvider) provider;
+			System.out.printf("batches: %d (avg %.1f, max %d)%n", batchProvider.getBatchCount(),
+				(double) batchProvider.getReceivedCount() / batchProvider.getBatchCount(), batchProvider.getMaxBatch());
+		}
+
+		provider.halt();
+		socket.close();
+	}
+
+	private void send(int port) {
+		byte[] data = new byte[PACKET_SIZE];
+		try (DatagramSocket socket = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+			DatagramPacket packet = new DatagramPacket(data, data.length, InetAddress.getLoopbackAddress(), port);
+			while (!_stopped) {
+				for (int n = 0; n < BURST; n++) {
+					socket.send(packet);
+				}
+				_sent.addAndGet(BURST);
+				Thread.yield();
+			}
+		} catch (IOException ex) {
+			ex.printStackTrace();
+		}
+	}
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.benchmark.time;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.mjsip.time.ConfiguredScheduler;
+import org.mjsip.time.Scheduler;
+import org.mjsip.time.SchedulerConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scheduling and cancelling of transaction timers with the delay queue of a
+ * {@link java.util.concurrent.ScheduledThreadPoolExecutor} compared to the
+ * {@link org.mjsip.time.TimingWheelExecutor}.
+ *
+ * <p>
+ * Each operation terminates the oldest of a fixed number of active transactions by cancelling its
+ * timers and starts a new transaction with a retransmission timer (timer A, 500ms) and a transaction
+ * timer (timer B, 32s). Run with increasing thread counts (e.g. <code>-t 1</code>,
+ * <code>-t 4</code>) to see the contention on the scheduler.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SchedulerBenchmark {
+
+	private static final Runnable NOOP = () -> {
+		// Ignore.
+	};
+
+	/**
+	 * The scheduler under test.
+	 */
+	@State(Scope.Benchmark)
+	public static class SchedulerState {
+
+		/** Whether to use the timing wheel. */
+		@Param({ "false", "true" })
+		public boolean timingWheel;
+
+		Scheduler scheduler;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			SchedulerConfig config = new SchedulerConfig();
+			config.setTimingWheel(timingWheel);
+			scheduler = new ConfiguredScheduler(config);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			scheduler.scheduler().shutdownNow();
+		}
+	}
+
+	/**
+	 * The active transactions of a thread.
+	 */
+	@State(Scope.Thread)
+	public static class TransactionState {
+
+		/** Number of active transactions per thread. */
+		@Param({ "10000" })
+		public int transactions;
+
+		ScheduledFuture<?>[] retransmissionTimers;
+
+		ScheduledFuture<?>[] transactionTimers;
+
+		int next;
+
+		@Setup(Level.Iteration)
+		public void setUp(SchedulerState state) {
+			retransmissionTimers = new ScheduledFuture<?>[transactions];
+			transactionTimers = new ScheduledFuture<?>[transactions];
+			for (int n = 0; n < transactions; n++) {
+				start(state.scheduler, n);
+			}
+			next = 0;
+		}
+
+		@TearDown(Level.Iteration)
+		public void tearDown() {
+			for (int n = 0; n < transactions; n++) {
+				terminate(n);
+			}
+		}
+
+		void start(Scheduler scheduler, int n) {
+			retransmissionTimers[n] = scheduler.schedule(500, NOOP);
+			transactionTimers[n] = scheduler.schedule(32000, NOOP);
+		}
+
+		void terminate(int n) {
+			retransmissionTimers[n].cancel(false);
+			transactionTimers[n].cancel(false);
+		}
+	}
+
+	/**
+	 * Terminates the oldest transaction and starts a new one.
+	 */
+	@Benchmark
+	public void transaction(SchedulerState scheduler, TransactionState state) {
+		int n = state.next++;
+		if (state.next == state.transactions) {
+			state.next = 0;
+		}
+		state.terminate(n);
+		state.start(scheduler.scheduler, n);
+	}
+
+}
@@ -30,6 +30,7 @@ import javax.sound.sampled.UnsupportedAudioFileException;
 
 import org.mjsip.config.OptionParser;
 import org.mjsip.media.MediaDesc;
+import org.mjsip.media.tx.MediaClock;
 import org.mjsip.pool.PortConfig;
 import org.mjsip.pool.PortPool;
 import org.mjsip.sip.address.NameAddress;
@@ -69,19 +70,33 @@ public class AnsweringMachine extends RegisteringMultipleUAS {
 
 	private final PortPool _portPool;
 
+	private final MediaClock _mediaClock;
+
 
 	/**
 	 * Creates an {@link AnsweringMachine}.
 	 * @param streamerFactory 
+	 * @param mediaClock
+	 *        The clock used by the given streamer factory, stopped in {@link #halt()}, or
+	 *        <code>null</code>.
 	 */
 	public AnsweringMachine(SipProvider sip_provider, UAOptions uaConfig,
-			MediaConfig mediaConfig, StreamerFactory streamerFactory, PortPool portPool, ServiceOptions serviceConfig) {
+			MediaConfig mediaConfig, StreamerFactory streamerFactory, MediaClock mediaClock, PortPool portPool, ServiceOptions serviceConfig) {
 		super(sip_provider, portPool, uaConfig, serviceConfig);
 		_mediaConfig = mediaConfig;
 		_streamerFactory = streamerFactory;
+		_mediaClock = mediaClock;
 		_portPool = portPool;
 	}
 
+	@Override
+	public void halt() {
+		super.halt();
+		if (_mediaClock != null) {
+			_mediaClock.stop();
+		}
+	}
+
 	@Override
 	protected UserAgentListener createCallHandler(SipMessage msg) {
 		return new UserAgentListenerAdapter() {
@@ -118,9 +133,10 @@ public class AnsweringMachine extends RegisteringMultipleUAS {
 			LOG.info("Announcement file format: {}", audioFormat);
 		}
 
-		StreamerFactory streamerFactory = ExampleStreamerFactory.createStreamerFactory(mediaConfig, uaConfig);
+		MediaClock mediaClock = ExampleStreamerFactory.createMediaClock(mediaConfig);
+		StreamerFactory streamerFactory = ExampleStreamerFactory.createStreamerFactory(mediaConfig, uaConfig, mediaClock);
 		SipProvider sipProvider = new SipProvider(sipConfig, new ConfiguredScheduler(schedulerConfig));
-		new AnsweringMachine(sipProvider, uaConfig, mediaConfig, streamerFactory, portConfig.createPool(), serviceConfig);
+		new AnsweringMachine(sipProvider, uaConfig, mediaConfig, streamerFactory, mediaClock, portConfig.createPool(), serviceConfig);
 	}
 
 }
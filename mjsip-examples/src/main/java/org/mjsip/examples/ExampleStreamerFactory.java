@@ -11,7 +11,9 @@ import org.mjsip.media.rx.JavaxAudioOutput;
 import org.mjsip.media.tx.AudioFileTransmitter;
 import org.mjsip.media.tx.AudioTransmitter;
 import org.mjsip.media.tx.JavaxAudioInput;
+import org.mjsip.media.tx.MediaClock;
 import org.mjsip.media.tx.ToneTransmitter;
+import org.mjsip.ua.MediaOptions;
 import org.mjsip.ua.StaticOptions;
 import org.mjsip.ua.streamer.DefaultStreamerFactory;
 import org.mjsip.ua.streamer.DispatchingStreamerFactory;
@@ -24,10 +26,26 @@ import org.mjsip.ua.streamer.StreamerFactory;
  */
 public class ExampleStreamerFactory {
 
+	/**
+	 * Creates the {@link MediaClock} shared by all streams of an application.
+	 *
+	 * @return The new clock, or <code>null</code>, if each stream should be sent by its own thread,
+	 *         see {@link MediaOptions#getMediaClockThreads()}. The caller must
+	 *         {@link MediaClock#stop() stop} the clock on shutdown.
+	 */
+	public static MediaClock createMediaClock(MediaOptions mediaConfig) {
+		return mediaConfig.getMediaClockThreads() > 0 ? new MediaClock(mediaConfig.getMediaClockThreads()) : null;
+	}
+
 	/** 
-	 *Creates a more or less configurable {@link StreamerFactory} for various test situations.
+	 * Creates a more or less configurable {@link StreamerFactory} for various test situations.
+	 * 
+	 * @param mediaClock
+	 *        The clock sending all RTP streams, see {@link #createMediaClock(MediaOptions)}, or
+	 *        <code>null</code> for a thread per stream.
 	 */
-	public static StreamerFactory createStreamerFactory(ExampleMediaOptions mediaConfig, StaticOptions uaConfig) {
+	public static StreamerFactory createStreamerFactory(ExampleMediaOptions mediaConfig, StaticOptions uaConfig,
+			MediaClock mediaClock) {
 		if (mediaConfig.isLoopback()) {
 			return new LoopbackStreamerFactory();
 		} else {
@@ -70,6 +88,10 @@ public class ExampleStreamerFactory {
 					StreamerOptions options = StreamerOptions.builder()
 							.setRandomEarlyDrop(mediaConfig.getRandomEarlyDropRate())
 							.setSymmetricRtp(mediaConfig.isSymmetricRtp())
+							.setJitterBufferMinDelay(mediaConfig.getJitterBufferMinDelay())
+							.setJitterBufferMaxDelay(mediaConfig.getJitterBufferMaxDelay())
+							.setLatePacketPolicy(mediaConfig.getLatePacketPolicy())
+							.setMediaClock(mediaClock)
 							.build();
 					
 					factory.addFactory("audio", new DefaultStreamerFactory(options, rx, tx));
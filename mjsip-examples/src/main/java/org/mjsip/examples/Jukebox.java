@@ -25,6 +25,7 @@ import java.io.File;
 import org.kohsuke.args4j.Option;
 import org.mjsip.config.OptionParser;
 import org.mjsip.media.MediaDesc;
+import org.mjsip.media.tx.MediaClock;
 import org.mjsip.pool.PortConfig;
 import org.mjsip.pool.PortPool;
 import org.mjsip.sip.address.NameAddress;
@@ -60,6 +61,9 @@ public class Jukebox extends RegisteringMultipleUAS {
 
 	private final String _mediaPath;
 
+	/** The clock sending the RTP streams of all calls, or <code>null</code>. */
+	private final MediaClock _mediaClock;
+
 	/** 
 	 * Creates a {@link Jukebox}. 
 	 * @param mediaPath 
@@ -69,6 +73,15 @@ public class Jukebox extends RegisteringMultipleUAS {
 		super(sip_provider,portPool, uaConfig, serviceConfig);
 		_mediaConfig = mediaConfig;
 		_mediaPath = mediaPath;
+		_mediaClock = ExampleStreamerFactory.createMediaClock(mediaConfig);
+	}
+
+	@Override
+	public void halt() {
+		super.halt();
+		if (_mediaClock != null) {
+			_mediaClock.stop();
+		}
 	}
 	
 	@Override
@@ -80,7 +93,7 @@ public class Jukebox extends RegisteringMultipleUAS {
 				String audio_file=_mediaPath+"/"+callee.getAddress().getParameter(PARAM_RESOURCE);
 				if (new File(audio_file).isFile()) {
 					_mediaConfig.setSendFile(audio_file);
-					StreamerFactory streamerFactory = ExampleStreamerFactory.createStreamerFactory(_mediaConfig, _config);					
+					StreamerFactory streamerFactory = ExampleStreamerFactory.createStreamerFactory(_mediaConfig, _config, _mediaClock);					
 					ua.accept(new MediaAgent(_mediaConfig.getMediaDescs(), streamerFactory));
 				} else {
 					ua.hangup();
@@ -121,13 +134,14 @@ public class Jukebox extends RegisteringMultipleUAS {
 		mediaConfig.setAudio(true);
 		mediaConfig.setVideo(false);
 		uaConfig.setSendOnly(true);
-		new Jukebox(new SipProvider(sipConfig, new ConfiguredScheduler(schedulerConfig)),uaConfig, mediaConfig, portConfig.createPool(), serviceConfig, config.mediaPath);
+		Jukebox jukebox = new Jukebox(new SipProvider(sipConfig, new ConfiguredScheduler(schedulerConfig)),uaConfig, mediaConfig, portConfig.createPool(), serviceConfig, config.mediaPath);
 		
 		// Prompt before exit
 		if (config.prompt) {
 			try {
 				System.out.println("press 'enter' to exit");
 				(new java.io.BufferedReader(new java.io.InputStreamReader(System.in))).readLine();
+				jukebox.halt();
 				System.exit(0);
 			}
 			catch (Exception e) {}
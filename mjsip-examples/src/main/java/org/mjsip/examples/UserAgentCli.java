@@ -29,6 +29,7 @@ import java.io.PrintStream;
 
 import org.mjsip.config.OptionParser;
 import org.mjsip.media.MediaDesc;
+import org.mjsip.media.tx.MediaClock;
 import org.mjsip.pool.PortConfig;
 import org.mjsip.pool.PortPool;
 import org.mjsip.sip.address.NameAddress;
@@ -97,6 +98,9 @@ public class UserAgentCli implements UserAgentListenerAdapter {
 	protected final ExampleMediaConfig _mediaConfig;
 
 	private StreamerFactory _streamerFactory;
+
+	/** The clock sending the RTP streams of all calls, or <code>null</code>. */
+	private final MediaClock _mediaClock;
 	
 
 	/** Changes the call state */
@@ -125,7 +129,8 @@ public class UserAgentCli implements UserAgentListenerAdapter {
 		_uaConfig=uaConfig;
 		_uiConfig = uiConfig;
 		_mediaConfig = mediaConfig;
-		_streamerFactory = ExampleStreamerFactory.createStreamerFactory(mediaConfig, uaConfig);
+		_mediaClock = ExampleStreamerFactory.createMediaClock(mediaConfig);
+		_streamerFactory = ExampleStreamerFactory.createStreamerFactory(mediaConfig, uaConfig, _mediaClock);
 		
 		ua=new RegisteringUserAgent(sip_provider,portPool,uaConfig, this.andThen(clipPlayer()));      
 		if (!uaConfig.isNoPrompt()) stdin=new BufferedReader(new InputStreamReader(System.in)); 
@@ -259,6 +264,7 @@ public class UserAgentCli implements UserAgentListenerAdapter {
 	/** Exits */
 	public void exit() {
 		try {  Thread.sleep(1000);  } catch (Exception e) {}
+		if (_mediaClock!=null) _mediaClock.stop();
 		System.exit(0);
 	}
 
@@ -25,6 +25,8 @@ package org.mjsip.net;
 import java.io.InterruptedIOException;
 import java.util.Vector;
 
+import org.mjsip.time.Loop;
+import org.mjsip.time.Threads;
 import org.zoolu.net.SocketAddress;
 import org.zoolu.net.UdpPacket;
 
@@ -45,7 +47,7 @@ import org.zoolu.net.UdpPacket;
   *   <li> filtered: packets are not sent to the same node they come from</li>
   * </ul>
   */
-public class UdpMultiRelay extends Thread {
+public class UdpMultiRelay extends Loop {
 	
 	/** Local socket */
 	UdpConnectedSocket socket;  
@@ -80,7 +82,7 @@ public class UdpMultiRelay extends Thread {
 	  * @param listener listener of UdpMultiRelay events */
 	public UdpMultiRelay(UdpConnectedSocket socket, Vector<UdpConnectedSocket> dest_sockets, boolean one2one, boolean filtered, UdpMultiRelayListener listener) {
 		init(socket,dest_sockets,one2one,filtered,listener);
-		start();
+		start(Threads.platformThreads(),"UdpMultiRelay");
 	}
 	 
 	/** Inits a new UDP relay and starts it.
@@ -24,6 +24,8 @@ package org.mjsip.net;
 
 import java.io.InterruptedIOException;
 
+import org.mjsip.time.Loop;
+import org.mjsip.time.Threads;
 import org.zoolu.net.IpAddress;
 import org.zoolu.net.UdpPacket;
 import org.zoolu.net.UdpSocket;
@@ -33,7 +35,7 @@ import org.zoolu.net.UdpSocket;
   * It receives UDP packets at a local port and relays them toward a remote UDP socket
   * (destination address/port).
   */
-public class UdpRelay extends Thread {
+public class UdpRelay extends Loop {
 	
 	// The maximum IP packet size
 	//public static final int MAX_PKT_SIZE=2000;
@@ -62,7 +64,7 @@ public class UdpRelay extends Thread {
 	  * <p> The UdpRelay remains active until method halt() is called. */
 	public UdpRelay(int local_port, String dest_addr, int dest_port, UdpRelayListener listener) {
 		init(local_port,dest_addr,dest_port,0,listener);
-		start();
+		start(Threads.platformThreads(),"UdpRelay-"+local_port);
 	}
 
 	/** Creates a new UDP relay and starts it.
@@ -70,7 +72,7 @@ public class UdpRelay extends Thread {
 	  *     of idle time (i.e. without receiving UDP datagrams) */
 	public UdpRelay(int local_port, String dest_addr, int dest_port, int alive_time, UdpRelayListener listener) {
 		init(local_port,dest_addr,dest_port,alive_time,listener);
-		start();
+		start(Threads.platformThreads(),"UdpRelay-"+local_port);
 	}
 	 
 	/** Inits a new UDP relay */
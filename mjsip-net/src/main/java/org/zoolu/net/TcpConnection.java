@@ -31,13 +31,16 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.util.concurrent.ThreadFactory;
 
+import org.mjsip.time.Loop;
+import org.mjsip.time.Threads;
 import org.slf4j.LoggerFactory;
 
 
 /** TcpConnection provides a TCP connection oriented transport service.
   */
-public class TcpConnection extends Thread {
+public class TcpConnection extends Loop {
 	
 	private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(TcpConnection.class);
 
@@ -76,14 +79,22 @@ public class TcpConnection extends Thread {
 	/** Constructs a new TcpConnection.*/
 	public TcpConnection(TcpSocket socket, TcpConnectionListener listener) throws IOException {
 		init(socket,0,listener);
-		start();
+		start(Threads.platformThreads(),"TcpConnection-"+socket.getPort());
 	}
 
 
 	/** Constructs a new TcpConnection.*/
 	public TcpConnection(TcpSocket socket, long alive_time, TcpConnectionListener listener) throws IOException {
 		init(socket,alive_time,listener);
-		start();
+		start(Threads.platformThreads(),"TcpConnection-"+socket.getPort());
+	}
+
+
+	/** Constructs a new TcpConnection.
+	  * @param thread_factory the factory of the receiver thread, see {@link Threads#loopThreads(boolean)} */
+	public TcpConnection(TcpSocket socket, long alive_time, TcpConnectionListener listener, ThreadFactory thread_factory) throws IOException {
+		init(socket,alive_time,listener);
+		start(thread_factory,"TcpConnection-"+socket.getPort());
 	}
 
 
@@ -27,14 +27,17 @@ package org.zoolu.net;
 import java.io.InterruptedIOException;
 import java.net.InetAddress;
 import java.net.ServerSocket;
+import java.util.concurrent.ThreadFactory;
 
+import org.mjsip.time.Loop;
+import org.mjsip.time.Threads;
 import org.slf4j.LoggerFactory;
 
 
 
 /** TcpServer implements a TCP server wainting for incoming connection.
   */
-public class TcpServer extends Thread {
+public class TcpServer extends Loop {
 
 	private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(TcpServer.class);
 
@@ -79,28 +82,36 @@ public class TcpServer extends Thread {
 		InetAddress iaddress=server_socket.getInetAddress();
 		IpAddress bind_ipaddr=(iaddress!=null)? new IpAddress(iaddress) : null;
 		init(server_socket,port,bind_ipaddr,0,listener);
-		start();
+		start(Threads.platformThreads(),"TcpServer-"+server_port);
 	}
 
 
 	/** Costructs a new TcpServer */
 	public TcpServer(int port, TcpServerListener listener)  throws java.io.IOException {
 		init(null,port,null,0,listener);
-		start();
+		start(Threads.platformThreads(),"TcpServer-"+server_port);
 	}
 
 
 	/** Costructs a new TcpServer */
 	public TcpServer(int port, IpAddress bind_ipaddr, TcpServerListener listener)  throws java.io.IOException {
 		init(null,port,bind_ipaddr,0,listener);
-		start();
+		start(Threads.platformThreads(),"TcpServer-"+server_port);
 	}
 
 
 	/** Costructs a new TcpServer */
 	public TcpServer(int port, IpAddress bind_ipaddr, long alive_time, TcpServerListener listener)  throws java.io.IOException {
 		init(null,port,bind_ipaddr,alive_time,listener);
-		start();
+		start(Threads.platformThreads(),"TcpServer-"+server_port);
+	}
+
+
+	/** Costructs a new TcpServer
+	  * @param thread_factory the factory of the server thread, see {@link Threads#loopThreads(boolean)} */
+	public TcpServer(int port, IpAddress bind_ipaddr, long alive_time, TcpServerListener listener, ThreadFactory thread_factory)  throws java.io.IOException {
+		init(null,port,bind_ipaddr,alive_time,listener);
+		start(thread_factory,"TcpServer-"+server_port);
 	}
 
 
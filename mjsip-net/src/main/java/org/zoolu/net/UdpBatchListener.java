@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.zoolu.net;
+
+/**
+ * {@link UdpProviderListener} that receives the datagrams drained by a {@link UdpBatchProvider} in
+ * batches.
+ *
+ * <p>
+ * A plain {@link UdpProviderListener} is called once per datagram instead.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+public interface UdpBatchListener extends UdpProviderListener {
+
+	/**
+	 * When datagrams have been received.
+	 *
+	 * @param udp
+	 *        The provider that received the datagrams.
+	 * @param packets
+	 *        The received datagrams in the order of arrival. The packets and their buffers are
+	 *        reused for the next batch, they are only valid during this call.
+	 * @param count
+	 *        The number of valid entries in <code>packets</code>.
+	 */
+	void onReceivedBatch(UdpProvider udp, UdpPacket[] packets, int count);
+
+	@Override
+	default void onReceivedPacket(UdpProvider udp, UdpPacket packet) {
+		onReceivedBatch(udp, new UdpPacket[] { packet }, 1);
+	}
+
+}
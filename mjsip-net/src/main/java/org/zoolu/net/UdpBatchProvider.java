@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.zoolu.net;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.concurrent.ThreadFactory;
+
+import org.mjsip.time.Threads;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link UdpProvider} for a {@link UdpSocket} in channel mode that drains all datagrams ready at a
+ * wakeup.
+ *
+ * <p>
+ * The receiver thread waits on a selector instead of polling a blocking socket. When the channel
+ * becomes readable, datagrams are received into a ring of preallocated buffers until no more
+ * datagrams are ready. Each time the ring is full, and after the last datagram, the received
+ * datagrams are passed to the listener. A {@link UdpBatchListener} gets them as a single batch, a
+ * plain {@link UdpProviderListener} one by one. Under a burst of datagrams, this saves the wakeup
+ * and the poll of the socket per datagram.
+ * </p>
+ *
+ * <p>
+ * Datagrams shorter than the {@link #getMinimumReceivedDataLength() minimum length} and datagrams
+ * that fail in the listener are counted as dropped. Datagrams dropped by the operating system
+ * because the socket receive buffer is full are not visible to the provider, the receive buffer
+ * size can be increased with {@link UdpSocket#setReceiverBufferSize(int)}.
+ * </p>
+ *
+ * @see UdpSocket#openChannel(int, IpAddress, boolean)
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+public class UdpBatchProvider extends UdpProvider {
+
+	private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(UdpBatchProvider.class);
+
+	/** Default number of buffers in the ring. */
+	public static final int DEFAULT_BATCH_SIZE = 32;
+
+	private final DatagramChannel _channel;
+
+	private final ByteBuffer[] _buffers;
+
+	private final UdpPacket[] _packets;
+
+	private volatile Selector _selector;
+
+	private volatile long _received;
+
+	private volatile long _dropped;
+
+	private volatile long _batches;
+
+	private volatile int _maxBatch;
+
+	/**
+	 * Creates a {@link UdpBatchProvider} and starts its receiver thread.
+	 *
+	 * @param socket
+	 *        A socket in channel mode.
+	 * @param batchSize
+	 *        The number of buffers in the ring, the maximum number of datagrams passed to the
+	 *        listener at once.
+	 * @param listener
+	 *        The listener for received datagrams, optionally a {@link UdpBatchListener}.
+	 */
+	public UdpBatchProvider(UdpSocket socket, int batchSize, UdpProviderListener listener) {
+		this(socket, batchSize, 0, listener);
+	}
+
+	/**
+	 * Creates a {@link UdpBatchProvider} and starts its receiver thread.
+	 *
+	 * @param socket
+	 *        A socket in channel mode.
+	 * @param batchSize
+	 *        The number of buffers in the ring, the maximum number of datagrams passed to the
+	 *        listener at once.
+	 * @param aliveTime
+	 *        Time in milliseconds after which the provider stops, if no datagram has been
+	 *        received, 0 for no limit.
+	 * @param listener
+	 *        The listener for received datagrams, optionally a {@link UdpBatchListener}.
+	 */
+	public UdpBatchProvider(UdpSocket socket, int batchSize, long aliveTime, UdpProviderListener listener) {
+		this(socket, batchSize, aliveTime, listener, Threads.platformThreads());
+	}
+
+	/**
+	 * Creates a {@link UdpBatchProvider} and starts its receiver thread.
+	 *
+	 * @param socket
+	 *        A socket in channel mode.
+	 * @param batchSize
+	 *        The number of buffers in the ring, the maximum number of datagrams passed to the
+	 *        listener at once.
+	 * @param aliveTime
+	 *        Time in milliseconds after which the provider stops, if no datagram has been
+	 *        received, 0 for no limit.
+	 * @param listener
+	 *        The listener for received datagrams, optionally a {@link UdpBatchListener}.
+	 * @param threadFactory
+	 *        The factory of the receiver thread, see {@link Threads#loopThreads(boolean)}.
+	 */
+	public UdpBatchProvider(UdpSocket socket, int batchSize, long aliveTime, UdpProviderListener listener,
+			ThreadFactory threadFactory) {
+		super(socket, aliveTime, listener, threadFactory, false);
+		if (socket.getChannel() == null) {
+			throw new IllegalArgumentException("Socket not in channel mode: " + socket);
+		}
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("Invalid batch size: " + batchSize);
+		}
+		_channel = socket.getChannel();
+		_buffers = new ByteBuffer[batchSize];
+		_packets = new UdpPacket[batchSize];
+		for (int n = 0; n < batchSize; n++) {
+			byte[] data = new byte[BUFFER_SIZE];
+			_buffers[n] = ByteBuffer.wrap(data);
+			_packets[n] = new UdpPacket(data, 0);
+		}
+		start();
+	}
+
+	/**
+	 * The number of buffers in the ring.
+	 */
+	public int getBatchSize() {
+		return _packets.length;
+	}
+
+	/**
+	 * The total number of datagrams received.
+	 */
+	public long getReceivedCount() {
+		return _received;
+	}
+
+	/**
+	 * The total number of received datagrams that were too short or failed in the listener.
+	 */
+	public long getDroppedCount() {
+		return _dropped;
+	}
+
+	/**
+	 * The total number of batches passed to the listener.
+	 */
+	public long getBatchCount() {
+		return _batches;
+	}
+
+	/**
+	 * The largest batch passed to the listener so far.
+	 */
+	public int getMaxBatch() {
+		return _maxBatch;
+	}
+
+	@Override
+	public void halt() {
+		super.halt();
+		Selector selector = _selector;
+		if (selector != null) {
+			selector.wakeup();
+		}
+	}
+
+	@Override
+	public void run() {
+		Exception error = null;
+		long expire = 0;
+		if (alive_time > 0) {
+			expire = System.currentTimeMillis() + alive_time;
+		}
+		try (Selector selector = Selector.open()) {
+			_channel.register(selector, SelectionKey.OP_READ);
+			_selector = selector;
+			while (!stop) {
+				int ready = selector.select(socket_timeout);
+				selector.selectedKeys().clear();
+				if (ready == 0) {
+					if (alive_time > 0 && System.currentTimeMillis() > expire) {
+						halt();
+					}
+					continue;
+				}
+				if (drain() && alive_time > 0) {
+					expire = System.currentTimeMillis() + alive_time;
+				}
+			}
+		} catch (Throwable ex) {
+			error = (ex instanceof Exception) ? (Exception) ex : new RuntimeException(ex);
+			stop = true;
+		} finally {
+			_selector = null;
+		}
+		is_running = false;
+		if (listener != null) {
+			listener.onServiceTerminated(this, error);
+		}
+		listener = null;
+	}
+
+	/**
+	 * Receives all ready datagrams and passes them to the listener.
+	 *
+	 * @return Whether a datagram has been received.
+	 */
+	private boolean drain() throws IOException {
+		boolean received = false;
+		int count = 0;
+		while (!stop) {
+			ByteBuffer buffer = _buffers[count];
+			buffer.clear();
+			InetSocketAddress source = (InetSocketAddress) _channel.receive(buffer);
+			if (source == null) {
+				break;
+			}
+			received = true;
+
+			int length = buffer.position();
+			_received++;
+			socket.receiver_packet_count++;
+			socket.receiver_octect_count += length;
+			if (length < minimum_length) {
+				_dropped++;
+				continue;
+			}
+
+			UdpPacket packet = _packets[count];
+			packet.setData(buffer.array(), 0, length);
+			packet.setInetAddress(source.getAddress());
+			packet.setPort(source.getPort());
+			if (++count == _packets.length) {
+				deliver(count);
+				count = 0;
+			}
+		}
+		if (count > 0) {
+			deliver(count);
+		}
+		return received;
+	}
+
+	private void deliver(int count) {
+		_batches++;
+		if (count > _maxBatch) {
+			_maxBatch = count;
+		}
+
+		UdpProviderListener listener = this.listener;
+		if (listener == null) {
+			return;
+		}
+		if (listener instanceof UdpBatchListener) {
+			// Note: A failure while processing a batch must not terminate the receiver thread, see
+			// UdpProvider.
+			try {
+				((UdpBatchListener) listener).onReceivedBatch(this, _packets, count);
+			} catch (Throwable ex) {
+				_dropped += count;
+				LOG.warn("Dropping batch of {} packets that could not be processed.", Integer.valueOf(count), ex);
+			}
+		} else {
+			for (int n = 0; n < count; n++) {
+				UdpPacket packet = _packets[n];
+				try {
+					listener.onReceivedPacket(this, packet);
+				} catch (Throwable ex) {
+					_dropped++;
+					LOG.warn("Dropping packet from {}:{} that could not be processed.", packet.getInetAddress(),
+						Integer.valueOf(packet.getPort()), ex);
+				}
+			}
+		}
+	}
+
+}
@@ -25,7 +25,7 @@ package org.zoolu.net;
 
 
 import java.net.DatagramPacket;
-//import java.net.InetAddress;
+import java.net.InetAddress;
 
 
 /** UdpPacket provides a uniform interface to UDP packets,
@@ -86,6 +86,11 @@ public class UdpPacket {
 		return new IpAddress(packet.getAddress());
 	}
 
+	/** Gets the InetAddress of the machine to which this datagram is being sent or from which the datagram was received, without creating a new IpAddress. */
+	public InetAddress getInetAddress() {
+		return packet.getAddress();
+	}
+
 	/** Gets the data received or the data to be sent. */
 	public byte[] getData() {
 		return packet.getData();
@@ -111,6 +116,11 @@ public class UdpPacket {
 		packet.setAddress(ipaddr.getInetAddress());
 	}
 
+	/** Sets the InetAddress of the machine to which this datagram is being sent. */
+	public void setInetAddress(InetAddress iaddress) {
+		packet.setAddress(iaddress);
+	}
+
 	/** Sets the data buffer for this packet. */
 	public void setData(byte[] buf) {
 		packet.setData(buf);
@@ -26,7 +26,10 @@ package org.zoolu.net;
 
 import java.io.IOException;
 import java.io.InterruptedIOException;
+import java.util.concurrent.ThreadFactory;
 
+import org.mjsip.time.Loop;
+import org.mjsip.time.Threads;
 import org.slf4j.LoggerFactory;
 
 
@@ -40,7 +43,7 @@ import org.slf4j.LoggerFactory;
   * <p> Method onServiceTerminated(UdpProvider) is fired when the the UdpProvider stops 
   * receiving packets.
   */
-public class UdpProvider extends Thread {
+public class UdpProvider extends Loop {
 
 	private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(UdpProvider.class);
 
@@ -71,19 +74,50 @@ public class UdpProvider extends Thread {
 	/** Whether it is running */
 	protected boolean is_running; 
 
+	/** Factory of the receiver thread */
+	protected ThreadFactory thread_factory;
+
 
 	  
 	/** Creates a new UdpProvider. */ 
 	public UdpProvider(UdpSocket socket, UdpProviderListener listener) {
-		init(socket,0,listener);
-		start();
+		this(socket,0,listener,true);
 	}
 
 
 	/** Creates a new UdpProvider. */ 
 	public UdpProvider(UdpSocket socket, long alive_time, UdpProviderListener listener) {
+		this(socket,alive_time,listener,true);
+	}
+
+
+	/** Creates a new UdpProvider.
+	  * @param thread_factory the factory of the receiver thread, see {@link Threads#loopThreads(boolean)} */ 
+	public UdpProvider(UdpSocket socket, long alive_time, UdpProviderListener listener, ThreadFactory thread_factory) {
+		this(socket,alive_time,listener,thread_factory,true);
+	}
+
+
+	/** Creates a new UdpProvider.
+	  * @param start whether to start the receiver thread, a subclass may start it with {@link #start()} when fully initialized */ 
+	protected UdpProvider(UdpSocket socket, long alive_time, UdpProviderListener listener, boolean start) {
+		this(socket,alive_time,listener,Threads.platformThreads(),start);
+	}
+
+
+	/** Creates a new UdpProvider.
+	  * @param thread_factory the factory of the receiver thread
+	  * @param start whether to start the receiver thread, a subclass may start it with {@link #start()} when fully initialized */ 
+	protected UdpProvider(UdpSocket socket, long alive_time, UdpProviderListener listener, ThreadFactory thread_factory, boolean start) {
 		init(socket,alive_time,listener);
-		start();
+		this.thread_factory=thread_factory;
+		if (start) start();
+	}
+
+
+	/** Starts the receiver thread. */ 
+	protected void start() {
+		start(thread_factory,"UdpProvider-"+socket.getLocalPort());
 	}
 
 
@@ -191,7 +225,8 @@ public class UdpProvider extends Thread {
 					}
 					if (alive_time>0) expire=System.currentTimeMillis()+alive_time;
 				}
-				packet=new UdpPacket(buf, buf.length);
+				// reuse the packet, the listener may have changed its address and length
+				packet.setData(buf,0,buf.length);
 			}
 		}
 		catch (Throwable t) {
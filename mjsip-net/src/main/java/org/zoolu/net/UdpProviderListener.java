@@ -30,7 +30,8 @@ package org.zoolu.net;
   */
 public interface UdpProviderListener {
 	
-	/** When a new UDP datagram is received. */
+	/** When a new UDP datagram is received.
+	  * The packet and its buffer are reused for the next datagram, they are only valid during this call. */
 	public void onReceivedPacket(UdpProvider udp, UdpPacket packet);
 
 	/** When UdpProvider terminates. */
@@ -27,17 +27,31 @@ package org.zoolu.net;
 import java.io.Closeable;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
 
 
 /** UdpSocket provides a uniform interface to UDP transport protocol,
   * regardless J2SE or J2ME is used.
+  * <p> A socket opened with {@link #openChannel(int, IpAddress, boolean)} is backed by a
+  * non-blocking DatagramChannel and is served by a {@link UdpBatchProvider}.
   */
 public class UdpSocket implements Closeable {
 	
+	/** Maximum time to wait for space in the socket buffer when sending in channel mode [millisecs] */
+	public static final int SEND_TIMEOUT=1000;
 
 	/** DatagramSocket */
 	DatagramSocket socket;
 
+	/** Non-blocking DatagramChannel, if this socket has been opened in channel mode */
+	DatagramChannel channel=null;
+
 	/** Sender packet counter */
 	long sender_packet_count=0;   
 
@@ -50,6 +64,12 @@ public class UdpSocket implements Closeable {
 	/** Receiver octect counter */
 	long receiver_octect_count=0;   
 
+	/** Counter of packets dropped when sending, because the socket buffer was full */
+	long sender_drop_count=0;   
+
+	/** Selector for waiting until the channel accepts data, created on first use; guarded by <code>this</code> */
+	Selector write_selector=null;
+
 
 
 	/** Creates a new void UdpSocket */ 
@@ -62,6 +82,12 @@ public class UdpSocket implements Closeable {
 		socket=sock;
 	}
 
+	/** Creates a new UdpSocket in channel mode */ 
+	protected UdpSocket(DatagramChannel channel) {
+		this.channel=channel;
+		socket=channel.socket();
+	}
+
 	/** Creates a new UdpSocket */ 
 	public UdpSocket(int port) throws java.net.SocketException {
 		socket=new DatagramSocket(port);
@@ -71,11 +97,82 @@ public class UdpSocket implements Closeable {
 	public UdpSocket(int port, IpAddress ipaddr) throws java.net.SocketException {
 		socket=new DatagramSocket(port,ipaddr.getInetAddress());
 	}
-	
+
+	/** Creates a new UdpSocket.
+	  * <p>
+	  * If <i>reuse_port</i> is set, the socket is bound with the SO_REUSEPORT option, so that
+	  * several sockets can be bound to the same port. The operating system then distributes the
+	  * incoming datagrams among those sockets.
+	  * </p>
+	  * @param port the local port
+	  * @param ipaddr the local address to bind to, or <code>null</code> for all interfaces
+	  * @param reuse_port whether to bind with the SO_REUSEPORT option
+	  * @see #isReusePortSupported() */
+	public UdpSocket(int port, IpAddress ipaddr, boolean reuse_port) throws java.io.IOException {
+		socket=new DatagramSocket(null);
+		try {
+			if (reuse_port) socket.setOption(StandardSocketOptions.SO_REUSEPORT,Boolean.TRUE);
+			socket.bind(new InetSocketAddress(ipaddr==null? null : ipaddr.getInetAddress(),port));
+		}
+		catch (java.io.IOException e) {
+			socket.close();
+			throw e;
+		}
+	}
+
+	/** Opens a new UdpSocket in channel mode.
+	  * <p>
+	  * The socket is backed by a non-blocking DatagramChannel. Datagrams are received by a
+	  * {@link UdpBatchProvider} that drains all datagrams ready at once. A direct call of
+	  * {@link #receive(UdpPacket)} does not block but throws a SocketTimeoutException, if no
+	  * datagram is ready. If the socket buffer is full, {@link #send(UdpPacket)} waits at most
+	  * {@link #SEND_TIMEOUT} for space. A datagram that cannot be sent in time is counted, see
+	  * {@link #getSenderDropCounter()}, and the send fails with an IOException.
+	  * </p>
+	  * @param port the local port
+	  * @param ipaddr the local address to bind to, or <code>null</code> for all interfaces
+	  * @param reuse_port whether to bind with the SO_REUSEPORT option */
+	public static UdpSocket openChannel(int port, IpAddress ipaddr, boolean reuse_port) throws java.io.IOException {
+		DatagramChannel channel=DatagramChannel.open();
+		try {
+			if (reuse_port) channel.setOption(StandardSocketOptions.SO_REUSEPORT,Boolean.TRUE);
+			channel.bind(new InetSocketAddress(ipaddr==null? null : ipaddr.getInetAddress(),port));
+			channel.configureBlocking(false);
+		}
+		catch (java.io.IOException e) {
+			channel.close();
+			throw e;
+		}
+		return new UdpSocket(channel);
+	}
+
+	/** Gets the DatagramChannel of a socket in channel mode.
+	  * @return the non-blocking channel, or <code>null</code> if this socket has not been opened in channel mode */
+	public DatagramChannel getChannel() {
+		return channel;
+	}
+
+	/** Whether the platform supports binding several UDP sockets to the same port.
+	  * @see #UdpSocket(int, IpAddress, boolean) */
+	public static boolean isReusePortSupported() {
+		try (DatagramSocket probe=new DatagramSocket(null)) {
+			return probe.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+		}
+		catch (java.net.SocketException e) {
+			return false;
+		}
+	}
+
 	/** Closes this datagram socket. */
 	@Override
 	public void close() {
 		socket.close();
+		synchronized (this) {
+			if (write_selector!=null) {
+				try {  write_selector.close();  } catch (java.io.IOException e) {}
+				write_selector=null;
+			}
+		}
 	}
 
 	/** Gets the local address to which the socket is bound. */
@@ -100,6 +197,17 @@ public class UdpSocket implements Closeable {
 
 	/** Receives a datagram packet from this socket. */
 	public void receive(UdpPacket pkt) throws java.io.IOException {
+		if (channel!=null) {
+			ByteBuffer buffer=ByteBuffer.wrap(pkt.getData(),pkt.getOffset(),pkt.getLength());
+			InetSocketAddress source=(InetSocketAddress)channel.receive(buffer);
+			if (source==null) throw new SocketTimeoutException("No datagram ready");
+			pkt.setLength(buffer.position()-pkt.getOffset());
+			pkt.setInetAddress(source.getAddress());
+			pkt.setPort(source.getPort());
+			receiver_packet_count++;
+			receiver_octect_count+=pkt.getLength();
+			return;
+		}
 		DatagramPacket dgram=pkt.getDatagramPacket();
 		socket.receive(dgram);
 		pkt.setDatagramPacket(dgram);
@@ -109,11 +217,37 @@ public class UdpSocket implements Closeable {
 	
 	/** Sends an UDP packet from this socket. */ 
 	public void send(UdpPacket pkt) throws java.io.IOException {
-		socket.send(pkt.getDatagramPacket());
+		if (channel!=null) {
+			ByteBuffer buffer=ByteBuffer.wrap(pkt.getData(),pkt.getOffset(),pkt.getLength());
+			InetSocketAddress target=new InetSocketAddress(pkt.getInetAddress(),pkt.getPort());
+			if (channel.send(buffer,target)==0 && pkt.getLength()>0 && !sendWhenWritable(buffer,target)) {
+				sender_drop_count++;
+				throw new java.io.IOException("Send buffer full, datagram to "+target+" dropped");
+			}
+		}
+		else socket.send(pkt.getDatagramPacket());
 		sender_packet_count++;
 		sender_octect_count+=pkt.getLength();
 	}
 	
+	/** Waits until the channel accepts data and sends the datagram.
+	  * @return whether the datagram has been sent within {@link #SEND_TIMEOUT} */ 
+	private synchronized boolean sendWhenWritable(ByteBuffer buffer, InetSocketAddress target) throws java.io.IOException {
+		if (write_selector==null) {
+			write_selector=Selector.open();
+			// Note: The channel may be registered with the receiver's selector in addition.
+			channel.register(write_selector,SelectionKey.OP_WRITE);
+		}
+		long end=System.currentTimeMillis()+SEND_TIMEOUT;
+		long wait;
+		while ((wait=end-System.currentTimeMillis())>0) {
+			write_selector.select(wait);
+			write_selector.selectedKeys().clear();
+			if (channel.send(buffer,target)>0) return true;
+		}
+		return false;
+	}
+
 	/** Converts this object to a String. */
 	@Override
 	public String toString() {
@@ -130,6 +264,11 @@ public class UdpSocket implements Closeable {
 		return sender_octect_count;
 	}
 
+	/** Gets the total number of packets dropped when sending in channel mode, because the socket buffer was full. */
+	public long getSenderDropCounter() {
+		return sender_drop_count;
+	}
+
 	/** Gets the total number of received packets. */
 	public long getReceiverPacketCounter() {
 		return receiver_packet_count;
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package test.org.zoolu.net;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.zoolu.net.IpAddress;
+import org.zoolu.net.UdpBatchListener;
+import org.zoolu.net.UdpBatchProvider;
+import org.zoolu.net.UdpPacket;
+import org.zoolu.net.UdpProvider;
+import org.zoolu.net.UdpProviderListener;
+import org.zoolu.net.UdpSocket;
+
+/**
+ * Test for draining datagrams in batches with {@link UdpBatchProvider}.
+ */
+class TestUdpBatchProvider {
+
+	/** Maximum time to wait for the packets to be delivered. */
+	private static final int TIMEOUT_MS=5000;
+
+	private static final IpAddress LOCALHOST=new IpAddress(InetAddress.getLoopbackAddress());
+
+	/**
+	 * Datagrams that are already waiting when the receiver wakes up are delivered in full batches of
+	 * the ring size, in order of arrival.
+	 */
+	@Test
+	void testBurstIsDeliveredInBatches() throws IOException, InterruptedException {
+		int count=100;
+		int batchSize=32;
+
+		CountDownLatch received=new CountDownLatch(count);
+		List<String> data=new ArrayList<>();
+		List<Integer> batches=new ArrayList<>();
+
+		UdpBatchListener listener=new UdpBatchListener() {
+			@Override
+			public void onReceivedBatch(UdpProvider udp, UdpPacket[] packets, int size) {
+				synchronized (data) {
+					batches.add(Integer.valueOf(size));
+					for (int n=0; n<size; n++) {
+						data.add(new String(packets[n].getData(),packets[n].getOffset(),packets[n].getLength(),StandardCharsets.UTF_8));
+						received.countDown();
+					}
+				}
+			}
+
+			@Override
+			public void onServiceTerminated(UdpProvider udp, Exception error) {
+				// Ignore.
+			}
+		};
+
+		try (UdpSocket receiver=UdpSocket.openChannel(0,LOCALHOST,false); UdpSocket sender=new UdpSocket(0,LOCALHOST)) {
+			receiver.setReceiverBufferSize(1024*1024);
+			// Note: All datagrams are queued in the socket before the receiver starts.
+			for (int n=0; n<count; n++) {
+				byte[] buf=("packet "+n).getBytes(StandardCharsets.UTF_8);
+				sender.send(new UdpPacket(buf,buf.length,LOCALHOST,receiver.getLocalPort()));
+			}
+
+			UdpBatchProvider provider=new UdpBatchProvider(receiver,batchSize,listener);
+			try {
+				assertTrue(received.await(TIMEOUT_MS,TimeUnit.MILLISECONDS),"Not all packets have been received.");
+				synchronized (data) {
+					for (int n=0; n<count; n++) {
+						assertEquals("packet "+n,data.get(n));
+					}
+					assertEquals(List.of(32,32,32,4),batches);
+				}
+				assertEquals(count,provider.getReceivedCount());
+				assertEquals(4,provider.getBatchCount());
+				assertEquals(batchSize,provider.getMaxBatch());
+				assertEquals(0,provider.getDroppedCount());
+				assertEquals(count,receiver.getReceiverPacketCounter());
+			}
+			finally {
+				provider.halt();
+			}
+		}
+	}
+
+	/**
+	 * A plain listener receives the datagrams one by one, short and failing datagrams are counted as
+	 * dropped without stopping the receiver.
+	 */
+	@Test
+	void testPlainListenerAndDrops() throws IOException, InterruptedException {
+		CountDownLatch received=new CountDownLatch(1);
+		List<String> processed=new ArrayList<>();
+
+		UdpProviderListener listener=new UdpProviderListener() {
+			@Override
+			public void onReceivedPacket(UdpProvider udp, UdpPacket packet) {
+				String data=new String(packet.getData(),packet.getOffset(),packet.getLength(),StandardCharsets.UTF_8);
+				if (data.startsWith("exception")) throw new IllegalStateException("Simulated failure processing '"+data+"'.");
+				synchronized (processed) {
+					processed.add(data);
+				}
+				received.countDown();
+			}
+
+			@Override
+			public void onServiceTerminated(UdpProvider udp, Exception error) {
+				// Ignore.
+			}
+		};
+
+		try (UdpSocket receiver=UdpSocket.openChannel(0,LOCALHOST,false); UdpSocket sender=new UdpSocket(0,LOCALHOST)) {
+			UdpBatchProvider provider=new UdpBatchProvider(receiver,4,listener);
+			provider.setMinimumReceivedDataLength(4);
+			try {
+				for (String data : List.of("x","exception: some problem","regular packet")) {
+					byte[] buf=data.getBytes(StandardCharsets.UTF_8);
+					sender.send(new UdpPacket(buf,buf.length,LOCALHOST,receiver.getLocalPort()));
+				}
+
+				assertTrue(received.await(TIMEOUT_MS,TimeUnit.MILLISECONDS),"The regular packet has not been received.");
+				assertTrue(provider.isRunning(),"The receiver thread has been terminated by a failing packet.");
+				synchronized (processed) {
+					assertEquals(List.of("regular packet"),processed);
+				}
+				assertEquals(3,provider.getReceivedCount());
+				assertEquals(2,provider.getDroppedCount());
+			}
+			finally {
+				provider.halt();
+			}
+		}
+	}
+
+	/**
+	 * A socket in channel mode sends directly and does not block on receive.
+	 */
+	@Test
+	void testChannelSocket() throws IOException {
+		try (UdpSocket channel=UdpSocket.openChannel(0,LOCALHOST,false); UdpSocket peer=new UdpSocket(0,LOCALHOST)) {
+			peer.setSoTimeout(TIMEOUT_MS);
+
+			byte[] buf="hello".getBytes(StandardCharsets.UTF_8);
+			channel.send(new UdpPacket(buf,buf.length,LOCALHOST,peer.getLocalPort()));
+			UdpPacket packet=new UdpPacket(new byte[100],100);
+			peer.receive(packet);
+			assertEquals("hello",new String(packet.getData(),packet.getOffset(),packet.getLength(),StandardCharsets.UTF_8));
+			assertEquals(channel.getLocalPort(),packet.getPort());
+			assertEquals(1,channel.getSenderPacketCounter());
+			assertEquals(0,channel.getSenderDropCounter());
+
+			assertThrows(SocketTimeoutException.class,() -> channel.receive(new UdpPacket(new byte[100],100)));
+		}
+	}
+
+	/**
+	 * A datagram is either sent or its loss is reported to the caller, never dropped silently.
+	 */
+	@Test
+	void testChannelSendBufferFull() throws IOException {
+		try (UdpSocket channel=UdpSocket.openChannel(0,LOCALHOST,false); UdpSocket peer=new UdpSocket(0,LOCALHOST)) {
+			channel.getChannel().setOption(StandardSocketOptions.SO_SNDBUF,Integer.valueOf(2048));
+
+			int attempts=1000;
+			int failed=0;
+			byte[] buf=new byte[1000];
+			for (int n=0; n<attempts; n++) {
+				try {
+					channel.send(new UdpPacket(buf,buf.length,LOCALHOST,peer.getLocalPort()));
+				}
+				catch (IOException e) {
+					failed++;
+				}
+			}
+			assertEquals(failed,channel.getSenderDropCounter());
+			assertEquals(attempts,channel.getSenderPacketCounter()+channel.getSenderDropCounter());
+		}
+	}
+
+	/**
+	 * Halting wakes up the receiver immediately instead of after the socket timeout.
+	 */
+	@Test
+	void testHalt() throws IOException, InterruptedException {
+		CountDownLatch terminated=new CountDownLatch(1);
+		UdpProviderListener listener=new UdpProviderListener() {
+			@Override
+			public void onReceivedPacket(UdpProvider udp, UdpPacket packet) {
+				// Ignore.
+			}
+
+			@Override
+			public void onServiceTerminated(UdpProvider udp, Exception error) {
+				terminated.countDown();
+			}
+		};
+
+		try (UdpSocket receiver=UdpSocket.openChannel(0,LOCALHOST,false)) {
+			UdpBatchProvider provider=new UdpBatchProvider(receiver,4,listener);
+			// Wait for the receiver to block in the selector.
+			Thread.sleep(100);
+			provider.halt();
+			assertTrue(terminated.await(UdpProvider.DEFAULT_SOCKET_TIMEOUT/2,TimeUnit.MILLISECONDS));
+			assertFalse(provider.isRunning());
+		}
+	}
+
+}
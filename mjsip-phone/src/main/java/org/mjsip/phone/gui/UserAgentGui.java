@@ -53,6 +53,7 @@ import org.mjsip.media.rx.AudioReceiver;
 import org.mjsip.media.rx.JavaxAudioOutput;
 import org.mjsip.media.tx.AudioTransmitter;
 import org.mjsip.media.tx.JavaxAudioInput;
+import org.mjsip.media.tx.MediaClock;
 import org.mjsip.pool.PortConfig;
 import org.mjsip.pool.PortPool;
 import org.mjsip.sip.address.NameAddress;
@@ -163,6 +164,9 @@ public class UserAgentGui extends JFrame implements UserAgentListenerAdapter {
 	private UIConfig _uiConfig;
 
 	private StreamerFactory _streamerFactory;
+
+	/** The clock sending the RTP streams of all calls, or <code>null</code>. */
+	private final MediaClock _mediaClock;
 	
 
 	/** Changes the call state */
@@ -193,7 +197,8 @@ public class UserAgentGui extends JFrame implements UserAgentListenerAdapter {
 		_mediaConfig = mediaConfig;
 
 		ua=new RegisteringUserAgent(sip_provider, portPool,_uaConfig, this.andThen(clipPlayer()));
-		_streamerFactory = createStreamerFactory(_mediaConfig, _uaConfig);
+		_mediaClock = mediaConfig.getMediaClockThreads() > 0 ? new MediaClock(mediaConfig.getMediaClockThreads()) : null;
+		_streamerFactory = createStreamerFactory(_mediaConfig, _uaConfig, _mediaClock);
 		//ua.listen();
 		changeStatus(UA_IDLE);
 
@@ -203,8 +208,12 @@ public class UserAgentGui extends JFrame implements UserAgentListenerAdapter {
 
 	/**
 	 * Creates a {@link StreamerFactory} based on configuration options.
+	 * 
+	 * @param mediaClock
+	 *        The clock sending the RTP streams of all calls, or <code>null</code> for a thread per
+	 *        stream.
 	 */
-	public StreamerFactory createStreamerFactory(MediaOptions mediaConfig, UAOptions uaConfig) {
+	public StreamerFactory createStreamerFactory(MediaOptions mediaConfig, UAOptions uaConfig, MediaClock mediaClock) {
 		DispatchingStreamerFactory factory = new DispatchingStreamerFactory();
 		if (mediaConfig.isAudio()) {
 			if (mediaConfig.isUseRat()) {
@@ -230,6 +239,10 @@ public class UserAgentGui extends JFrame implements UserAgentListenerAdapter {
 				StreamerOptions options = StreamerOptions.builder()
 						.setRandomEarlyDrop(mediaConfig.getRandomEarlyDropRate())
 						.setSymmetricRtp(mediaConfig.isSymmetricRtp())
+						.setJitterBufferMinDelay(mediaConfig.getJitterBufferMinDelay())
+						.setJitterBufferMaxDelay(mediaConfig.getJitterBufferMaxDelay())
+						.setLatePacketPolicy(mediaConfig.getLatePacketPolicy())
+						.setMediaClock(mediaClock)
 						.build();
 				
 				factory.addFactory("audio", new DefaultStreamerFactory(options, rx, tx));
@@ -415,6 +428,7 @@ public class UserAgentGui extends JFrame implements UserAgentListenerAdapter {
 	protected void exit() {
 		// close possible active call before exiting
 		jButton2_actionPerformed();
+		if (_mediaClock!=null) _mediaClock.stop();
 		// exit now
 		System.exit(0);
 	}
@@ -22,7 +22,10 @@
 package org.mjsip.server;
 
 
-import org.mjsip.sip.authentication.DigestAuthentication;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.mjsip.sip.authentication.DigestVerifier;
 import org.mjsip.sip.header.AuthenticationHeader;
 import org.mjsip.sip.header.AuthenticationInfoHeader;
 import org.mjsip.sip.header.AuthorizationHeader;
@@ -32,12 +35,13 @@ import org.mjsip.sip.message.SipMessage;
 import org.mjsip.sip.message.SipResponses;
 import org.mjsip.sip.provider.SipProvider;
 import org.slf4j.LoggerFactory;
-import org.zoolu.util.ByteUtils;
-import org.zoolu.util.MD5;
 
 
 /** Class AuthenticationServerImpl implements an AuthenticationServer
   * for HTTP Digest authentication.
+  * <p>
+  * Each challenge is issued with a fresh nonce managed by a {@link NonceManager},
+  * so that concurrent clients do not invalidate each other's nonces.
   */
 public class AuthenticationServerImpl implements AuthenticationServer {
 	
@@ -62,8 +66,11 @@ public class AuthenticationServerImpl implements AuthenticationServer {
 	//protected String qop_options="auth,auth-int";
 	protected String qop_options="auth";
 
-	/** The current random value. */
-	protected byte[] rand;
+	/** The issued nonces. */
+	protected NonceManager nonce_manager;
+
+	/** H(A1) values by user, computed from the user's key. */
+	private final ConcurrentHashMap<String,UserHA1> ha1_cache=new ConcurrentHashMap<>();
 
 	private SipProvider sip_provider;
 
@@ -77,16 +84,22 @@ public class AuthenticationServerImpl implements AuthenticationServer {
 
 	/** Costructs a new AuthenticationServerImpl. */
 	public AuthenticationServerImpl(SipProvider sip_provider, String realm, AuthenticationService authentication_service) {
+		this(sip_provider,realm,authentication_service,new NonceManager());
+	}
+ 
+	/** Costructs a new AuthenticationServerImpl.
+	  * @param nonce_manager the table of issued nonces */
+	public AuthenticationServerImpl(SipProvider sip_provider, String realm, AuthenticationService authentication_service, NonceManager nonce_manager) {
 		this.sip_provider = sip_provider;
-		init(realm, authentication_service);
+		init(realm, authentication_service, nonce_manager);
 	}
  
 	
 	/** Inits the AuthenticationServerImpl. */
-	private void init(String realm, AuthenticationService authentication_service) {
+	private void init(String realm, AuthenticationService authentication_service, NonceManager nonce_manager) {
 		this.realm=realm;
 		this.authentication_service=authentication_service;
-		this.rand=pickRandBytes();
+		this.nonce_manager=nonce_manager;
 	}
 
 	/** Gets the realm. */
@@ -101,12 +114,6 @@ public class AuthenticationServerImpl implements AuthenticationServer {
 	}*/
 
 
-	/** Gets the current rand value. */
-	/*public String getRand() {
-		return HEX(rand);
-	}*/
-
-
 	/** Authenticates a SIP request.
 	  * @param msg is the SIP request to be authenticated
 	  * @return it returns the error SipMessage in case of authentication failure,
@@ -141,7 +148,7 @@ public class AuthenticationServerImpl implements AuthenticationServer {
 		if (type==SERVER_AUTHENTICATION) ah=msg.getAuthorizationHeader();
 		else ah=msg.getProxyAuthorizationHeader();
 			
-		if (ah!=null && ah.getNonceParam().equals(HEX(rand))) {
+		if (ah!=null && ah.getNonceParam()!=null) {
 			
 			//String username=ah.getUsernameParam();
 			String realm=ah.getRealmParam();
@@ -155,20 +162,35 @@ public class AuthenticationServerImpl implements AuthenticationServer {
 				
 				if (authentication_scheme.equalsIgnoreCase(scheme)) {
 					
-					DigestAuthentication auth=new DigestAuthentication(msg.getRequestLine().getMethod(),ah,msg.getBody(),keyToPasswd(authentication_service.getUserKey(user)));
-
 					// check user's authentication response
-					boolean is_authorized=auth.checkResponse();
+					boolean is_authorized=checkResponse(msg,ah,user);
 
-					rand=pickRandBytes();        
-						
 					if (!is_authorized) {
-						err_resp=sip_provider.messageFactory().createResponse(msg,SipResponses.FORBIDDEN,null,null);
-						LOG.info("Login error: Authentication of '{}' failed", user);
+						if (!nonce_manager.isIssued(nonce)) {
+							// an outdated challenge, as before a mismatching nonce
+							LOG.info("Nonce mismatching");
+							err_resp=createChallenge(msg,type,false);
+						}
+						else {
+							err_resp=sip_provider.messageFactory().createResponse(msg,SipResponses.FORBIDDEN,null,null);
+							LOG.info("Login error: Authentication of '{}' failed", user);
+						}
 					}
 					else {
-						// authentication/authorization successed
-						LOG.info("Authentication of '{}' successed", user);
+						String nc=ah.getQopParam()!=null? ah.getNcParam() : null;
+						switch (nonce_manager.check(nonce,nc)) {
+							case VALID:
+								// authentication/authorization successed
+								LOG.info("Authentication of '{}' successed", user);
+								break;
+							case STALE:
+								LOG.info("Stale nonce from '{}'", user);
+								err_resp=createChallenge(msg,type,true);
+								break;
+							default:
+								LOG.info("Replayed nonce from '{}'", user);
+								err_resp=createChallenge(msg,type,false);
+						}
 					}
 				}
 				else {
@@ -186,57 +208,81 @@ public class AuthenticationServerImpl implements AuthenticationServer {
 		}
 		else {
 			// no Authorization header found
-			LOG.info("No Authorization header found or nonce mismatching");
-			int result;
-			if (type==SERVER_AUTHENTICATION) result=401; // response code 401 ("Unauthorized")
-			else result=407; // response code 407 ("Proxy Authentication Required")
-			err_resp=sip_provider.messageFactory().createResponse(msg,result,null,null);
-			AuthenticationHeader wah;
-			if (type==SERVER_AUTHENTICATION) wah=new WwwAuthenticateHeader("Digest");
-			else wah=new ProxyAuthenticateHeader("Digest");
-			wah.addRealmParam(realm);
-			wah.addQopOptionsParam(qop_options);
-			wah.addNonceParam(HEX(rand));
-			err_resp.setHeader(wah); 
+			LOG.info("No Authorization header found");
+			err_resp=createChallenge(msg,type,false);
 		}
 		return err_resp;
 	}
 
 
-	/** Gets AuthenticationInfoHeader. */
-	@Override
-	public AuthenticationInfoHeader getAuthenticationInfoHeader() {
-		AuthenticationInfoHeader aih=new AuthenticationInfoHeader();
-		aih.addRealmParam(realm);
-		aih.addQopOptionsParam(qop_options);
-		aih.addNextnonceParam(HEX(rand));
-		return aih;
+	/** Whether the digest-response of the request is correct.
+	  * @param user the user name with realm, as used in the authentication DB */
+	private boolean checkResponse(SipMessage msg, AuthorizationHeader ah, String user) {
+		byte[] ha1=getHA1(user,ah.getUsernameParam(),ah.getRealmParam());
+		if (ha1==null) return false;
+		// else
+		return DigestVerifier.checkResponse(msg.getRequestLine().getMethod(),ah,msg.getBody(),ha1);
 	}
 
 
-	/** Picks a random array of 16 bytes. */
-	private static byte[] pickRandBytes() {
-		return MD5(Long.toHexString(org.zoolu.util.Random.nextLong()));
+	/** Gets H(A1) of a user, either from the authentication service, or computed
+	  * from the user's key, if the key has changed since last computed.
+	  * @return the H(A1) value, or null if the user has no key */
+	private byte[] getHA1(String user, String username, String realm) {
+		byte[] stored=authentication_service.getUserHA1(user);
+		if (stored!=null) return stored;
+		// else
+		byte[] key=authentication_service.getUserKey(user);
+		if (key==null) return null;
+		// else
+		UserHA1 cached=ha1_cache.get(user);
+		if (cached==null || !Arrays.equals(cached.key,key)) {
+			cached=new UserHA1(key.clone(),DigestVerifier.HA1(username,realm,key));
+			ha1_cache.put(user,cached);
+		}
+		return cached.ha1;
 	}
 
-	/** Converts the byte[] key in a String passwd. */
-	private static String keyToPasswd(byte[] key) {
-		return new String(key);
-	}
 
-	/** Calculates the MD5 of a String. */
-	private static byte[] MD5(String str) {
-		return MD5.digest(str);
+	/** Creates a 401 (or 407) response with a new nonce.
+	  * @param stale whether the request was rejected only because of an outdated nonce */
+	private SipMessage createChallenge(SipMessage msg, int type, boolean stale) {
+		int result;
+		if (type==SERVER_AUTHENTICATION) result=401; // response code 401 ("Unauthorized")
+		else result=407; // response code 407 ("Proxy Authentication Required")
+		SipMessage err_resp=sip_provider.messageFactory().createResponse(msg,result,null,null);
+		AuthenticationHeader wah;
+		if (type==SERVER_AUTHENTICATION) wah=new WwwAuthenticateHeader("Digest");
+		else wah=new ProxyAuthenticateHeader("Digest");
+		wah.addRealmParam(realm);
+		wah.addQopOptionsParam(qop_options);
+		wah.addNonceParam(nonce_manager.issue());
+		if (stale) wah.addUnquotedParameter("stale","true");
+		err_resp.setHeader(wah); 
+		return err_resp;
 	}
 
-	/** Calculates the MD5 of an array of bytes. */
-	private static byte[] MD5(byte[] bb) {
-		return MD5.digest(bb);
+
+	/** Gets AuthenticationInfoHeader. */
+	@Override
+	public AuthenticationInfoHeader getAuthenticationInfoHeader() {
+		AuthenticationInfoHeader aih=new AuthenticationInfoHeader();
+		aih.addRealmParam(realm);
+		aih.addQopOptionsParam(qop_options);
+		aih.addNextnonceParam(nonce_manager.issue());
+		return aih;
 	}
 
-	/** Calculates the HEX of an array of bytes. */
-	private static String HEX(byte[] bb) {
-		return ByteUtils.asHex(bb);
+
+	/** H(A1) computed from a user's key. */
+	private static final class UserHA1 {
+		final byte[] key;
+		final byte[] ha1;
+		
+		UserHA1(byte[] key, byte[] ha1) {
+			this.key=key;
+			this.ha1=ha1;
+		}
 	}
 
 }
@@ -54,6 +54,14 @@ public interface AuthenticationService extends Repository {
 	  * @return the user key */
 	public byte[] getUserKey(String user);
 
+	/** Gets the hash of the user's credentials used by HTTP Digest authentication,
+	  * that is H(username ":" realm ":" passwd) with the user name <i>username@realm</i>.
+	  * @param user the user name
+	  * @return the hash, or null if not available (then it is computed from the user key) */
+	public default byte[] getUserHA1(String user) {
+		return null;
+	}
+
 	 
 	/** Sets the user sequence number.
 	  * @param user the user name
@@ -10,14 +10,20 @@ import java.io.IOException;
 import java.util.Enumeration;
 import java.util.Hashtable;
 
+import org.mjsip.sip.authentication.DigestVerifier;
 import org.slf4j.LoggerFactory;
 import org.zoolu.util.Base64;
+import org.zoolu.util.ByteUtils;
 import org.zoolu.util.Parser;
 
 
 /** AuthenticationServiceImpl is a simple implementation of a AuthenticationService.
   * AuthenticationServiceImpl allows creation and maintainance of a
   * AAA service for registered users.
+  * <p>
+  * The DB file stores the H(A1) hash of the HTTP Digest authentication for each user
+  * instead of the user key (password). Keys from DB files in the old format
+  * (<i>key</i> or <i>passwd</i> entries) are converted when loading.
   */
 public class AuthenticationServiceImpl implements AuthenticationService {
 	
@@ -38,9 +44,16 @@ public class AuthenticationServiceImpl implements AuthenticationService {
 
 	/** Creates a new AuthenticationService. */
 	public AuthenticationServiceImpl(String file_name) {
+		this(file_name,true);
+	}
+
+	/** Creates a new AuthenticationService.
+	  * @param file_name the name of the DB file
+	  * @param load whether to load the DB file, false for subclasses with their own persistence */
+	protected AuthenticationServiceImpl(String file_name, boolean load) {
 		filename=file_name;
 		users=new Hashtable<>();
-		load();
+		if (load) load();
 	}
 
 
@@ -113,7 +126,7 @@ public class AuthenticationServiceImpl implements AuthenticationService {
 	@Override
 	public AuthenticationService addUser(String user, byte[] key) {
 		if (hasUser(user)) return this;
-		UserAuthInfo ur=new UserAuthInfo(user,key);
+		UserAuthInfo ur=new UserAuthInfo(user,key,HA1(user,key));
 		users.put(user,ur);
 		changed=true;
 		return this;
@@ -124,18 +137,64 @@ public class AuthenticationServiceImpl implements AuthenticationService {
 	public AuthenticationService setUserKey(String user, byte[] key) {
 		UserAuthInfo ur=getUserAuthInfo(user);
 		if (ur!=null) {
-			ur.setKey(key);
+			ur.setKey(key,HA1(user,key));
 			changed=true;
 		}
 		return this;
 	}   
-	/** Gets the user key */
+	/** Gets the user key.
+	  * @return the user key, or null if the user is unknown, or only the H(A1) hash of the user is known */
 	@Override
 	public byte[] getUserKey(String user) {
-		if (hasUser(user)) return getUserAuthInfo(user).getKey();
+		UserAuthInfo ur=getUserAuthInfo(user);
+		if (ur!=null) return ur.getKey();
 		else return null;
 	}
 
+	/** Gets the H(A1) hash of the user */
+	@Override
+	public byte[] getUserHA1(String user) {
+		UserAuthInfo ur=getUserAuthInfo(user);
+		if (ur!=null) return ur.getHA1();
+		else return null;
+	}
+
+	/** Adds a new user with the given H(A1) hash instead of a user key.
+	  * @param user the user name
+	  * @param ha1 the hash, see {@link #HA1(String, byte[])}
+	  * @return this object */
+	public AuthenticationService addUserHA1(String user, byte[] ha1) {
+		if (hasUser(user)) return this;
+		UserAuthInfo ur=new UserAuthInfo(user,null,ha1);
+		users.put(user,ur);
+		changed=true;
+		return this;
+	}
+
+	/** Sets the H(A1) hash of the user, the user key is no longer known afterwards.
+	  * @param user the user name
+	  * @param ha1 the hash, see {@link #HA1(String, byte[])}
+	  * @return this object */
+	public AuthenticationService setUserHA1(String user, byte[] ha1) {
+		UserAuthInfo ur=getUserAuthInfo(user);
+		if (ur!=null) {
+			ur.setKey(null,ha1);
+			changed=true;
+		}
+		return this;
+	}
+
+	/** Calculates the H(A1) hash of the HTTP Digest authentication.
+	  * @param user the user name in the form <i>username@realm</i>
+	  * @param key the user key, that is the password
+	  * @return H(username ":" realm ":" key) */
+	public static byte[] HA1(String user, byte[] key) {
+		int at=user.lastIndexOf('@');
+		String username=(at<0)? user : user.substring(0,at);
+		String realm=(at<0)? "" : user.substring(at+1);
+		return DigestVerifier.HA1(username,realm,key);
+	}
+
 
 	// ******************************* New methods *******************************
 
@@ -167,6 +226,7 @@ public class AuthenticationServiceImpl implements AuthenticationService {
 		try (BufferedReader in = new BufferedReader(new FileReader(filename))){
 			String user = null;
 			byte[] key = NULL_ARRAY;
+			byte[] ha1 = null;
 			while (true) {
 				String line = null;
 				try {
@@ -184,9 +244,14 @@ public class AuthenticationServiceImpl implements AuthenticationService {
 				if (line.startsWith("#"))
 					continue;
 				if (line.startsWith("user")) {
-					if (user != null) addUser(user, key);
+					if (user != null) addUser(user, key, ha1);
 					user = par.goTo('=').skipChar().getString();
 					key = NULL_ARRAY;
+					ha1 = null;
+					continue;
+				}
+				if (line.startsWith("ha1")) {
+					ha1 = ByteUtils.hexStringToBytes(par.goTo('=').skipChar().getString());
 					continue;
 				}
 				if (line.startsWith("key")) {
@@ -198,7 +263,7 @@ public class AuthenticationServiceImpl implements AuthenticationService {
 					continue;
 				}
 			}
-			if (user != null) addUser(user, key);
+			if (user != null) addUser(user, key, ha1);
 		} catch (FileNotFoundException e) {
 			LOG.warn("file \"{}\" not found: created new empty DB", filename);
         } catch (IOException e) {
@@ -206,6 +271,12 @@ public class AuthenticationServiceImpl implements AuthenticationService {
 		}
 	}
 
+	/** Adds a user read from the DB file. */
+	private void addUser(String user, byte[] key, byte[] ha1) {
+		if (ha1!=null) addUserHA1(user,ha1);
+		else addUser(user,key);
+	}
+
 	/** Saves the database */
 	public synchronized void save() {
 		changed=false;
@@ -243,10 +314,11 @@ class UserAuthInfo {
 	String getName() {  return name;  }   
 	void setName(String name) {  this.name=name;  }
 
-	/** User key */
-	byte[] key;
-	byte[] getKey() {  return key;  }  
-	void setKey(byte[] key) {  this.key=key;  }
+	/** User key and H(A1) hash, replaced together */
+	private volatile Credentials credentials;
+	byte[] getKey() {  return credentials.key;  }  
+	byte[] getHA1() {  return credentials.ha1;  }  
+	void setKey(byte[] key, byte[] ha1) {  this.credentials=new Credentials(key,ha1);  }
 
 
 	/** Gets the String value of this Object.
@@ -255,15 +327,29 @@ class UserAuthInfo {
 	public String toString() {
 		String str="";
 		str+="user= "+name+"\r\n";
-		str+="key= "+Base64.encode(key)+"\r\n";
+		str+="ha1= "+ByteUtils.asHex(getHA1())+"\r\n";
 		return str;
 	}
 
 	/** Costructs a new UserAuthInfo for user <i>name</i>
-	  * @param name the user name */
-	UserAuthInfo(String name, byte[] key) {
+	  * @param name the user name
+	  * @param key the user key, or null if only the hash is known
+	  * @param ha1 the H(A1) hash */
+	UserAuthInfo(String name, byte[] key, byte[] ha1) {
 		this.name=name;
-		this.key=key;
+		setKey(key,ha1);
 	} 
+
+
+	/** User key with the H(A1) hash computed from it. */
+	private static final class Credentials {
+		final byte[] key;
+		final byte[] ha1;
+		
+		Credentials(byte[] key, byte[] ha1) {
+			this.key=key;
+			this.ha1=ha1;
+		}
+	}
 }
 
@@ -29,7 +29,7 @@ import org.zoolu.net.SocketAddress;
 
 /** DomainProxyingRule is a ProxyingRule based on the domain or host name of URIs.
   */
-class DomainProxyingRule implements ProxyingRule {
+public class DomainProxyingRule implements ProxyingRule {
 	
 
 	/** Matching domain. */
@@ -0,0 +1,794 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.server;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.mjsip.sip.header.Header;
+import org.mjsip.sip.header.SipHeaders;
+import org.mjsip.sip.header.ViaHeader;
+import org.mjsip.sip.message.SipMessage;
+import org.mjsip.sip.message.SipMethods;
+import org.mjsip.sip.message.SipResponses;
+import org.mjsip.sip.provider.SipId;
+import org.mjsip.sip.provider.SipProvider;
+import org.mjsip.sip.transaction.TransactionClient;
+import org.mjsip.sip.transaction.TransactionClientListener;
+import org.mjsip.sip.transaction.TransactionServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Forwards a request received by a stateful proxy to multiple targets and aggregates their
+ * responses.
+ *
+ * <p>
+ * In {@link Mode#PARALLEL parallel} mode, the request is sent to all targets at once, in
+ * {@link Mode#SEQUENTIAL sequential} mode, the targets are tried one after another in the order of
+ * decreasing q-value until one of them answers. The requests are sent from the executor of the
+ * {@link SipProvider}, not from the thread that received the request.
+ * </p>
+ *
+ * <p>
+ * Responses are handled as described in RFC 3261 section 16.7: Provisional responses and all 2xx
+ * responses are forwarded immediately. When the first 2xx response or a 6xx response arrives, all
+ * other branches of an INVITE are cancelled. A branch that has not yet received a provisional
+ * response is cancelled as soon as it receives one. When all branches have completed without an
+ * answer, the best final response is forwarded: A 6xx response, if there is one, otherwise the
+ * response of the lowest class, where 401, 407, 415, 420 and 484 are preferred within the 4xx
+ * class. A 503 response is replaced by a 500 response, a 408 response is sent, if no branch
+ * received a final response.
+ * </p>
+ *
+ * <p>
+ * Each branch may be limited in time. When the branch timeout expires, the branch is cancelled and
+ * counts as timed out. In sequential mode, the next target is tried.
+ * </p>
+ *
+ * <p>
+ * A CANCEL of the caller is matched to its forked INVITE with {@link #getInviteFork(SipMessage)}.
+ * {@link Fork#cancel() Cancelling} the fork cancels all pending branches and starts no further
+ * branches, as described in RFC 3261 section 16.10.
+ * </p>
+ *
+ * <p>
+ * The state of each forked request is guarded by its own lock, so that unrelated forks never
+ * contend. The time from forking a request to forwarding its final response and the time until the
+ * final response of each branch are recorded in {@link LatencyHistogram}s.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+public class ForkingEngine {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ForkingEngine.class);
+
+	/**
+	 * How the targets of a request are tried.
+	 */
+	public enum Mode {
+
+		/** All targets are tried at once. */
+		PARALLEL,
+
+		/** Targets are tried one after another in the order of decreasing q-value. */
+		SEQUENTIAL;
+
+		/**
+		 * The {@link Mode} with the given name, case is ignored.
+		 *
+		 * @throws IllegalArgumentException
+		 *         If there is no such mode.
+		 */
+		public static Mode parse(String name) {
+			return valueOf(name.trim().toUpperCase(Locale.ROOT));
+		}
+	}
+
+	/**
+	 * Callback forwarding a response received from a branch through the server transaction.
+	 */
+	public interface ResponseHandler {
+
+		/**
+		 * Forwards the response of a branch.
+		 *
+		 * @param ts
+		 *        The server transaction of the forked request.
+		 * @param resp
+		 *        The response still containing the Via header field of this proxy.
+		 */
+		void forwardResponse(TransactionServer ts, SipMessage resp);
+
+	}
+
+	/**
+	 * A target of a forked request.
+	 */
+	public static final class Target {
+
+		final SipMessage _request;
+
+		final float _q;
+
+		/**
+		 * Creates a {@link Target}.
+		 *
+		 * @param request
+		 *        The request to send to the target, ready for forwarding.
+		 * @param q
+		 *        The q-value of the target between 0 and 1, see RFC 3261 section 20.10.
+		 */
+		public Target(SipMessage request, float q) {
+			_request = request;
+			_q = q;
+		}
+
+		/**
+		 * The request to send to the target.
+		 */
+		public SipMessage getRequest() {
+			return _request;
+		}
+
+		/**
+		 * The q-value of the target.
+		 */
+		public float getQ() {
+			return _q;
+		}
+
+		@Override
+		public String toString() {
+			return _request.getRequestLine().getAddress() + ";q=" + _q;
+		}
+	}
+
+	private final SipProvider _sipProvider;
+
+	private final Executor _executor;
+
+	private final Mode _mode;
+
+	private final long _branchTimeout;
+
+	private final long _proxyTransactionTimeout;
+
+	private final ResponseHandler _handler;
+
+	/** Forked INVITEs without final response indexed by the ID of their server transaction. */
+	private final Map<SipId, Fork> _invites = new ConcurrentHashMap<>();
+
+	private final LongAdder _forkCount = new LongAdder();
+
+	private final LongAdder _branchCount = new LongAdder();
+
+	private final LongAdder _answeredCount = new LongAdder();
+
+	private final LongAdder _cancelledCount = new LongAdder();
+
+	private final LongAdder _timedOutCount = new LongAdder();
+
+	private final LatencyHistogram _forkLatency = new LatencyHistogram();
+
+	private final LatencyHistogram _branchLatency = new LatencyHistogram();
+
+	/**
+	 * Creates a {@link ForkingEngine}.
+	 *
+	 * @param sipProvider
+	 *        The provider to send requests with.
+	 * @param mode
+	 *        Whether to try targets in parallel or one after another.
+	 * @param branchTimeout
+	 *        Time in milliseconds after which a branch without final response is cancelled, 0 for
+	 *        no limit other than Timer C.
+	 * @param proxyTransactionTimeout
+	 *        Timer C of RFC 3261 in milliseconds for INVITE branches.
+	 * @param handler
+	 *        Callback forwarding responses of branches.
+	 */
+	public ForkingEngine(SipProvider sipProvider, Mode mode, long branchTimeout, long proxyTransactionTimeout,
+			ResponseHandler handler) {
+		_sipProvider = sipProvider;
+		_executor = sipProvider.scheduler();
+		_mode = mode;
+		_branchTimeout = branchTimeout;
+		_proxyTransactionTimeout = proxyTransactionTimeout;
+		_handler = handler;
+	}
+
+	/**
+	 * Whether targets are tried in parallel or one after another.
+	 */
+	public Mode getMode() {
+		return _mode;
+	}
+
+	/**
+	 * Forwards the request of the given server transaction to the given targets.
+	 *
+	 * @param ts
+	 *        The server transaction of the received request.
+	 * @param targets
+	 *        The targets to forward the request to, must not be empty.
+	 * @return The {@link Fork} aggregating the responses of all targets.
+	 */
+	public Fork fork(TransactionServer ts, List<Target> targets) {
+		List<Target> ordered = new ArrayList<>(targets);
+		if (_mode == Mode.SEQUENTIAL) {
+			// Note: The sort is stable, targets with the same q-value are tried in the given order.
+			ordered.sort(Comparator.comparingDouble((Target target) -> target._q).reversed());
+		}
+		Fork fork = new Fork(ts, ordered);
+		_forkCount.increment();
+		if (fork._invite) {
+			_invites.put(ts.getTransactionId(), fork);
+		}
+		fork.start();
+		return fork;
+	}
+
+	/**
+	 * The forked INVITE that is cancelled by the given CANCEL request.
+	 *
+	 * @param cancel
+	 *        A received CANCEL request.
+	 * @return The {@link Fork} of the INVITE with the same transaction identifier, or
+	 *         <code>null</code>, if there is no such INVITE, or it has already received its final
+	 *         response.
+	 */
+	public Fork getInviteFork(SipMessage cancel) {
+		ViaHeader via = cancel.getViaHeader();
+		if (via == null) {
+			return null;
+		}
+		String branch = via.hasBranch() ? via.getBranch() : null;
+		SipId id = SipId.createTransactionServerId(cancel.getCallIdHeader().getCallId(),
+			cancel.getCSeqHeader().getSequenceNumber(), SipMethods.INVITE, via.getSentBy(), branch);
+		return _invites.get(id);
+	}
+
+	/**
+	 * The number of forked requests.
+	 */
+	public long getForkCount() {
+		return _forkCount.sum();
+	}
+
+	/**
+	 * The number of started branches.
+	 */
+	public long getBranchCount() {
+		return _branchCount.sum();
+	}
+
+	/**
+	 * The number of forked requests that have been answered with a 2xx response.
+	 */
+	public long getAnsweredCount() {
+		return _answeredCount.sum();
+	}
+
+	/**
+	 * The number of branches that have been cancelled.
+	 */
+	public long getCancelledCount() {
+		return _cancelledCount.sum();
+	}
+
+	/**
+	 * The number of branches that have been stopped by the branch timeout.
+	 */
+	public long getTimedOutCount() {
+		return _timedOutCount.sum();
+	}
+
+	/**
+	 * Distribution of the time from forking a request to forwarding its first 2xx or its final
+	 * response.
+	 */
+	public LatencyHistogram getForkLatency() {
+		return _forkLatency;
+	}
+
+	/**
+	 * Distribution of the time from sending the request of a branch to receiving its final
+	 * response.
+	 */
+	public LatencyHistogram getBranchLatency() {
+		return _branchLatency;
+	}
+
+	@Override
+	public String toString() {
+		return "{mode=" + _mode + ", forks=" + getForkCount() + ", branches=" + getBranchCount() + ", answered="
+			+ getAnsweredCount() + ", cancelled=" + getCancelledCount() + ", timed out=" + getTimedOutCount()
+			+ ", fork latency=" + _forkLatency + ", branch latency=" + _branchLatency + "}";
+	}
+
+	/**
+	 * Whether the final response <code>code</code> is better than the <code>best</code> one
+	 * received so far according to RFC 3261 section 16.7.
+	 */
+	static boolean isBetter(int code, int best) {
+		return rank(code) < rank(best);
+	}
+
+	/**
+	 * The rank of a final non-2xx response, the lowest rank is the best response.
+	 */
+	private static int rank(int code) {
+		int cls = code / 100;
+		switch (cls) {
+			case 6:
+				return 0;
+			case 3:
+				return 10;
+			case 4:
+				switch (code) {
+					case SipResponses.UNAUTHORIZED:
+					case SipResponses.PROXY_AUTHENTICATION_REQUIRED:
+					case SipResponses.UNSUPPORTED_MEDIA_TYPE:
+					case SipResponses.BAD_EXTENSION:
+					case SipResponses.ADDRESS_INCOMPLETE:
+						// Responses with information affecting the resubmission of the request.
+						return 20;
+					case SipResponses.REQUEST_TIMEOUT:
+					case SipResponses.REQUEST_TERMINATED:
+						// Local outcome of a branch, less informative than any response of a UAS.
+						return 22;
+					default:
+						return 21;
+				}
+			case 5:
+				return 30;
+			default:
+				return 40;
+		}
+	}
+
+	/**
+	 * Sends a CANCEL for the given branch.
+	 */
+	private void sendCancel(TransactionClient tc) {
+		_cancelledCount.increment();
+		SipMessage cancel = _sipProvider.messageFactory().createCancelRequest(tc.getRequestMessage());
+		new TransactionClient(_sipProvider, cancel, null).request();
+	}
+
+	/**
+	 * A single branch of a {@link Fork}.
+	 */
+	private static final class Branch {
+
+		final Target target;
+
+		TransactionClient tc;
+
+		ScheduledFuture<?> timeout;
+
+		long startNanos;
+
+		/** Whether the branch has completed, either with a final response or a timeout. */
+		boolean done;
+
+		/** Whether the branch must be cancelled as soon as it has received a provisional response. */
+		boolean cancel;
+
+		/** Whether a CANCEL has been sent. */
+		boolean cancelSent;
+
+		Branch(Target target) {
+			this.target = target;
+		}
+	}
+
+	/**
+	 * A request forwarded to multiple targets.
+	 */
+	public final class Fork implements TransactionClientListener {
+
+		private final TransactionServer _ts;
+
+		private final boolean _invite;
+
+		private final Branch[] _branches;
+
+		private final long _startNanos;
+
+		/** Index of the next branch to start, guarded by <code>this</code>. */
+		private int _next;
+
+		/** Number of started branches that have not yet completed, guarded by <code>this</code>. */
+		private int _pending;
+
+		/** Final non-2xx responses received so far, guarded by <code>this</code>. */
+		private final List<SipMessage> _responses = new ArrayList<>();
+
+		/** The best final non-2xx response received so far, guarded by <code>this</code>. */
+		private SipMessage _best;
+
+		/** Whether a 2xx response has been received, guarded by <code>this</code>. */
+		private boolean _answered;
+
+		/** Whether a 6xx response has been received, guarded by <code>this</code>. */
+		private boolean _declined;
+
+		/** Whether a final response has been forwarded, guarded by <code>this</code>. */
+		private boolean _completed;
+
+		/** The final response created by this proxy instead of forwarding a received one. */
+		private SipMessage _local;
+
+		Fork(TransactionServer ts, List<Target> targets) {
+			_ts = ts;
+			_invite = ts.getTransactionMethod().equals(SipMethods.INVITE);
+			_branches = new Branch[targets.size()];
+			for (int n = 0; n < _branches.length; n++) {
+				_branches[n] = new Branch(targets.get(n));
+			}
+			_startNanos = System.nanoTime();
+		}
+
+		/**
+		 * The server transaction of the forked request.
+		 */
+		public TransactionServer getServer() {
+			return _ts;
+		}
+
+		/**
+		 * Whether a final response has been forwarded.
+		 */
+		public synchronized boolean isCompleted() {
+			return _completed;
+		}
+
+		/**
+		 * Number of branches that have been started and not yet completed.
+		 */
+		public synchronized int getPendingCount() {
+			return _pending;
+		}
+
+		/**
+		 * Cancels the forked request upon a CANCEL of the caller.
+		 *
+		 * <p>
+		 * Targets that have not been tried yet are skipped, and a CANCEL is sent to all pending
+		 * branches of an INVITE, see RFC 3261 section 16.10. The final response is forwarded, when
+		 * all branches have completed.
+		 * </p>
+		 */
+		public void cancel() {
+			List<TransactionClient> cancels;
+			synchronized (this) {
+				LOG.debug("Cancelling {}.", this);
+				cancels = stopOthers(null);
+			}
+			sendCancels(cancels);
+		}
+
+		void start() {
+			List<Branch> started = new ArrayList<>();
+			synchronized (this) {
+				if (_mode == Mode.PARALLEL) {
+					while (_next < _branches.length) {
+						started.add(startBranch());
+					}
+				} else {
+					started.add(startBranch());
+				}
+			}
+			send(started);
+		}
+
+		/**
+		 * Creates the client transaction of the next branch, must be called while holding the lock.
+		 */
+		private Branch startBranch() {
+			Branch branch = _branches[_next++];
+			SipMessage request = branch.target._request;
+			branch.tc = request.isInvite()
+				? new ProxyInviteTransactionClient(_sipProvider, request, _proxyTransactionTimeout, this)
+				: new TransactionClient(_sipProvider, request, this);
+			branch.startNanos = System.nanoTime();
+			_pending++;
+			_branchCount.increment();
+			if (_branchTimeout > 0) {
+				branch.timeout = _sipProvider.scheduler().schedule(_branchTimeout, () -> onBranchTimeout(branch));
+			}
+			LOG.debug("Forking to {}.", branch.target);
+			return branch;
+		}
+
+		private void send(List<Branch> started) {
+			for (Branch branch : started) {
+				_executor.execute(branch.tc::request);
+			}
+		}
+
+		private Branch branch(TransactionClient tc) {
+			for (Branch branch : _branches) {
+				if (branch.tc == tc) {
+					return branch;
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Marks the given branch as completed, must be called while holding the lock.
+		 */
+		private void complete(Branch branch) {
+			branch.done = true;
+			_pending--;
+			if (branch.timeout != null) {
+				branch.timeout.cancel(false);
+			}
+		}
+
+		/**
+		 * Stops all branches except the given one (if any), must be called while holding the lock.
+		 *
+		 * @return The branches to send a CANCEL to.
+		 */
+		private List<TransactionClient> stopOthers(Branch except) {
+			// Targets that have not been tried yet are skipped.
+			_next = _branches.length;
+
+			List<TransactionClient> cancels = new ArrayList<>();
+			if (!_invite) {
+				return cancels;
+			}
+			for (Branch branch : _branches) {
+				if (branch == except || branch.tc == null || branch.done) {
+					continue;
+				}
+				requestCancel(branch, cancels);
+			}
+			return cancels;
+		}
+
+		/**
+		 * Cancels a branch now, if it has received a provisional response, or else as soon as it
+		 * receives one. Must be called while holding the lock.
+		 */
+		private void requestCancel(Branch branch, List<TransactionClient> cancels) {
+			if (branch.cancel) {
+				return;
+			}
+			branch.cancel = true;
+			if (branch.tc.isProceeding()) {
+				branch.cancelSent = true;
+				cancels.add(branch.tc);
+			}
+		}
+
+		/**
+		 * Decides how to continue after a branch has completed without an answer, must be called
+		 * while holding the lock.
+		 *
+		 * @param started
+		 *        The list to add a started branch to.
+		 * @return The final response to send, or <code>null</code>.
+		 */
+		private SipMessage proceed(List<Branch> started) {
+			if (_completed) {
+				return null;
+			}
+			if (_next < _branches.length && _pending == 0) {
+				// Sequential forking, try the next target.
+				started.add(startBranch());
+				return null;
+			}
+			if (_pending > 0) {
+				return null;
+			}
+			_completed = true;
+			return finalResponse();
+		}
+
+		/**
+		 * The final response to forward after all branches completed without answer, must be
+		 * called while holding the lock.
+		 */
+		private SipMessage finalResponse() {
+			SipMessage best = _best;
+			if (best == null) {
+				return localResponse(SipResponses.REQUEST_TIMEOUT);
+			}
+			int code = best.getStatusLine().getCode();
+			if (code == SipResponses.SERVICE_UNAVAILABLE) {
+				// RFC 3261 section 16.7 step 6.
+				return localResponse(SipResponses.SERVER_INTERNAL_ERROR);
+			}
+			if (code == SipResponses.UNAUTHORIZED || code == SipResponses.PROXY_AUTHENTICATION_REQUIRED) {
+				// RFC 3261 section 16.7 step 7: Collect the challenges of all branches.
+				for (SipMessage resp : _responses) {
+					if (resp == best) {
+						continue;
+					}
+					addHeaders(best, resp, SipHeaders.WWW_Authenticate);
+					addHeaders(best, resp, SipHeaders.Proxy_Authenticate);
+				}
+			}
+			return best;
+		}
+
+		private void addHeaders(SipMessage target, SipMessage source, String name) {
+			for (Header header : source.getHeaders(name)) {
+				target.addHeader(header, false);
+			}
+		}
+
+		/**
+		 * Creates a response of this proxy that is not received from any branch, must be called
+		 * while holding the lock.
+		 */
+		private SipMessage localResponse(int code) {
+			_local = _sipProvider.messageFactory().createResponse(_ts.getRequestMessage(), code, null, null);
+			return _local;
+		}
+
+		private void sendFinal(SipMessage resp) {
+			if (resp == null) {
+				return;
+			}
+			removeInvite();
+			_forkLatency.record((System.nanoTime() - _startNanos) / 1000);
+			int code = resp.getStatusLine().getCode();
+			LOG.debug("All {} branches completed, sending final response {}.", _branches.length,
+				Integer.valueOf(code));
+			if (resp == _local) {
+				_ts.respondWith(resp);
+			} else {
+				_handler.forwardResponse(_ts, resp);
+			}
+		}
+
+		private void removeInvite() {
+			if (_invite) {
+				_invites.remove(_ts.getTransactionId(), this);
+			}
+		}
+
+		private void sendCancels(List<TransactionClient> cancels) {
+			for (TransactionClient tc : cancels) {
+				sendCancel(tc);
+			}
+		}
+
+		@Override
+		public void onTransProvisionalResponse(TransactionClient tc, SipMessage resp) {
+			boolean forward;
+			boolean sendCancel = false;
+			synchronized (this) {
+				Branch branch = branch(tc);
+				if (branch == null) {
+					return;
+				}
+				if (branch.cancel && !branch.cancelSent) {
+					branch.cancelSent = true;
+					sendCancel = true;
+				}
+				forward = !branch.done && !_completed && resp.getStatusLine().getCode() != SipResponses.TRYING;
+			}
+			if (sendCancel) {
+				sendCancel(tc);
+			}
+			if (forward) {
+				_handler.forwardResponse(_ts, resp);
+			}
+		}
+
+		@Override
+		public void onTransSuccessResponse(TransactionClient tc, SipMessage resp) {
+			boolean first;
+			List<TransactionClient> cancels;
+			synchronized (this) {
+				Branch branch = branch(tc);
+				if (branch == null) {
+					return;
+				}
+				if (!branch.done) {
+					complete(branch);
+					_branchLatency.record((System.nanoTime() - branch.startNanos) / 1000);
+				}
+				first = !_answered && !_completed;
+				_answered = true;
+				_completed = true;
+				cancels = stopOthers(branch);
+			}
+			if (first) {
+				removeInvite();
+				_answeredCount.increment();
+				_forkLatency.record((System.nanoTime() - _startNanos) / 1000);
+			}
+			// Note: All 2xx responses to an INVITE are forwarded, see RFC 3261 section 16.7 step 5.
+			_handler.forwardResponse(_ts, resp);
+			sendCancels(cancels);
+		}
+
+		@Override
+		public void onTransFailureResponse(TransactionClient tc, SipMessage resp) {
+			onBranchFailure(tc, resp);
+		}
+
+		@Override
+		public void onTransTimeout(TransactionClient tc) {
+			onBranchFailure(tc, null);
+		}
+
+		private void onBranchFailure(TransactionClient tc, SipMessage resp) {
+			List<TransactionClient> cancels = null;
+			List<Branch> started = new ArrayList<>();
+			SipMessage finalResp;
+			synchronized (this) {
+				Branch branch = branch(tc);
+				if (branch == null || branch.done) {
+					return;
+				}
+				complete(branch);
+				_branchLatency.record((System.nanoTime() - branch.startNanos) / 1000);
+				if (resp != null) {
+					_responses.add(resp);
+					int code = resp.getStatusLine().getCode();
+					if (_best == null || isBetter(code, _best.getStatusLine().getCode())) {
+						_best = resp;
+					}
+					if (code >= 600 && !_declined) {
+						// RFC 3261 section 16.7 step 5: Cancel all pending branches.
+						_declined = true;
+						cancels = stopOthers(branch);
+					}
+				}
+				finalResp = proceed(started);
+			}
+			if (cancels != null) {
+				sendCancels(cancels);
+			}
+			send(started);
+			sendFinal(finalResp);
+		}
+
+		private void onBranchTimeout(Branch branch) {
+			List<TransactionClient> cancels = new ArrayList<>();
+			List<Branch> started = new ArrayList<>();
+			SipMessage finalResp;
+			synchronized (this) {
+				if (branch.done) {
+					return;
+				}
+				LOG.debug("Branch timeout for {}.", branch.target);
+				_timedOutCount.increment();
+				complete(branch);
+				if (_invite) {
+					requestCancel(branch, cancels);
+				} else {
+					branch.tc.terminate();
+				}
+				finalResp = proceed(started);
+			}
+			sendCancels(cancels);
+			send(started);
+			sendFinal(finalResp);
+		}
+
+		@Override
+		public String toString() {
+			return "Fork(" + _ts.getTransactionId() + ")";
+		}
+	}
+
+}
@@ -0,0 +1,429 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+
+import org.mjsip.time.Threads;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only journal with a binary snapshot for persisting a {@link Repository}.
+ *
+ * <p>
+ * Each change of the repository is appended as a record to the journal file
+ * <code>&lt;name&gt;.journal</code>. From time to time, the journal is compacted: The complete
+ * state is written to the snapshot file <code>&lt;name&gt;.snapshot</code>, and the journal is
+ * restarted empty. At startup, the snapshot and the journal are replayed.
+ * </p>
+ *
+ * <p>
+ * Compaction runs concurrently with further changes: The journal is first rotated to
+ * <code>&lt;name&gt;.journal.old</code>, and removed after the new snapshot has been written. The
+ * snapshot may therefore already contain the effect of some records in the new journal, and after a
+ * crash during compaction, the old journal is replayed on top of the snapshot again. Records must
+ * therefore describe changes that lead to the same state when replayed on a state that already
+ * contains their effect, e.g. "add if absent" and "remove".
+ * </p>
+ *
+ * <p>
+ * Each record is framed with its length and a CRC32 checksum. A record that was only partially
+ * written when the process stopped is detected at startup. It is discarded, and a new snapshot of
+ * the state replayed so far is written.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+public class Journal implements Closeable {
+
+	private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(Journal.class);
+
+	/** File header of journal and snapshot. */
+	private static final int MAGIC = 0x4D4A5331;
+
+	/** Maximum size of a single record, larger lengths indicate a corrupt file. */
+	private static final int MAX_RECORD_SIZE = 1024 * 1024;
+
+	/**
+	 * A single change or entry of a snapshot.
+	 */
+	@FunctionalInterface
+	public interface Record {
+
+		/**
+		 * Writes the contents of the record.
+		 */
+		void writeTo(DataOutput out) throws IOException;
+
+	}
+
+	/**
+	 * Destination of records.
+	 */
+	@FunctionalInterface
+	public interface Sink {
+
+		/**
+		 * Writes the given record.
+		 */
+		void append(Record record) throws IOException;
+
+	}
+
+	/**
+	 * Reader of records during replay.
+	 */
+	@FunctionalInterface
+	public interface Reader {
+
+		/**
+		 * Reads and applies the contents of a single record.
+		 */
+		void read(DataInput in) throws IOException;
+
+	}
+
+	/**
+	 * The complete state of the repository, written to the snapshot.
+	 */
+	@FunctionalInterface
+	public interface Content {
+
+		/**
+		 * Writes records to the given {@link Sink} that restore the current state when replayed on
+		 * an empty repository.
+		 */
+		void writeTo(Sink sink) throws IOException;
+
+	}
+
+	private final File _snapshotFile;
+
+	private final File _journalFile;
+
+	private final File _oldJournalFile;
+
+	private final File _tmpSnapshotFile;
+
+	private final ThreadFactory _threads;
+
+	private final ByteArrayOutputStream _buffer = new ByteArrayOutputStream();
+
+	private final DataOutputStream _bufferOut = new DataOutputStream(_buffer);
+
+	private final CRC32 _crc = new CRC32();
+
+	private DataOutputStream _out;
+
+	private long _records;
+
+	private long _replayed;
+
+	private Thread _compaction;
+
+	/**
+	 * Creates a {@link Journal}.
+	 *
+	 * @param name
+	 *        The base name of the journal and snapshot files.
+	 */
+	public Journal(String name) {
+		this(name, Threads.platformThreads());
+	}
+
+	/**
+	 * Creates a {@link Journal}.
+	 *
+	 * @param name
+	 *        The base name of the journal and snapshot files.
+	 * @param threads
+	 *        The factory for the thread running a {@link #compactAsync(Content) background
+	 *        compaction}.
+	 */
+	public Journal(String name, ThreadFactory threads) {
+		_threads = threads;
+		_snapshotFile = new File(name + ".snapshot");
+		_journalFile = new File(name + ".journal");
+		_oldJournalFile = new File(name + ".journal.old");
+		_tmpSnapshotFile = new File(name + ".snapshot.tmp");
+	}
+
+	/**
+	 * Whether a snapshot or journal exists.
+	 */
+	public boolean exists() {
+		return _snapshotFile.exists() || _journalFile.exists() || _oldJournalFile.exists();
+	}
+
+	/**
+	 * The number of records in the journal since the last compaction.
+	 */
+	public synchronized long getRecordCount() {
+		return _records;
+	}
+
+	/**
+	 * Replays the snapshot and the journal and opens the journal for appending.
+	 *
+	 * @param reader
+	 *        Applies replayed records.
+	 * @param content
+	 *        The content for writing a new snapshot, if a previous compaction was interrupted or the
+	 *        journal was damaged.
+	 */
+	public synchronized void open(Reader reader, Content content) throws IOException {
+		long start = System.nanoTime();
+		_replayed = 0;
+		long snapshotLength = readFile(_snapshotFile, reader);
+		if (snapshotLength >= 0 && snapshotLength < _snapshotFile.length()) {
+			LOG.warn("Incomplete record at the end of snapshot '{}', ignored.", _snapshotFile);
+		}
+		boolean compact = _oldJournalFile.exists();
+		if (compact) {
+			readFile(_oldJournalFile, reader);
+		}
+		long replayed = _replayed;
+		long journalLength = readFile(_journalFile, reader);
+		_records = _replayed - replayed;
+		if (journalLength >= 0 && journalLength < _journalFile.length()) {
+			LOG.warn("Incomplete record at the end of journal '{}', discarded.", _journalFile);
+			compact = true;
+		}
+		LOG.info("Replayed {} records of '{}' in {}ms.", Long.valueOf(_replayed), _journalFile,
+			Long.valueOf((System.nanoTime() - start) / 1000000));
+
+		if (compact) {
+			// Note: Starts with a new snapshot of the replayed state, the damaged or old journal is no longer needed.
+			writeSnapshot(content);
+			Files.deleteIfExists(_oldJournalFile.toPath());
+			_out = openJournal(true);
+			_records = 0;
+		} else {
+			_out = openJournal(journalLength < 0);
+		}
+	}
+
+	/**
+	 * Appends a record to the journal.
+	 *
+	 * <p>
+	 * The record is written to the file with the next {@link #flush()}.
+	 * </p>
+	 */
+	public synchronized void append(Record record) {
+		if (_out == null) {
+			throw new IllegalStateException("Journal not open: " + _journalFile);
+		}
+		try {
+			writeRecord(_out, record);
+			_records++;
+		} catch (IOException ex) {
+			LOG.warn("Writing to journal '{}' failed.", _journalFile, ex);
+		}
+	}
+
+	/**
+	 * Writes appended records to the journal file.
+	 */
+	public synchronized void flush() {
+		if (_out == null) {
+			return;
+		}
+		try {
+			_out.flush();
+		} catch (IOException ex) {
+			LOG.warn("Writing to journal '{}' failed.", _journalFile, ex);
+		}
+	}
+
+	/**
+	 * Starts compacting the journal in a background thread, unless a compaction is already running.
+	 *
+	 * @param content
+	 *        The current state of the repository, accessed from the background thread.
+	 */
+	public synchronized void compactAsync(Content content) {
+		if (_compaction != null) {
+			return;
+		}
+		_compaction = Threads.newThread(_threads, "Journal-" + _journalFile.getName(), () -> {
+			try {
+				compact(content);
+			} catch (IOException ex) {
+				LOG.warn("Compacting journal '{}' failed.", _journalFile, ex);
+			} finally {
+				synchronized (Journal.this) {
+					_compaction = null;
+				}
+			}
+		});
+		_compaction.setDaemon(true);
+		_compaction.start();
+	}
+
+	/**
+	 * Writes a snapshot of the given content and restarts the journal empty.
+	 *
+	 * <p>
+	 * Changes may be appended concurrently.
+	 * </p>
+	 */
+	public void compact(Content content) throws IOException {
+		long start = System.nanoTime();
+		synchronized (this) {
+			if (_out == null) {
+				throw new IllegalStateException("Journal not open: " + _journalFile);
+			}
+			try {
+				_out.close();
+				Files.move(_journalFile.toPath(), _oldJournalFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				_out = openJournal(true);
+			} catch (IOException ex) {
+				reopen(ex);
+				throw ex;
+			}
+			_records = 0;
+		}
+		writeSnapshot(content);
+		Files.deleteIfExists(_oldJournalFile.toPath());
+		LOG.info("Compacted journal '{}' in {}ms.", _journalFile, Long.valueOf((System.nanoTime() - start) / 1000000));
+	}
+
+	@Override
+	public synchronized void close() {
+		if (_out == null) {
+			return;
+		}
+		try {
+			_out.close();
+		} catch (IOException ex) {
+			LOG.warn("Closing journal '{}' failed.", _journalFile, ex);
+		}
+		_out = null;
+	}
+
+	/**
+	 * Continues appending to the journal after a failed rotation.
+	 */
+	private void reopen(IOException failure) {
+		try {
+			// Note: If the journal has already been rotated, the old journal is replayed at startup.
+			_out = openJournal(!_journalFile.exists());
+		} catch (IOException ex) {
+			// Further appends fail and are logged, see append(Record).
+			failure.addSuppressed(ex);
+		}
+	}
+
+	private DataOutputStream openJournal(boolean create) throws IOException {
+		OutputStream out = new FileOutputStream(_journalFile, !create);
+		DataOutputStream result = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+		if (create) {
+			result.writeInt(MAGIC);
+			result.flush();
+		}
+		return result;
+	}
+
+	private void writeSnapshot(Content content) throws IOException {
+		try (FileOutputStream file = new FileOutputStream(_tmpSnapshotFile)) {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 64 * 1024));
+			out.writeInt(MAGIC);
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			DataOutputStream bufferOut = new DataOutputStream(buffer);
+			CRC32 crc = new CRC32();
+			content.writeTo(record -> writeRecord(out, record, buffer, bufferOut, crc));
+			out.flush();
+			file.getFD().sync();
+		}
+		Files.move(_tmpSnapshotFile.toPath(), _snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+			StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private void writeRecord(DataOutputStream out, Record record) throws IOException {
+		writeRecord(out, record, _buffer, _bufferOut, _crc);
+	}
+
+	private static void writeRecord(DataOutputStream out, Record record, ByteArrayOutputStream buffer,
+			DataOutputStream bufferOut, CRC32 crc) throws IOException {
+		buffer.reset();
+		record.writeTo(bufferOut);
+		bufferOut.flush();
+		byte[] data = buffer.toByteArray();
+		crc.reset();
+		crc.update(data);
+		out.writeInt(data.length);
+		out.writeInt((int) crc.getValue());
+		out.write(data);
+	}
+
+	/**
+	 * Replays the records of the given file, counting them in {@link #_replayed}.
+	 *
+	 * @return The length of the valid part of the file, or -1 if the file does not exist or has no
+	 *         header.
+	 */
+	private long readFile(File file, Reader reader) throws IOException {
+		if (!file.exists()) {
+			return -1;
+		}
+		try (InputStream stream = new BufferedInputStream(Files.newInputStream(file.toPath()), 64 * 1024)) {
+			DataInputStream in = new DataInputStream(stream);
+			int magic;
+			try {
+				magic = in.readInt();
+			} catch (EOFException ex) {
+				return -1;
+			}
+			if (magic != MAGIC) {
+				throw new IOException("Not a journal: " + file);
+			}
+			long valid = 4;
+			CRC32 crc = new CRC32();
+			while (true) {
+				byte[] data;
+				int checksum;
+				try {
+					int length = in.readInt();
+					checksum = in.readInt();
+					if (length < 0 || length > MAX_RECORD_SIZE) {
+						break;
+					}
+					data = new byte[length];
+					in.readFully(data);
+				} catch (EOFException ex) {
+					break;
+				}
+				crc.reset();
+				crc.update(data);
+				if ((int) crc.getValue() != checksum) {
+					break;
+				}
+				reader.read(new DataInputStream(new ByteArrayInputStream(data)));
+				valid += 8 + data.length;
+				_replayed++;
+			}
+			return valid;
+		}
+	}
+
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.server;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Enumeration;
+
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link AuthenticationServiceImpl} persisting changes in a {@link Journal} instead of rewriting
+ * the DB file on each {@link #sync()}.
+ *
+ * <p>
+ * Select with <code>--authentication-service journal</code>. The journal and snapshot files are
+ * named after the authentication DB. If neither exists but a DB file in text format does, the text
+ * file is imported at startup.
+ * </p>
+ *
+ * <p>
+ * Like the DB file, the journal only stores the H(A1) hashes of the users, not their keys.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+public class JournalAuthenticationService extends AuthenticationServiceImpl {
+
+	private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(JournalAuthenticationService.class);
+
+	/** Minimum number of journal records before the journal is compacted. */
+	private static final int MIN_COMPACTION_RECORDS = 1000;
+
+	private static final byte ADD_USER_HA1 = 1;
+
+	private static final byte REMOVE_USER = 2;
+
+	private static final byte REMOVE_ALL_USERS = 3;
+
+	private static final byte SET_HA1 = 4;
+
+	private final Journal _journal;
+
+	/** Whether changes are currently replayed or imported, and must not be journaled. */
+	private boolean _loading = true;
+
+	/**
+	 * Creates a {@link JournalAuthenticationService}.
+	 *
+	 * @param fileName
+	 *        The name of the authentication DB.
+	 */
+	public JournalAuthenticationService(String fileName) {
+		super(fileName, false);
+		if (fileName == null) {
+			throw new IllegalArgumentException("No file name given for the authentication DB journal.");
+		}
+		_journal = new Journal(fileName);
+		try {
+			if (_journal.exists()) {
+				_journal.open(this::replay, this::writeSnapshot);
+			} else {
+				// Import from the text format.
+				load();
+				_journal.open(this::replay, this::writeSnapshot);
+				_journal.compact(this::writeSnapshot);
+			}
+		} catch (IOException ex) {
+			throw new UncheckedIOException("Cannot open authentication DB journal: " + fileName, ex);
+		}
+		changed = false;
+		_loading = false;
+	}
+
+	@Override
+	public void sync() {
+		save();
+	}
+
+	/**
+	 * Writes the journal, and compacts it, if it has grown larger than the DB.
+	 */
+	@Override
+	public synchronized void save() {
+		changed = false;
+		_journal.flush();
+		if (_journal.getRecordCount() > Math.max(MIN_COMPACTION_RECORDS, size())) {
+			_journal.compactAsync(this::writeSnapshot);
+		}
+	}
+
+	@Override
+	public synchronized AuthenticationService addUser(String user, byte[] key) {
+		super.addUser(user, key);
+		if (!_loading) {
+			byte[] ha1 = HA1(user, key);
+			_journal.append(out -> writeUser(out, ADD_USER_HA1, user, ha1));
+		}
+		return this;
+	}
+
+	@Override
+	public synchronized AuthenticationService setUserKey(String user, byte[] key) {
+		super.setUserKey(user, key);
+		if (!_loading) {
+			byte[] ha1 = HA1(user, key);
+			_journal.append(out -> writeUser(out, SET_HA1, user, ha1));
+		}
+		return this;
+	}
+
+	@Override
+	public synchronized AuthenticationService addUserHA1(String user, byte[] ha1) {
+		super.addUserHA1(user, ha1);
+		if (!_loading) {
+			_journal.append(out -> writeUser(out, ADD_USER_HA1, user, ha1));
+		}
+		return this;
+	}
+
+	@Override
+	public synchronized AuthenticationService setUserHA1(String user, byte[] ha1) {
+		super.setUserHA1(user, ha1);
+		if (!_loading) {
+			_journal.append(out -> writeUser(out, SET_HA1, user, ha1));
+		}
+		return this;
+	}
+
+	@Override
+	public synchronized Repository removeUser(String user) {
+		super.removeUser(user);
+		if (!_loading) {
+			_journal.append(out -> {
+				out.writeByte(REMOVE_USER);
+				out.writeUTF(user);
+			});
+		}
+		return this;
+	}
+
+	@Override
+	public synchronized Repository removeAllUsers() {
+		super.removeAllUsers();
+		if (!_loading) {
+			_journal.append(out -> out.writeByte(REMOVE_ALL_USERS));
+		}
+		return this;
+	}
+
+	private static void writeUser(DataOutput out, byte type, String user, byte[] data) throws IOException {
+		out.writeByte(type);
+		out.writeUTF(user);
+		out.writeInt(data.length);
+		out.write(data);
+	}
+
+	private void writeSnapshot(Journal.Sink sink) throws IOException {
+		for (Enumeration<String> u = getUsers(); u.hasMoreElements();) {
+			String user = u.nextElement();
+			byte[] ha1 = getUserHA1(user);
+			if (ha1 == null) {
+				// Removed concurrently.
+				continue;
+			}
+			sink.append(out -> writeUser(out, ADD_USER_HA1, user, ha1));
+		}
+	}
+
+	private void replay(DataInput in) throws IOException {
+		byte type = in.readByte();
+		switch (type) {
+		case ADD_USER_HA1:
+			super.addUserHA1(in.readUTF(), readData(in));
+			break;
+		case SET_HA1:
+			super.setUserHA1(in.readUTF(), readData(in));
+			break;
+		case REMOVE_USER:
+			super.removeUser(in.readUTF());
+			break;
+		case REMOVE_ALL_USERS:
+			super.removeAllUsers();
+			break;
+		default:
+			LOG.warn("Skipping unknown record type {} in authentication DB journal.", Byte.valueOf(type));
+		}
+	}
+
+	private static byte[] readData(DataInput in) throws IOException {
+		byte[] data = new byte[in.readInt()];
+		in.readFully(data);
+		return data;
+	}
+
+}
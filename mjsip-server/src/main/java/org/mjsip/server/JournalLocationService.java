@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.server;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.mjsip.sip.address.NameAddress;
+import org.mjsip.time.Threads;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link LocationServiceImpl} persisting changes in a {@link Journal} instead of rewriting the DB
+ * file on each {@link #sync()}.
+ *
+ * <p>
+ * Select with <code>--location-service journal</code>. The journal and snapshot files are named
+ * after the location DB. If neither exists but a DB file in text format does, the text file is
+ * imported at startup.
+ * </p>
+ *
+ * <p>
+ * Changes of the same user are serialized, so that they are journaled in the order they are
+ * applied. Changes of different users only share the short append to the journal buffer. Lookups do
+ * not lock.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+public class JournalLocationService extends LocationServiceImpl {
+
+	private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(JournalLocationService.class);
+
+	/** Minimum number of journal records before the journal is compacted. */
+	private static final int MIN_COMPACTION_RECORDS = 10000;
+
+	private static final byte ADD_USER = 1;
+
+	private static final byte REMOVE_USER = 2;
+
+	private static final byte REMOVE_ALL_USERS = 3;
+
+	private static final byte ADD_CONTACT = 4;
+
+	private static final byte REMOVE_CONTACT = 5;
+
+	/** Number of locks serializing the changes of users. */
+	private static final int USER_LOCKS = 64;
+
+	private final Journal _journal;
+
+	/** Locks serializing the changes of users with the same hash. */
+	private final Object[] _userLocks = new Object[USER_LOCKS];
+
+	/**
+	 * Shared by changes of single users, exclusively acquired by {@link #removeAllUsers()}.
+	 */
+	private final ReadWriteLock _usersLock = new ReentrantReadWriteLock();
+
+	/** Whether changes are currently replayed or imported, and must not be journaled. */
+	private boolean _loading = true;
+
+	/**
+	 * Creates a {@link JournalLocationService}.
+	 *
+	 * @param fileName
+	 *        The name of the location DB.
+	 */
+	public JournalLocationService(String fileName) {
+		this(fileName, Threads.platformThreads());
+	}
+
+	/**
+	 * Creates a {@link JournalLocationService}.
+	 *
+	 * @param fileName
+	 *        The name of the location DB.
+	 * @param threads
+	 *        The factory for the thread compacting the journal.
+	 */
+	public JournalLocationService(String fileName, ThreadFactory threads) {
+		super(fileName, false);
+		if (fileName == null) {
+			throw new IllegalArgumentException("No file name given for the location DB journal.");
+		}
+		for (int n = 0; n < USER_LOCKS; n++) {
+			_userLocks[n] = new Object();
+		}
+		_journal = new Journal(fileName, threads);
+		try {
+			if (_journal.exists()) {
+				_journal.open(this::replay, this::writeSnapshot);
+			} else {
+				// Import from the text format.
+				load();
+				_journal.open(this::replay, this::writeSnapshot);
+				compact();
+			}
+		} catch (IOException ex) {
+			throw new UncheckedIOException("Cannot open location DB journal: " + fileName, ex);
+		}
+		_loading = false;
+	}
+
+	@Override
+	public void sync() {
+		_journal.flush();
+		if (_journal.getRecordCount() > Math.max(MIN_COMPACTION_RECORDS, size())) {
+			_journal.compactAsync(this::writeSnapshot);
+		}
+	}
+
+	/**
+	 * Writes a snapshot of the current state and restarts the journal.
+	 */
+	void compact() throws IOException {
+		_journal.compact(this::writeSnapshot);
+	}
+
+	@Override
+	public Repository addUser(String user) {
+		change(user, () -> super.addUser(user), out -> {
+			out.writeByte(ADD_USER);
+			out.writeUTF(user);
+		});
+		return this;
+	}
+
+	@Override
+	public Repository removeUser(String user) {
+		change(user, () -> super.removeUser(user), out -> {
+			out.writeByte(REMOVE_USER);
+			out.writeUTF(user);
+		});
+		return this;
+	}
+
+	@Override
+	public Repository removeAllUsers() {
+		if (_loading) {
+			super.removeAllUsers();
+			return this;
+		}
+		Lock lock = _usersLock.writeLock();
+		lock.lock();
+		try {
+			super.removeAllUsers();
+			_journal.append(out -> out.writeByte(REMOVE_ALL_USERS));
+		} finally {
+			lock.unlock();
+		}
+		return this;
+	}
+
+	@Override
+	public LocationService addUserContact(String user, NameAddress nameAddress, Date expire) {
+		change(user, () -> super.addUserContact(user, nameAddress, expire),
+			out -> writeAddContact(out, user, nameAddress, expire.getTime()));
+		return this;
+	}
+
+	@Override
+	public LocationService removeUserContact(String user, String uri) {
+		change(user, () -> super.removeUserContact(user, uri), out -> {
+			out.writeByte(REMOVE_CONTACT);
+			out.writeUTF(user);
+			out.writeUTF(uri);
+		});
+		return this;
+	}
+
+	/**
+	 * Applies a change of the given user and journals it.
+	 *
+	 * <p>
+	 * The change and the append are done under the lock of the user, so that changes of the same
+	 * user are journaled in the order they are applied.
+	 * </p>
+	 */
+	private void change(String user, Runnable update, Journal.Record record) {
+		if (_loading) {
+			update.run();
+			return;
+		}
+		Lock lock = _usersLock.readLock();
+		lock.lock();
+		try {
+			synchronized (_userLocks[Math.floorMod(user.hashCode(), USER_LOCKS)]) {
+				update.run();
+				_journal.append(record);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// Note: Expired contacts are removed without journaling, since they are skipped during replay.
+
+	private static void writeAddContact(DataOutput out, String user, NameAddress nameAddress, long expires)
+			throws IOException {
+		out.writeByte(ADD_CONTACT);
+		out.writeUTF(user);
+		out.writeUTF(nameAddress.toString());
+		out.writeLong(expires);
+	}
+
+	private void writeSnapshot(Journal.Sink sink) throws IOException {
+		for (Enumeration<String> u = getUsers(); u.hasMoreElements();) {
+			String user = u.nextElement();
+			Enumeration<String> contacts = getUserContactURIs(user);
+			if (contacts == null) {
+				continue;
+			}
+			sink.append(out -> {
+				out.writeByte(ADD_USER);
+				out.writeUTF(user);
+			});
+			while (contacts.hasMoreElements()) {
+				String uri = contacts.nextElement();
+				NameAddress nameAddress = getUserContactNameAddress(user, uri);
+				Date expires = getUserContactExpirationDate(user, uri);
+				if (nameAddress == null || expires == null) {
+					// Removed concurrently.
+					continue;
+				}
+				sink.append(out -> writeAddContact(out, user, nameAddress, expires.getTime()));
+			}
+		}
+	}
+
+	private void replay(DataInput in) throws IOException {
+		byte type = in.readByte();
+		switch (type) {
+		case ADD_USER:
+			super.addUser(in.readUTF());
+			break;
+		case REMOVE_USER:
+			super.removeUser(in.readUTF());
+			break;
+		case REMOVE_ALL_USERS:
+			super.removeAllUsers();
+			break;
+		case ADD_CONTACT: {
+			String user = in.readUTF();
+			String nameAddress = in.readUTF();
+			long expires = in.readLong();
+			if (expires < System.currentTimeMillis()) {
+				super.addUser(user);
+			} else {
+				super.addUserContact(user, NameAddress.parse(nameAddress), new Date(expires));
+			}
+			break;
+		}
+		case REMOVE_CONTACT: {
+			String user = in.readUTF();
+			super.removeUserContact(user, in.readUTF());
+			break;
+		}
+		default:
+			LOG.warn("Skipping unknown record type {} in location DB journal.", Byte.valueOf(type));
+		}
+	}
+
+}
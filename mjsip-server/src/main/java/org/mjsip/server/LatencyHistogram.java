@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of latencies recorded concurrently by many threads.
+ *
+ * <p>
+ * Latencies are counted in buckets with a logarithmic scale, each power of two is divided into
+ * {@value #SUB_BUCKETS} buckets. A reported percentile is the upper bound of the bucket it falls
+ * into, so that it overestimates the exact value by less than 13%. Recording a value neither locks
+ * nor allocates.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+public final class LatencyHistogram {
+
+	/** Number of buckets per power of two. */
+	private static final int SUB_BUCKETS = 8;
+
+	private static final int SUB_BITS = Integer.numberOfTrailingZeros(SUB_BUCKETS);
+
+	/** Values below this limit are counted exactly, one bucket per value. */
+	private static final int LINEAR = 2 * SUB_BUCKETS;
+
+	private static final int LINEAR_BITS = Integer.numberOfTrailingZeros(LINEAR);
+
+	private static final int BUCKETS = LINEAR + (Long.SIZE - LINEAR_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray _counts = new AtomicLongArray(BUCKETS);
+
+	private final LongAdder _count = new LongAdder();
+
+	private final LongAdder _sum = new LongAdder();
+
+	private final AtomicLong _max = new AtomicLong();
+
+	/**
+	 * Records a latency.
+	 *
+	 * @param micros
+	 *        The latency in microseconds, negative values are counted as zero.
+	 */
+	public void record(long micros) {
+		long value = Math.max(0, micros);
+		_counts.incrementAndGet(bucket(value));
+		_count.increment();
+		_sum.add(value);
+		long max = _max.get();
+		while (value > max && !_max.compareAndSet(max, value)) {
+			max = _max.get();
+		}
+	}
+
+	/**
+	 * The number of recorded latencies.
+	 */
+	public long getCount() {
+		return _count.sum();
+	}
+
+	/**
+	 * The average latency in microseconds, or 0 if nothing has been recorded.
+	 */
+	public long getMean() {
+		long count = getCount();
+		return count == 0 ? 0 : _sum.sum() / count;
+	}
+
+	/**
+	 * The maximum latency in microseconds.
+	 */
+	public long getMax() {
+		return _max.get();
+	}
+
+	/**
+	 * The latency in microseconds that is not exceeded by the given fraction of all recorded
+	 * latencies.
+	 *
+	 * @param fraction
+	 *        The fraction between 0 and 1, e.g. 0.99 for the 99th percentile.
+	 * @return The upper bound of the latency, or 0 if nothing has been recorded.
+	 */
+	public long getPercentile(double fraction) {
+		long total = 0;
+		long[] counts = new long[BUCKETS];
+		for (int n = 0; n < BUCKETS; n++) {
+			counts[n] = _counts.get(n);
+			total += counts[n];
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(fraction * total));
+		long seen = 0;
+		for (int n = 0; n < BUCKETS; n++) {
+			seen += counts[n];
+			if (seen >= rank) {
+				return Math.min(upperBound(n), getMax());
+			}
+		}
+		return getMax();
+	}
+
+	private static int bucket(long value) {
+		if (value < LINEAR) {
+			return (int) value;
+		}
+		int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return LINEAR + (exponent - LINEAR_BITS) * SUB_BUCKETS + sub;
+	}
+
+	private static long upperBound(int bucket) {
+		if (bucket < LINEAR) {
+			return bucket;
+		}
+		int exponent = (bucket - LINEAR) / SUB_BUCKETS + LINEAR_BITS;
+		int sub = (bucket - LINEAR) % SUB_BUCKETS;
+		long width = 1L << (exponent - SUB_BITS);
+		return ((SUB_BUCKETS + sub) * width) + width - 1;
+	}
+
+	@Override
+	public String toString() {
+		return "{count=" + getCount() + ", mean=" + getMean() + "us, p50=" + getPercentile(0.5) + "us, p90="
+			+ getPercentile(0.9) + "us, p99=" + getPercentile(0.99) + "us, max=" + getMax() + "us}";
+	}
+
+}
@@ -103,5 +103,25 @@ public interface LocationService extends Repository {
 	  * @param uri the contact URI
 	  * @return true if it static */
 	public boolean isUserContactStatic(String user, String uri);
+
+	/** Removes all expired contacts.
+	  * <p> Called periodically by the server, so that lookups need not remove expired contacts themselves.
+	  * @return the number of removed contacts */
+	public default int removeExpiredContacts() {
+		int removed=0;
+		for (Enumeration<String> u=getUsers(); u.hasMoreElements(); ) {
+			String user=u.nextElement();
+			Enumeration<String> c=getUserContactURIs(user);
+			if (c==null) continue;
+			while (c.hasMoreElements()) {
+				String contact=c.nextElement();
+				if (isUserContactExpired(user,contact)) {
+					removeUserContact(user,contact);
+					removed++;
+				}
+			}
+		}
+		return removed;
+	}
 	
 }
@@ -28,9 +28,15 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Enumeration;
-import java.util.Hashtable;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import org.mjsip.sip.address.NameAddress;
 import org.mjsip.sip.header.ContactHeader;
@@ -44,6 +50,10 @@ import org.zoolu.util.Parser;
 /** LocationServiceImpl is a simple implementation of a LocationService.
   * LocationServiceImpl allows creation and maintainance of a
   * location service for registered users.
+  * <p> Bindings are kept in a concurrent map, and the contacts of each user in an immutable
+  * snapshot that is replaced on each change. Lookups therefore never block on concurrent registrations.
+  * Contacts that may expire are additionally kept in buckets by their expiration second,
+  * so that {@link #removeExpiredContacts()} only visits contacts that actually have expired.
   */
 public class LocationServiceImpl implements LocationService {
 	
@@ -59,20 +69,30 @@ public class LocationServiceImpl implements LocationService {
 	String file_name=null;
 	
 	/** Whether the Location DB has been changed without saving. */
-	boolean changed=false;
+	volatile boolean changed=false;
 	
 	/** Users bindings. Set of pairs of { (String)user , (UserBindingInfo)binding }. */
-	Hashtable<String, UserBindingInfo> users;
+	ConcurrentHashMap<String, UserBindingInfo> users;
 	
+	/** Contacts that may expire, in buckets by expiration second. */
+	ConcurrentSkipListMap<Long, ExpiryBucket> expiry_index;
 
 	
 	/** Creates a new LocationServiceImpl */
 	public LocationServiceImpl(String file_name) {
-		this.file_name=file_name;
+		this(file_name,true);
 		if (file_name == null)
 			LOG.warn("no file has been provided for location DB: only temporary memory (RAM) will be used.");
-		users=new Hashtable<>();
-		load();
+	}
+
+	/** Creates a new LocationServiceImpl.
+	  * @param file_name the name of the DB file
+	  * @param load whether to load the DB file, false for subclasses with their own persistence */
+	protected LocationServiceImpl(String file_name, boolean load) {
+		this.file_name=file_name;
+		users=new ConcurrentHashMap<>();
+		expiry_index=new ConcurrentSkipListMap<>();
+		if (load) load();
 	}
 
 
@@ -112,10 +132,7 @@ public class LocationServiceImpl implements LocationService {
 	  * @return this object */
 	@Override
 	public Repository addUser(String user) {
-		if (hasUser(user)) return this;
-		UserBindingInfo ur=new UserBindingInfo(user);
-		users.put(user,ur);
-		changed=true;
+		if (users.putIfAbsent(user,new UserBindingInfo(user))==null) changed=true;
 		return this;
 	}
 		
@@ -124,9 +141,10 @@ public class LocationServiceImpl implements LocationService {
 	  * @return this object */
 	@Override
 	public Repository removeUser(String user) {
-		if (!hasUser(user)) return this;
+		UserBindingInfo ur=users.remove(user);
+		if (ur==null) return this;
 		//else
-		users.remove(user);
+		for (ContactBinding binding : ur.removeContacts()) removeFromIndex(binding);
 		changed=true;
 		return this;
 	}
@@ -136,6 +154,7 @@ public class LocationServiceImpl implements LocationService {
 	@Override
 	public Repository removeAllUsers() {
 		users.clear();
+		expiry_index.clear();
 		changed=true;
 		return this;
 	}
@@ -145,8 +164,7 @@ public class LocationServiceImpl implements LocationService {
 	@Override
 	public String toString() {
 		StringBuilder str= new StringBuilder();
-		for (Enumeration<UserBindingInfo> i=getUserBindings(); i.hasMoreElements(); ) {
-			UserBindingInfo u= i.nextElement();
+		for (UserBindingInfo u : users.values()) {
 			str.append(u.toString());
 		}
 		return str.toString();
@@ -161,9 +179,10 @@ public class LocationServiceImpl implements LocationService {
 	  * @return true if is the contact present */
 	@Override
 	public boolean hasUserContact(String user, String uri) {
-		if (!hasUser(user)) return false;
+		UserBindingInfo ur=getUserBindingInfo(user);
+		if (ur==null) return false;
 		//else
-		return getUserBindingInfo(user).hasContact(uri);
+		return ur.hasContact(uri);
 	}
 
 	/** Adds a contact.
@@ -173,9 +192,16 @@ public class LocationServiceImpl implements LocationService {
 	  * @return this object */
 	@Override
 	public LocationService addUserContact(String user, NameAddress name_addresss, Date expire) {
-		if (!hasUser(user)) addUser(user);
-		UserBindingInfo ur=getUserBindingInfo(user);
-		ur.addContact(name_addresss,expire);
+		ContactBinding[] added=new ContactBinding[1];
+		// Note: Added while the entry is locked, otherwise the contact could be added to a binding
+		// info that has just been detached by a concurrent removeUser().
+		users.compute(user,(name,ur) -> {
+			if (ur==null) ur=new UserBindingInfo(name);
+			added[0]=ur.addContact(name_addresss,expire);
+			return ur;
+		});
+		ContactBinding binding=added[0];
+		if (binding!=null) addToIndex(binding);
 		changed=true;
 		return this;
 	}
@@ -186,23 +212,27 @@ public class LocationServiceImpl implements LocationService {
 	  * @return this object */
 	@Override
 	public LocationService removeUserContact(String user, String uri) {
-		if (!hasUser(user)) return this;
-		//else
 		UserBindingInfo ur=getUserBindingInfo(user);
-		ur.removeContact(uri);
-		changed=true;
+		if (ur==null) return this;
+		//else
+		ContactBinding binding=ur.removeContact(uri);
+		if (binding!=null) {
+			removeFromIndex(binding);
+			changed=true;
+		}
 		return this;
 	}   
 	
-	/** Gets the user contacts that are not expired.
+	/** Gets the user contacts.
+	  * <p> The returned enumeration is a snapshot that is not affected by concurrent changes.
 	  * @param user the user name
 	  * @return the list of contact URIs as Enumeration of String */
 	@Override
 	public Enumeration<String> getUserContactURIs(String user) {
-		if (!hasUser(user)) return null;
+		UserBindingInfo ur=getUserBindingInfo(user);
+		if (ur==null) return null;
 		//else
-		changed=true;
-		return getUserBindingInfo(user).getContacts();
+		return ur.getContacts();
 	}
 
 	/** Gets NameAddress value of the user contact.
@@ -211,9 +241,10 @@ public class LocationServiceImpl implements LocationService {
 	  * @return the contact NameAddress */
 	@Override
 	public NameAddress getUserContactNameAddress(String user, String uri) {
-		if (!hasUser(user)) return null;
+		UserBindingInfo ur=getUserBindingInfo(user);
+		if (ur==null) return null;
 		//else
-		return getUserBindingInfo(user).getNameAddress(uri);
+		return ur.getNameAddress(uri);
 	}
 
 	/** Gets expiration date of the user contact.
@@ -222,9 +253,10 @@ public class LocationServiceImpl implements LocationService {
 	  * @return the contact expire Date */
 	@Override
 	public Date getUserContactExpirationDate(String user, String uri) {
-		if (!hasUser(user)) return null;
+		UserBindingInfo ur=getUserBindingInfo(user);
+		if (ur==null) return null;
 		//else
-		return getUserBindingInfo(user).getExpirationDate(uri);
+		return ur.getExpirationDate(uri);
 	}
 	
 	/** Whether the contact is expired.
@@ -233,21 +265,12 @@ public class LocationServiceImpl implements LocationService {
 	  * @return true if it has expired */
 	@Override
 	public boolean isUserContactExpired(String user, String uri) {
-		if (!hasUser(user)) return true;
+		UserBindingInfo ur=getUserBindingInfo(user);
+		if (ur==null) return true;
 		//else
-		return getUserBindingInfo(user).isExpired(uri);
+		return ur.isExpired(uri);
 	}
 	
-	/** Removes all contacts from the database.
-	  * @return this object */
-	/*public LocationService removeAllContacts() {
-		for (Enumeration i=getUserBindings(); i.hasMoreElements(); ) {
-			((UserBindingInfo)i.nextElement()).removeContacts();
-		}
-		changed=true;
-		return this;
-	}*/
-
 	/** Adds a 'static' contact that never expires.
 	  * A static contact is a sort of 'alias' for the user's AOR.
 	  * @param user the user name
@@ -268,34 +291,57 @@ public class LocationServiceImpl implements LocationService {
 		return getUserContactExpirationDate(user,uri).getTime()>=NEVER;
 	}
 
+	/** Removes all expired contacts.
+	  * <p> Only visits the buckets of past seconds in the expiry index, the cost does not depend on the number of bindings.
+	  * Contacts are removed within a second after they have expired.
+	  * @return the number of removed contacts */
+	@Override
+	public int removeExpiredContacts() {
+		// Note: All contacts in the bucket of a past second have expired.
+		long current_second=System.currentTimeMillis()/1000;
+		int removed=0;
+		for (Iterator<ExpiryBucket> i=expiry_index.headMap(current_second).values().iterator(); i.hasNext(); ) {
+			ExpiryBucket bucket=i.next();
+			i.remove();
+			for (ContactBinding binding : bucket.close()) {
+				UserBindingInfo ur=getUserBindingInfo(binding.user);
+				// Note: The contact may have been registered again concurrently, only the indexed binding is removed.
+				if (ur!=null && ur.removeContact(binding)) {
+					removed++;
+					changed=true;
+				}
+			}
+		}
+		return removed;
+	}
 
-	// ***************************** Private methods *****************************
-
-	/** Returns the name of the database. */
-	private String getName() { return file_name; }
-
-	/** Whether the database is changed. */
-	private boolean isChanged() { return changed; }
 
+	// ***************************** Private methods *****************************
 
-	/** Adds a user record in the database */
-	private void addUserBindingInfo(UserBindingInfo ur) {
-		if (hasUser(ur.getName())) removeUser(ur.getName());
-		users.put(ur.getName(),ur);
-	}
-	
-	/** Adds a user record in the database */
+	/** Gets a user record from the database, or null if the user does not exist. */
 	private UserBindingInfo getUserBindingInfo(String user) {
 		return users.get(user);
 	}
 
-	/** Returns an enumeration of the values in this database */
-	private Enumeration<UserBindingInfo> getUserBindings() {
-		return users.elements();
+	/** Adds a contact that may expire to the expiry index. */
+	private void addToIndex(ContactBinding binding) {
+		if (binding.expires>=NEVER) return;
+		//else
+		Long second=Long.valueOf(binding.expires/1000);
+		// Note: If the bucket has just been closed by removeExpiredContacts(), a new one is created.
+		while (!expiry_index.computeIfAbsent(second,s -> new ExpiryBucket()).add(binding));
 	}
-	
+
+	/** Removes a contact from the expiry index. */
+	private void removeFromIndex(ContactBinding binding) {
+		if (binding.expires>=NEVER) return;
+		//else
+		ExpiryBucket bucket=expiry_index.get(Long.valueOf(binding.expires/1000));
+		if (bucket!=null) bucket.remove(binding);
+	}
+
 	/** Loads the database */
-	private void load() {
+	void load() {
 		if (file_name == null) return;
 		// else
 		changed = false;
@@ -364,21 +410,26 @@ public class LocationServiceImpl implements LocationService {
   * rapresenting the various contact SipURIs.
   * Such values can be used as keys for getting for each contact
   * both the contact NameAddress and the expire Date. 
+  * <p> The contacts are kept in an array that is replaced on each change,
+  * so that readers never lock. A user typically has only a few contacts.
   */
 class UserBindingInfo {
 	
+	/** No contacts. */
+	private static final ContactBinding[] NO_CONTACTS=new ContactBinding[0];
+
 	/** User name */
 	String name;
 	
-	/** Hashtable of ContactHeader with String as key. */
-	Hashtable<String, ContactHeader> contact_list;
+	/** Contacts, never modified after being published. */
+	volatile ContactBinding[] contact_list;
 
 
 	/** Costructs a new UserBindingInfo for user <i>name</i>.
 	  * @param name the user name */
 	public UserBindingInfo(String name) {
 		this.name=name;
-		contact_list=new Hashtable<>();
+		contact_list=NO_CONTACTS;
 	}
 	
 	/** Gets the user name.
@@ -390,39 +441,90 @@ class UserBindingInfo {
 	/** Gets the user contacts.
 	  * @return the user contacts as an Enumeration of String */
 	public Enumeration<String> getContacts() {
-		return contact_list.keys();
+		final ContactBinding[] contacts=contact_list;
+		return new Enumeration<String>() {
+			int next=0;
+
+			@Override
+			public boolean hasMoreElements() {
+				return next<contacts.length;
+			}
+
+			@Override
+			public String nextElement() {
+				if (next>=contacts.length) throw new NoSuchElementException();
+				return contacts[next++].uri;
+			}
+		};
 	}
 
 	/** Whether the user has any registered contact.
 	  * @param uri the contact URI (String) 
 	  * @return true if one or more contacts are present */
 	public boolean hasContact(String uri) {
-		return contact_list.containsKey(uri);
+		return getContact(uri)!=null;
 	}
 	
 	/** Adds a new contact.
 	  * @param contact the contact address (NameAddress) 
 	  * @param expire the expire value (Date) 
-	  * @return this object */
-	public UserBindingInfo addContact(NameAddress contact, Date expire) {
+	  * @return the new binding, or null if the contact is already present */
+	public synchronized ContactBinding addContact(NameAddress contact, Date expire) {
 		String key=contact.getAddress().toString();
-		if (!contact_list.containsKey(key)) contact_list.put(key,(new ContactHeader(contact)).setExpires(expire));
-		return this;
+		if (hasContact(key)) return null;
+		//else
+		ContactBinding binding=new ContactBinding(name,key,contact,expire.getTime());
+		ContactBinding[] contacts=contact_list;
+		ContactBinding[] copy=new ContactBinding[contacts.length+1];
+		System.arraycopy(contacts,0,copy,0,contacts.length);
+		copy[contacts.length]=binding;
+		contact_list=copy;
+		return binding;
 	}
  
 	/** Removes a contact.
 	  * @param uri the contact URI (String) 
-	  * @return this object */
-	public UserBindingInfo removeContact(String uri) {
-		if (contact_list.containsKey(uri)) contact_list.remove(uri);
-		return this;
-	}  
+	  * @return the removed binding, or null if the contact is not present */
+	public synchronized ContactBinding removeContact(String uri) {
+		ContactBinding binding=getContact(uri);
+		if (binding!=null) removeContact(binding);
+		return binding;
+	}
+
+	/** Removes the given binding, if it is still the current binding of its contact.
+	  * @param binding the binding to remove
+	  * @return whether the binding has been removed */
+	public synchronized boolean removeContact(ContactBinding binding) {
+		ContactBinding[] contacts=contact_list;
+		for (int i=0; i<contacts.length; i++) {
+			if (contacts[i]==binding) {
+				if (contacts.length==1) contact_list=NO_CONTACTS;
+				else {
+					ContactBinding[] copy=new ContactBinding[contacts.length-1];
+					System.arraycopy(contacts,0,copy,0,i);
+					System.arraycopy(contacts,i+1,copy,i,copy.length-i);
+					contact_list=copy;
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/** Removes all contacts.
+	  * @return the removed bindings */
+	public synchronized ContactBinding[] removeContacts() {
+		ContactBinding[] removed=contact_list;
+		contact_list=NO_CONTACTS;
+		return removed;
+	}
 	
 	/** Gets NameAddress of a contact.
 	  * @param uri the contact URI (String) 
 	  * @return the contact NameAddress, or null if the contact is not present */
 	public NameAddress getNameAddress(String uri) {
-		if (contact_list.containsKey(uri)) return (contact_list.get(uri)).getNameAddress();
+		ContactBinding binding=getContact(uri);
+		if (binding!=null) return binding.name_address;
 		else return null;
 	}
 
@@ -430,7 +532,8 @@ class UserBindingInfo {
 	  * @param uri the contact URI (String) 
 	  * @return true if the contact is expired or contact does not exist */
 	public boolean isExpired(String uri) {
-		if (contact_list.containsKey(uri)) return (contact_list.get(uri)).isExpired();
+		ContactBinding binding=getContact(uri);
+		if (binding!=null) return binding.expires<System.currentTimeMillis();
 		else return true;
 	}
 	
@@ -438,28 +541,90 @@ class UserBindingInfo {
 	  * @param uri the contact URI (String) 
 	  * @return the expire Date */
 	public Date getExpirationDate(String uri) {
-		if (contact_list.containsKey(uri)) return (contact_list.get(uri)).getExpiresDate();
+		ContactBinding binding=getContact(uri);
+		if (binding!=null) return new Date(binding.expires);
 		else return null;
 	}
 
-	/** Removes all contacts.
-	  * @return this object */
-	/*public UserBindingInfo removeContacts() {
-		contact_list.clear();
-		return this;
-	}*/
+	/** Gets the binding of a contact.
+	  * @param uri the contact URI (String) 
+	  * @return the binding, or null if the contact is not present */
+	private ContactBinding getContact(String uri) {
+		for (ContactBinding binding : contact_list) {
+			if (binding.uri.equals(uri)) return binding;
+		}
+		return null;
+	}
 
 	/** Gets the String value of this Object.
 	  * @return the String value */
 	@Override
 	public String toString() {
 		StringBuilder str= new StringBuilder("To: "+name+"\r\n");
-		for (Enumeration<String> i=getContacts(); i.hasMoreElements(); ) {
-			ContactHeader ch= contact_list.get(i.nextElement());
-			if (ch.getExpiresDate().getTime()>=LocationServiceImpl.NEVER) (ch=new ContactHeader(ch)).removeExpires().setParameter("expires","\"NEVER\"");
+		for (ContactBinding binding : contact_list) {
+			ContactHeader ch=new ContactHeader(binding.name_address);
+			if (binding.expires>=LocationServiceImpl.NEVER) ch.setParameter("expires","\"NEVER\"");
+			else ch.setExpires(new Date(binding.expires));
 			str.append(ch);
 		}
 		return str.toString();
 	}
 }
 
+
+/** A single contact of a user with its expiration time.
+  */
+class ContactBinding {
+
+	/** User name */
+	final String user;
+
+	/** Contact URI */
+	final String uri;
+
+	/** Contact address */
+	final NameAddress name_address;
+
+	/** Expiration time in milliseconds */
+	final long expires;
+
+	/** Creates a new ContactBinding. */
+	ContactBinding(String user, String uri, NameAddress name_address, long expires) {
+		this.user=user;
+		this.uri=uri;
+		this.name_address=name_address;
+		this.expires=expires;
+	}
+}
+
+
+/** The contacts expiring within the same second.
+  * <p> A bucket is closed when its contacts are removed, a closed bucket does not accept new contacts.
+  */
+class ExpiryBucket {
+
+	/** Contacts, or null if closed. */
+	private HashSet<ContactBinding> bindings=new HashSet<>();
+
+	/** Adds a contact.
+	  * @return false if the bucket has already been closed */
+	public synchronized boolean add(ContactBinding binding) {
+		if (bindings==null) return false;
+		//else
+		bindings.add(binding);
+		return true;
+	}
+
+	/** Removes a contact. */
+	public synchronized void remove(ContactBinding binding) {
+		if (bindings!=null) bindings.remove(binding);
+	}
+
+	/** Closes this bucket.
+	  * @return the contacts of this bucket */
+	public synchronized Collection<ContactBinding> close() {
+		Collection<ContactBinding> result=bindings!=null? bindings : Collections.emptySet();
+		bindings=null;
+		return result;
+	}
+}
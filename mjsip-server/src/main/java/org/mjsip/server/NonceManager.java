@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.server;
+
+import java.security.SecureRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.zoolu.util.ByteUtils;
+
+/**
+ * Table of nonces issued in digest authentication challenges.
+ *
+ * <p>
+ * Each challenge gets its own nonce, so that any number of clients can authenticate concurrently.
+ * A nonce is valid for a limited time. With <code>qop=auth</code>, a client may reuse its nonce for
+ * subsequent requests with increasing nonce counts (<code>nc</code>), a request with a nonce count
+ * that has already been seen is rejected as replay. Since concurrent requests of a client may arrive
+ * out of order, unseen nonce counts are still accepted within a window of 64 below the highest
+ * count seen. Without <code>qop</code>, a nonce is valid for a single request only.
+ * </p>
+ *
+ * <p>
+ * The number of nonces issued within their validity time is bounded. When the limit is reached,
+ * the oldest nonces are dropped. A client using a dropped or expired nonce is challenged again with
+ * <code>stale=true</code>.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+public class NonceManager {
+
+	/** Default time (in milliseconds) a nonce is valid. */
+	public static final long DEFAULT_EXPIRES = 5 * 60 * 1000L;
+
+	/** Default maximum number of nonces issued within {@link #DEFAULT_EXPIRES}. */
+	public static final int DEFAULT_MAX_NONCES = 100000;
+
+	/** Number of random bytes in a nonce. */
+	private static final int NONCE_SIZE = 16;
+
+	/** Number of nonce counts below the highest count seen, that may still arrive out of order. */
+	private static final int NC_WINDOW = Long.SIZE;
+
+	/**
+	 * Result of {@link NonceManager#check(String, String)}.
+	 */
+	public enum Check {
+
+		/** The nonce has been issued and may be used for the request. */
+		VALID,
+
+		/** The nonce is unknown or has expired, the client must be challenged with a new nonce. */
+		STALE,
+
+		/** The nonce (with the given nonce count) has already been used. */
+		REPLAYED;
+
+	}
+
+	/**
+	 * An issued nonce.
+	 */
+	private static final class Nonce {
+
+		final String value;
+
+		final long expires;
+
+		/** The highest nonce count seen so far. Guarded by <code>this</code>. */
+		private long _maxNc;
+
+		/**
+		 * Bit <code>n</code> is set, if nonce count <code>_maxNc - n</code> has been seen. Guarded by
+		 * <code>this</code>.
+		 */
+		private long _seen;
+
+		Nonce(String value, long expires) {
+			this.value = value;
+			this.expires = expires;
+		}
+
+		/**
+		 * Records the given nonce count.
+		 *
+		 * @return Whether the count has not been seen before and is not too old.
+		 */
+		synchronized boolean use(long nc) {
+			if (nc > _maxNc) {
+				long shift = nc - _maxNc;
+				_seen = shift >= NC_WINDOW ? 1 : (_seen << shift) | 1;
+				_maxNc = nc;
+				return true;
+			}
+			long age = _maxNc - nc;
+			if (age >= NC_WINDOW) {
+				return false;
+			}
+			long bit = 1L << age;
+			if ((_seen & bit) != 0) {
+				return false;
+			}
+			_seen |= bit;
+			return true;
+		}
+
+	}
+
+	private final long _expires;
+
+	private final int _maxNonces;
+
+	private final SecureRandom _random = new SecureRandom();
+
+	private final ConcurrentHashMap<String, Nonce> _nonces = new ConcurrentHashMap<>();
+
+	/** The issued nonces in the order of issue, which is also the order of expiration. */
+	private final ConcurrentLinkedQueue<Nonce> _issued = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Size of {@link #_issued}, including nonces that have already been used.
+	 */
+	private final AtomicInteger _queued = new AtomicInteger();
+
+	/**
+	 * Creates a {@link NonceManager} with default settings.
+	 */
+	public NonceManager() {
+		this(DEFAULT_EXPIRES, DEFAULT_MAX_NONCES);
+	}
+
+	/**
+	 * Creates a {@link NonceManager}.
+	 *
+	 * @param expires
+	 *        Time in milliseconds a nonce is valid.
+	 * @param maxNonces
+	 *        The maximum number of nonces issued within the given expiration time.
+	 */
+	public NonceManager(long expires, int maxNonces) {
+		if (maxNonces <= 0) {
+			throw new IllegalArgumentException("Maximum number of nonces must be positive: " + maxNonces);
+		}
+		_expires = expires;
+		_maxNonces = maxNonces;
+	}
+
+	/**
+	 * The number of outstanding nonces.
+	 */
+	public int size() {
+		return _nonces.size();
+	}
+
+	/**
+	 * Creates a new nonce.
+	 */
+	public String issue() {
+		byte[] data = new byte[NONCE_SIZE];
+		_random.nextBytes(data);
+		long now = System.currentTimeMillis();
+		Nonce nonce = new Nonce(ByteUtils.asHex(data), now + _expires);
+		_nonces.put(nonce.value, nonce);
+		_issued.add(nonce);
+		_queued.incrementAndGet();
+		purge(now);
+		return nonce.value;
+	}
+
+	/**
+	 * Whether the given nonce has been issued and has not yet expired.
+	 *
+	 * <p>
+	 * In contrast to {@link #check(String, String)}, the nonce is not consumed.
+	 * </p>
+	 */
+	public boolean isIssued(String value) {
+		Nonce nonce = value == null ? null : _nonces.get(value);
+		return nonce != null && nonce.expires >= System.currentTimeMillis();
+	}
+
+	/**
+	 * Checks whether the given nonce may be used for a request.
+	 *
+	 * <p>
+	 * Must only be called after the digest response of the request has been verified, since a
+	 * successful check consumes the nonce count, or the nonce itself.
+	 * </p>
+	 *
+	 * @param value
+	 *        The nonce from the authorization header.
+	 * @param nc
+	 *        The hexadecimal nonce count from the authorization header, <code>null</code> if the
+	 *        request does not use <code>qop</code>.
+	 */
+	public Check check(String value, String nc) {
+		if (value == null) {
+			return Check.STALE;
+		}
+		Nonce nonce = _nonces.get(value);
+		if (nonce == null) {
+			return Check.STALE;
+		}
+		if (nonce.expires < System.currentTimeMillis()) {
+			_nonces.remove(value, nonce);
+			return Check.STALE;
+		}
+		if (nc == null) {
+			// Single use.
+			return _nonces.remove(value, nonce) ? Check.VALID : Check.REPLAYED;
+		}
+
+		long count;
+		try {
+			count = Long.parseLong(nc, 16);
+		} catch (NumberFormatException ex) {
+			return Check.REPLAYED;
+		}
+		if (count <= 0) {
+			return Check.REPLAYED;
+		}
+		return nonce.use(count) ? Check.VALID : Check.REPLAYED;
+	}
+
+	/**
+	 * Drops expired nonces, and the oldest nonces exceeding the maximum number.
+	 */
+	private void purge(long now) {
+		while (true) {
+			Nonce oldest = _issued.peek();
+			if (oldest == null || (oldest.expires >= now && _queued.get() <= _maxNonces)) {
+				break;
+			}
+			Nonce dropped = _issued.poll();
+			if (dropped != null) {
+				_queued.decrementAndGet();
+				_nonces.remove(dropped.value, dropped);
+			}
+		}
+	}
+
+}
@@ -29,7 +29,7 @@ import org.zoolu.net.SocketAddress;
 
 /** PrefixProxyingRule is a ProxyingRule based on the prefix of URIs.
   */
-class PrefixProxyingRule implements ProxyingRule {
+public class PrefixProxyingRule implements ProxyingRule {
 	
 	/** Prefix for the default rule. */
 	public static final String DEFAULT_PREFIX="default";
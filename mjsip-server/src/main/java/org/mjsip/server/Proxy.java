@@ -23,6 +23,7 @@ package org.mjsip.server;
 
 
 import java.util.Vector;
+import java.util.concurrent.ScheduledFuture;
 
 import org.mjsip.config.MetaConfig;
 import org.mjsip.config.OptionParser;
@@ -53,6 +54,12 @@ public class Proxy extends Registrar {
 	
 	private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(Proxy.class);
 
+	/** Compiled proxying rules */
+	protected ProxyingRouter proxying_router;
+
+	/** Background task reloading modified proxying rules, or <code>null</code>. */
+	private ScheduledFuture<?> reload_task=null;
+
 	/** Costructs a void Proxy */
 	protected Proxy() {}
 
@@ -60,6 +67,24 @@ public class Proxy extends Registrar {
 	/** Costructs a new Proxy that acts also as location server for registered users. */
 	public Proxy(SipProvider provider, ServerProfile server_profile) {
 		super(provider,server_profile);
+		proxying_router=new ProxyingRouter(server_profile);
+		if (server_profile.proxyingRulesFile!=null && server_profile.proxyingRulesCheckInterval>0) {
+			reload_task=sip_provider.scheduler().schedulerWithFixedDelay(server_profile.proxyingRulesCheckInterval*1000L,proxying_router::reloadIfModified);
+		}
+	}
+
+
+	/** Stops the server and the reloading of the proxying rules. */
+	@Override
+	public void halt() {
+		super.halt();
+		if (reload_task!=null) reload_task.cancel(false);
+	}
+
+
+	/** Gets the compiled proxying rules. */
+	public ProxyingRouter getProxyingRouter() {
+		return proxying_router;
 	}
 
 
@@ -273,18 +298,7 @@ public class Proxy extends Registrar {
 	protected SipURI getAuthDomainBasedProxyingTarget(GenericURI request_uri) {
 		LOG.trace("inside getAuthDomainBasedProxyingTarget(uri)");
 		// authenticated rules
-		for (int i=0; i<server_profile.authenticatedDomainProxyingRules.length; i++) {
-			ProxyingRule rule=(ProxyingRule)server_profile.authenticatedDomainProxyingRules[i];
-			SipURI nexthop=rule.getNexthop(request_uri);
-			if (nexthop!=null) {
-				LOG.debug("domain-based authenticated forwarding: {}; YES",rule);
-				LOG.debug("target={}",nexthop);
-				return nexthop;
-			}
-			else 
-				LOG.debug("domain-based authenticated forwarding: {}:NO",rule);
-		}
-		return null;
+		return getProxyingTarget("domain-based authenticated forwarding",proxying_router.authenticatedDomainRules(),request_uri);
 	}
 
 
@@ -292,67 +306,51 @@ public class Proxy extends Registrar {
 	protected SipURI getDomainBasedProxyingTarget(GenericURI request_uri) {
 		LOG.trace("inside getDomainBasedForwardingTarget(uri)");
 		// non-authenticated rules
-		for (int i=0; i<server_profile.domainProxyingRules.length; i++) {
-			ProxyingRule rule=(ProxyingRule)server_profile.domainProxyingRules[i];
-			SipURI nexthop=rule.getNexthop(request_uri);
-			if (nexthop!=null) {
-				LOG.debug("domain-based forwarding: {}: YES", rule);
-				LOG.debug("target={}", nexthop);
-				return nexthop;
-			}
-			else LOG.debug("domain-based forwarding: {}: NO", rule);
-		}
-		return null;
+		return getProxyingTarget("domain-based forwarding",proxying_router.domainRules(),request_uri);
 	}
 
 
 	/** Gets a new target according to the authenticated prefix-based forwarding rules. */
 	protected SipURI getAuthPrefixBasedProxyingTarget(GenericURI request_uri) {
 		LOG.trace("inside getAuthPrefixBasedProxyingTarget(uri)");
-		if (!request_uri.isSipURI())  return null;
-		// else
-		SipURI sip_uri=request_uri.toSipURI();
-		String username=sip_uri.getUserName();
-		if (username==null || !isPhoneNumber(username))  return null;
+		if (!isPhoneNumberURI(request_uri))  return null;
 		// else
 		// authenticated rules
-		LOG.trace("authenticated prefix-based rules: {}", server_profile.authenticatedPhoneProxyingRules.length);
-		for (int i=0; i<server_profile.authenticatedPhoneProxyingRules.length; i++) {
-			ProxyingRule rule=(ProxyingRule)server_profile.authenticatedPhoneProxyingRules[i];
-			SipURI nexthop=rule.getNexthop(request_uri);
-			if (nexthop!=null) {
-				LOG.debug("prefix-based authenticated forwarding: {}: YES", rule);
-				LOG.debug("target={}", nexthop);
-				return nexthop;
-			}
-			else LOG.debug("prefix-based authenticated forwarding: {}: NO", rule);
-		}
-		return null;
+		return getProxyingTarget("prefix-based authenticated forwarding",proxying_router.authenticatedPhoneRules(),request_uri);
 	}
 
 
 	/** Gets a new target according to the prefix-based forwarding rules. */
 	protected SipURI getPrefixBasedProxyingTarget(GenericURI request_uri) {
 		LOG.trace("inside getPrefixBasedProxyingTarget(uri)");
-		if (!request_uri.isSipURI())  return null;
-		// else
-		SipURI sip_uri=request_uri.toSipURI();
-		String username=sip_uri.getUserName();
-		if (username==null || !isPhoneNumber(username))  return null;
+		if (!isPhoneNumberURI(request_uri))  return null;
 		// else
 		// non-authenticated rules
-		LOG.trace("prefix-based rules: {}", server_profile.phoneProxyingRules.length);
-		for (int i=0; i<server_profile.phoneProxyingRules.length; i++) {
-			ProxyingRule rule=(ProxyingRule)server_profile.phoneProxyingRules[i];
-			SipURI nexthop=rule.getNexthop(request_uri);
-			if (nexthop!=null) {
-				LOG.debug("prefix-based forwarding: {}: YES", rule);
-				LOG.debug("target= {}", nexthop.toString());
-				return nexthop;
-			}
-			else LOG.debug("prefix-based forwarding: {}: NO", rule);
+		return getProxyingTarget("prefix-based forwarding",proxying_router.phoneRules(),request_uri);
+	}
+
+
+	/** Gets a new target according to the given rules. */
+	private SipURI getProxyingTarget(String kind, ProxyingTable rules, GenericURI request_uri) {
+		ProxyingRule rule=rules.getRule(request_uri);
+		if (rule==null) {
+			LOG.debug("{}: no matching rule among {}", kind, rules.size());
+			return null;
 		}
-		return null;
+		// else
+		SipURI nexthop=rule.getNexthop(request_uri);
+		LOG.debug("{}: {}: YES", kind, rule);
+		LOG.debug("target={}", nexthop);
+		return nexthop;
+	}
+
+
+	/** Whether the URI is a SIP URI with a phone number as user name. */
+	private boolean isPhoneNumberURI(GenericURI request_uri) {
+		if (!request_uri.isSipURI())  return false;
+		// else
+		String username=request_uri.toSipURI().getUserName();
+		return username!=null && isPhoneNumber(username);
 	}
 
 
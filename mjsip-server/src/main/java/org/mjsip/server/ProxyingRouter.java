@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.server;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.zoolu.net.SocketAddress;
+
+/**
+ * The compiled proxying rules of a {@link Proxy}.
+ *
+ * <p>
+ * Combines the static rules of the {@link ServerProfile} with the rules from an optional rules file
+ * (see {@link ServerProfile#proxyingRulesFile}). The rules file can be reloaded while the proxy is
+ * running. All four {@link ProxyingTable}s are replaced at once, requests that are routed
+ * concurrently either see the old or the new rules. If the file cannot be read, the former rules
+ * stay in effect.
+ * </p>
+ *
+ * <p>
+ * The rules file contains one rule per line in the same syntax as the proxying rules in the
+ * configuration file. A rule can be marked for authenticated users only. Empty lines and lines
+ * starting with <code>#</code> are ignored:
+ * </p>
+ *
+ * <pre>
+ * {prefix=0123,nexthop=127.0.0.2:7002}
+ * {prefix=*,nexthop=127.0.0.3:7003}
+ * {domain=domain1.foo,nexthop=proxy.example.net:5060}
+ * {prefix=0800,nexthop=127.0.0.4:7004,authenticated=yes}
+ * </pre>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+public class ProxyingRouter {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ProxyingRouter.class);
+
+	private final ServerProfile _profile;
+
+	private final File _file;
+
+	/** Modification time of {@link #_file} when it was last loaded, guarded by <code>this</code>. */
+	private long _lastModified;
+
+	private volatile Tables _tables;
+
+	/**
+	 * Creates a {@link ProxyingRouter} and loads the rules file, if there is one.
+	 */
+	public ProxyingRouter(ServerProfile profile) {
+		_profile = profile;
+		_file = profile.proxyingRulesFile == null ? null : new File(profile.proxyingRulesFile);
+		_tables = compile(new Rules());
+		if (_file != null) {
+			try {
+				reload();
+			} catch (IOException ex) {
+				LOG.error("Cannot load proxying rules from '{}'.", _file, ex);
+			}
+		}
+	}
+
+	/**
+	 * Rules for telephone numbers applied to requests from authenticated users.
+	 */
+	public ProxyingTable authenticatedPhoneRules() {
+		return _tables.authenticatedPhone;
+	}
+
+	/**
+	 * Rules for telephone numbers.
+	 */
+	public ProxyingTable phoneRules() {
+		return _tables.phone;
+	}
+
+	/**
+	 * Rules for domains applied to requests from authenticated users.
+	 */
+	public ProxyingTable authenticatedDomainRules() {
+		return _tables.authenticatedDomain;
+	}
+
+	/**
+	 * Rules for domains.
+	 */
+	public ProxyingTable domainRules() {
+		return _tables.domain;
+	}
+
+	/**
+	 * Reloads the rules file, if it has been modified since it was last loaded.
+	 *
+	 * @return Whether new rules are in effect.
+	 */
+	public synchronized boolean reloadIfModified() {
+		long lastModified = _file == null ? 0 : _file.lastModified();
+		if (lastModified == _lastModified) {
+			return false;
+		}
+		try {
+			reload();
+			return true;
+		} catch (IOException ex) {
+			LOG.error("Cannot reload proxying rules from '{}', keeping former rules.", _file, ex);
+
+			// Do not retry before the file is modified again.
+			_lastModified = lastModified;
+			return false;
+		}
+	}
+
+	/**
+	 * Reloads the rules file.
+	 *
+	 * @throws IOException
+	 *         If the file cannot be read or contains an invalid rule. The former rules stay in
+	 *         effect.
+	 */
+	public synchronized void reload() throws IOException {
+		if (_file == null) {
+			return;
+		}
+		long lastModified = _file.lastModified();
+		Rules rules = new Rules();
+		try (BufferedReader in = new BufferedReader(new FileReader(_file))) {
+			int lineNumber = 0;
+			String line;
+			while ((line = in.readLine()) != null) {
+				lineNumber++;
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				try {
+					rules.add(line);
+				} catch (IllegalArgumentException ex) {
+					throw new IOException("Invalid rule in line " + lineNumber + " of '" + _file + "': " + ex.getMessage(),
+						ex);
+				}
+			}
+		}
+		Tables tables = compile(rules);
+		_tables = tables;
+		_lastModified = lastModified;
+		LOG.info("Loaded proxying rules from '{}': phone={}, domain={}, authenticated phone={}, authenticated domain={}",
+			_file, tables.phone.size(), tables.domain.size(), tables.authenticatedPhone.size(),
+			tables.authenticatedDomain.size());
+	}
+
+	private Tables compile(Rules fileRules) {
+		// Note: The rules of the profile take precedence over rules from the file with the same prefix.
+		return new Tables(
+			ProxyingTable.compile(concat(_profile.authenticatedPhoneProxyingRules, fileRules.authenticatedPhone)),
+			ProxyingTable.compile(concat(_profile.phoneProxyingRules, fileRules.phone)),
+			ProxyingTable.compile(concat(_profile.authenticatedDomainProxyingRules, fileRules.authenticatedDomain)),
+			ProxyingTable.compile(concat(_profile.domainProxyingRules, fileRules.domain)));
+	}
+
+	private static List<ProxyingRule> concat(ProxyingRule[] profileRules, List<ProxyingRule> fileRules) {
+		if (profileRules == null || profileRules.length == 0) {
+			return fileRules;
+		}
+		List<ProxyingRule> result = new ArrayList<>(Arrays.asList(profileRules));
+		result.addAll(fileRules);
+		return result;
+	}
+
+	/**
+	 * Rules read from the rules file.
+	 */
+	private static final class Rules {
+
+		final List<ProxyingRule> authenticatedPhone = new ArrayList<>();
+
+		final List<ProxyingRule> phone = new ArrayList<>();
+
+		final List<ProxyingRule> authenticatedDomain = new ArrayList<>();
+
+		final List<ProxyingRule> domain = new ArrayList<>();
+
+		/**
+		 * Parses a rule of the form <code>{prefix=...,nexthop=...[,authenticated=yes]}</code> or
+		 * <code>{domain=...,nexthop=...[,authenticated=yes]}</code>.
+		 */
+		void add(String line) {
+			String body = line;
+			if (body.startsWith("{")) {
+				if (!body.endsWith("}")) {
+					throw new IllegalArgumentException("Missing '}': " + line);
+				}
+				body = body.substring(1, body.length() - 1);
+			}
+			String prefix = null;
+			String domainName = null;
+			String nexthop = null;
+			boolean authenticated = false;
+			for (String part : body.split("[,; ]+")) {
+				if (part.isEmpty()) {
+					continue;
+				}
+				int sep = part.indexOf('=');
+				if (sep < 0) {
+					throw new IllegalArgumentException("Expected 'name=value': " + part);
+				}
+				String name = part.substring(0, sep).trim();
+				String value = part.substring(sep + 1).trim();
+				switch (name) {
+					case "prefix":
+						prefix = value.equals("*") ? PrefixProxyingRule.DEFAULT_PREFIX : value;
+						break;
+					case "domain":
+						domainName = value;
+						break;
+					case "nexthop":
+						nexthop = value;
+						break;
+					case "authenticated":
+						authenticated = value.equalsIgnoreCase("yes") || value.equalsIgnoreCase("true");
+						break;
+					default:
+						throw new IllegalArgumentException("Unknown attribute '" + name + "'.");
+				}
+			}
+			if (nexthop == null || nexthop.isEmpty()) {
+				throw new IllegalArgumentException("Missing nexthop: " + line);
+			}
+			if ((prefix == null) == (domainName == null)) {
+				throw new IllegalArgumentException("Either prefix or domain expected: " + line);
+			}
+			SocketAddress address = new SocketAddress(nexthop);
+			if (prefix != null) {
+				(authenticated ? authenticatedPhone : phone).add(new PrefixProxyingRule(prefix, address));
+			} else {
+				(authenticated ? authenticatedDomain : domain).add(new DomainProxyingRule(domainName, address));
+			}
+		}
+
+	}
+
+	/**
+	 * Snapshot of all compiled rules.
+	 */
+	private static final class Tables {
+
+		final ProxyingTable authenticatedPhone;
+
+		final ProxyingTable phone;
+
+		final ProxyingTable authenticatedDomain;
+
+		final ProxyingTable domain;
+
+		Tables(ProxyingTable authenticatedPhone, ProxyingTable phone, ProxyingTable authenticatedDomain,
+				ProxyingTable domain) {
+			this.authenticatedPhone = authenticatedPhone;
+			this.phone = phone;
+			this.authenticatedDomain = authenticatedDomain;
+			this.domain = domain;
+		}
+
+	}
+
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.server;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.mjsip.sip.address.GenericURI;
+import org.mjsip.sip.address.SipURI;
+import org.zoolu.net.SocketAddress;
+
+/**
+ * Immutable set of {@link ProxyingRule}s compiled for fast lookup.
+ *
+ * <p>
+ * The prefixes of {@link PrefixProxyingRule}s are stored in a trie over the characters of
+ * telephone numbers, so that the longest matching prefix of a user name is found in time
+ * proportional to the length of the user name, independent of the number of rules. The domains of
+ * {@link DomainProxyingRule}s are stored in a hash index.
+ * </p>
+ *
+ * <p>
+ * In contrast to scanning the rules in order, the most specific rule wins: An exact domain match,
+ * then the longest matching prefix, then other rules in their original order, and finally the
+ * {@link PrefixProxyingRule#DEFAULT_PREFIX default} rule. If several rules have the same prefix or
+ * domain, the first one is used.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+public final class ProxyingTable implements ProxyingRule {
+
+	/** The characters a telephone number may consist of, see {@link Proxy#isPhoneNumber(String)}. */
+	private static final String ALPHABET = "0123456789*#+-";
+
+	/** Empty table. */
+	public static final ProxyingTable EMPTY = compile(List.of());
+
+	/** Rules with a precomputed next-hop, indexed by the values of the trie and the domain index. */
+	private final Target[] _targets;
+
+	/**
+	 * Bit set of the characters (see {@link #ALPHABET}) for which a trie node has children, indexed
+	 * by node. The root node has index 0.
+	 */
+	private final int[] _mask;
+
+	/**
+	 * Index of the first child of a trie node, the children of a node are stored consecutively in
+	 * the order of {@link #ALPHABET}.
+	 */
+	private final int[] _firstChild;
+
+	/** Index into {@link #_targets} of the rule for the prefix of a trie node, or -1. */
+	private final int[] _target;
+
+	private final Map<String, Target> _domains;
+
+	private final ProxyingRule[] _others;
+
+	private final Target _default;
+
+	private final int _size;
+
+	private ProxyingTable(Target[] targets, int[] mask, int[] firstChild, int[] target, Map<String, Target> domains,
+			ProxyingRule[] others, Target defaultTarget, int size) {
+		_targets = targets;
+		_mask = mask;
+		_firstChild = firstChild;
+		_target = target;
+		_domains = domains;
+		_others = others;
+		_default = defaultTarget;
+		_size = size;
+	}
+
+	/**
+	 * Compiles the given rules.
+	 *
+	 * @see #compile(Collection)
+	 */
+	public static ProxyingTable compile(ProxyingRule[] rules) {
+		return compile(Arrays.asList(rules));
+	}
+
+	/**
+	 * Compiles the given rules, <code>null</code> entries are skipped.
+	 */
+	public static ProxyingTable compile(Collection<? extends ProxyingRule> rules) {
+		Node root = new Node();
+		int nodeCnt = 1;
+		List<Target> targets = new ArrayList<>();
+		Map<String, Target> domains = new HashMap<>();
+		List<ProxyingRule> others = new ArrayList<>();
+		Target defaultTarget = null;
+
+		for (ProxyingRule rule : rules) {
+			if (rule == null) {
+				continue;
+			}
+			if (rule instanceof PrefixProxyingRule) {
+				PrefixProxyingRule prefixRule = (PrefixProxyingRule) rule;
+				if (prefixRule.prefix.equalsIgnoreCase(PrefixProxyingRule.DEFAULT_PREFIX)) {
+					if (defaultTarget == null) {
+						defaultTarget = new Target(rule, prefixRule.nexthop);
+					}
+					continue;
+				}
+				if (!isPhoneNumber(prefixRule.prefix)) {
+					// Never matches, since prefix rules are only applied to telephone numbers.
+					continue;
+				}
+				Node node = root;
+				for (int n = 0, cnt = prefixRule.prefix.length(); n < cnt; n++) {
+					int index = ALPHABET.indexOf(prefixRule.prefix.charAt(n));
+					Node child = node.children[index];
+					if (child == null) {
+						child = new Node();
+						node.children[index] = child;
+						nodeCnt++;
+					}
+					node = child;
+				}
+				if (node.target < 0) {
+					node.target = targets.size();
+					targets.add(new Target(rule, prefixRule.nexthop));
+				}
+			} else if (rule instanceof DomainProxyingRule) {
+				DomainProxyingRule domainRule = (DomainProxyingRule) rule;
+				domains.putIfAbsent(domainRule.domain.toLowerCase(Locale.ROOT), new Target(rule, domainRule.nexthop));
+			} else {
+				others.add(rule);
+			}
+		}
+
+		// Flatten the trie in breadth-first order, so that the children of each node are consecutive.
+		int[] mask = new int[nodeCnt];
+		int[] firstChild = new int[nodeCnt];
+		int[] target = new int[nodeCnt];
+		ArrayDeque<Node> queue = new ArrayDeque<>();
+		queue.add(root);
+		int next = 1;
+		for (int id = 0; id < nodeCnt; id++) {
+			Node node = queue.poll();
+			target[id] = node.target;
+			firstChild[id] = next;
+			for (int index = 0; index < ALPHABET.length(); index++) {
+				Node child = node.children[index];
+				if (child != null) {
+					mask[id] |= 1 << index;
+					queue.add(child);
+					next++;
+				}
+			}
+		}
+
+		return new ProxyingTable(targets.toArray(new Target[0]), mask, firstChild, target, domains,
+			others.toArray(new ProxyingRule[0]), defaultTarget,
+			targets.size() + domains.size() + others.size() + (defaultTarget != null ? 1 : 0));
+	}
+
+	/**
+	 * The number of effective rules in this table.
+	 */
+	public int size() {
+		return _size;
+	}
+
+	@Override
+	public SipURI getNexthop(GenericURI uri) {
+		ProxyingRule rule = getRule(uri);
+		return rule == null ? null : rule.getNexthop(uri);
+	}
+
+	/**
+	 * The rule that determines the next-hop for the given URI.
+	 *
+	 * @return The matching rule, or <code>null</code> if no rule matches.
+	 */
+	public ProxyingRule getRule(GenericURI uri) {
+		if (!uri.isSipURI()) {
+			return null;
+		}
+		SipURI sipUri = uri.toSipURI();
+
+		if (!_domains.isEmpty()) {
+			String host = sipUri.getHost();
+			if (host != null) {
+				Target domain = _domains.get(host.toLowerCase(Locale.ROOT));
+				if (domain != null) {
+					return domain;
+				}
+			}
+		}
+
+		String username = sipUri.getUserName();
+		if (username != null) {
+			Target prefix = longestPrefix(username);
+			if (prefix != null) {
+				return prefix;
+			}
+		}
+
+		for (ProxyingRule rule : _others) {
+			if (rule.getNexthop(uri) != null) {
+				return rule;
+			}
+		}
+		return _default;
+	}
+
+	private Target longestPrefix(String username) {
+		int node = 0;
+		int result = -1;
+		for (int n = 0, cnt = username.length(); n < cnt; n++) {
+			int index = ALPHABET.indexOf(username.charAt(n));
+			if (index < 0) {
+				break;
+			}
+			int mask = _mask[node];
+			int bit = 1 << index;
+			if ((mask & bit) == 0) {
+				break;
+			}
+			node = _firstChild[node] + Integer.bitCount(mask & (bit - 1));
+			if (_target[node] >= 0) {
+				result = _target[node];
+			}
+		}
+		return result < 0 ? null : _targets[result];
+	}
+
+	private static boolean isPhoneNumber(String str) {
+		if (str.isEmpty()) {
+			return false;
+		}
+		for (int n = 0, cnt = str.length(); n < cnt; n++) {
+			if (ALPHABET.indexOf(str.charAt(n)) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "{rules=" + _size + "}";
+	}
+
+	/**
+	 * Mutable trie node used while compiling.
+	 */
+	private static final class Node {
+
+		final Node[] children = new Node[ALPHABET.length()];
+
+		int target = -1;
+
+	}
+
+	/**
+	 * A compiled rule with its next-hop address resolved to a string.
+	 */
+	private static final class Target implements ProxyingRule {
+
+		private final ProxyingRule _rule;
+
+		private final String _host;
+
+		private final int _port;
+
+		Target(ProxyingRule rule, SocketAddress nexthop) {
+			_rule = rule;
+			_host = nexthop.getAddress().toString();
+			_port = nexthop.getPort();
+		}
+
+		@Override
+		public SipURI getNexthop(GenericURI uri) {
+			return new SipURI(uri.toSipURI().getUserName(), _host, _port);
+		}
+
+		@Override
+		public String toString() {
+			return _rule.toString();
+		}
+
+	}
+
+}
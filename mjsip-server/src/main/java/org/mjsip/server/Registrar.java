@@ -167,16 +167,16 @@ public class Registrar extends ServerEngine {
 		Enumeration<String> e=location_service.getUserContactURIs(user);
 		LOG.trace("message targets: ");  
 		for (int i=0; e.hasMoreElements(); i++) {
-			// if exipred, remove the contact URI
+			// if exipred, skip the contact URI
+			// Note: Expired contacts are removed in background, see ServerEngine.reapExpiredContacts().
 			String contact= e.nextElement();
 			if (location_service.isUserContactExpired(user,contact)) {
-				location_service.removeUserContact(user,contact);
-			LOG.trace("target {} expired: contact URI removed", i);
+				LOG.trace("target {} expired: skipped", i);
 			}
 			// otherwise add the URI to the target list
 			else {
 				targets.addElement(contact);
-				LOG.trace("target {}={}", i, targets.elementAt(i));
+				LOG.trace("target {}={}", i, contact);
 			}
 		}
 		// for SIPS request-uri remove non-SIPS targets
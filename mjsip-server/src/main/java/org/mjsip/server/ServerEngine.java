@@ -24,6 +24,7 @@ package org.mjsip.server;
 
 import java.util.Enumeration;
 import java.util.Vector;
+import java.util.concurrent.ScheduledFuture;
 
 import org.mjsip.sip.address.GenericURI;
 import org.mjsip.sip.address.SipURI;
@@ -74,6 +75,9 @@ public abstract class ServerEngine implements SipProviderListener {
 	/** LocationService. */
 	protected LocationService location_service;
 
+	/** Background task removing expired contacts, or <code>null</code>. */
+	private ScheduledFuture<?> reap_task=null;
+
 	/** AuthenticationService (i.e. the repository with authentication credentials). */
 	protected AuthenticationService authentication_service;
 
@@ -81,14 +85,14 @@ public abstract class ServerEngine implements SipProviderListener {
 	protected AuthenticationServer as;
 	
 	/** List of already supported location services */
-	protected static final String[] LOCATION_SERVICES={ "local" };
+	protected static final String[] LOCATION_SERVICES={ "local", "journal" };
 	/** List of location service Classes (ordered as in <i>LOCATION_SERVICES</i>) */
-	protected static final String[] LOCATION_SERVICE_CLASSES={ LocationServiceImpl.class.getName() };
+	protected static final String[] LOCATION_SERVICE_CLASSES={ LocationServiceImpl.class.getName(), JournalLocationService.class.getName() };
 
 	/** List of already supported authentication services */
-	protected static final String[] AUTHENTICATION_SERVICES={ "local" };
+	protected static final String[] AUTHENTICATION_SERVICES={ "local", "journal" };
 	/** List of authentication service Classes (ordered as in <i>AUTHENTICATION_SERVICES</i>) */
-	protected static final String[] AUTHENTICATION_SERVICE_CLASSES={ AuthenticationServiceImpl.class.getName() };
+	protected static final String[] AUTHENTICATION_SERVICE_CLASSES={ AuthenticationServiceImpl.class.getName(), JournalAuthenticationService.class.getName() };
 
 	/** List of already supported authentication schemes */
 	protected static final String[] AUTHENTICATION_SCHEMES={ "Digest" };
@@ -163,18 +167,12 @@ public abstract class ServerEngine implements SipProviderListener {
 		}
 		else {
 			// remove all expired contacts
-			boolean changed=false;    
-			for (Enumeration<String> u=location_service.getUsers(); u.hasMoreElements(); ) {
-				String user= u.nextElement();
-				for (Enumeration<String> c=location_service.getUserContactURIs(user); c.hasMoreElements(); ) {
-					String contact= c.nextElement();
-					if ((changed=location_service.isUserContactExpired(user,contact))==true) location_service.removeUserContact(user,contact);
-				}
-				// Note: uncomment the next line, if you want that 'unbound' users (i.e. without registered contacts) are automatically removed
-				//if (!location_service.getUserContacts(user).hasMoreElements()) location_service.removeUser(user);   
-			}
-			if (changed) location_service.sync();
+			if (location_service.removeExpiredContacts()>0) location_service.sync();
 		}  
+		// remove contacts in background as they expire
+		if (profile.locationReapInterval>0) {
+			reap_task=sip_provider.scheduler().schedulerWithFixedDelay(profile.locationReapInterval*1000L,this::reapExpiredContacts);
+		}
 		LOG.debug("LocationService ({}): size={}\r\n{}",profile.authenticationService, location_service.size(), location_service);
 
 		// AUTHENTICATION SERVICE
@@ -226,7 +224,7 @@ public abstract class ServerEngine implements SipProviderListener {
 			}
 			// use default authentication service
 			if (as == null)
-				as = new AuthenticationServerImpl(sip_provider, realm, authentication_service);
+				as = new AuthenticationServerImpl(sip_provider, realm, authentication_service, new NonceManager(profile.nonceExpires*1000L, profile.maxNonces));
 			LOG.debug("AuthenticationServer: scheme: {}", profile.authenticationScheme);
 			LOG.debug("AuthenticationServer: realm: {}", profile.authenticationRealm);
 		}
@@ -372,6 +370,30 @@ public abstract class ServerEngine implements SipProviderListener {
 	//}
 	
 
+	/** Stops the server.
+	  * Unregisters from the SipProvider and cancels the background tasks of the server. */
+	public void halt() {
+		if (sip_provider!=null) sip_provider.removeSelectiveListener(SipId.ANY_METHOD);
+		if (reap_task!=null) reap_task.cancel(false);
+	}
+
+
+	/** Removes expired contacts from the location service.
+	  * Called periodically, so that lookups need not check for expired contacts themselves. */
+	protected void reapExpiredContacts() {
+		try {
+			int removed=location_service.removeExpiredContacts();
+			if (removed>0) {
+				LOG.debug("{} expired contacts removed", removed);
+				location_service.sync();
+			}
+		}
+		catch (RuntimeException e) {
+			LOG.warn("Error removing expired contacts.", e);
+		}
+	}
+
+
 	/** Whether the server is responsible for the given <i>domain</i>
 	  * (i.e. the <i>domain</i> is included in the local domain names list)
 	  * and <i>port</i> (if &gt;0) matches the local server port. */
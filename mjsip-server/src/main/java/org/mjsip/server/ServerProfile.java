@@ -26,6 +26,12 @@ public class ServerProfile {
 	@Option(name = "--proxy-transaction-timeout", usage = "Proxy transaction timeout (in milliseconds), that corresponds to Timer 'C' of RFC2361; RFC2361 suggests C > 3min = 180000ms.")
 	public int proxyTransactionTimeout=180000;
 
+	@Option(name = "--forking-mode", usage = "How a request for a local user is forwarded to the user's contacts: 'parallel' to all contacts at once, or 'sequential' one after another in the order of decreasing q-value.")
+	public String forkingMode="parallel";
+
+	@Option(name = "--forking-branch-timeout", usage = "Time (in milliseconds) after which a forwarded request without final response is cancelled, 0 for no limit other than the proxy transaction timeout.")
+	public int forkingBranchTimeout=0;
+
 	@Option(name = "--domain-names", usage = "The domain names that the server manages. "
 			+ "Specify the domain names for which the location service maintains user bindings. "
 			+ "Use 'auto-configuration' for automatic configuration of the domain name.", handler = DomainNamesHandler.class)
@@ -47,7 +53,7 @@ public class ServerProfile {
 	public boolean isOpenProxy=false;
 	
 	@Option(name = "--location-service", usage = "The type of location service. "
-			+ "Valid location service types are (local, ldap, radius, mysql) or a class name (e.g. local.server.LocationServiceImpl).")
+			+ "Valid location service types are (local, journal, ldap, radius, mysql) or a class name (e.g. local.server.LocationServiceImpl).")
 	public String locationService="local";
 	
 	@Option(name = "--location-db", usage = "The file name of the location DB.")
@@ -56,6 +62,9 @@ public class ServerProfile {
 	@Option(name = "--clean-location-db", usage = "Whether the location DB is cleaned during startup.", handler = YesNoHandler.class)
 	public boolean cleanLocationDb=false;
 
+	@Option(name = "--location-reap-interval", usage = "Interval (in seconds) for removing expired contacts from the location DB, 0 for removing them only at startup.")
+	public int locationReapInterval=10;
+
 	@Option(name = "--do-authentication", usage = "Whether the server requires authentication from local users.", handler = YesNoHandler.class)
 	public boolean doAuthentication=false;
 	
@@ -71,12 +80,18 @@ public class ServerProfile {
 	public String authenticationRealm=null;
 	
 	@Option(name = "--authentication-service", usage = "The type of authentication service. "
-			+ "Valid authentication service types are 'local', 'ldap', 'radius', 'mysql', or a class name (e.g. local.server.AuthenticationServiceImpl).")
+			+ "Valid authentication service types are 'local', 'journal', 'ldap', 'radius', 'mysql', or a class name (e.g. local.server.AuthenticationServiceImpl).")
 	public String authenticationService="local";
 	
 	@Option(name = "--authentication-db", usage = "The fila name of the authentication DB.")
 	public String authenticationDb="aaa.db";
 
+	@Option(name = "--nonce-expires", usage = "Time (in seconds) a nonce of an authentication challenge is valid.")
+	public int nonceExpires=300;
+
+	@Option(name = "--max-nonces", usage = "Maximum number of nonces issued within their validity time, older nonces are dropped.")
+	public int maxNonces=100000;
+
 	@Option(name = "--on-route", usage = "Whether the server should stay in the signaling path (uses Record-Route/Route).", handler = YesNoHandler.class)
 	public boolean onRoute=false;
 	
@@ -114,11 +129,18 @@ public class ServerProfile {
 	@Option(name = "--doman-proxying-rules", handler = DomainRuleHandler.class)
 	public ProxyingRule[] domainProxyingRules=null;
 
+	@Option(name = "--proxying-rules-file", usage = "File with additional phone and domain proxying rules, one rule per line.")
+	public String proxyingRulesFile=null;
+
+	@Option(name = "--proxying-rules-check-interval", usage = "Interval (in seconds) for checking the proxying rules file for modifications, 0 for loading it only at startup.")
+	public int proxyingRulesCheckInterval=10;
+
 	@Option(name = "--memory-log", usage = "Whether maintaining a memory log.")
 	public boolean memoryLog=false;
 
 	public void normalize() {
 		if (authenticationRealm!=null && authenticationRealm.equals(Configure.NONE)) authenticationRealm=null;
+		if (proxyingRulesFile!=null && proxyingRulesFile.equals(Configure.NONE)) proxyingRulesFile=null;
 		if (domainNames==null) domainNames=new String[0];
 		
 		for (int n = 0, cnt = domainNames.length; n < cnt; n++) {
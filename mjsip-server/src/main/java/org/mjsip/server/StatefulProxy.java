@@ -22,6 +22,7 @@
 package org.mjsip.server;
 
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Vector;
@@ -67,6 +68,9 @@ public class StatefulProxy extends Proxy implements TransactionClientListener {
 	/** SipProvider for server transactions */
 	protected SipProvider sip_provider_server;   
 
+	/** Forwards requests for local users to all their contacts */
+	protected ForkingEngine forking_engine=null;
+
 		
 	/** Costructs a void StatefulProxy */
 	protected StatefulProxy() {}
@@ -77,8 +81,14 @@ public class StatefulProxy extends Proxy implements TransactionClientListener {
 		sip_provider_client=sip_provider;
 		sip_provider_server=sip_provider;
 		state=new StatefulProxyState(sip_provider);
+		forking_engine=new ForkingEngine(sip_provider_client,ForkingEngine.Mode.parse(server_profile.forkingMode),server_profile.forkingBranchTimeout,server_profile.proxyTransactionTimeout,this::forwardResponse);
 	}   
 
+	/** Gets the engine forwarding requests for local users to their contacts. */
+	public ForkingEngine getForkingEngine() {
+		return forking_engine;
+	}
+
 		
 	/** Costructs a new StatefulProxy that acts also as location server for registered users. */
 	/*public StatefulProxy(SipProvider provider_server, SipProvider provider_client, ServerProfile server_profile) {
@@ -115,6 +125,21 @@ public class StatefulProxy extends Proxy implements TransactionClientListener {
 			super.processRequestToLocalUser(msg);
 			return; 
 		}
+
+		if (msg.isCancel()) {
+			ForkingEngine.Fork fork=forking_engine.getInviteFork(msg);
+			if (fork==null) {
+				LOG.debug("CANCEL received without matching INVITE transaction, message forwarded");
+				// CANCEL without matching transaction is forwarded statelessly (RFC 3261 section 16.10)
+				super.processRequestToLocalUser(msg);
+				return;
+			}
+			// respond to the CANCEL and cancel all pending branches instead of forwarding it
+			TransactionServer ts=new TransactionServer(sip_provider_server,msg,null);
+			sendStatefulServerResponse(ts,sip_provider.messageFactory().createResponse(msg,SipResponses.OK,null,null));
+			fork.cancel();
+			return;
+		}
 		
 		TransactionServer ts;
 		if (msg.isInvite()) ts=new InviteTransactionServer(sip_provider_server,msg,null);
@@ -148,6 +173,7 @@ public class StatefulProxy extends Proxy implements TransactionClientListener {
 		}
 
 		LOG.debug("message will be forwarded to {} user's contact(s)", targets.size()); 
+		ArrayList<ForkingEngine.Target> fork_targets=new ArrayList<>();
 		for (int i=0; i<targets.size(); i++)  {
 			SipURI target_uri=SipURI.parseSipURI((targets.elementAt(i)));
 			SipMessage request=new SipMessage(msg);
@@ -156,14 +182,10 @@ public class StatefulProxy extends Proxy implements TransactionClientListener {
 
 			updateProxyingRequest(request);         
 
-			TransactionClient tc;
-			if (msg.isInvite()) tc=new ProxyInviteTransactionClient(sip_provider_client,request,server_profile.proxyTransactionTimeout, this);
-			else tc=new TransactionClient(sip_provider_client,request,this);
-			//printLog("DEBUG: processLocalRequest()\r\n"+tc.getRequestMessage().toString(),LogWriter.LEVEL_LOWER);
-			state.addClient(ts,tc);
+			// Note: The location service does not keep the q-values of the registered contacts.
+			fork_targets.add(new ForkingEngine.Target(request,1.0f));
 		}
-		HashSet<Transaction> clients=state.getClients(ts);
-		for (Iterator<Transaction> i=clients.iterator(); i.hasNext(); ) ((TransactionClient)i.next()).request();
+		forking_engine.fork(ts,fork_targets);
 	}
 
 	
@@ -234,6 +256,13 @@ public class StatefulProxy extends Proxy implements TransactionClientListener {
 	}   
 
 
+	/** Forwards a response received by a client transaction through server transaction <i>ts</i>. */
+	protected void forwardResponse(TransactionServer ts, SipMessage resp) {
+		updateProxyingResponse(resp);
+		if (resp.hasViaHeader()) ts.respondWith(resp); else ts.terminate();
+	}
+
+
 	/** Process provisional response */
 	protected void processProvisionalResponse(TransactionClient transaction, SipMessage resp) {
 		LOG.debug("inside processProvisionalResponse(t,resp)");
@@ -249,19 +278,12 @@ public class StatefulProxy extends Proxy implements TransactionClientListener {
 	protected void processFailureResponse(TransactionClient transaction, SipMessage resp) {
 		LOG.debug("inside processFailureResponse(t,resp)");
 		TransactionServer ts=state.getServer(transaction);
-		state.removeClient(transaction);
-		if (ts==null) return;
-		if (!state.hasServer(ts)) return;
-		// updates the non-2xx final response
-		state.setFinalResponse(ts,resp);
-		// if there are no more pending clients, sends the final response
-		HashSet<Transaction> clients=state.getClients(ts);
-		if (clients.isEmpty()) {
+		// updates the non-2xx final response and, if there are no more pending clients, gets the final response
+		resp=state.completeClient(transaction,resp);
+		if (resp!=null) {
 			LOG.trace("only this t_client remained: send the response");
-			resp=state.getFinalResponse(ts);
 			updateProxyingResponse(resp);
 			if (resp.hasViaHeader()) ts.respondWith(resp); else ts.terminate();
-			state.removeServer(ts);
 		}
 		LOG.trace("t_clients still active: {}", state.numOfClients());
 		LOG.trace("t_servers still active: {}", state.numOfServers());
@@ -309,18 +331,12 @@ public class StatefulProxy extends Proxy implements TransactionClientListener {
 	protected void processTimeout(TransactionClient transaction) {
 		LOG.debug("inside processTimeout(t)");
 		TransactionServer ts=state.getServer(transaction);
-		state.removeClient(transaction);
-		if (ts==null) return;
-		HashSet<Transaction> clients=state.getClients(ts);
-		if (clients==null) return;
-		if (clients.isEmpty()) {
+		SipMessage resp=state.completeClient(transaction,null);
+		if (resp!=null) {
 			LOG.trace("responding..");
-			//printLog("DEBUG:\r\n"+state.getFinalResponse(ts),LogWriter.LEVEL_LOW);
-			SipMessage resp=state.getFinalResponse(ts);
 			updateProxyingResponse(resp);
 			if (resp.hasViaHeader()) sendStatefulServerResponse(ts,resp);
 			else ts.terminate();
-			state.removeServer(ts);
 		}      
 		LOG.trace("t_clients still active: {}", state.numOfClients());
 		LOG.trace("t_servers still active: {}", state.numOfServers());
@@ -23,8 +23,8 @@ package org.mjsip.server;
 
 
 import java.util.HashSet;
-import java.util.Hashtable;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.mjsip.sip.message.SipMessage;
 import org.mjsip.sip.message.SipResponses;
@@ -36,122 +36,183 @@ import org.mjsip.sip.transaction.TransactionServer;
 
 
 /** Class StatefulProxyState allows the record and management
-  * of all TransactionServer-to-TransactionClient mappings in a stateful proxy. */
+  * of all TransactionServer-to-TransactionClient mappings in a stateful proxy.
+  * <p>
+  * The state of each TransactionServer (its clients and its final response) is kept
+  * in a separate {@link ServerState} object that is guarded by its own lock.
+  * The tables mapping transaction ids to these objects are concurrent maps,
+  * so that forking and response aggregation of unrelated calls never contend. */
 public class StatefulProxyState {
 	
-	/** Mapping between t_clients and t_servers, as table of (TransactionId)t_client-->(TransactionServer)t_server */
-	Hashtable<SipId, TransactionServer> c_server;
-	/** Mapping between t_servers and their t_clients, as table of (TransactionId)t_server-->(HashSet)t_clients */
-	Hashtable<SipId, HashSet<Transaction>> s_clients;
-	/** Mapping between t_servers and their response messages, as table of (TransactionId)t_server-->(Message)resp */
-	Hashtable<SipId, SipMessage> s_response;
+	/** Mapping between t_servers and their state, as table of (TransactionId)t_server-->(ServerState)state */
+	private final ConcurrentHashMap<SipId, ServerState> s_state=new ConcurrentHashMap<>();
+	/** Mapping between t_clients and the state of their t_server, as table of (TransactionId)t_client-->(ServerState)state */
+	private final ConcurrentHashMap<SipId, ServerState> c_state=new ConcurrentHashMap<>();
 	private SipProvider sip_provider;
 
 	
 	/** Creates the StatefulProxyState */
 	public StatefulProxyState(SipProvider sip_provider) {
 		this.sip_provider = sip_provider;
-		if (c_server==null) c_server=new Hashtable<>();
-		if (s_clients==null) s_clients=new Hashtable<>();
-		if (s_response==null) s_response=new Hashtable<>();
 	}
 
 	/** Adds a new server <i>ts</i> */
-	public synchronized void addServer(TransactionServer ts) {
-		//printlog("addServer(ts)",LogWriter.LEVEL_LOW);
-		if (hasServer(ts)) return;
-		SipId sid=ts.getTransactionId();
-		s_clients.put(sid,new HashSet<>());
-		SipMessage request=new SipMessage(ts.getRequestMessage());
-		//printlog("creating a possible server 408 final response",LogWriter.LEVEL_LOW);
-		SipMessage resp=sip_provider.messageFactory().createResponse(request,SipResponses.REQUEST_TIMEOUT,null,null);
-		//printlog("DEBUG: addServer()\r\n"+resp,LogWriter.LEVEL_LOW);
-		s_response.put(sid,resp);
+	public void addServer(TransactionServer ts) {
+		serverState(ts);
 	}
 
 	/** Appends a new client to server <i>ts</i>.
 	  * If server <i>ts</i> is new, adds it. */
-	public synchronized void addClient(TransactionServer ts, Transaction tc) {
-		//printlog("addClient(ts,tc)",LogWriter.LEVEL_LOW);
-		c_server.put(tc.getTransactionId(),ts);
-		SipId sid=ts.getTransactionId();
-		HashSet<Transaction> clients= s_clients.get(sid);
-		if (clients==null) clients=new HashSet<>();
-		clients.add(tc);
-		s_clients.put(sid,clients);
-		SipMessage request=new SipMessage(ts.getRequestMessage());
-		//printlog("creating a possible server 408 final response",LogWriter.LEVEL_LOW);
-		SipMessage resp=sip_provider.messageFactory().createResponse(request, SipResponses.REQUEST_TIMEOUT,null,null);
-		//printlog("DEBUG addClient():\r\n"+resp,LogWriter.LEVEL_LOW);
-		s_response.put(sid,resp);
+	public void addClient(TransactionServer ts, Transaction tc) {
+		SipId cid=tc.getTransactionId();
+		while (true) {
+			ServerState state=serverState(ts);
+			synchronized (state) {
+				// retry, if the server has been removed concurrently
+				if (state.removed) continue;
+				state.clients.put(cid,tc);
+				// a possible server 408 final response, created on demand
+				state.response=null;
+				c_state.put(cid,state);
+				return;
+			}
+		}
 	}
 	
 	/** Removes a client. */
-	public synchronized void removeClient(TransactionClient tc) {
+	public void removeClient(TransactionClient tc) {
+		ServerState state=c_state.remove(tc.getTransactionId());
+		if (state==null) return;
+		synchronized (state) {
+			state.clients.remove(tc.getTransactionId());
+		}
+	}
+	
+	/** Removes client <i>tc</i> that has terminated with the non-2xx final response <i>resp</i>,
+	  * or with a timeout, if <i>resp</i> is <code>null</code>.
+	  * Atomically updates the final response of the server bound to <i>tc</i> and, if no other
+	  * client of this server is pending, removes the server.
+	  * @return the final response to be sent by the server, if <i>tc</i> was its last pending client,
+	  * or <code>null</code> otherwise */
+	public SipMessage completeClient(TransactionClient tc, SipMessage resp) {
 		SipId cid=tc.getTransactionId();
-		TransactionServer ts= c_server.get(cid);
-		if (ts==null) return;
-		c_server.remove(cid);
-		SipId sid=ts.getTransactionId();
-		HashSet<Transaction> clients=s_clients.get(sid);
-		if (clients==null) return;
-		Transaction target=null;
-		Transaction tc_i;
-		for (Iterator<Transaction> i=clients.iterator(); i.hasNext(); )
-			if ((tc_i= i.next()).getTransactionId().equals(cid)) target=tc_i;
-		if (target!=null) clients.remove(target);
+		ServerState state=c_state.remove(cid);
+		if (state==null) return null;
+		synchronized (state) {
+			state.clients.remove(cid);
+			if (state.removed) return null;
+			if (resp!=null) state.response=resp;
+			if (!state.clients.isEmpty()) return null;
+			//else
+			state.removed=true;
+			s_state.remove(state.ts.getTransactionId(),state);
+			return finalResponse(state);
+		}
 	}
 	
 	/** Removes all clients bound to server <i>ts</i>. */
-	public synchronized void clearClients(TransactionServer ts) {
-		SipId sid=ts.getTransactionId();
-		s_clients.remove(sid);
-		s_clients.put(sid,new HashSet<>());
+	public void clearClients(TransactionServer ts) {
+		ServerState state=serverState(ts);
+		synchronized (state) {
+			state.clients.clear();
+		}
 	}
 
 	/** Whether there is a server <i>ts</i>. */
 	public boolean hasServer(TransactionServer ts) {
-		SipId sid=ts.getTransactionId();
-		return s_clients.containsKey(sid);
+		return s_state.containsKey(ts.getTransactionId());
 	}
 
 	/** Removes server <i>ts</i>. */
-	public synchronized void removeServer(TransactionServer ts) {
-		SipId sid=ts.getTransactionId();
-		s_clients.remove(sid);
-		s_response.remove(sid);
+	public void removeServer(TransactionServer ts) {
+		ServerState state=s_state.remove(ts.getTransactionId());
+		if (state==null) return;
+		synchronized (state) {
+			state.removed=true;
+		}
 	}
 
 	/** Gets the server bound to client <i>tc</i> */
-	public synchronized TransactionServer getServer(TransactionClient tc) {
-		return c_server.get(tc.getTransactionId());
+	public TransactionServer getServer(TransactionClient tc) {
+		ServerState state=c_state.get(tc.getTransactionId());
+		return state!=null? state.ts : null;
 	}
 
-	/** Gets all clients bound to server <i>ts</i>. */
-	public synchronized HashSet<Transaction> getClients(TransactionServer ts) {
-		return s_clients.get(ts.getTransactionId());
+	/** Gets all clients bound to server <i>ts</i>.
+	  * @return a snapshot of the clients, or <code>null</code> if there is no server <i>ts</i> */
+	public HashSet<Transaction> getClients(TransactionServer ts) {
+		ServerState state=s_state.get(ts.getTransactionId());
+		if (state==null) return null;
+		synchronized (state) {
+			return new HashSet<>(state.clients.values());
+		}
 	}
 		
 	/** Sets the final response for server <i>ts</i>. */
-	public synchronized void setFinalResponse(TransactionServer ts, SipMessage resp) {
-		SipId sid=ts.getTransactionId();
-		s_response.remove(sid);
-		s_response.put(sid,resp);
+	public void setFinalResponse(TransactionServer ts, SipMessage resp) {
+		ServerState state=s_state.get(ts.getTransactionId());
+		if (state==null) return;
+		synchronized (state) {
+			state.response=resp;
+		}
 	}
 	 
 	/** Gets the final response for server <i>ts</i>. */
-	public synchronized SipMessage getFinalResponse(TransactionServer ts) {
-		return s_response.get(ts.getTransactionId());
+	public SipMessage getFinalResponse(TransactionServer ts) {
+		ServerState state=s_state.get(ts.getTransactionId());
+		if (state==null) return null;
+		synchronized (state) {
+			return finalResponse(state);
+		}
 	}
 	
 	/** Gets the number of active servers. */
 	public int numOfServers() {
-		return s_clients.size();
+		return s_state.size();
 	}
 	
 	/** Gets the number of active clients. */
 	public int numOfClients() {
-		return c_server.size();
+		return c_state.size();
 	}
-	
-}  
+
+	/** Gets the state of server <i>ts</i>, adding the server if it is new. */
+	private ServerState serverState(TransactionServer ts) {
+		SipId sid=ts.getTransactionId();
+		ServerState state=s_state.get(sid);
+		if (state!=null) return state;
+		//else
+		ServerState new_state=new ServerState(ts);
+		state=s_state.putIfAbsent(sid,new_state);
+		return state!=null? state : new_state;
+	}
+
+	/** Gets the final response of a server, by default a 408 response. Must be called while holding the lock of <i>state</i>. */
+	private SipMessage finalResponse(ServerState state) {
+		if (state.response==null) {
+			SipMessage request=new SipMessage(state.ts.getRequestMessage());
+			state.response=sip_provider.messageFactory().createResponse(request,SipResponses.REQUEST_TIMEOUT,null,null);
+		}
+		return state.response;
+	}
+
+
+	/** State of a TransactionServer, guarded by its own lock. */
+	private static final class ServerState {
+		
+		/** The server */
+		final TransactionServer ts;
+		/** The pending clients, as table of (TransactionId)t_client-->(Transaction)t_client */
+		final LinkedHashMap<SipId, Transaction> clients=new LinkedHashMap<>();
+		/** The final response, or <code>null</code> for a 408 response */
+		SipMessage response;
+		/** Whether the server has been removed */
+		boolean removed;
+
+		/** Creates a new ServerState. */
+		ServerState(TransactionServer ts) {
+			this.ts=ts;
+		}
+	}
+
+}
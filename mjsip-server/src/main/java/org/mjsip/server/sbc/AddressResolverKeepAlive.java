@@ -28,7 +28,7 @@ import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.Vector;
 
-import org.mjsip.sip.provider.SipKeepAlive;
+import org.mjsip.sip.provider.KeepAliveService;
 import org.mjsip.sip.provider.SipProvider;
 import org.slf4j.LoggerFactory;
 import org.zoolu.net.SocketAddress;
@@ -38,6 +38,8 @@ import org.zoolu.net.SocketAddress;
 /** Class AddressResolverKeepAlive maintains an address binding.
   * It maps socket addresses into other socket addresses and try to keep NAT connection
   * open sending keepalive datagrams toward the remote UAs.
+  * <p> The keepalive datagrams are sent by the {@link KeepAliveService} of the SipProvider,
+  * so that no thread is needed per binding.
   * <p> Class AddressResolverKeepAlive can be used to maintain a reference to the actual address
   * to be used to reach a remote node, against to the address optained in other ways.
   * For example, it can be used to maintain correct remote address mapping
@@ -50,8 +52,8 @@ public class AddressResolverKeepAlive extends AddressResolver {
 	/** Keep-alive time [millisecs] */
 	long keepalive_time;
 
-	/** Sip keep-alive daemons */
-	Hashtable<String, SipKeepAlive> keepalive_daemons=null;
+	/** Sip keep-alive targets */
+	Hashtable<String, KeepAliveService.Target> keepalive_daemons=null;
 	
 	/** Costructs an empty AddressResolverKeepAlive */
 	public AddressResolverKeepAlive(SipProvider sip_provider, long refresh_time, long keepalive_time) {
@@ -68,13 +70,13 @@ public class AddressResolverKeepAlive extends AddressResolver {
 			String key=refer_soaddr.toString();
 			if (keepalive_daemons.containsKey(key)) {
 				if (!binding_table.get(key).equals(actual_soaddr)) {
-					SipKeepAlive keepalive=keepalive_daemons.get(key);
-					keepalive.setDestSoAddress(actual_soaddr);
+					KeepAliveService.Target keepalive=keepalive_daemons.get(key);
+					keepalive.setDestination(actual_soaddr);
 					LOG.debug("KeepAlive: change dest: {}", actual_soaddr);
 				}
 			}
 			else {
-				SipKeepAlive keepalive=new SipKeepAlive(sip_provider,actual_soaddr,keepalive_time);
+				KeepAliveService.Target keepalive=sip_provider.keepAlive().add(actual_soaddr,keepalive_time);
 				keepalive_daemons.put(key,keepalive);
 				LOG.debug("KeepAlive: start: {}", actual_soaddr);
 			}
@@ -89,10 +91,10 @@ public class AddressResolverKeepAlive extends AddressResolver {
 		if (refer_soaddr!=null) {
 			String key=refer_soaddr.toString();
 			if (keepalive_daemons.containsKey(key)) {
-				SipKeepAlive keepalive=keepalive_daemons.get(key);
+				KeepAliveService.Target keepalive=keepalive_daemons.get(key);
 				keepalive_daemons.remove(key);
-				keepalive.halt();
-				LOG.debug("KeepAlive: halt: {}", keepalive.getDestSoAddress());
+				keepalive.cancel();
+				LOG.debug("KeepAlive: halt: {}", keepalive.getDestination());
 			}
 		}
 		super.removeBinding(refer_soaddr);
@@ -113,10 +115,10 @@ public class AddressResolverKeepAlive extends AddressResolver {
 		// remove expired binding
 		for (int i=0; i<aux.size(); i++) {
 			String key= aux.elementAt(i);
-			SipKeepAlive keepalive= keepalive_daemons.get(key);
-			keepalive_daemons.remove(key);
-			keepalive.halt();
-			LOG.debug("KeepAlive: halt: {}", keepalive.getDestSoAddress());
+			KeepAliveService.Target keepalive= keepalive_daemons.remove(key);
+			if (keepalive==null) continue;
+			keepalive.cancel();
+			LOG.debug("KeepAlive: halt: {}", keepalive.getDestination());
 		}
 		super.onTimeout();
 	}
@@ -23,9 +23,12 @@ package org.mjsip.server.sbc;
 
 
 
+import java.io.IOException;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.mjsip.pool.PortPool;
 import org.mjsip.sdp.MediaDescriptor;
@@ -71,6 +74,12 @@ public class MediaGw implements SymmetricUdpRelayListener {
 
 	private Scheduler _scheduler;
 
+	/** Engine serving the ports of simple relays, or <code>null</code> for a thread per port. */
+	private UdpRelayEngine _relayEngine;
+
+	/** Relays that have not yet terminated. */
+	private final Set<SymmetricUdpRelay> _relays=ConcurrentHashMap.newKeySet();
+
 	/**
 	 * Constructs a new MediaGw.
 	 */
@@ -80,8 +89,29 @@ public class MediaGw implements SymmetricUdpRelayListener {
 		_portPool=portPool;
 		masq_table=new Hashtable<>();
 		call_set=new HashSet<>();
+		if (sbc_profile.relaySelectors>0) {
+			try {
+				_relayEngine=new UdpRelayEngine(sbc_profile.relaySelectors);
+			}
+			catch (IOException e) {
+				LOG.error("Cannot start media relay selectors, using a thread per relay port.", e);
+			}
+		}
 	}
 	
+	/**
+	 * Stops all relays and the relay selectors.
+	 */
+	public void halt() {
+		for (SymmetricUdpRelay relay : _relays) {
+			relay.halt();
+		}
+		_relays.clear();
+		if (_relayEngine!=null) {
+			_relayEngine.halt();
+		}
+	}
+
 	/**
 	 * The task scheduler.
 	 */
@@ -189,6 +219,13 @@ public class MediaGw implements SymmetricUdpRelayListener {
 						masq_right.getPeerSoaddr(), sbc_profile.relayTimeout, sbc_profile.interpacketTime, this);
 				LOG.debug("MGW started: {}", symm_relay);
 			}
+			else
+			if (_relayEngine!=null) {
+				// symmetric UDP relay served by the relay selectors
+				symm_relay = new SelectorUdpRelay(_relayEngine, scheduler(), left_port, masq_left.getPeerSoaddr(), right_port,
+						masq_right.getPeerSoaddr(), sbc_profile.relayTimeout, this);
+				LOG.debug("MGW started: {}", symm_relay);
+			}
 			else {
 				// simple symmetric UDP relay
 				symm_relay = new SymmetricUdpRelay(scheduler(), left_port, masq_left.getPeerSoaddr(), right_port,
@@ -196,6 +233,7 @@ public class MediaGw implements SymmetricUdpRelayListener {
 				LOG.debug("MGW started: {}", symm_relay);
 			}
 
+			if (symm_relay.isRunning()) _relays.add(symm_relay);
 			return symm_relay;
 		}
 		catch (Exception e) {
@@ -237,6 +275,7 @@ public class MediaGw implements SymmetricUdpRelayListener {
 	@Override
 	public void onSymmetricUdpRelayTerminated(SymmetricUdpRelay symm_relay) {
 		LOG.debug("MGW terminated: {}", symm_relay);
+		_relays.remove(symm_relay);
 	}
 	
 }
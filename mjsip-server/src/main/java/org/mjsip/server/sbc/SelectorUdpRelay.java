@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.server.sbc;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.mjsip.time.Scheduler;
+import org.slf4j.LoggerFactory;
+import org.zoolu.net.IpAddress;
+import org.zoolu.net.SocketAddress;
+
+/**
+ * {@link SymmetricUdpRelay} whose ports are served by the selector threads of a
+ * {@link UdpRelayEngine} instead of two {@link org.zoolu.net.UdpProvider} threads.
+ *
+ * <p>
+ * Datagrams are received into the direct buffer of the selector thread and sent on from there. A
+ * datagram from a source other than the current peer address is reported to the
+ * {@link SymmetricUdpRelayListener} before it is relayed, as in {@link SymmetricUdpRelay}.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+public class SelectorUdpRelay extends SymmetricUdpRelay {
+
+	private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(SelectorUdpRelay.class);
+
+	/**
+	 * Maximum number of datagrams relayed from one port, before other ports of the same selector
+	 * are served.
+	 */
+	private static final int MAX_BATCH = 16;
+
+	private final UdpRelayEngine _engine;
+
+	private final Side _left;
+
+	private final Side _right;
+
+	private final AtomicBoolean _terminated = new AtomicBoolean();
+
+	/**
+	 * Creates a {@link SelectorUdpRelay} and registers its ports with the given engine.
+	 */
+	public SelectorUdpRelay(UdpRelayEngine engine, Scheduler scheduler, int left_port, SocketAddress left_soaddr,
+			int right_port, SocketAddress right_soaddr, long relay_time, SymmetricUdpRelayListener listener)
+			throws IOException {
+		super(scheduler);
+		_engine = engine;
+		this.left_soaddr = left_soaddr;
+		this.right_soaddr = right_soaddr;
+		this.relay_time = relay_time;
+		this.listener = listener;
+
+		DatagramChannel left_channel = UdpRelayEngine.open(left_port);
+		DatagramChannel right_channel;
+		try {
+			right_channel = UdpRelayEngine.open(right_port);
+		} catch (IOException ex) {
+			left_channel.close();
+			throw ex;
+		}
+		_left = new Side(left_channel, left_port, left_soaddr);
+		_right = new Side(right_channel, right_port, right_soaddr);
+		_left._other = _right;
+		_right._other = _left;
+
+		engine.register(new DatagramChannel[] { left_channel, right_channel },
+			new UdpRelayEngine.Handler[] { _left, _right });
+		LOG.info("relay ports {} and {} registered", left_port, right_port);
+
+		startTimer();
+	}
+
+	@Override
+	public boolean isRunning() {
+		return !_terminated.get();
+	}
+
+	@Override
+	public void halt() {
+		if (!_terminated.compareAndSet(false, true)) {
+			return;
+		}
+		_left.close();
+		_right.close();
+		_engine.wakeup();
+		LOG.info("relay {} terminated", this);
+		if (listener != null) {
+			listener.onSymmetricUdpRelayTerminated(this);
+		}
+	}
+
+	@Override
+	public void setLeftSoAddress(SocketAddress left_soaddr) {
+		super.setLeftSoAddress(left_soaddr);
+		_left._peer = toInet(left_soaddr);
+	}
+
+	@Override
+	public void setRightSoAddress(SocketAddress right_soaddr) {
+		super.setRightSoAddress(right_soaddr);
+		_right._peer = toInet(right_soaddr);
+	}
+
+	/**
+	 * Relays a datagram received from the given side.
+	 */
+	void onReceived(Side side, InetSocketAddress src, ByteBuffer buffer) {
+		// postpone the expire time
+		if (relay_time > 0) {
+			expire_time = System.currentTimeMillis() + relay_time;
+		}
+
+		// check whether the source address has changed, the listener may accept the new address
+		InetSocketAddress peer = side._peer;
+		if (peer != src && !src.equals(peer) && listener != null) {
+			SocketAddress src_soaddr = new SocketAddress(new IpAddress(src.getAddress()), src.getPort());
+			if (side == _left) {
+				listener.onSymmetricUdpRelayLeftPeerChanged(this, src_soaddr);
+			} else {
+				listener.onSymmetricUdpRelayRightPeerChanged(this, src_soaddr);
+			}
+		}
+
+		// relay
+		Side dest = side._other;
+		InetSocketAddress dest_soaddr = dest._peer;
+		if (dest_soaddr != null) {
+			buffer.flip();
+			try {
+				dest._channel.send(buffer, dest_soaddr);
+			} catch (IOException e) {
+				// noop
+			}
+		}
+	}
+
+	private static InetSocketAddress toInet(SocketAddress soaddr) {
+		if (soaddr == null) {
+			return null;
+		}
+		return new InetSocketAddress(soaddr.getAddress().getInetAddress(), soaddr.getPort());
+	}
+
+	@Override
+	public String toString() {
+		return left_soaddr + "<-->" + _left._port + "[--]" + _right._port + "<-->" + right_soaddr;
+	}
+
+	/**
+	 * One port of the relay.
+	 */
+	final class Side implements UdpRelayEngine.Handler {
+
+		final DatagramChannel _channel;
+
+		final int _port;
+
+		/** The peer address, updated when the listener accepts a new peer. */
+		volatile InetSocketAddress _peer;
+
+		Side _other;
+
+		Side(DatagramChannel channel, int port, SocketAddress peer) {
+			_channel = channel;
+			_port = port;
+			_peer = toInet(peer);
+		}
+
+		@Override
+		public void onReadable(ByteBuffer buffer) throws IOException {
+			for (int n = 0; n < MAX_BATCH; n++) {
+				buffer.clear();
+				InetSocketAddress src = (InetSocketAddress) _channel.receive(buffer);
+				if (src == null) {
+					return;
+				}
+				onReceived(this, src, buffer);
+			}
+		}
+
+		@Override
+		public void onClose(Exception error) {
+			if (error != null && !_terminated.get()) {
+				LOG.debug("relay port {} failed: {}", _port, error.getMessage());
+			}
+			halt();
+		}
+
+		void close() {
+			try {
+				_channel.close();
+			} catch (IOException ex) {
+				LOG.debug("closing relay port {} failed: {}", _port, ex.getMessage());
+			}
+		}
+
+	}
+
+}
@@ -44,7 +44,7 @@ import org.mjsip.sip.header.ViaHeader;
 import org.mjsip.sip.message.SipMessage;
 import org.mjsip.sip.message.SipMethods;
 import org.mjsip.sip.provider.SipConfig;
-import org.mjsip.sip.provider.SipKeepAlive;
+import org.mjsip.sip.provider.KeepAliveService;
 import org.mjsip.time.ConfiguredScheduler;
 import org.mjsip.time.SchedulerConfig;
 import org.slf4j.LoggerFactory;
@@ -98,7 +98,7 @@ public class SessionBorderController extends Proxy {
 	MediaGw media_gw;
 
 	/** Sip keep-alive daemons for registered users. */
-	Hashtable<String, SipKeepAlive> keepalive_daemons=null;
+	Hashtable<String, KeepAliveService.Target> keepalive_daemons=null;
 
 	/** Maximum time between two handovers (in milliseconds). */
 	//long handover_time=5000;
@@ -123,6 +123,13 @@ public class SessionBorderController extends Proxy {
 		//server_profile.on_route=true;
 	}
 
+	/** Stops the server and the media relays. */
+	@Override
+	public void halt() {
+		super.halt();
+		media_gw.halt();
+	}
+
 	/** When a new request message is received for a local user. */
 	@Override
 	public void processRequestToLocalUser(SipMessage msg) {
@@ -240,20 +247,20 @@ public class SessionBorderController extends Proxy {
 				SocketAddress soaddr=new SocketAddress(host,port);
 				int time=ch.getExpires();
 				if (time>0) {
-					SipKeepAlive keepalive;
+					KeepAliveService.Target keepalive;
 					String key=soaddr.toString();
 					if (keepalive_daemons.containsKey(key)) {
 						keepalive=keepalive_daemons.get(key);
 						if (!keepalive.isRunning()) {
 							keepalive_daemons.remove(key);
-							keepalive=new SipKeepAlive(sip_provider,soaddr,sbc_profile.keepaliveTime);
+							keepalive=sip_provider.keepAlive().add(soaddr,sbc_profile.keepaliveTime);
 							keepalive_daemons.put(key,keepalive);
 							LOG.debug("KeepAlive: restart: {} ({}secs)", soaddr, time);
 						}
 						else LOG.debug("KeepAlive: update: {} ({}secs)", soaddr, time);
 					}
 					else {
-						keepalive=new SipKeepAlive(sip_provider,soaddr,sbc_profile.keepaliveTime);
+						keepalive=sip_provider.keepAlive().add(soaddr,sbc_profile.keepaliveTime);
 						keepalive_daemons.put(key,keepalive);
 						LOG.debug("KeepAlive: start: {} ({}secs)", soaddr, time);
 					}
@@ -262,9 +269,9 @@ public class SessionBorderController extends Proxy {
 				else {
 					String key=soaddr.toString();
 					if (keepalive_daemons.containsKey(key)) {
-						SipKeepAlive keepalive=keepalive_daemons.get(key);
+						KeepAliveService.Target keepalive=keepalive_daemons.get(key);
 						keepalive_daemons.remove(key);
-						keepalive.halt();
+						keepalive.cancel();
 						LOG.debug("KeepAlive: halt: {}", soaddr);
 					}
 				}
@@ -34,6 +34,9 @@ public class SessionBorderControllerProfile {
 	@Option(name = "--interpacket-time", usage = "Minimum inter-packet departure time.")
 	public long interpacketTime=0; 
 
+	@Option(name = "--relay-selectors", usage = "Number of selector threads serving all media relay ports, 0 for two threads per relay. Not used for regulated or intercepting relays.")
+	public int relaySelectors=0;
+
 	@Option(name = "--do-interception", usage = "Whether to intercept media traffic.", handler = YesNoHandler.class)
 	public boolean doInterception=false;
 
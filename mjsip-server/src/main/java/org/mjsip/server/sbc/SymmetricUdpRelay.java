@@ -113,6 +113,11 @@ public class SymmetricUdpRelay implements UdpProviderListener {
 			LOG.info("Exception.", e);
 		}
 	
+		startTimer();
+	}
+
+	/** Starts the expiration timer, if a relay time is set. */
+	protected void startTimer() {
 		if (relay_time>0) {
 			long timer_time=relay_time/2;
 			expire_time=System.currentTimeMillis()+relay_time;
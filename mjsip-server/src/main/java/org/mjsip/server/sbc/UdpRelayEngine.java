@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.server.sbc;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.LoggerFactory;
+
+/**
+ * Engine serving the ports of many UDP relays from a few selector threads.
+ *
+ * <p>
+ * Each relay registers its non-blocking {@link DatagramChannel}s with one of the selector threads.
+ * When a channel is readable, its {@link Handler} is called in the selector thread with a direct
+ * buffer shared by all channels of that thread. The handler receives the datagram into the buffer
+ * and sends it on from the same buffer, without copying it to the heap.
+ * </p>
+ *
+ * @see SelectorUdpRelay
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+public class UdpRelayEngine {
+
+	private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(UdpRelayEngine.class);
+
+	/** Size of the buffer for receiving datagrams, the maximum UDP payload size. */
+	private static final int BUFFER_SIZE = 65536;
+
+	/**
+	 * Callback for channels registered with a {@link UdpRelayEngine}.
+	 */
+	public interface Handler {
+
+		/**
+		 * Called from the selector thread, if the channel is readable.
+		 *
+		 * @param buffer
+		 *        Direct buffer for receiving datagrams, only valid during this call.
+		 */
+		void onReadable(ByteBuffer buffer) throws IOException;
+
+		/**
+		 * Called from the selector thread, if {@link #onReadable(ByteBuffer)} failed or the engine
+		 * is stopped.
+		 */
+		void onClose(Exception error);
+
+	}
+
+	private static final AtomicInteger ENGINES = new AtomicInteger();
+
+	private final SelectorThread[] _selectors;
+
+	private final AtomicInteger _next = new AtomicInteger();
+
+	/**
+	 * Creates a {@link UdpRelayEngine} and starts its selector threads.
+	 *
+	 * @param selectors
+	 *        The number of selector threads.
+	 */
+	public UdpRelayEngine(int selectors) throws IOException {
+		if (selectors <= 0) {
+			throw new IllegalArgumentException("Invalid number of selectors: " + selectors);
+		}
+		int id = ENGINES.incrementAndGet();
+		_selectors = new SelectorThread[selectors];
+		for (int n = 0; n < selectors; n++) {
+			_selectors[n] = new SelectorThread("UdpRelay-" + id + "-" + n);
+		}
+		for (SelectorThread selector : _selectors) {
+			selector.start();
+		}
+	}
+
+	/**
+	 * Opens a non-blocking channel bound to the given local port.
+	 */
+	public static DatagramChannel open(int port) throws IOException {
+		DatagramChannel channel = DatagramChannel.open();
+		try {
+			channel.bind(new InetSocketAddress(port));
+			channel.configureBlocking(false);
+		} catch (IOException ex) {
+			channel.close();
+			throw ex;
+		}
+		return channel;
+	}
+
+	/**
+	 * Registers the given channels for reading with the same selector thread.
+	 *
+	 * <p>
+	 * Channels that forward to each other should be registered together, so that packets of a
+	 * relay are processed in order by a single thread.
+	 * </p>
+	 *
+	 * @param channels
+	 *        Non-blocking channels.
+	 * @param handlers
+	 *        The handler for each channel.
+	 */
+	public void register(DatagramChannel[] channels, Handler[] handlers) {
+		SelectorThread selector = _selectors[Math.floorMod(_next.getAndIncrement(), _selectors.length)];
+		selector.execute(() -> {
+			for (int n = 0; n < channels.length; n++) {
+				try {
+					channels[n].register(selector._selector, SelectionKey.OP_READ, handlers[n]);
+				} catch (IOException | RuntimeException ex) {
+					handlers[n].onClose(ex);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Stops all selector threads and closes the channels registered with them.
+	 */
+	public void halt() {
+		for (SelectorThread selector : _selectors) {
+			selector.halt();
+		}
+	}
+
+	/**
+	 * Wakes up all selector threads, so that channels closed from other threads are released.
+	 */
+	public void wakeup() {
+		for (SelectorThread selector : _selectors) {
+			selector._selector.wakeup();
+		}
+	}
+
+	/**
+	 * The number of channels currently registered.
+	 */
+	public int getChannels() {
+		int result = 0;
+		for (SelectorThread selector : _selectors) {
+			try {
+				result += selector._selector.keys().size();
+			} catch (ClosedSelectorException ex) {
+				// Ignore.
+			}
+		}
+		return result;
+	}
+
+	private static final class SelectorThread extends Thread {
+
+		final Selector _selector;
+
+		private final ConcurrentLinkedQueue<Runnable> _tasks = new ConcurrentLinkedQueue<>();
+
+		private final ByteBuffer _buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+		private volatile boolean _stopped;
+
+		SelectorThread(String name) throws IOException {
+			super(name);
+			setDaemon(true);
+			_selector = Selector.open();
+		}
+
+		void execute(Runnable task) {
+			_tasks.add(task);
+			_selector.wakeup();
+		}
+
+		void halt() {
+			_stopped = true;
+			_selector.wakeup();
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (!_stopped) {
+					_selector.select();
+					runTasks();
+
+					Iterator<SelectionKey> it = _selector.selectedKeys().iterator();
+					while (it.hasNext()) {
+						SelectionKey key = it.next();
+						it.remove();
+
+						Handler handler = (Handler) key.attachment();
+						try {
+							handler.onReadable(_buffer);
+						} catch (IOException | CancelledKeyException ex) {
+							key.cancel();
+							handler.onClose(ex);
+						} catch (RuntimeException ex) {
+							LOG.warn("Relaying from {} failed.", key.channel(), ex);
+							key.cancel();
+							handler.onClose(ex);
+						}
+					}
+				}
+			} catch (IOException | ClosedSelectorException ex) {
+				LOG.error("Selector {} failed.", getName(), ex);
+			} finally {
+				close();
+			}
+		}
+
+		private void runTasks() {
+			Runnable task;
+			while ((task = _tasks.poll()) != null) {
+				task.run();
+			}
+		}
+
+		private void close() {
+			_tasks.clear();
+			try {
+				for (SelectionKey key : new ArrayList<>(_selector.keys())) {
+					((Handler) key.attachment()).onClose(null);
+				}
+				_selector.close();
+			} catch (IOException | ClosedSelectorException ex) {
+				LOG.debug("Closing selector {} failed.", getName(), ex);
+			}
+		}
+
+	}
+
+}
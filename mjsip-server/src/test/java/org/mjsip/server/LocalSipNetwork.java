@@ -0,0 +1,341 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.mjsip.sip.message.SipMessage;
+import org.mjsip.sip.message.SipResponses;
+import org.mjsip.sip.provider.ConnectionId;
+import org.mjsip.sip.provider.SipConfig;
+import org.mjsip.sip.provider.SipId;
+import org.mjsip.sip.provider.SipProvider;
+import org.mjsip.sip.provider.SipProviderListener;
+import org.mjsip.sip.provider.SipTransport;
+import org.mjsip.sip.provider.SipTransportListener;
+import org.mjsip.sip.transaction.InviteTransactionClient;
+import org.mjsip.sip.transaction.InviteTransactionServer;
+import org.mjsip.sip.transaction.TransactionClient;
+import org.mjsip.sip.transaction.TransactionClientListener;
+import org.mjsip.sip.transaction.TransactionServer;
+import org.mjsip.time.ConfiguredScheduler;
+import org.mjsip.time.SchedulerConfig;
+import org.zoolu.net.IpAddress;
+
+/**
+ * Test harness connecting multiple {@link SipProvider}s in the same JVM without sockets.
+ *
+ * <p>
+ * All providers use the address {@value #HOST} and are distinguished by their port. A message sent
+ * to a port is encoded, parsed again, and delivered to the provider at this port by a single
+ * delivery thread, as if it had been received over UDP. Messages to unknown ports are dropped.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+class LocalSipNetwork implements AutoCloseable {
+
+	/** The address of all providers. */
+	static final String HOST = "127.0.0.1";
+
+	private final ConfiguredScheduler _scheduler = new ConfiguredScheduler(new SchedulerConfig());
+
+	private final ExecutorService _delivery = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "LocalSipNetwork");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final Map<Integer, LocalTransport> _transports = new ConcurrentHashMap<>();
+
+	private final List<SipProvider> _providers = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Creates a {@link SipProvider} at the given port.
+	 */
+	SipProvider createProvider(int port) {
+		SipConfig config = new SipConfig();
+		config.setTransportProtocols(new String[0]);
+		config.setViaAddrIPv4(HOST);
+		config.setHostPort(port);
+		SipProvider provider = new SipProvider(config, _scheduler);
+
+		// Messages created by the provider use the first protocol for their Via header field, the
+		// provider itself must not open a socket for it.
+		config.setTransportProtocols(new String[] { SipProvider.PROTO_UDP });
+		LocalTransport transport = new LocalTransport(port);
+		_transports.put(Integer.valueOf(port), transport);
+		provider.setTransport(transport);
+		_providers.add(provider);
+		return provider;
+	}
+
+	/**
+	 * Creates a user agent at the given port that answers INVITE requests.
+	 *
+	 * @param port
+	 *        The port of the user agent.
+	 * @param code
+	 *        The final response to send after ringing, 0 for ringing until cancelled.
+	 * @param delay
+	 *        Time in milliseconds from ringing to sending the final response.
+	 */
+	Callee createCallee(int port, int code, long delay) {
+		return new Callee(createProvider(port), code, delay);
+	}
+
+	/**
+	 * Creates a user agent at the given port that sends INVITE requests.
+	 */
+	Caller createCaller(int port) {
+		return new Caller(createProvider(port));
+	}
+
+	@Override
+	public void close() {
+		for (SipProvider provider : _providers) {
+			provider.halt();
+		}
+		_delivery.shutdownNow();
+		_scheduler.halt();
+	}
+
+	/**
+	 * Transport of a provider in the {@link LocalSipNetwork}.
+	 */
+	private final class LocalTransport implements SipTransport {
+
+		private final int _port;
+
+		private volatile SipTransportListener _listener;
+
+		LocalTransport(int port) {
+			_port = port;
+		}
+
+		@Override
+		public String getProtocol() {
+			return SipProvider.PROTO_UDP;
+		}
+
+		@Override
+		public int getLocalPort() {
+			return _port;
+		}
+
+		@Override
+		public void halt() {
+			_transports.remove(Integer.valueOf(_port), this);
+		}
+
+		@Override
+		public void setListener(SipTransportListener listener) {
+			_listener = listener;
+		}
+
+		@Override
+		public ConnectionId sendMessage(SipMessage msg, IpAddress dest_ipaddr, int dest_port, int ttl) {
+			byte[] data = msg.getEncoded().clone();
+			_delivery.execute(() -> {
+				LocalTransport target = _transports.get(Integer.valueOf(dest_port));
+				if (target == null) {
+					return;
+				}
+				SipTransportListener listener = target._listener;
+				if (listener == null) {
+					return;
+				}
+				SipMessage received = new SipMessage(data, 0, data.length);
+				received.setRemoteAddress(HOST);
+				received.setRemotePort(_port);
+				received.setTransportProtocol(SipProvider.PROTO_UDP);
+				listener.onReceivedMessage(target, received);
+			});
+			// Connection-less, transactions retransmit their messages.
+			return null;
+		}
+
+		@Override
+		public String toString() {
+			return "local:" + _port;
+		}
+	}
+
+	/**
+	 * A user agent that answers INVITE requests by ringing and optionally sending a final
+	 * response after a delay.
+	 */
+	static final class Callee implements SipProviderListener {
+
+		private final SipProvider _provider;
+
+		private final int _code;
+
+		private final long _delay;
+
+		private final Map<String, InviteTransactionServer> _calls = new ConcurrentHashMap<>();
+
+		/** Received INVITE requests. */
+		final List<SipMessage> invites = new CopyOnWriteArrayList<>();
+
+		/** Received CANCEL requests. */
+		final List<SipMessage> cancels = new CopyOnWriteArrayList<>();
+
+		Callee(SipProvider provider, int code, long delay) {
+			_provider = provider;
+			_code = code;
+			_delay = delay;
+			provider.addSelectiveListener(SipId.ANY_METHOD, this);
+		}
+
+		/**
+		 * The port of this user agent.
+		 */
+		int getPort() {
+			return _provider.getPort();
+		}
+
+		@Override
+		public void onReceivedMessage(SipProvider provider, SipMessage msg) {
+			if (msg.isInvite()) {
+				invites.add(msg);
+				InviteTransactionServer ts = new InviteTransactionServer(provider, msg, null);
+				_calls.put(msg.getViaHeader().getBranch(), ts);
+				ts.respondWith(provider.messageFactory().createResponse(msg, SipResponses.RINGING, null, null));
+				if (_code > 0) {
+					provider.scheduler().schedule(_delay, () -> respond(ts, _code));
+				}
+			} else if (msg.isCancel()) {
+				cancels.add(msg);
+				new TransactionServer(provider, msg, null)
+					.respondWith(provider.messageFactory().createResponse(msg, SipResponses.OK, null, null));
+				InviteTransactionServer ts = _calls.get(msg.getViaHeader().getBranch());
+				if (ts != null) {
+					respond(ts, SipResponses.REQUEST_TERMINATED);
+				}
+			}
+		}
+
+		private void respond(InviteTransactionServer ts, int code) {
+			synchronized (ts) {
+				if (ts.isProceeding()) {
+					ts.respondWith(_provider.messageFactory().createResponse(ts.getRequestMessage(), code, null, null));
+				}
+			}
+		}
+	}
+
+	/**
+	 * A user agent sending INVITE requests and collecting the responses.
+	 */
+	static final class Caller implements TransactionClientListener {
+
+		private final SipProvider _provider;
+
+		/** Received responses not yet taken by {@link #await(int, long)}. */
+		private final BlockingQueue<SipMessage> _responses = new LinkedBlockingQueue<>();
+
+		/** Status codes of all received responses. */
+		private final List<Integer> _codes = new CopyOnWriteArrayList<>();
+
+		/** The last INVITE sent. */
+		private volatile SipMessage _invite;
+
+		Caller(SipProvider provider) {
+			_provider = provider;
+		}
+
+		/**
+		 * Sends an INVITE to the given user at the given proxy.
+		 */
+		void invite(String user, int proxyPort) {
+			String callId = SipProvider.pickCallId(HOST);
+			SipMessage invite = new SipMessage("INVITE sip:" + user + "@" + HOST + ":" + proxyPort + " SIP/2.0\r\n"
+				+ "Via: SIP/2.0/UDP " + HOST + ":" + _provider.getPort() + ";branch=" + SipProvider.pickBranch()
+				+ "\r\n"
+				+ "Max-Forwards: 70\r\n"
+				+ "From: <sip:alice@" + HOST + ":" + _provider.getPort() + ">;tag=" + SipProvider.pickTag() + "\r\n"
+				+ "To: <sip:" + user + "@" + HOST + ":" + proxyPort + ">\r\n"
+				+ "Call-ID: " + callId + "\r\n"
+				+ "CSeq: 1 INVITE\r\n"
+				+ "Contact: <sip:alice@" + HOST + ":" + _provider.getPort() + ">\r\n"
+				+ "Content-Length: 0\r\n"
+				+ "\r\n");
+			_invite = invite;
+			new InviteTransactionClient(_provider, invite, this).request();
+		}
+
+		/**
+		 * Sends a CANCEL for the last INVITE.
+		 */
+		void cancel() {
+			SipMessage cancel = _provider.messageFactory().createCancelRequest(_invite);
+			new TransactionClient(_provider, cancel, null).request();
+		}
+
+		/**
+		 * Waits for the next response with a status code of at least <code>minCode</code>.
+		 *
+		 * @return The response or <code>null</code> if none is received within the timeout.
+		 */
+		SipMessage await(int minCode, long timeout) throws InterruptedException {
+			long end = System.currentTimeMillis() + timeout;
+			while (true) {
+				long remaining = end - System.currentTimeMillis();
+				if (remaining <= 0) {
+					return null;
+				}
+				SipMessage resp = _responses.poll(remaining, TimeUnit.MILLISECONDS);
+				if (resp == null) {
+					return null;
+				}
+				if (resp.getStatusLine().getCode() >= minCode) {
+					return resp;
+				}
+			}
+		}
+
+		/**
+		 * The status codes of all responses received so far.
+		 */
+		List<Integer> codes() {
+			return new ArrayList<>(_codes);
+		}
+
+		private void received(SipMessage resp) {
+			_codes.add(Integer.valueOf(resp.getStatusLine().getCode()));
+			_responses.add(resp);
+		}
+
+		@Override
+		public void onTransProvisionalResponse(TransactionClient tc, SipMessage resp) {
+			received(resp);
+		}
+
+		@Override
+		public void onTransSuccessResponse(TransactionClient tc, SipMessage resp) {
+			received(resp);
+		}
+
+		@Override
+		public void onTransFailureResponse(TransactionClient tc, SipMessage resp) {
+			received(resp);
+		}
+
+		@Override
+		public void onTransTimeout(TransactionClient tc) {
+			// Ignore.
+		}
+	}
+
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mjsip.sip.authentication.DigestAuthentication;
+import org.mjsip.sip.header.WwwAuthenticateHeader;
+import org.mjsip.sip.message.SipMessage;
+import org.mjsip.sip.provider.SipConfig;
+import org.mjsip.sip.provider.SipProvider;
+import org.mjsip.time.ConfiguredScheduler;
+import org.mjsip.time.SchedulerConfig;
+import org.zoolu.util.Base64;
+
+/**
+ * Test for {@link AuthenticationServerImpl} and {@link NonceManager}.
+ */
+@SuppressWarnings("javadoc")
+class TestAuthenticationServerImpl {
+
+	private static final String REALM = "example.com";
+
+	private SipProvider _provider;
+
+	private AuthenticationService _users;
+
+	@BeforeEach
+	void setUp() {
+		SipConfig config = new SipConfig();
+		config.setTransportProtocols(new String[0]);
+		_provider = new SipProvider(config, new ConfiguredScheduler(new SchedulerConfig()));
+		_users = new AuthenticationServiceImpl(null, false) {
+			// In memory only.
+		};
+		_users.addUser("alice@" + REALM, "secret".getBytes());
+		_users.addUser("bob@" + REALM, "password".getBytes());
+	}
+
+	@AfterEach
+	void tearDown() {
+		_provider.halt();
+	}
+
+	@Test
+	void testConcurrentChallenges() {
+		AuthenticationServerImpl server = new AuthenticationServerImpl(_provider, REALM, _users);
+
+		SipMessage alice = register("alice");
+		SipMessage bob = register("bob");
+		WwwAuthenticateHeader aliceChallenge = challenge(server, alice, false);
+		WwwAuthenticateHeader bobChallenge = challenge(server, bob, false);
+		assertNotEquals(aliceChallenge.getNonceParam(), bobChallenge.getNonceParam());
+
+		// Bob answers first, this must not invalidate the nonce of Alice.
+		authorize(bob, bobChallenge, 1, "password");
+		assertNull(server.authenticateRequest(bob));
+		authorize(alice, aliceChallenge, 1, "secret");
+		assertNull(server.authenticateRequest(alice));
+	}
+
+	@Test
+	void testNonceCount() {
+		AuthenticationServerImpl server = new AuthenticationServerImpl(_provider, REALM, _users);
+		SipMessage request = register("alice");
+		WwwAuthenticateHeader challenge = challenge(server, request, false);
+
+		authorize(request, challenge, 1, "secret");
+		assertNull(server.authenticateRequest(request));
+
+		// Replay.
+		assertEquals(401, server.authenticateRequest(request).getStatusLine().getCode());
+
+		// The nonce may be reused with an increased nonce count.
+		SipMessage next = register("alice");
+		authorize(next, challenge, 2, "secret");
+		assertNull(server.authenticateRequest(next));
+	}
+
+	@Test
+	void testWrongPassword() {
+		AuthenticationServerImpl server = new AuthenticationServerImpl(_provider, REALM, _users);
+		SipMessage request = register("alice");
+		WwwAuthenticateHeader challenge = challenge(server, request, false);
+
+		authorize(request, challenge, 1, "wrong");
+		assertEquals(403, server.authenticateRequest(request).getStatusLine().getCode());
+
+		// The nonce is still valid.
+		SipMessage retry = register("alice");
+		authorize(retry, challenge, 1, "secret");
+		assertNull(server.authenticateRequest(retry));
+
+		// The key has changed.
+		_users.setUserKey("alice@" + REALM, "changed".getBytes());
+		SipMessage old = register("alice");
+		authorize(old, challenge, 2, "secret");
+		assertEquals(403, server.authenticateRequest(old).getStatusLine().getCode());
+		SipMessage changed = register("alice");
+		authorize(changed, challenge, 3, "changed");
+		assertNull(server.authenticateRequest(changed));
+	}
+
+	@Test
+	void testStaleNonce() {
+		AuthenticationServerImpl server = new AuthenticationServerImpl(_provider, REALM, _users, new NonceManager(60000, 1));
+		SipMessage request = register("alice");
+		WwwAuthenticateHeader dropped = challenge(server, request, false);
+		challenge(server, register("bob"), false);
+
+		// Correct response for a nonce that has been dropped.
+		authorize(request, dropped, 1, "secret");
+		challenge(server, request, true);
+
+		// Wrong password with an unknown nonce, challenged as before.
+		SipMessage wrong = register("alice");
+		authorize(wrong, dropped, 2, "wrong");
+		challenge(server, wrong, false);
+	}
+
+	@Test
+	void testStoredHA1() throws IOException {
+		File file = File.createTempFile("aaa", ".db");
+		try {
+			Files.writeString(file.toPath(),
+				"user= alice@" + REALM + "\r\n" +
+				"passwd= secret\r\n" +
+				"user= bob@" + REALM + "\r\n" +
+				"key= " + Base64.encode("password".getBytes()) + "\r\n");
+			AuthenticationServiceImpl converted = new AuthenticationServiceImpl(file.getPath());
+			converted.save();
+			String content = Files.readString(file.toPath());
+			assertFalse(content.contains("secret"), content);
+			assertFalse(content.contains("key="), content);
+
+			AuthenticationServiceImpl loaded = new AuthenticationServiceImpl(file.getPath());
+			assertNull(loaded.getUserKey("alice@" + REALM));
+			AuthenticationServerImpl server = new AuthenticationServerImpl(_provider, REALM, loaded);
+			SipMessage request = register("alice");
+			authorize(request, challenge(server, request, false), 1, "secret");
+			assertNull(server.authenticateRequest(request));
+			SipMessage bob = register("bob");
+			authorize(bob, challenge(server, bob, false), 1, "password");
+			assertNull(server.authenticateRequest(bob));
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	void testNonceManager() {
+		NonceManager nonces = new NonceManager(60000, 2);
+		String first = nonces.issue();
+		String second = nonces.issue();
+		assertTrue(nonces.isIssued(first));
+		assertEquals(NonceManager.Check.VALID, nonces.check(first, "00000001"));
+		assertEquals(NonceManager.Check.REPLAYED, nonces.check(first, "00000001"));
+		assertEquals(NonceManager.Check.VALID, nonces.check(first, "00000003"));
+
+		// Concurrent requests may arrive out of order.
+		assertEquals(NonceManager.Check.VALID, nonces.check(first, "00000002"));
+		assertEquals(NonceManager.Check.REPLAYED, nonces.check(first, "00000002"));
+		assertEquals(NonceManager.Check.REPLAYED, nonces.check(first, "00000003"));
+
+		// Counts too far below the highest count seen are rejected.
+		assertEquals(NonceManager.Check.VALID, nonces.check(first, "00000050"));
+		assertEquals(NonceManager.Check.VALID, nonces.check(first, "00000011"));
+		assertEquals(NonceManager.Check.REPLAYED, nonces.check(first, "00000010"));
+
+		// Without qop, a nonce can only be used once.
+		assertEquals(NonceManager.Check.VALID, nonces.check(second, null));
+		assertEquals(NonceManager.Check.STALE, nonces.check(second, null));
+
+		// The oldest nonce is dropped.
+		nonces.issue();
+		assertFalse(nonces.isIssued(first));
+		assertEquals(NonceManager.Check.STALE, nonces.check(first, "00000004"));
+
+		NonceManager expired = new NonceManager(-1, 10);
+		assertEquals(NonceManager.Check.STALE, expired.check(expired.issue(), null));
+		assertEquals(0, expired.size());
+	}
+
+	private static SipMessage register(String user) {
+		return new SipMessage(
+			"REGISTER sip:" + REALM + " SIP/2.0\r\n" +
+			"Via: SIP/2.0/UDP 10.0.0.1:5060;branch=z9hG4bK" + user + "\r\n" +
+			"From: <sip:" + user + "@" + REALM + ">;tag=9fxced76sl\r\n" +
+			"To: <sip:" + user + "@" + REALM + ">\r\n" +
+			"Call-ID: " + user + "@10.0.0.1\r\n" +
+			"CSeq: 1 REGISTER\r\n" +
+			"Contact: <sip:" + user + "@10.0.0.1:5060>\r\n" +
+			"Content-Length: 0\r\n" +
+			"\r\n");
+	}
+
+	private static WwwAuthenticateHeader challenge(AuthenticationServerImpl server, SipMessage request, boolean stale) {
+		SipMessage response = server.authenticateRequest(request);
+		assertEquals(401, response.getStatusLine().getCode());
+		WwwAuthenticateHeader challenge = response.getWwwAuthenticateHeader();
+		assertEquals(REALM, challenge.getRealmParam());
+		assertEquals(stale ? "true" : null, challenge.getParameter("stale"));
+		return challenge;
+	}
+
+	private static void authorize(SipMessage request, WwwAuthenticateHeader challenge, int nc, String passwd) {
+		String user = request.getFromHeader().getNameAddress().getAddress().toSipURI().getUserName();
+		DigestAuthentication digest = new DigestAuthentication(request.getRequestLine().getMethod(),
+			request.getRequestLine().getAddress().toString(), challenge, "auth", null, nc, null, user, passwd);
+		request.setAuthorizationHeader(digest.getAuthorizationHeader());
+	}
+
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Date;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mjsip.server.LocalSipNetwork.Callee;
+import org.mjsip.server.LocalSipNetwork.Caller;
+import org.mjsip.sip.address.NameAddress;
+import org.mjsip.sip.address.SipURI;
+import org.mjsip.sip.message.SipMessage;
+import org.mjsip.sip.message.SipResponses;
+
+/**
+ * Test for {@link ForkingEngine} forwarding requests of a {@link StatefulProxy} to multiple
+ * user agents in a {@link LocalSipNetwork}.
+ */
+@SuppressWarnings("javadoc")
+class TestForkingEngine {
+
+	private static final int PROXY_PORT = 5060;
+
+	private static final int CALLER_PORT = 5070;
+
+	private static final long TIMEOUT = 5000;
+
+	private File _db;
+
+	private LocalSipNetwork _network;
+
+	private StatefulProxy _proxy;
+
+	private Caller _caller;
+
+	@AfterEach
+	void tearDown() {
+		if (_network != null) {
+			_network.close();
+		}
+		if (_db != null) {
+			_db.delete();
+		}
+	}
+
+	@Test
+	void testIsBetter() {
+		assertTrue(ForkingEngine.isBetter(603, 302));
+		assertTrue(ForkingEngine.isBetter(302, 401));
+		assertTrue(ForkingEngine.isBetter(401, 486));
+		assertTrue(ForkingEngine.isBetter(484, 404));
+		assertTrue(ForkingEngine.isBetter(404, 408));
+		assertTrue(ForkingEngine.isBetter(486, 487));
+		assertTrue(ForkingEngine.isBetter(408, 503));
+		assertFalse(ForkingEngine.isBetter(503, 486));
+		assertFalse(ForkingEngine.isBetter(486, 404));
+	}
+
+	@Test
+	void testAnswerCancelsOtherBranches() throws Exception {
+		start("parallel", 0);
+		Callee busy = callee(5081, SipResponses.BUSY_HERE, 50);
+		Callee answering = callee(5082, SipResponses.OK, 300);
+		Callee ringing = callee(5083, 0, 0);
+
+		_caller.invite("bob", PROXY_PORT);
+		SipMessage resp = _caller.await(200, TIMEOUT);
+		assertNotNull(resp);
+		assertEquals(SipResponses.OK, resp.getStatusLine().getCode());
+		assertTrue(_caller.codes().contains(Integer.valueOf(SipResponses.RINGING)));
+
+		waitFor(() -> ringing.cancels.size() == 1);
+		assertEquals(1, busy.invites.size());
+		assertEquals(1, answering.invites.size());
+		assertEquals(0, busy.cancels.size());
+		assertEquals(0, answering.cancels.size());
+
+		ForkingEngine engine = _proxy.getForkingEngine();
+		assertEquals(1, engine.getForkCount());
+		assertEquals(3, engine.getBranchCount());
+		assertEquals(1, engine.getAnsweredCount());
+		assertEquals(1, engine.getCancelledCount());
+		assertEquals(1, engine.getForkLatency().getCount());
+		assertTrue(engine.getForkLatency().getPercentile(0.5) >= 300000);
+		// The cancelled branch completes with 487 (Request Terminated).
+		waitFor(() -> engine.getBranchLatency().getCount() == 3);
+	}
+
+	@Test
+	void testBestResponse() throws Exception {
+		start("parallel", 0);
+		callee(5081, SipResponses.BUSY_HERE, 10);
+		callee(5082, SipResponses.UNAUTHORIZED, 100);
+		callee(5083, SipResponses.SERVICE_UNAVAILABLE, 50);
+
+		_caller.invite("bob", PROXY_PORT);
+		SipMessage resp = _caller.await(200, TIMEOUT);
+		assertNotNull(resp);
+		assertEquals(SipResponses.UNAUTHORIZED, resp.getStatusLine().getCode());
+		assertEquals(0, _proxy.getForkingEngine().getCancelledCount());
+	}
+
+	@Test
+	void testServiceUnavailable() throws Exception {
+		start("parallel", 0);
+		callee(5081, SipResponses.SERVICE_UNAVAILABLE, 10);
+		callee(5082, SipResponses.SERVICE_UNAVAILABLE, 20);
+
+		_caller.invite("bob", PROXY_PORT);
+		SipMessage resp = _caller.await(200, TIMEOUT);
+		assertNotNull(resp);
+		assertEquals(SipResponses.SERVER_INTERNAL_ERROR, resp.getStatusLine().getCode());
+	}
+
+	@Test
+	void testDecline() throws Exception {
+		start("parallel", 0);
+		callee(5081, SipResponses.DECLINE, 50);
+		Callee ringing = callee(5082, 0, 0);
+
+		_caller.invite("bob", PROXY_PORT);
+		SipMessage resp = _caller.await(200, TIMEOUT);
+		assertNotNull(resp);
+		assertEquals(SipResponses.DECLINE, resp.getStatusLine().getCode());
+		assertEquals(1, ringing.cancels.size());
+	}
+
+	@Test
+	void testSequentialWithBranchTimeout() throws Exception {
+		start("sequential", 300);
+		Callee ringing = callee(5081, 0, 0);
+		Callee answering = callee(5082, SipResponses.OK, 10);
+
+		_caller.invite("bob", PROXY_PORT);
+		waitFor(() -> ringing.invites.size() == 1);
+		assertEquals(0, answering.invites.size());
+
+		SipMessage resp = _caller.await(200, TIMEOUT);
+		assertNotNull(resp);
+		assertEquals(SipResponses.OK, resp.getStatusLine().getCode());
+		assertEquals(1, ringing.cancels.size());
+		assertEquals(1, answering.invites.size());
+
+		ForkingEngine engine = _proxy.getForkingEngine();
+		assertEquals(ForkingEngine.Mode.SEQUENTIAL, engine.getMode());
+		assertEquals(2, engine.getBranchCount());
+		assertEquals(1, engine.getTimedOutCount());
+		assertTrue(engine.getForkLatency().getMax() >= 300000);
+	}
+
+	@Test
+	void testSequentialCancel() throws Exception {
+		start("sequential", 0);
+		Callee ringing = callee(5081, 0, 0);
+		Callee next = callee(5082, SipResponses.OK, 10);
+
+		_caller.invite("bob", PROXY_PORT);
+		waitFor(() -> ringing.invites.size() == 1);
+		waitFor(() -> _caller.codes().contains(Integer.valueOf(SipResponses.RINGING)));
+
+		_caller.cancel();
+		SipMessage resp = _caller.await(200, TIMEOUT);
+		assertNotNull(resp);
+		assertEquals(SipResponses.REQUEST_TERMINATED, resp.getStatusLine().getCode());
+		assertEquals(1, ringing.cancels.size());
+		// The CANCEL of the caller is not forwarded as new request, and no further target is tried.
+		assertEquals(0, next.invites.size());
+		assertEquals(0, next.cancels.size());
+
+		ForkingEngine engine = _proxy.getForkingEngine();
+		assertEquals(1, engine.getBranchCount());
+		assertEquals(1, engine.getCancelledCount());
+	}
+
+	@Test
+	void testNoResponse() throws Exception {
+		start("parallel", 200);
+		callee(5081, 0, 0);
+		callee(5082, 0, 0);
+
+		_caller.invite("bob", PROXY_PORT);
+		SipMessage resp = _caller.await(200, TIMEOUT);
+		assertNotNull(resp);
+		assertEquals(SipResponses.REQUEST_TIMEOUT, resp.getStatusLine().getCode());
+		assertEquals(2, _proxy.getForkingEngine().getTimedOutCount());
+	}
+
+	private void start(String mode, int branchTimeout) throws IOException {
+		_db = File.createTempFile("users", ".db");
+		_network = new LocalSipNetwork();
+		ServerProfile profile = new ServerProfile();
+		profile.domainNames = new String[0];
+		profile.locationDb = _db.getPath();
+		profile.locationReapInterval = 0;
+		profile.proxyingRulesCheckInterval = 0;
+		profile.forkingMode = mode;
+		profile.forkingBranchTimeout = branchTimeout;
+		_proxy = new StatefulProxy(_network.createProvider(PROXY_PORT), profile);
+		_caller = _network.createCaller(CALLER_PORT);
+	}
+
+	private Callee callee(int port, int code, long delay) {
+		Callee callee = _network.createCallee(port, code, delay);
+		_proxy.location_service.addUserContact("bob@" + LocalSipNetwork.HOST,
+			new NameAddress(new SipURI("bob", LocalSipNetwork.HOST, port)),
+			new Date(System.currentTimeMillis() + 3600000));
+		return callee;
+	}
+
+	private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+		long end = System.currentTimeMillis() + TIMEOUT;
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.currentTimeMillis() < end, "Timeout.");
+			Thread.sleep(10);
+		}
+	}
+
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.server;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mjsip.sip.address.NameAddress;
+import org.mjsip.sip.address.SipURI;
+import org.mjsip.sip.authentication.DigestAuthentication;
+
+/**
+ * Test for {@link Journal}, {@link JournalLocationService}, and {@link JournalAuthenticationService}.
+ */
+@SuppressWarnings("javadoc")
+class TestJournal {
+
+	private static final String ALICE = "alice@example.com";
+
+	private static final String BOB = "bob@example.com";
+
+	private File _dir;
+
+	private String _db;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		_dir = Files.createTempDirectory("journal").toFile();
+		_db = new File(_dir, "users.db").getPath();
+	}
+
+	@AfterEach
+	void tearDown() {
+		for (File file : _dir.listFiles()) {
+			file.delete();
+		}
+		_dir.delete();
+	}
+
+	@Test
+	void testLocationReplay() {
+		JournalLocationService location = new JournalLocationService(_db);
+		NameAddress phone = contact("alice", "10.0.0.1");
+		NameAddress desk = contact("alice", "10.0.0.2");
+		Date expires = in(3600);
+		location.addUserContact(ALICE, phone, expires);
+		location.addUserStaticContact(ALICE, desk);
+		location.addUserContact(BOB, contact("bob", "10.0.0.3"), in(3600));
+		location.addUserContact(ALICE, contact("alice", "10.0.0.4"), in(-10));
+		location.removeUser(BOB);
+		location.addUser("carol@example.com");
+		location.sync();
+
+		JournalLocationService loaded = new JournalLocationService(_db);
+		assertEquals(2, loaded.size());
+		assertFalse(loaded.hasUser(BOB));
+		assertTrue(loaded.hasUser("carol@example.com"));
+		// The expired contact is not restored.
+		assertEquals(List.of(uri(phone), uri(desk)), contacts(loaded, ALICE));
+		assertEquals(expires, loaded.getUserContactExpirationDate(ALICE, uri(phone)));
+		assertTrue(loaded.isUserContactStatic(ALICE, uri(desk)));
+		assertFalse(new File(_db).exists());
+	}
+
+	@Test
+	void testLocationCompaction() throws IOException {
+		JournalLocationService location = new JournalLocationService(_db);
+		NameAddress phone = contact("alice", "10.0.0.1");
+		location.addUserContact(ALICE, phone, in(3600));
+		location.addUserContact(BOB, contact("bob", "10.0.0.2"), in(3600));
+		location.sync();
+		assertEquals(2, journalRecords());
+
+		location.compact();
+		assertEquals(0, journalRecords());
+		assertFalse(new File(_db + ".journal.old").exists());
+
+		// Refreshing a registration after compaction.
+		location.removeUserContact(ALICE, uri(phone));
+		location.addUserContact(ALICE, phone, in(7200));
+		location.sync();
+		assertEquals(2, journalRecords());
+
+		JournalLocationService loaded = new JournalLocationService(_db);
+		assertEquals(List.of(uri(phone)), contacts(loaded, ALICE));
+		assertTrue(loaded.getUserContactExpirationDate(ALICE, uri(phone)).after(in(3600)));
+		assertEquals(List.of("sip:bob@10.0.0.2:5060"), contacts(loaded, BOB));
+	}
+
+	@Test
+	void testTruncatedRecord() throws IOException {
+		JournalLocationService location = new JournalLocationService(_db);
+		location.addUserContact(ALICE, contact("alice", "10.0.0.1"), in(3600));
+		location.addUserContact(BOB, contact("bob", "10.0.0.2"), in(3600));
+		location.sync();
+
+		// The process stopped while writing the last record.
+		File journal = new File(_db + ".journal");
+		try (RandomAccessFile file = new RandomAccessFile(journal, "rw")) {
+			file.setLength(file.length() - 3);
+		}
+
+		JournalLocationService loaded = new JournalLocationService(_db);
+		assertEquals(List.of("sip:alice@10.0.0.1:5060"), contacts(loaded, ALICE));
+		assertFalse(loaded.hasUser(BOB));
+
+		// The damaged journal has been replaced, further changes are appended to a valid journal.
+		loaded.addUserContact(BOB, contact("bob", "10.0.0.3"), in(3600));
+		loaded.sync();
+		assertEquals(List.of("sip:bob@10.0.0.3:5060"), contacts(new JournalLocationService(_db), BOB));
+	}
+
+	@Test
+	void testConcurrentChanges() throws InterruptedException {
+		JournalLocationService location = new JournalLocationService(_db);
+		Thread[] registrars = new Thread[4];
+		for (int t = 0; t < registrars.length; t++) {
+			int id = t;
+			registrars[t] = new Thread(() -> {
+				for (int n = 0; n < 200; n++) {
+					// Users shared by all threads, and users of a single thread.
+					String user = (n % 2 == 0 ? "shared" + n % 10 : "user" + id + "-" + n) + "@example.com";
+					location.addUserContact(user, contact("u" + n, "10.0.0." + id), in(3600));
+					if (n % 3 == 0) {
+						location.removeUser(user);
+					}
+				}
+			});
+			registrars[t].start();
+		}
+		for (Thread registrar : registrars) {
+			registrar.join();
+		}
+		location.sync();
+
+		JournalLocationService loaded = new JournalLocationService(_db);
+		assertEquals(location.size(), loaded.size());
+		for (String user : Collections.list(location.getUsers())) {
+			assertEquals(contacts(location, user), contacts(loaded, user), user);
+		}
+	}
+
+	@Test
+	void testFailedCompaction() throws IOException {
+		JournalLocationService location = new JournalLocationService(_db);
+		location.addUserContact(ALICE, contact("alice", "10.0.0.1"), in(3600));
+
+		// The journal cannot be rotated.
+		File old = new File(_db + ".journal.old");
+		assertTrue(old.mkdir());
+		File blocker = new File(old, "blocker");
+		assertTrue(blocker.createNewFile());
+		assertThrows(IOException.class, location::compact);
+		blocker.delete();
+		old.delete();
+
+		// The journal is still written.
+		location.addUserContact(BOB, contact("bob", "10.0.0.2"), in(3600));
+		location.sync();
+		JournalLocationService loaded = new JournalLocationService(_db);
+		assertEquals(List.of("sip:alice@10.0.0.1:5060"), contacts(loaded, ALICE));
+		assertEquals(List.of("sip:bob@10.0.0.2:5060"), contacts(loaded, BOB));
+	}
+
+	@Test
+	void testInterruptedCompaction() throws IOException {
+		JournalLocationService location = new JournalLocationService(_db);
+		location.addUserContact(ALICE, contact("alice", "10.0.0.1"), in(3600));
+		location.sync();
+		File journal = new File(_db + ".journal");
+		File old = new File(_db + ".journal.old");
+		Files.copy(journal.toPath(), old.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+		// Compaction rotated the journal but stopped before writing the snapshot.
+		location.addUserContact(BOB, contact("bob", "10.0.0.2"), in(3600));
+		location.sync();
+
+		JournalLocationService loaded = new JournalLocationService(_db);
+		assertFalse(old.exists());
+		assertEquals(List.of("sip:alice@10.0.0.1:5060"), contacts(loaded, ALICE));
+		assertEquals(List.of("sip:bob@10.0.0.2:5060"), contacts(loaded, BOB));
+	}
+
+	@Test
+	void testImport() {
+		LocationServiceImpl text = new LocationServiceImpl(_db);
+		NameAddress phone = contact("alice", "10.0.0.1");
+		text.addUserContact(ALICE, phone, in(3600));
+		text.addUser(BOB);
+		text.sync();
+
+		JournalLocationService imported = new JournalLocationService(_db);
+		assertEquals(2, imported.size());
+		assertEquals(List.of(uri(phone)), contacts(imported, ALICE));
+		assertTrue(new File(_db + ".snapshot").exists());
+
+		// Changes after the import are not lost.
+		imported.removeUser(BOB);
+		imported.sync();
+		assertFalse(new JournalLocationService(_db).hasUser(BOB));
+	}
+
+	@Test
+	void testAuthentication() {
+		AuthenticationServiceImpl text = new AuthenticationServiceImpl(_db);
+		text.addUser(ALICE, "secret".getBytes());
+		text.sync();
+
+		JournalAuthenticationService auth = new JournalAuthenticationService(_db);
+		assertArrayEquals(ha1(ALICE, "secret"), auth.getUserHA1(ALICE));
+		auth.addUser(BOB, "bob".getBytes());
+		auth.setUserKey(ALICE, "changed".getBytes());
+		auth.addUser("carol@example.com");
+		auth.removeUser("carol@example.com");
+		auth.sync();
+
+		// Only the hashes are stored.
+		JournalAuthenticationService loaded = new JournalAuthenticationService(_db);
+		assertEquals(2, loaded.size());
+		assertArrayEquals(ha1(ALICE, "changed"), loaded.getUserHA1(ALICE));
+		assertNull(loaded.getUserKey(ALICE));
+		assertArrayEquals(ha1(BOB, "bob"), loaded.getUserHA1(BOB));
+		assertFalse(loaded.hasUser("carol@example.com"));
+
+		loaded.setUserHA1(BOB, ha1(BOB, "other"));
+		loaded.sync();
+		assertArrayEquals(ha1(BOB, "other"), new JournalAuthenticationService(_db).getUserHA1(BOB));
+
+		loaded.removeAllUsers();
+		loaded.sync();
+		assertEquals(0, new JournalAuthenticationService(_db).size());
+	}
+
+	private static byte[] ha1(String user, String passwd) {
+		String[] parts = user.split("@");
+		return DigestAuthentication.HA1(parts[0], parts[1], passwd);
+	}
+
+	private long journalRecords() throws IOException {
+		try (Journal journal = new Journal(_db)) {
+			journal.open(in -> {
+				// Ignore.
+			}, sink -> {
+				// None.
+			});
+			return journal.getRecordCount();
+		}
+	}
+
+	private static List<String> contacts(LocationService location, String user) {
+		return Collections.list(location.getUserContactURIs(user));
+	}
+
+	private static NameAddress contact(String user, String host) {
+		return new NameAddress(new SipURI(user, host, 5060));
+	}
+
+	private static String uri(NameAddress contact) {
+		return contact.getAddress().toString();
+	}
+
+	private static Date in(int seconds) {
+		return new Date(System.currentTimeMillis() + seconds * 1000L);
+	}
+
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.mjsip.sip.address.NameAddress;
+import org.mjsip.sip.address.SipURI;
+
+/**
+ * Test for {@link LocationServiceImpl}.
+ */
+@SuppressWarnings("javadoc")
+class TestLocationServiceImpl {
+
+	private static final String ALICE = "alice@example.com";
+
+	@Test
+	void testContacts() {
+		LocationServiceImpl location = new LocationServiceImpl(null);
+		NameAddress phone = contact("alice", "10.0.0.1");
+		NameAddress desk = contact("alice", "10.0.0.2");
+		location.addUserContact(ALICE, phone, in(3600));
+		location.addUserStaticContact(ALICE, desk);
+
+		assertTrue(location.hasUser(ALICE));
+		assertEquals(1, location.size());
+		assertEquals(List.of(uri(phone), uri(desk)), contacts(location, ALICE));
+		assertTrue(location.hasUserContact(ALICE, uri(phone)));
+		assertEquals(phone, location.getUserContactNameAddress(ALICE, uri(phone)));
+		assertFalse(location.isUserContactExpired(ALICE, uri(phone)));
+		assertFalse(location.isUserContactStatic(ALICE, uri(phone)));
+		assertTrue(location.isUserContactStatic(ALICE, uri(desk)));
+
+		// An existing contact is not replaced.
+		location.addUserContact(ALICE, phone, in(10));
+		assertTrue(location.getUserContactExpirationDate(ALICE, uri(phone)).getTime() > in(3000).getTime());
+
+		location.removeUserContact(ALICE, uri(phone));
+		assertEquals(List.of(uri(desk)), contacts(location, ALICE));
+		assertTrue(location.isUserContactExpired(ALICE, uri(phone)));
+
+		location.removeUser(ALICE);
+		assertFalse(location.hasUser(ALICE));
+		assertNull(location.getUserContactURIs(ALICE));
+	}
+
+	@Test
+	void testRemoveExpiredContacts() {
+		LocationServiceImpl location = new LocationServiceImpl(null);
+		NameAddress expired = contact("alice", "10.0.0.1");
+		NameAddress renewed = contact("alice", "10.0.0.2");
+		NameAddress valid = contact("alice", "10.0.0.3");
+		NameAddress other = contact("bob", "10.0.0.4");
+		location.addUserContact(ALICE, expired, in(-10));
+		location.addUserContact(ALICE, renewed, in(-10));
+		location.addUserContact(ALICE, valid, in(3600));
+		location.addUserStaticContact(ALICE, contact("alice", "10.0.0.5"));
+		location.addUserContact("bob@example.com", other, in(-5));
+
+		// Registration refreshed, the old index entry must not remove the new binding.
+		location.removeUserContact(ALICE, uri(renewed));
+		location.addUserContact(ALICE, renewed, in(3600));
+
+		assertTrue(location.isUserContactExpired(ALICE, uri(expired)));
+		assertEquals(2, location.removeExpiredContacts());
+		assertEquals(List.of(uri(valid), "sip:alice@10.0.0.5:5060", uri(renewed)), contacts(location, ALICE));
+		assertEquals(List.of(), contacts(location, "bob@example.com"));
+
+		assertEquals(0, location.removeExpiredContacts());
+	}
+
+	@Test
+	void testSnapshotEnumeration() {
+		LocationServiceImpl location = new LocationServiceImpl(null);
+		NameAddress phone = contact("alice", "10.0.0.1");
+		NameAddress desk = contact("alice", "10.0.0.2");
+		location.addUserContact(ALICE, phone, in(3600));
+		location.addUserContact(ALICE, desk, in(3600));
+
+		// Modifications while enumerating, e.g. a registration in another thread, do not affect the enumeration.
+		List<String> enumerated = new ArrayList<>();
+		for (Enumeration<String> e = location.getUserContactURIs(ALICE); e.hasMoreElements();) {
+			String contact = e.nextElement();
+			enumerated.add(contact);
+			location.removeUserContact(ALICE, contact);
+			location.addUserContact(ALICE, contact("alice", "10.0.1." + enumerated.size()), in(3600));
+		}
+		assertEquals(List.of(uri(phone), uri(desk)), enumerated);
+		assertEquals(List.of("sip:alice@10.0.1.1:5060", "sip:alice@10.0.1.2:5060"), contacts(location, ALICE));
+	}
+
+	@Test
+	void testConcurrentLookup() throws InterruptedException {
+		LocationServiceImpl location = new LocationServiceImpl(null);
+		NameAddress phone = contact("alice", "10.0.0.1");
+		location.addUserContact(ALICE, phone, in(3600));
+
+		AtomicReference<String> failure = new AtomicReference<>();
+		Thread registrar = new Thread(() -> {
+			for (int n = 0; n < 10000; n++) {
+				NameAddress contact = contact("alice", "10.0.2." + (n % 200));
+				location.addUserContact(ALICE, contact, in(3600));
+				location.removeUserContact(ALICE, uri(contact));
+			}
+		});
+		registrar.start();
+		while (registrar.isAlive()) {
+			List<String> contacts = contacts(location, ALICE);
+			if (!contacts.contains(uri(phone)) || contacts.size() > 2) {
+				failure.set("Inconsistent contacts: " + contacts);
+			}
+		}
+		registrar.join();
+		assertNull(failure.get());
+		assertEquals(List.of(uri(phone)), contacts(location, ALICE));
+	}
+
+	@Test
+	void testSaveLoad() throws IOException {
+		File file = File.createTempFile("location", ".db");
+		try {
+			LocationServiceImpl location = new LocationServiceImpl(file.getPath());
+			NameAddress phone = contact("alice", "10.0.0.1");
+			NameAddress desk = contact("alice", "10.0.0.2");
+			Date expires = new Date((in(3600).getTime() / 1000) * 1000);
+			location.addUserContact(ALICE, phone, expires);
+			location.addUserStaticContact(ALICE, desk);
+			location.addUser("bob@example.com");
+			location.sync();
+
+			LocationServiceImpl loaded = new LocationServiceImpl(file.getPath());
+			assertEquals(2, loaded.size());
+			assertEquals(List.of(uri(phone), uri(desk)), contacts(loaded, ALICE));
+			// Note: The DB stores the expiration date with a precision of seconds.
+			assertEquals(expires.getTime() / 1000, loaded.getUserContactExpirationDate(ALICE, uri(phone)).getTime() / 1000);
+			assertTrue(loaded.isUserContactStatic(ALICE, uri(desk)));
+			assertTrue(loaded.hasUser("bob@example.com"));
+		} finally {
+			file.delete();
+		}
+	}
+
+	private static List<String> contacts(LocationService location, String user) {
+		return Collections.list(location.getUserContactURIs(user));
+	}
+
+	private static NameAddress contact(String user, String host) {
+		return new NameAddress(new SipURI(user, host, 5060));
+	}
+
+	private static String uri(NameAddress contact) {
+		return contact.getAddress().toString();
+	}
+
+	private static Date in(int seconds) {
+		return new Date(System.currentTimeMillis() + seconds * 1000L);
+	}
+
+}
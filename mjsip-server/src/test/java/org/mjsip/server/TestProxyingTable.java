@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.mjsip.sip.address.GenericURI;
+import org.mjsip.sip.address.SipURI;
+import org.zoolu.net.SocketAddress;
+
+/**
+ * Test for {@link ProxyingTable} and {@link ProxyingRouter}.
+ */
+@SuppressWarnings("javadoc")
+class TestProxyingTable {
+
+	@Test
+	void testLongestPrefix() {
+		ProxyingTable table = ProxyingTable.compile(List.of(
+			prefix("0123", "10.0.0.1:5060"),
+			prefix("01234", "10.0.0.2:5060"),
+			prefix("*", "10.0.0.9:5060"),
+			prefix("0123", "10.0.0.3:5060"),
+			prefix("+49#", "10.0.0.4:5060"),
+			prefix("alice", "10.0.0.5:5060")));
+		assertEquals(4, table.size());
+
+		assertEquals("sip:01234567@10.0.0.2:5060", nexthop(table, "sip:01234567@example.com"));
+		assertEquals("sip:0123999@10.0.0.1:5060", nexthop(table, "sip:0123999@example.com"));
+		assertEquals("sip:+49#1@10.0.0.4:5060", nexthop(table, "sip:+49#1@example.com"));
+		assertEquals("sip:012@10.0.0.9:5060", nexthop(table, "sip:012@example.com"));
+		assertEquals("sip:999@10.0.0.9:5060", nexthop(table, "sip:999@example.com"));
+
+		assertNull(ProxyingTable.compile(List.of(prefix("0123", "10.0.0.1:5060")))
+			.getNexthop(SipURI.parseSipURI("sip:012@example.com")));
+	}
+
+	@Test
+	void testDomains() {
+		ProxyingTable table = ProxyingTable.compile(new ProxyingRule[] {
+			domain("domain1.foo", "10.0.0.1:5060"),
+			domain("Domain2.FOO", "10.0.0.2:5060"),
+			domain("domain1.foo", "10.0.0.3:5060") });
+		assertEquals(2, table.size());
+
+		assertEquals("sip:alice@10.0.0.1:5060", nexthop(table, "sip:alice@DOMAIN1.foo"));
+		assertEquals("sip:bob@10.0.0.2:5060", nexthop(table, "sip:bob@domain2.foo"));
+		assertNull(table.getNexthop(SipURI.parseSipURI("sip:bob@domain3.foo")));
+		assertNull(ProxyingTable.EMPTY.getNexthop(SipURI.parseSipURI("sip:bob@domain1.foo")));
+	}
+
+	@Test
+	void testNullRules() {
+		ProxyingTable table = ProxyingTable.compile(new ProxyingRule[] {
+			null,
+			domain("domain1.foo", "10.0.0.1:5060"),
+			null });
+		assertEquals(1, table.size());
+		assertEquals("sip:alice@10.0.0.1:5060", nexthop(table, "sip:alice@domain1.foo"));
+	}
+
+	@Test
+	void testSameAsScan() {
+		// Without overlapping prefixes, the result is the same as scanning the rules in order.
+		List<ProxyingRule> rules = List.of(
+			prefix("0049", "10.0.0.1:5060"),
+			prefix("0033", "10.0.0.2:5060"),
+			prefix("0800", "10.0.0.3:5060"),
+			prefix("default", "10.0.0.4:5060"));
+		ProxyingTable table = ProxyingTable.compile(rules);
+		for (String user : new String[] { "004989", "003312", "0800123", "0044", "0" }) {
+			GenericURI uri = SipURI.parseSipURI("sip:" + user + "@example.com");
+			SipURI expected = null;
+			for (ProxyingRule rule : rules) {
+				expected = rule.getNexthop(uri);
+				if (expected != null) {
+					break;
+				}
+			}
+			assertEquals(String.valueOf(expected), String.valueOf(table.getNexthop(uri)), user);
+		}
+	}
+
+	@Test
+	void testReload() throws IOException {
+		File file = File.createTempFile("routes", ".txt");
+		try {
+			Files.writeString(file.toPath(),
+				"# Carrier routes\n" +
+				"{prefix=0123,nexthop=10.0.0.1:5060}\n" +
+				"\n" +
+				"{domain=domain1.foo,nexthop=10.0.0.2:5060}\n" +
+				"{prefix=0800,nexthop=10.0.0.3:5060,authenticated=yes}\n");
+
+			ServerProfile profile = new ServerProfile();
+			profile.phoneProxyingRules = new ProxyingRule[] { prefix("0123", "10.0.0.9:5060") };
+			profile.proxyingRulesFile = file.getPath();
+			ProxyingRouter router = new ProxyingRouter(profile);
+
+			// The profile's rule has precedence.
+			assertEquals("sip:01234@10.0.0.9:5060", nexthop(router.phoneRules(), "sip:01234@example.com"));
+			assertEquals("sip:bob@10.0.0.2:5060", nexthop(router.domainRules(), "sip:bob@domain1.foo"));
+			assertEquals("sip:0800@10.0.0.3:5060", nexthop(router.authenticatedPhoneRules(), "sip:0800@example.com"));
+			assertNull(router.phoneRules().getNexthop(SipURI.parseSipURI("sip:0800@example.com")));
+			assertEquals(0, router.authenticatedDomainRules().size());
+			assertFalse(router.reloadIfModified());
+
+			Files.writeString(file.toPath(), "{prefix=0800,nexthop=10.0.0.4:5060}\n");
+			assertTrue(file.setLastModified(file.lastModified() + 2000));
+			assertTrue(router.reloadIfModified());
+			assertEquals("sip:0800@10.0.0.4:5060", nexthop(router.phoneRules(), "sip:0800@example.com"));
+			assertEquals(0, router.domainRules().size());
+
+			// An invalid file does not replace the rules in effect.
+			Files.writeString(file.toPath(), "{prefix=0800}\n");
+			assertThrows(IOException.class, router::reload);
+			assertFalse(router.reloadIfModified());
+			assertEquals("sip:0800@10.0.0.4:5060", nexthop(router.phoneRules(), "sip:0800@example.com"));
+		} finally {
+			file.delete();
+		}
+	}
+
+	private static String nexthop(ProxyingTable table, String uri) {
+		return String.valueOf(table.getNexthop(SipURI.parseSipURI(uri)));
+	}
+
+	private static ProxyingRule prefix(String prefix, String nexthop) {
+		return new PrefixProxyingRule(prefix.equals("*") ? PrefixProxyingRule.DEFAULT_PREFIX : prefix,
+			new SocketAddress(nexthop));
+	}
+
+	private static ProxyingRule domain(String domain, String nexthop) {
+		return new DomainProxyingRule(domain, new SocketAddress(nexthop));
+	}
+
+}
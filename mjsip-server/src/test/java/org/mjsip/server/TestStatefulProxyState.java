@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mjsip.sip.message.SipMessage;
+import org.mjsip.sip.message.SipResponses;
+import org.mjsip.sip.provider.SipConfig;
+import org.mjsip.sip.provider.SipProvider;
+import org.mjsip.sip.transaction.Transaction;
+import org.mjsip.sip.transaction.TransactionClient;
+import org.mjsip.sip.transaction.TransactionServer;
+import org.mjsip.time.ConfiguredScheduler;
+import org.mjsip.time.SchedulerConfig;
+
+/**
+ * Test for {@link StatefulProxyState}.
+ */
+@SuppressWarnings("javadoc")
+class TestStatefulProxyState {
+
+	private static final int THREADS = 8;
+
+	private static final int CALLS = 500;
+
+	private static final int FORKS = 4;
+
+	private SipProvider _provider;
+
+	private StatefulProxyState _state;
+
+	@BeforeEach
+	void setUp() {
+		SipConfig config = new SipConfig();
+		config.setTransportProtocols(new String[0]);
+		_provider = new SipProvider(config, new ConfiguredScheduler(new SchedulerConfig()));
+		_state = new StatefulProxyState(_provider);
+	}
+
+	@AfterEach
+	void tearDown() {
+		_provider.halt();
+	}
+
+	@Test
+	void testFork() {
+		TransactionServer ts = server("call1");
+		TransactionClient tc1 = client("call1", 1);
+		TransactionClient tc2 = client("call1", 2);
+		_state.addClient(ts, tc1);
+		_state.addClient(ts, tc2);
+		assertTrue(_state.hasServer(ts));
+		assertSame(ts, _state.getServer(tc1));
+		assertSame(ts, _state.getServer(tc2));
+		assertEquals(2, _state.getClients(ts).size());
+		assertEquals(1, _state.numOfServers());
+		assertEquals(2, _state.numOfClients());
+
+		// The default final response.
+		assertEquals(SipResponses.REQUEST_TIMEOUT, _state.getFinalResponse(ts).getStatusLine().getCode());
+
+		// The snapshot of clients is not affected by later modifications.
+		Set<Transaction> snapshot = _state.getClients(ts);
+		_state.removeClient(tc1);
+		assertEquals(2, snapshot.size());
+		assertEquals(1, _state.getClients(ts).size());
+		_state.addClient(ts, tc1);
+
+		SipMessage busy = response(ts, SipResponses.BUSY_HERE);
+		assertNull(_state.completeClient(tc1, busy));
+		assertNull(_state.getServer(tc1));
+		assertSame(busy, _state.getFinalResponse(ts));
+
+		// The last client has timed out, the former failure response is sent.
+		assertSame(busy, _state.completeClient(tc2, null));
+		assertFalse(_state.hasServer(ts));
+		assertNull(_state.getClients(ts));
+		assertEquals(0, _state.numOfServers());
+		assertEquals(0, _state.numOfClients());
+
+		// Already completed.
+		assertNull(_state.completeClient(tc2, busy));
+	}
+
+	@Test
+	void testRemovedServer() {
+		TransactionServer ts = server("call2");
+		TransactionClient tc1 = client("call2", 1);
+		TransactionClient tc2 = client("call2", 2);
+		_state.addClient(ts, tc1);
+		_state.addClient(ts, tc2);
+
+		// A success response was forwarded for the first client.
+		_state.removeClient(tc1);
+		_state.removeServer(ts);
+		assertFalse(_state.hasServer(ts));
+
+		// The cancelled client is still bound to its server, but no final response is sent.
+		assertSame(ts, _state.getServer(tc2));
+		assertNull(_state.completeClient(tc2, response(ts, SipResponses.REQUEST_TERMINATED)));
+		assertEquals(0, _state.numOfClients());
+	}
+
+	@Test
+	void testConcurrentForks() throws InterruptedException {
+		TransactionServer[] servers = new TransactionServer[CALLS];
+		TransactionClient[][] clients = new TransactionClient[CALLS][FORKS];
+		List<int[]> branches = new ArrayList<>();
+		for (int call = 0; call < CALLS; call++) {
+			servers[call] = server("call" + call);
+			for (int fork = 0; fork < FORKS; fork++) {
+				clients[call][fork] = client("call" + call, fork);
+				branches.add(new int[] { call, fork });
+			}
+		}
+
+		// Forks of all calls are added concurrently in random order.
+		Collections.shuffle(branches, new Random(42));
+		runConcurrently(branches, branch -> _state.addClient(servers[branch[0]], clients[branch[0]][branch[1]]));
+		assertEquals(CALLS, _state.numOfServers());
+		assertEquals(CALLS * FORKS, _state.numOfClients());
+		for (int call = 0; call < CALLS; call++) {
+			assertEquals(FORKS, _state.getClients(servers[call]).size());
+			for (int fork = 0; fork < FORKS; fork++) {
+				assertSame(servers[call], _state.getServer(clients[call][fork]));
+			}
+		}
+
+		// All branches fail concurrently in random order, every server sends exactly one final
+		// response.
+		AtomicIntegerArray sent = new AtomicIntegerArray(CALLS);
+		Collections.shuffle(branches, new Random(13));
+		runConcurrently(branches, branch -> {
+			int call = branch[0];
+			SipMessage resp = _state.completeClient(clients[call][branch[1]],
+				response(servers[call], SipResponses.BUSY_HERE));
+			if (resp != null) {
+				assertEquals(SipResponses.BUSY_HERE, resp.getStatusLine().getCode());
+				sent.incrementAndGet(call);
+			}
+		});
+		for (int call = 0; call < CALLS; call++) {
+			assertEquals(1, sent.get(call), "Final responses of call " + call);
+		}
+		assertEquals(0, _state.numOfServers());
+		assertEquals(0, _state.numOfClients());
+	}
+
+	interface BranchAction {
+
+		void run(int[] branch);
+
+	}
+
+	private static void runConcurrently(List<int[]> branches, BranchAction action) throws InterruptedException {
+		ConcurrentLinkedQueue<int[]> queue = new ConcurrentLinkedQueue<>(branches);
+		ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+		Thread[] threads = new Thread[THREADS];
+		for (int n = 0; n < THREADS; n++) {
+			threads[n] = new Thread(() -> {
+				try {
+					int[] branch;
+					while ((branch = queue.poll()) != null) {
+						action.run(branch);
+					}
+				} catch (Throwable ex) {
+					errors.add(ex);
+				}
+			});
+			threads[n].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		if (!errors.isEmpty()) {
+			throw new AssertionError(errors.peek());
+		}
+	}
+
+	private TransactionServer server(String callId) {
+		return new TransactionServer(_provider, request(callId, "z9hG4bKserver"), null);
+	}
+
+	private TransactionClient client(String callId, int fork) {
+		return new TransactionClient(_provider, request(callId, "z9hG4bKfork" + fork), null);
+	}
+
+	private SipMessage response(TransactionServer ts, int code) {
+		return _provider.messageFactory().createResponse(ts.getRequestMessage(), code, null, null);
+	}
+
+	private static SipMessage request(String callId, String branch) {
+		return new SipMessage("INVITE sip:bob@example.com SIP/2.0\r\n"
+			+ "Via: SIP/2.0/UDP 127.0.0.1:5060;branch=" + branch + "\r\n"
+			+ "Max-Forwards: 70\r\n"
+			+ "From: <sip:alice@example.com>;tag=1\r\n"
+			+ "To: <sip:bob@example.com>\r\n"
+			+ "Call-ID: " + callId + "\r\n"
+			+ "CSeq: 1 INVITE\r\n"
+			+ "Content-Length: 0\r\n"
+			+ "\r\n");
+	}
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.server.sbc;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.mjsip.pool.PortPool;
+import org.mjsip.time.ConfiguredScheduler;
+import org.mjsip.time.SchedulerConfig;
+import org.zoolu.net.SocketAddress;
+
+/**
+ * Test for {@link MediaGw}.
+ */
+@SuppressWarnings("javadoc")
+class TestMediaGw {
+
+	@Test
+	void testHaltStopsRelaySelectors() throws Exception {
+		Set<Thread> before = selectorThreads();
+
+		SessionBorderControllerProfile profile = new SessionBorderControllerProfile();
+		profile.relaySelectors = 1;
+		ConfiguredScheduler scheduler = new ConfiguredScheduler(new SchedulerConfig());
+		try {
+			MediaGw gw = new MediaGw(scheduler, new PortPool(50000, 10), profile);
+			Set<Thread> selectors = selectorThreads();
+			selectors.removeAll(before);
+			assertFalse(selectors.isEmpty());
+
+			SymmetricUdpRelay relay = gw.createSymmetricUdpRelay(masquerade(), masquerade());
+			assertNotNull(relay);
+			assertTrue(relay.isRunning());
+
+			gw.halt();
+
+			assertFalse(relay.isRunning());
+			for (Thread selector : selectors) {
+				selector.join(5000);
+				assertFalse(selector.isAlive());
+			}
+		} finally {
+			scheduler.halt();
+		}
+	}
+
+	private static Masquerade masquerade() throws Exception {
+		int port;
+		try (DatagramSocket socket = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+			port = socket.getLocalPort();
+		}
+		return new Masquerade(new SocketAddress("127.0.0.1", 9), new SocketAddress("127.0.0.1", port));
+	}
+
+	private static Set<Thread> selectorThreads() {
+		return Thread.getAllStackTraces().keySet().stream()
+			.filter(thread -> thread.getClass().getName().endsWith("UdpRelayEngine$SelectorThread"))
+			.collect(Collectors.toSet());
+	}
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.server.sbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mjsip.time.ConfiguredScheduler;
+import org.mjsip.time.SchedulerConfig;
+import org.zoolu.net.IpAddress;
+import org.zoolu.net.SocketAddress;
+
+/**
+ * Test for {@link SelectorUdpRelay}.
+ */
+@SuppressWarnings("javadoc")
+class TestSelectorUdpRelay {
+
+	private static final InetAddress LOCALHOST = InetAddress.getLoopbackAddress();
+
+	private UdpRelayEngine _engine;
+
+	private ConfiguredScheduler _scheduler;
+
+	private DatagramSocket _left;
+
+	private DatagramSocket _right;
+
+	private final List<String> _events = new ArrayList<>();
+
+	private final CountDownLatch _terminated = new CountDownLatch(1);
+
+	private final SymmetricUdpRelayListener _listener = new SymmetricUdpRelayListener() {
+		@Override
+		public void onSymmetricUdpRelayLeftPeerChanged(SymmetricUdpRelay symm_relay, SocketAddress soaddr) {
+			_events.add("left: " + soaddr.getPort());
+			symm_relay.setLeftSoAddress(soaddr);
+		}
+
+		@Override
+		public void onSymmetricUdpRelayRightPeerChanged(SymmetricUdpRelay symm_relay, SocketAddress soaddr) {
+			_events.add("right: " + soaddr.getPort());
+			symm_relay.setRightSoAddress(soaddr);
+		}
+
+		@Override
+		public void onSymmetricUdpRelayTerminated(SymmetricUdpRelay symm_relay) {
+			_events.add("terminated");
+			_terminated.countDown();
+		}
+	};
+
+	@BeforeEach
+	void setUp() throws Exception {
+		_engine = new UdpRelayEngine(1);
+		_scheduler = new ConfiguredScheduler(new SchedulerConfig());
+		_left = new DatagramSocket(0, LOCALHOST);
+		_right = new DatagramSocket(0, LOCALHOST);
+		_left.setSoTimeout(5000);
+		_right.setSoTimeout(5000);
+	}
+
+	@AfterEach
+	void tearDown() {
+		_left.close();
+		_right.close();
+		_engine.halt();
+		_scheduler.halt();
+	}
+
+	@Test
+	void testRelay() throws Exception {
+		int leftPort = freePort();
+		int rightPort = freePort();
+		SelectorUdpRelay relay = new SelectorUdpRelay(_engine, _scheduler, leftPort, address(_left), rightPort,
+			address(_right), 0, _listener);
+		assertTrue(relay.isRunning());
+
+		send(_left, leftPort, "hello");
+		assertEquals("hello", receive(_right));
+
+		send(_right, rightPort, "world");
+		assertEquals("world", receive(_left));
+
+		assertEquals(List.of(), _events);
+
+		relay.halt();
+		assertFalse(relay.isRunning());
+		assertTrue(_terminated.await(5, TimeUnit.SECONDS));
+		relay.halt();
+		assertEquals(List.of("terminated"), _events);
+
+		// The ports are released.
+		Thread.sleep(100);
+		new DatagramSocket(leftPort).close();
+		new DatagramSocket(rightPort).close();
+	}
+
+	@Test
+	void testPeerLearning() throws Exception {
+		int leftPort = freePort();
+		int rightPort = freePort();
+		SelectorUdpRelay relay = new SelectorUdpRelay(_engine, _scheduler, leftPort,
+			new SocketAddress(new IpAddress(LOCALHOST), freePort()), rightPort, address(_right), 0, _listener);
+		try {
+			// The left peer is behind a NAT and uses another port than announced.
+			send(_left, leftPort, "hello");
+			assertEquals("hello", receive(_right));
+			assertEquals(List.of("left: " + _left.getLocalPort()), _events);
+			assertEquals(_left.getLocalPort(), relay.getLeftSoAddress().getPort());
+
+			send(_right, rightPort, "world");
+			assertEquals("world", receive(_left));
+			assertEquals(1, _events.size());
+		} finally {
+			relay.halt();
+		}
+	}
+
+	@Test
+	void testTimeout() throws Exception {
+		SelectorUdpRelay relay = new SelectorUdpRelay(_engine, _scheduler, freePort(), address(_left), freePort(),
+			address(_right), 100, _listener);
+
+		assertTrue(_terminated.await(5, TimeUnit.SECONDS));
+		assertFalse(relay.isRunning());
+	}
+
+	private static SocketAddress address(DatagramSocket socket) {
+		return new SocketAddress(new IpAddress(LOCALHOST), socket.getLocalPort());
+	}
+
+	private static int freePort() throws Exception {
+		try (DatagramSocket socket = new DatagramSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+
+	private static void send(DatagramSocket socket, int port, String message) throws Exception {
+		byte[] data = message.getBytes("UTF-8");
+		socket.send(new DatagramPacket(data, data.length, LOCALHOST, port));
+	}
+
+	private static String receive(DatagramSocket socket) throws Exception {
+		DatagramPacket packet = new DatagramPacket(new byte[1000], 1000);
+		socket.receive(packet);
+		return new String(packet.getData(), packet.getOffset(), packet.getLength(), "UTF-8");
+	}
+
+}
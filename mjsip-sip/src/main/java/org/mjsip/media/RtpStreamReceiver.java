@@ -25,6 +25,9 @@ package org.mjsip.media;
 import java.io.IOException;
 import java.io.OutputStream;
 
+import org.mjsip.media.rx.JitterBuffer;
+import org.mjsip.media.rx.JitterBufferStatistics;
+import org.mjsip.media.rx.LatePacketPolicy;
 import org.mjsip.media.rx.RtpReceiverOptions;
 import org.mjsip.rtp.RtpPacket;
 import org.mjsip.rtp.RtpPayloadFormat;
@@ -57,6 +60,12 @@ public class RtpStreamReceiver implements Runnable, RtpControlledReceiver {
 	/** Maximum blocking time, spent waiting for reading new bytes [milliseconds] */
 	public static final int SO_TIMEOUT=200;
 
+	/** Blocking time when waiting for new bytes while a jitter buffer is used; it is the precision of the playout timing [milliseconds] */
+	public static final int PLAYOUT_TICK=5;
+
+	/** Interval between two reports of the jitter buffer statistics [milliseconds] */
+	public static final int STATISTICS_INTERVAL=1000;
+
 	/** Integer value 2^16 */
 	private static final int TWO_16=(1<<16);
 
@@ -99,6 +108,21 @@ public class RtpStreamReceiver implements Runnable, RtpControlledReceiver {
 	/** Additional RTP payload decoder */
 	private Encoder additional_decoder;
 
+	/** Minimum playout delay of the jitter buffer [milliseconds] */
+	private int jitter_min_delay;
+
+	/** Maximum playout delay of the jitter buffer [milliseconds]; if 0, no jitter buffer is used */
+	private int jitter_max_delay;
+
+	/** How the jitter buffer handles late packets */
+	private LatePacketPolicy late_packet_policy;
+
+	/** RTP clock rate, used for the playout timing of the jitter buffer */
+	private int clock_rate=8000;
+
+	/** Statistics of the jitter buffer, as last reported */
+	private volatile JitterBufferStatistics jitter_statistics=null;
+
 	/**
 	 * Constructs a RtpStreamReceiver.
 	 * 
@@ -127,10 +151,51 @@ public class RtpStreamReceiver implements Runnable, RtpControlledReceiver {
 		this.silence_padding = options.silencePadding();
 		this.sequence_check = silence_padding || options.sequenceCheck();
 		this.ssrc_check = options.ssrcCheck();
+		this.jitter_min_delay = options.jitterBufferMinDelay();
+		this.jitter_max_delay = options.jitterBufferMaxDelay();
+		if (jitter_max_delay>0 && (jitter_min_delay<0 || jitter_min_delay>jitter_max_delay)) {
+			// Note: Checked here, since the jitter buffer is created in the receiver thread, where the error would be lost.
+			throw new IllegalArgumentException("Invalid jitter buffer delay range: " + jitter_min_delay + ".." + jitter_max_delay);
+		}
+		this.late_packet_policy = options.latePacketPolicy();
 
 		LOG.info("Created RTP stream receiver: {} <-- {}", socket, remote_soaddr);
 	}
 
+	/** Sets the RTP clock rate of the received stream (see {@link #getClockRate(int, int)}); it is used for the
+	  * playout timing of the jitter buffer and must be set before the receiver is started. */
+	public void setClockRate(int clock_rate) {
+		this.clock_rate=clock_rate;
+	}
+
+	/** Gets the RTP clock rate of a payload type.
+	  * <p>
+	  * For static payload types, the clock rate is defined by RFC 3551 and may differ from the sample rate
+	  * (e.g. G.722 is sampled at 16000 Hz but uses an RTP clock rate of 8000 Hz).
+	  * @param payload_type the RTP payload type
+	  * @param sample_rate the sample rate of the codec, used for dynamic payload types
+	  * @return the RTP clock rate [Hz] */
+	public static int getClockRate(int payload_type, int sample_rate) {
+		switch (payload_type) {
+			case 6: return 16000; // DVI4
+			case 10: case 11: return 44100; // L16
+			case 14: case 25: case 26: case 28: case 31: case 32: case 33: case 34: return 90000; // MPA, video
+			case 16: return 11025; // DVI4
+			case 17: return 22050; // DVI4
+			default:
+				// G.722 (9) and all other static audio payload types
+				if (payload_type>=0 && payload_type<=18) return 8000;
+				// dynamic payload types
+				return sample_rate;
+		}
+	}
+
+	/** Gets the statistics of the jitter buffer, as last reported to the listener.
+	  * @return the statistics, or <code>null</code> if no jitter buffer is used */
+	public JitterBufferStatistics getJitterBufferStatistics() {
+		return jitter_statistics;
+	}
+
 	/** Gets the local port. */
 	public int getLocalPort() {
 		if (rtp_socket!=null) return rtp_socket.getUdpSocket().getLocalPort();
@@ -157,24 +222,24 @@ public class RtpStreamReceiver implements Runnable, RtpControlledReceiver {
 	  * @return cumulative number of packets lost that is the total number of RTP data packets that have been lost since the beginning of reception; it is the number of packets expected less the number of packets actually received, where the number of packets received includes any which are late or duplicates */
 	@Override
 	public long getCumulativePacketLost() {
-		// to be implemented..
-		return 0;
+		JitterBufferStatistics statistics=jitter_statistics;
+		return (statistics!=null)? statistics.getCumulativeLost() : 0;
 	}
 
 	/** Gets the extended highest sequence number received.
 	  * @return the extended highest sequence number received (32bit); the low 16 bits contain the highest sequence number received in an RTP data packet, and the most significant 16 bits extend that sequence number with the corresponding count of sequence number cycles */
 	@Override
 	public long getHighestSqnReceived() {
-		// to be implemented..
-		return 0;
+		JitterBufferStatistics statistics=jitter_statistics;
+		return (statistics!=null)? statistics.getHighestSqn() : 0;
 	}
 
 	/** Gets the interarrival jitter.
 	  * @return the interarrival jitter, that is an estimate of the statistical variance of the RTP data packet interarrival time, measured in timestamp units and expressed as an unsigned integer */
 	@Override
 	public long getInterarrivalJitter() {
-		// to be implemented..
-		return 0;
+		JitterBufferStatistics statistics=jitter_statistics;
+		return (statistics!=null)? statistics.getJitter() : 0;
 	}
 
 	/** Gets last SR timestamp (LSR).
@@ -229,7 +294,6 @@ public class RtpStreamReceiver implements Runnable, RtpControlledReceiver {
 
 		Exception error=null;
 		try {
-			rtp_socket.getUdpSocket().setSoTimeout(SO_TIMEOUT);
 			long early_drop_to=(EARLY_DROP_TIME>0)? System.currentTimeMillis()+EARLY_DROP_TIME : -1;
 
 			long ssrc=-1;
@@ -237,8 +301,31 @@ public class RtpStreamReceiver implements Runnable, RtpControlledReceiver {
 			long last_timestamp=-1;
 			byte[] silence_buffer=new byte[4000];
 
+			JitterBuffer jitter_buffer=(jitter_max_delay>0)? new JitterBuffer(clock_rate,jitter_min_delay,jitter_max_delay,late_packet_policy) : null;
+			byte[] play_buffer=(jitter_buffer!=null)? new byte[BUFFER_SIZE] : null;
+			JitterBuffer.Sink sink=(buf,off,len,sqn_interval,timestamp_interval) -> {
+				if (silence_padding) writeSilencePad(sqn_interval,timestamp_interval,silence_buffer);
+				// Note: The payload is processed in place, which may need more space than the received data.
+				System.arraycopy(buf,off,play_buffer,0,len);
+				writePayload(play_buffer,0,len);
+			};
+			// Note: The jitter buffer is checked for due packets at least once per tick.
+			rtp_socket.getUdpSocket().setSoTimeout((jitter_buffer!=null)? PLAYOUT_TICK : SO_TIMEOUT);
+			long statistics_time=System.nanoTime()+STATISTICS_INTERVAL*1000000L;
+
 			while (running) {
 				
+				if (jitter_buffer!=null) {
+					// play out due packets
+					long now=System.nanoTime();
+					jitter_buffer.playout(now,sink);
+					if (now-statistics_time>=0) {
+						statistics_time=now+STATISTICS_INTERVAL*1000000L;
+						jitter_statistics=jitter_buffer.getStatistics();
+						if (listener!=null) listener.onJitterBufferStatistics(this,jitter_statistics);
+					}
+				}
+
 				try {
 					// read a block of data from the rtp socket
 					rtp_socket.receive(rtp_packet);
@@ -255,61 +342,35 @@ public class RtpStreamReceiver implements Runnable, RtpControlledReceiver {
 							if (ssrc==-1) ssrc=pkt_ssrc;
 							else if (pkt_ssrc!=ssrc) continue; // discarded packet with wrong SSRC
 						}
-						if (sequence_check) {
-							// discard out of sequence and duplicated packets
-							int sqn=rtp_packet.getSequenceNumber();
-							if (sqn==last_sqn) continue; // discarded duplicated packet
-							// else
-							if (last_sqn<0) last_sqn=sqn;
-							if (sqn<last_sqn) sqn+=TWO_16;
-							int sqn_diff=sqn-last_sqn;
-							if (sqn_diff>TWO_16/2) continue; // discarded out of sequence packet
-							// else
-							last_sqn=sqn&0xffff;
-
-							if (silence_padding) {
-								// silence padding
-								long timestamp=rtp_packet.getTimestamp();
-								if (last_timestamp<0) last_timestamp=timestamp;
-								if (timestamp<last_timestamp) timestamp+=(TWO_32);
-								long timestamp_diff=timestamp-last_timestamp;
-								last_timestamp=timestamp&0xffffffff;
-								if (rtp_payload_format!=null) {
-									int silence_len=rtp_payload_format.getSilencePad(sqn_diff,timestamp_diff,silence_buffer,0);
-									if (silence_len>0) {
-										output_stream.write(silence_buffer,0,silence_len);
-									}
+						if (jitter_buffer!=null) {
+							// reordering, duplicates, and silence padding are handled on playout
+							jitter_buffer.add(rtp_packet,System.nanoTime());
+						}
+						else {
+							if (sequence_check) {
+								// discard out of sequence and duplicated packets
+								int sqn=rtp_packet.getSequenceNumber();
+								if (sqn==last_sqn) continue; // discarded duplicated packet
+								// else
+								if (last_sqn<0) last_sqn=sqn;
+								if (sqn<last_sqn) sqn+=TWO_16;
+								int sqn_diff=sqn-last_sqn;
+								if (sqn_diff>TWO_16/2) continue; // discarded out of sequence packet
+								// else
+								last_sqn=sqn&0xffff;
+
+								if (silence_padding) {
+									// silence padding
+									long timestamp=rtp_packet.getTimestamp();
+									if (last_timestamp<0) last_timestamp=timestamp;
+									if (timestamp<last_timestamp) timestamp+=(TWO_32);
+									long timestamp_diff=timestamp-last_timestamp;
+									last_timestamp=timestamp&0xffffffff;
+									writeSilencePad(sqn_diff,timestamp_diff,silence_buffer);
 								}
 							}
-						}
-						// get payload
-						byte[] payload_buf=rtp_packet.getPacketBuffer();
-						int payload_off=rtp_packet.getHeaderLength();
-						int payload_len=rtp_packet.getPayloadLength();
-
-						// Note: A packet that cannot be processed must not terminate the reception,
-						// since that would end the media stream for the whole call.
-						try {
-							// remove possible RTP payload format
-							int unformatted_len=(rtp_payload_format!=null)? rtp_payload_format.removeRtpPayloadFormat(payload_buf,payload_off,payload_len) : payload_len;
-
-							// drop a small percentage of packets
-							if (random_early_drop>0 && (++packet_counter)%random_early_drop==0) continue;
-							// else
-
-							if (additional_decoder!=null) unformatted_len=additional_decoder.encode(payload_buf,payload_off,unformatted_len,payload_buf,payload_off);
-
-							// write the payload data to the output_stream
-							output_stream.write(payload_buf,payload_off,unformatted_len);
-						}
-						catch (RuntimeException e) {
-							LOG.warn("Dropping RTP packet that could not be processed (offset={}, length={}).",
-									Integer.valueOf(payload_off),Integer.valueOf(payload_len),e);
-						}
-						catch (IOException e) {
-							LOG.warn("Writing the received payload failed (offset={}, length={}).",
-									Integer.valueOf(payload_off),Integer.valueOf(payload_len),e);
-							throw e;
+							// write payload
+							writePayload(rtp_packet.getPacketBuffer(),rtp_packet.getHeaderLength(),rtp_packet.getPayloadLength());
 						}
 					}
 					// check whether remote socket address is changed
@@ -341,6 +402,44 @@ public class RtpStreamReceiver implements Runnable, RtpControlledReceiver {
 		onRtpStreamReceiverTerminated(error);
 	}
 
+	/** Writes silence for the interval between two packets to the output stream, if supported by the payload format. */
+	private void writeSilencePad(int sqn_diff, long timestamp_diff, byte[] silence_buffer) throws IOException {
+		if (rtp_payload_format!=null) {
+			int silence_len=rtp_payload_format.getSilencePad(sqn_diff,timestamp_diff,silence_buffer,0);
+			if (silence_len>0) {
+				output_stream.write(silence_buffer,0,silence_len);
+			}
+		}
+	}
+
+	/** Decodes the given RTP payload in place and writes it to the output stream. */
+	private void writePayload(byte[] payload_buf, int payload_off, int payload_len) throws IOException {
+		// Note: A packet that cannot be processed must not terminate the reception,
+		// since that would end the media stream for the whole call.
+		try {
+			// remove possible RTP payload format
+			int unformatted_len=(rtp_payload_format!=null)? rtp_payload_format.removeRtpPayloadFormat(payload_buf,payload_off,payload_len) : payload_len;
+
+			// drop a small percentage of packets
+			if (random_early_drop>0 && (++packet_counter)%random_early_drop==0) return;
+			// else
+
+			if (additional_decoder!=null) unformatted_len=additional_decoder.encode(payload_buf,payload_off,unformatted_len,payload_buf,payload_off);
+
+			// write the payload data to the output_stream
+			output_stream.write(payload_buf,payload_off,unformatted_len);
+		}
+		catch (IOException e) {
+			LOG.warn("Writing the received payload failed (offset={}, length={}).",
+					Integer.valueOf(payload_off),Integer.valueOf(payload_len),e);
+			throw e;
+		}
+		catch (Exception e) {
+			LOG.warn("Dropping RTP packet that could not be processed (offset={}, length={}).",
+					Integer.valueOf(payload_off),Integer.valueOf(payload_len),e);
+		}
+	}
+
 	/**
 	 * Callback invoked when stream terminates.
 	 *
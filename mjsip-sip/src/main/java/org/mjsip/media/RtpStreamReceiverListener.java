@@ -2,6 +2,7 @@ package org.mjsip.media;
 
 
 
+import org.mjsip.media.rx.JitterBufferStatistics;
 import org.zoolu.net.SocketAddress;
 
 
@@ -16,6 +17,15 @@ public interface RtpStreamReceiverListener {
 	/** When the stream receiver terminated. */
 	public void onRtpStreamReceiverTerminated(RtpStreamReceiver rr, Exception error);
 
+	/**
+	 * Periodically reports the statistics of the jitter buffer, if the receiver uses one.
+	 *
+	 * @see org.mjsip.media.rx.RtpReceiverOptions#jitterBufferMaxDelay()
+	 */
+	default void onJitterBufferStatistics(RtpStreamReceiver rr, JitterBufferStatistics statistics) {
+		// Ignore.
+	}
+
 	/**
 	 * Creates a listener concatenation that first calls this listener and then the given other
 	 * listener.
@@ -44,6 +54,15 @@ public interface RtpStreamReceiverListener {
 					other.onRtpStreamReceiverTerminated(rr, error);
 				}
 			}
+
+			@Override
+			public void onJitterBufferStatistics(RtpStreamReceiver rr, JitterBufferStatistics statistics) {
+				try {
+					self.onJitterBufferStatistics(rr, statistics);
+				} finally {
+					other.onJitterBufferStatistics(rr, statistics);
+				}
+			}
 		};
 	}
 
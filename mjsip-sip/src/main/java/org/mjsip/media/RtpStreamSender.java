@@ -22,8 +22,12 @@
 package org.mjsip.media;
 
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
+import org.mjsip.media.tx.MediaClock;
 import org.mjsip.media.tx.RtpSenderOptions;
 import org.mjsip.rtp.RtpControl;
 import org.mjsip.rtp.RtpPacket;
@@ -40,7 +44,7 @@ import org.zoolu.util.Random;
 /** RtpStreamSender is a generic RTP sender.
   * It takes media from a given InputStream and sends it through RTP packets to a remote destination.
   */
-public class RtpStreamSender implements Runnable, RtpControlledSender {
+public class RtpStreamSender implements Runnable, RtpControlledSender, MediaClock.Stream {
 	
 	private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(RtpStreamSender.class);
 
@@ -147,6 +151,39 @@ public class RtpStreamSender implements Runnable, RtpControlledSender {
 	/** Additional RTP payload encoder */
 	Encoder additional_encoder;
 
+	/** Media clock pacing the packets, or <code>null</code> for sending in a dedicated thread */
+	MediaClock media_clock;
+
+	/** Executor for reading the input stream when paced by the media clock, since the clock thread must not block */
+	private Executor reader=null;
+
+	/** Whether a read of the input stream is in progress in the {@link #reader} */
+	private volatile boolean reading=false;
+
+	/** Data read by the {@link #reader}, not yet sent */
+	private byte[] prefetch_buffer;
+
+	/** Number of bytes in {@link #prefetch_buffer}; -1, if the input stream has finished */
+	private int prefetch_len=0;
+
+	/** Error reading the input stream in the {@link #reader}, or <code>null</code> */
+	private IOException prefetch_error=null;
+
+	/** RTP packet being sent */
+	private RtpPacket rtp_packet;
+
+	/** Media time of the sent packets (in milliseconds) */
+	private long time=0;
+
+	/** Media time of the next RTCP sending report (in milliseconds) */
+	private long next_report_time=0;
+
+	/** Nominal departure time of the next packet, as given by {@link System#nanoTime()} */
+	private long next_departure;
+
+	/** Number of packets still to drop in the current debug dropping period */
+	private int debug_drop_count=0;
+
 	/**
 	 * Constructs a RtpStreamSender.
 	 * 
@@ -194,6 +231,7 @@ public class RtpStreamSender implements Runnable, RtpControlledSender {
 		this.remote_soaddr=new SocketAddress(IpAddress.getByName(dest_addr),dest_port);
 		this.rtp_socket = new RtpSocket(src_socket, remote_soaddr);
 		this.sync_adj = options.syncAdjust();
+		this.media_clock = options.mediaClock();
 		this.rtp_payload_format = payloadFormat;
 		this.rtp_control = rtpControl;
 		if (rtp_control != null) {
@@ -271,109 +309,57 @@ public class RtpStreamSender implements Runnable, RtpControlledSender {
 		_shouldStop = true;
 	}
 
+	/**
+	 * Starts sending.
+	 * 
+	 * <p>
+	 * If a {@link MediaClock} is configured and the sender performs the time synchronization
+	 * itself, the packets are sent by the clock. Otherwise, the sender runs in its own thread of
+	 * the given executor.
+	 * </p>
+	 */
+	public void start(Executor executor) {
+		if (media_clock!=null && do_sync) {
+			if (init()) {
+				reader=executor;
+				prefetch_buffer=new byte[payload_size];
+				media_clock.add(this,next_departure);
+			}
+		}
+		else executor.execute(this);
+	}
+
 	/** Runs it in a new Thread. */
 	@Override
 	public void run() {
-		if (rtp_socket==null || input_stream==null) return;
+		if (!init()) return;
 		//else
 		
-		// number of payload bytes after RTP formatting
-		int formatted_len=(rtp_payload_format!=null)? rtp_payload_format.getRtpPayloadFormatLength(payload_size) : payload_size;		
-		byte[] packet_buffer=new byte[BUFFER_SIZE];
-		RtpPacket rtp_packet=new RtpPacket(packet_buffer,RTPH_LEN); // empty RTP packet
-		if (STATIC_SSRC>=0) ssrc=STATIC_SSRC;
-		if (STATIC_SQN>=0) sqn=STATIC_SQN;
-		if (STATIC_TIMESTAMP>=0) timestamp=STATIC_TIMESTAMP;
-		rtp_packet.setHeader(p_type,ssrc,sqn,timestamp);
-		rtp_packet.setMarker(true);
-
-		long time=0;
 		long time_sync=0;
-		//long timestamp=0;
 		long start_time=System.currentTimeMillis();
-		//long byte_rate=payload_size*1000/packet_time;
-		
-		// sending report counters
-		//long packet_count=0;
-		//long octect_count=0;
-		long next_report_time=0;
-
-		if (DEBUG)
-			LOG.debug("RTP: localhost:{} --> {}", rtp_socket.getUdpSocket().getLocalPort(), remote_soaddr);
-		if (DEBUG)
-			LOG.debug("RTP: sending pkts of {} bytes of RTP payload", formatted_len);
-
-		// DEBUG DROP RATE
-		int debug_drop_count=0;
 
 		Exception error=null;
 		try {
 			while (!_shouldStop) {
-				if (time>=next_report_time) {
-					//if (rtp_control!=null) rtp_control.send(new local.net.SrRtcpPacket(rtp_packet.getSsrc(),System.currentTimeMillis(),timestamp,packet_count,octect_count));
-					if (rtp_control!=null) rtp_control.sendReport();
-					next_report_time+=RTCP_SR_TIME;
-				}
-				//java.util.Arrays.fill(packet_buffer,RTPH_LEN,formatted_len,(byte)0);
-				int len=input_stream.read(packet_buffer,RTPH_LEN,payload_size);
-				if (len < 0) {
-					if (DEBUG)
-						LOG.debug("Input stream finished.");
-					break;
-				}
-
-				// Check again, since reading the stream may have blocked.
-				if (_shouldStop) {
-					break;
-				}
-
-				if (len>0) {					
-					// apply possible RTP payload format (if required, e.g. in case of AMR)
-					formatted_len=(rtp_payload_format!=null)? rtp_payload_format.setRtpPayloadFormat(packet_buffer,RTPH_LEN,len) : len;
-
-					// do additional encoding (if defined)
-					formatted_len=(additional_encoder!=null)? additional_encoder.encode(packet_buffer,RTPH_LEN,formatted_len,packet_buffer,RTPH_LEN): formatted_len;
-
-					rtp_packet.setSequenceNumber(sqn++);
-					rtp_packet.setTimestamp(timestamp);
-					rtp_packet.setPayloadLength(formatted_len);
-					
-					// DEBUG DROP RATE BEGIN
-					//rtp_socket.send(rtp_packet);
-					if (debug_drop_count==0) {
-						rtp_socket.send(rtp_packet);
-						if (DEBUG_DROP_RATE>0 && Random.nextInt(DEBUG_DROP_RATE)==0) debug_drop_count=DEBUG_DROP_TIME;
-					}
-					else debug_drop_count--;
-					// DEBUG DROP RATE END
-					
-					rtp_packet.setMarker(false);
-
-					// update rtp timestamp (in milliseconds)
-					//long this_packet_time=(num*1000)/byte_rate;
+				int len=sendPacket();
+				if (len<0) break;
+				// wait for next departure
+				if (len>0 && do_sync) {
 					long this_packet_time=packet_time*len/payload_size/channels;
-					time+=this_packet_time;
-					timestamp+=(this_packet_time*sample_rate)/1000;
-					// update sending report counters
-					packet_count++;
-					octect_count+=formatted_len;
-					// wait for next departure
-					if (do_sync) {
-						time_sync+=this_packet_time+sync_adj;
-						// wait before next departure..
-						long sleep_time=start_time+time_sync-System.currentTimeMillis();
-						// compensate possible inter-time reduction due to the approximated time obtained by System.currentTimeMillis()
-						if (MIN_INTER_PACKET_TIME_FRACTION>1) {
-							long min_time=this_packet_time/MIN_INTER_PACKET_TIME_FRACTION;
-							if (sleep_time<min_time) sleep_time=min_time;
-						}
-						// sleep
-						if (sleep_time > 0) {
-							try {
-								Thread.sleep(sleep_time);
-							} catch (Exception e) {
-								// Ignore.
-							}
+					time_sync+=this_packet_time+sync_adj;
+					// wait before next departure..
+					long sleep_time=start_time+time_sync-System.currentTimeMillis();
+					// compensate possible inter-time reduction due to the approximated time obtained by System.currentTimeMillis()
+					if (MIN_INTER_PACKET_TIME_FRACTION>1) {
+						long min_time=this_packet_time/MIN_INTER_PACKET_TIME_FRACTION;
+						if (sleep_time<min_time) sleep_time=min_time;
+					}
+					// sleep
+					if (sleep_time > 0) {
+						try {
+							Thread.sleep(sleep_time);
+						} catch (Exception e) {
+							// Ignore.
 						}
 					}
 				}
@@ -382,15 +368,173 @@ public class RtpStreamSender implements Runnable, RtpControlledSender {
 		catch (Exception e) {
 			error=e;
 			if (DEBUG) e.printStackTrace();
-		} finally {
-			synchronized (this) {
-				_running = false;
-				notifyAll();
+		}
+		terminate(error);
+	}
+
+	/** Sends the next packet when called by the {@link MediaClock}. */
+	@Override
+	public long tick(long now) {
+		Exception error=null;
+		try {
+			if (!_shouldStop) {
+				int len=sendPacket();
+				if (len>=0) {
+					// skip one packet time, if no data was available
+					long packet_nanos=TimeUnit.MILLISECONDS.toNanos(packet_time)*(len>0? len : payload_size*channels)/payload_size/channels;
+					next_departure+=packet_nanos+TimeUnit.MILLISECONDS.toNanos(sync_adj);
+					if (MIN_INTER_PACKET_TIME_FRACTION>1) {
+						long min_departure=now+packet_nanos/MIN_INTER_PACKET_TIME_FRACTION;
+						if (next_departure-min_departure<0) return min_departure;
+					}
+					return next_departure;
+				}
+			}
+		}
+		catch (Exception e) {
+			error=e;
+			if (DEBUG) e.printStackTrace();
+		}
+		terminate(error);
+		return -1;
+	}
+
+	/** Releases all resources, if the {@link MediaClock} is stopped while sending. */
+	@Override
+	public void clockStopped() {
+		_shouldStop=true;
+		terminate(null);
+	}
+
+	/** Prepares the RTP packet before sending the first packet.
+	  * @return whether there is something to send. */
+	private boolean init() {
+		if (rtp_socket==null || input_stream==null) return false;
+		//else
+		
+		byte[] packet_buffer=new byte[BUFFER_SIZE];
+		rtp_packet=new RtpPacket(packet_buffer,RTPH_LEN); // empty RTP packet
+		if (STATIC_SSRC>=0) ssrc=STATIC_SSRC;
+		if (STATIC_SQN>=0) sqn=STATIC_SQN;
+		if (STATIC_TIMESTAMP>=0) timestamp=STATIC_TIMESTAMP;
+		rtp_packet.setHeader(p_type,ssrc,sqn,timestamp);
+		rtp_packet.setMarker(true);
+		next_departure=System.nanoTime();
+
+		if (DEBUG)
+			LOG.debug("RTP: localhost:{} --> {}", rtp_socket.getUdpSocket().getLocalPort(), remote_soaddr);
+		if (DEBUG) {
+			// number of payload bytes after RTP formatting
+			int formatted_len=(rtp_payload_format!=null)? rtp_payload_format.getRtpPayloadFormatLength(payload_size) : payload_size;		
+			LOG.debug("RTP: sending pkts of {} bytes of RTP payload", formatted_len);
+		}
+		return true;
+	}
+
+	/** Reads the next chunk of data from the input stream and sends it.
+	  * @return the number of bytes read, or -1 if the stream has finished or the sender was stopped. */
+	private int sendPacket() throws IOException {
+		if (time>=next_report_time) {
+			//if (rtp_control!=null) rtp_control.send(new local.net.SrRtcpPacket(rtp_packet.getSsrc(),System.currentTimeMillis(),timestamp,packet_count,octect_count));
+			if (rtp_control!=null) rtp_control.sendReport();
+			next_report_time+=RTCP_SR_TIME;
+		}
+		byte[] packet_buffer=rtp_packet.getPacketBuffer();
+		//java.util.Arrays.fill(packet_buffer,RTPH_LEN,formatted_len,(byte)0);
+		int len=readInput(packet_buffer,RTPH_LEN);
+		if (len < 0) {
+			if (DEBUG)
+				LOG.debug("Input stream finished.");
+			return -1;
+		}
+
+		// Check again, since reading the stream may have blocked.
+		if (_shouldStop) {
+			return -1;
+		}
+
+		if (len>0) {					
+			// apply possible RTP payload format (if required, e.g. in case of AMR)
+			int formatted_len=(rtp_payload_format!=null)? rtp_payload_format.setRtpPayloadFormat(packet_buffer,RTPH_LEN,len) : len;
+
+			// do additional encoding (if defined)
+			formatted_len=(additional_encoder!=null)? additional_encoder.encode(packet_buffer,RTPH_LEN,formatted_len,packet_buffer,RTPH_LEN): formatted_len;
+
+			rtp_packet.setSequenceNumber(sqn++);
+			rtp_packet.setTimestamp(timestamp);
+			rtp_packet.setPayloadLength(formatted_len);
+			
+			// DEBUG DROP RATE BEGIN
+			//rtp_socket.send(rtp_packet);
+			if (debug_drop_count==0) {
+				rtp_socket.send(rtp_packet);
+				if (DEBUG_DROP_RATE>0 && Random.nextInt(DEBUG_DROP_RATE)==0) debug_drop_count=DEBUG_DROP_TIME;
 			}
+			else debug_drop_count--;
+			// DEBUG DROP RATE END
+			
+			rtp_packet.setMarker(false);
+
+			// update rtp timestamp (in milliseconds)
+			//long this_packet_time=(num*1000)/byte_rate;
+			long this_packet_time=packet_time*len/payload_size/channels;
+			time+=this_packet_time;
+			timestamp+=(this_packet_time*sample_rate)/1000;
+			// update sending report counters
+			packet_count++;
+			octect_count+=formatted_len;
 		}
+		return len;
+	}
 
-		//if (DEBUG) println("rtp time:  "+time);
-		//if (DEBUG) println("real time: "+(System.currentTimeMillis()-start_time));
+	/** Reads the next chunk of data from the input stream.
+	  * <p>
+	  * When paced by the media clock, only data that is available without blocking is read. Otherwise
+	  * a blocking read is passed to the {@link #reader} and no data is returned, until the read has completed.
+	  * @return the number of bytes read, or -1 if the stream has finished. */
+	private int readInput(byte[] buf, int off) throws IOException {
+		if (reader==null) return input_stream.read(buf,off,payload_size);
+		// else
+		if (reading) return 0;
+		// else
+		if (prefetch_error!=null) throw prefetch_error;
+		if (prefetch_len!=0) {
+			int len=prefetch_len;
+			if (len>0) {
+				System.arraycopy(prefetch_buffer,0,buf,off,len);
+				prefetch_len=0;
+			}
+			return len;
+		}
+		int available=input_stream.available();
+		if (available>0) return input_stream.read(buf,off,Math.min(available,payload_size));
+		// else
+		reading=true;
+		InputStream in=input_stream;
+		reader.execute(() -> prefetch(in));
+		return 0;
+	}
+
+	/** Reads the next chunk of data into the {@link #prefetch_buffer}, may block. */
+	private void prefetch(InputStream in) {
+		try {
+			prefetch_len=in.read(prefetch_buffer,0,payload_size);
+		}
+		catch (IOException e) {
+			prefetch_error=e;
+		}
+		finally {
+			// Note: Publishes the result to the clock thread.
+			reading=false;
+		}
+	}
+
+	/** Releases all resources and notifies the listener. */
+	private void terminate(Exception error) {
+		synchronized (this) {
+			_running = false;
+			notifyAll();
+		}
 
 		// close RtpSocket
 		rtp_socket.close();
@@ -3,7 +3,9 @@
  */
 package org.mjsip.media;
 
+import org.mjsip.media.rx.LatePacketPolicy;
 import org.mjsip.media.rx.RtpReceiverOptions;
+import org.mjsip.media.tx.MediaClock;
 import org.mjsip.media.tx.RtpSenderOptions;
 import org.mjsip.rtp.RtpControl;
 import org.mjsip.sound.Codec;
@@ -55,6 +57,14 @@ public interface StreamerOptions extends RtpSenderOptions, RtpReceiverOptions {
 
 		private boolean _ssrcCheck;
 
+		private int _jitterBufferMinDelay;
+
+		private int _jitterBufferMaxDelay;
+
+		private LatePacketPolicy _latePacketPolicy = LatePacketPolicy.DROP;
+
+		private MediaClock _mediaClock;
+
 		/**
 		 * Creates a {@link StreamerOptions.Builder}.
 		 * 
@@ -127,6 +137,56 @@ public interface StreamerOptions extends RtpSenderOptions, RtpReceiverOptions {
 			_ssrcCheck = ssrcCheck;
 			return this;
 		}
+
+		/**
+		 * If the jitter buffer is enabled with a smaller maximum delay, the maximum delay is raised
+		 * to the given value.
+		 * 
+		 * @see StreamerOptions#jitterBufferMinDelay()
+		 */
+		public Builder setJitterBufferMinDelay(int minDelay) {
+			if (minDelay < 0) {
+				throw new IllegalArgumentException("Invalid jitter buffer minimum delay: " + minDelay);
+			}
+			_jitterBufferMinDelay = minDelay;
+			if (_jitterBufferMaxDelay > 0 && _jitterBufferMaxDelay < minDelay) {
+				_jitterBufferMaxDelay = minDelay;
+			}
+			return this;
+		}
+
+		/**
+		 * If the given value enables the jitter buffer and is smaller than the minimum delay, the
+		 * minimum delay is lowered to the given value.
+		 * 
+		 * @see StreamerOptions#jitterBufferMaxDelay()
+		 */
+		public Builder setJitterBufferMaxDelay(int maxDelay) {
+			if (maxDelay < 0) {
+				throw new IllegalArgumentException("Invalid jitter buffer maximum delay: " + maxDelay);
+			}
+			_jitterBufferMaxDelay = maxDelay;
+			if (maxDelay > 0 && _jitterBufferMinDelay > maxDelay) {
+				_jitterBufferMinDelay = maxDelay;
+			}
+			return this;
+		}
+
+		/**
+		 * @see StreamerOptions#latePacketPolicy()
+		 */
+		public Builder setLatePacketPolicy(LatePacketPolicy policy) {
+			_latePacketPolicy = policy;
+			return this;
+		}
+	
+		/**
+		 * @see StreamerOptions#mediaClock()
+		 */
+		public Builder setMediaClock(MediaClock mediaClock) {
+			_mediaClock = mediaClock;
+			return this;
+		}
 	
 		/**
 		 * Creates the {@link StreamerOptions} to use.
@@ -172,6 +232,26 @@ public interface StreamerOptions extends RtpSenderOptions, RtpReceiverOptions {
 				public boolean ssrcCheck() {
 					return _ssrcCheck;
 				}
+
+				@Override
+				public int jitterBufferMinDelay() {
+					return _jitterBufferMinDelay;
+				}
+
+				@Override
+				public int jitterBufferMaxDelay() {
+					return _jitterBufferMaxDelay;
+				}
+
+				@Override
+				public LatePacketPolicy latePacketPolicy() {
+					return _latePacketPolicy;
+				}
+
+				@Override
+				public MediaClock mediaClock() {
+					return _mediaClock;
+				}
 			};
 		}
 	}
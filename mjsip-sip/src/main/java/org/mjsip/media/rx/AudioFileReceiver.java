@@ -54,6 +54,7 @@ public class AudioFileReceiver implements AudioReceiver {
 				}
 			}
 		};
+		receiver.setClockRate(RtpStreamReceiver.getClockRate(payload_type, sample_rate));
 		return new RtpAudioRxHandler(receiver);
 	}
 
@@ -65,6 +65,7 @@ public class JavaxAudioOutput implements AudioReceiver {
 		}
 
 		RtpStreamReceiver receiver = new RtpStreamReceiver(options, audio_output_stream, additional_decoder, payloadFormat, socket, listener);
+		receiver.setClockRate(RtpStreamReceiver.getClockRate(payload_type, sample_rate));
 		RtpAudioRxHandler handle = new RtpAudioRxHandler(receiver) {
 			@Override
 			public void start(Executor executor) {
@@ -0,0 +1,416 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.media.rx;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.mjsip.rtp.RtpPacket;
+
+/**
+ * Adaptive playout buffer for a received RTP stream.
+ *
+ * <p>
+ * Packets are stored by their sequence number and played out in sequence order. The playout time
+ * of a packet is derived from its RTP timestamp plus a playout delay. The delay adapts to the
+ * interarrival jitter (RFC 3550 section 6.4.1) within the configured minimum and maximum delay.
+ * Larger corrections are applied at the start of a talk spurt (packet with marker bit), smaller
+ * ones by one packet time per second.
+ * </p>
+ *
+ * <p>
+ * A packet that is still missing when the following packet is due is counted as lost. A packet
+ * arriving after its playout time is discarded as late, see {@link LatePacketPolicy}.
+ * </p>
+ *
+ * <p>
+ * The buffer is not thread-safe, it is meant to be used by the receiver thread only. All times
+ * are given in nanoseconds as returned by {@link System#nanoTime()}.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+public class JitterBuffer {
+
+	/**
+	 * Receiver of packets that are due for playout.
+	 */
+	public interface Sink {
+
+		/**
+		 * Plays the payload of the next packet.
+		 *
+		 * @param buf
+		 *        Buffer with the RTP payload, only valid during this call.
+		 * @param off
+		 *        Offset of the payload in the buffer.
+		 * @param len
+		 *        Length of the payload.
+		 * @param sqnInterval
+		 *        Difference to the sequence number of the previously played packet, 0 for the
+		 *        first packet.
+		 * @param timestampInterval
+		 *        Difference to the RTP timestamp of the previously played packet, 0 for the first
+		 *        packet.
+		 *
+		 * @see org.mjsip.rtp.RtpPayloadFormat#getSilencePad(int, long, byte[], int)
+		 */
+		void play(byte[] buf, int off, int len, int sqnInterval, long timestampInterval) throws IOException;
+
+	}
+
+	/**
+	 * Interval of the gradual adaptation of the playout delay.
+	 */
+	private static final long ADAPT_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+	/**
+	 * Factor between the interarrival jitter and the target playout delay.
+	 */
+	private static final int JITTER_FACTOR = 3;
+
+	/**
+	 * Maximum duration of a single packet in milliseconds, longer timestamp differences are
+	 * considered silence.
+	 */
+	private static final int MAX_PACKET_TIME = 200;
+
+	/**
+	 * Offset of extended sequence numbers, so that packets reordered with the first one do not get
+	 * negative numbers.
+	 */
+	private static final long SQN_OFFSET = 1 << 16;
+
+	private final int _clockRate;
+
+	private final long _minDelay;
+
+	private final long _maxDelay;
+
+	private final LatePacketPolicy _latePolicy;
+
+	private final Slot[] _slots;
+
+	private final int _mask;
+
+	private boolean _started;
+
+	/** Extended sequence number of the first packet. */
+	private long _baseSqn;
+
+	/** Extended highest sequence number received. */
+	private long _highestSqn;
+
+	/** Extended sequence number of the next packet to play. */
+	private long _nextSqn;
+
+	/** Extended sequence number of the last packet played, -1 if none. */
+	private long _lastPlayedSqn = -1;
+
+	private long _lastPlayedTimestamp;
+
+	/** Samples per packet, learned from consecutive packets. */
+	private long _packetSamples;
+
+	/** Time that is associated with {@link #_baseTimestamp}. */
+	private long _baseTime;
+
+	private long _baseTimestamp;
+
+	/** The current playout delay. */
+	private long _delay;
+
+	private long _nextAdaptTime;
+
+	private boolean _lateInInterval;
+
+	/** Time origin for the jitter computation. */
+	private long _startTime;
+
+	private boolean _hasTransit;
+
+	private double _lastTransit;
+
+	/** Interarrival jitter in timestamp units. */
+	private double _jitter;
+
+	private int _depth;
+
+	private long _received;
+
+	private long _lost;
+
+	private long _late;
+
+	private long _duplicates;
+
+	private long _reordered;
+
+	/**
+	 * Creates a {@link JitterBuffer}.
+	 *
+	 * @param clockRate
+	 *        The RTP clock rate of the stream in Hz.
+	 * @param minDelay
+	 *        The minimum playout delay in milliseconds.
+	 * @param maxDelay
+	 *        The maximum playout delay in milliseconds.
+	 * @param latePolicy
+	 *        How to handle packets arriving after their playout time.
+	 */
+	public JitterBuffer(int clockRate, int minDelay, int maxDelay, LatePacketPolicy latePolicy) {
+		if (clockRate <= 0) {
+			throw new IllegalArgumentException("Invalid clock rate: " + clockRate);
+		}
+		if (minDelay < 0 || maxDelay < minDelay) {
+			throw new IllegalArgumentException("Invalid delay range: " + minDelay + ".." + maxDelay);
+		}
+		_clockRate = clockRate;
+		_minDelay = TimeUnit.MILLISECONDS.toNanos(minDelay);
+		_maxDelay = TimeUnit.MILLISECONDS.toNanos(maxDelay);
+		_latePolicy = latePolicy;
+		_packetSamples = clockRate / 50;
+
+		// Room for the maximum delay with packets of 10ms, plus reordering beyond that.
+		int capacity = Integer.highestOneBit(Math.max(16, maxDelay / 10) * 2 - 1) << 1;
+		_slots = new Slot[capacity];
+		for (int n = 0; n < capacity; n++) {
+			_slots[n] = new Slot();
+		}
+		_mask = capacity - 1;
+	}
+
+	/**
+	 * Maximum number of packets that can be buffered.
+	 */
+	public int getCapacity() {
+		return _slots.length;
+	}
+
+	/**
+	 * Adds a received packet.
+	 *
+	 * <p>
+	 * The payload is copied, the given packet can be reused afterwards.
+	 * </p>
+	 *
+	 * @param packet
+	 *        The received packet.
+	 * @param now
+	 *        The time of arrival.
+	 * @return Whether the packet was accepted, <code>false</code> for late and duplicate packets.
+	 */
+	public boolean add(RtpPacket packet, long now) {
+		int sqn = packet.getSequenceNumber();
+		long timestamp = packet.getTimestamp();
+		_received++;
+
+		if (!_started) {
+			_started = true;
+			_startTime = now;
+			_baseSqn = SQN_OFFSET + sqn;
+			reset(SQN_OFFSET + sqn, now, timestamp);
+			_delay = _minDelay;
+			_nextAdaptTime = now + ADAPT_INTERVAL;
+		}
+
+		long ext = extend(sqn);
+		updateJitter(now, timestamp);
+
+		if (ext < _nextSqn - _slots.length || ext >= _nextSqn + _slots.length) {
+			// The sender has restarted or skipped far ahead: start over, the jump does not count as loss.
+			_baseSqn += ext - _highestSqn - 1;
+			clear();
+			reset(ext, now, timestamp);
+		} else if (ext < _nextSqn) {
+			if (ext == _lastPlayedSqn) {
+				_duplicates++;
+			} else {
+				_late++;
+				_lateInInterval = true;
+				if (_latePolicy == LatePacketPolicy.EXTEND) {
+					_delay = Math.min(_maxDelay, _delay + packetTime());
+				}
+			}
+			return false;
+		}
+
+		Slot slot = _slots[(int) ext & _mask];
+		if (slot._present && slot._sqn == ext) {
+			_duplicates++;
+			return false;
+		}
+		if (ext > _highestSqn) {
+			_highestSqn = ext;
+		} else if (ext < _highestSqn) {
+			_reordered++;
+		}
+
+		if (packet.hasMarker() && ext == _nextSqn && _depth == 0) {
+			// Start of a talk spurt, the delay can be adjusted without disturbing playout.
+			_baseTime = now;
+			_baseTimestamp = timestamp;
+			_delay = targetDelay();
+		}
+
+		slot.set(ext, timestamp, packet.getPacketBuffer(), packet.getPacketOffset() + packet.getHeaderLength(),
+			packet.getPayloadLength());
+		_depth++;
+		return true;
+	}
+
+	/**
+	 * Plays all packets that are due at the given time.
+	 *
+	 * @param now
+	 *        The current time.
+	 * @param sink
+	 *        The receiver of the packets.
+	 * @return The time when the next packet is due, or <code>-1</code>, if no packet is waiting.
+	 */
+	public long playout(long now, Sink sink) throws IOException {
+		if (!_started) {
+			return -1;
+		}
+
+		if (now - _nextAdaptTime >= 0) {
+			adapt(now);
+		}
+
+		while (_depth > 0) {
+			long sqn = _nextSqn;
+			Slot slot = _slots[(int) sqn & _mask];
+			while (!slot._present || slot._sqn != sqn) {
+				sqn++;
+				slot = _slots[(int) sqn & _mask];
+			}
+
+			long due = playoutTime(slot._timestamp);
+			if (now - due < 0) {
+				return due;
+			}
+
+			_lost += sqn - _nextSqn;
+
+			int sqnInterval;
+			long timestampInterval;
+			if (_lastPlayedSqn < 0) {
+				sqnInterval = 0;
+				timestampInterval = 0;
+			} else {
+				sqnInterval = (int) (sqn - _lastPlayedSqn);
+				timestampInterval = (int) (slot._timestamp - _lastPlayedTimestamp);
+				if (sqnInterval == 1 && timestampInterval > 0
+					&& timestampInterval <= _clockRate * MAX_PACKET_TIME / 1000) {
+					_packetSamples = timestampInterval;
+				}
+			}
+
+			_lastPlayedSqn = sqn;
+			_lastPlayedTimestamp = slot._timestamp;
+			_nextSqn = sqn + 1;
+			slot._present = false;
+			_depth--;
+
+			sink.play(slot._data, 0, slot._length, sqnInterval, timestampInterval);
+		}
+		return -1;
+	}
+
+	/**
+	 * The current statistics.
+	 */
+	public JitterBufferStatistics getStatistics() {
+		long expected = _started ? _highestSqn - _baseSqn + 1 : 0;
+		return new JitterBufferStatistics(_received, _lost, _late, _duplicates, _reordered, _highestSqn - SQN_OFFSET,
+			expected - _received + _duplicates, (long) _jitter, _clockRate, _depth,
+			TimeUnit.NANOSECONDS.toMillis(_delay));
+	}
+
+	private long extend(int sqn) {
+		short delta = (short) (sqn - (int) _highestSqn);
+		return _highestSqn + delta;
+	}
+
+	private void reset(long sqn, long now, long timestamp) {
+		_highestSqn = sqn;
+		_nextSqn = sqn;
+		_lastPlayedSqn = -1;
+		_baseTime = now;
+		_baseTimestamp = timestamp;
+	}
+
+	private void clear() {
+		for (Slot slot : _slots) {
+			slot._present = false;
+		}
+		_depth = 0;
+	}
+
+	private void updateJitter(long now, long timestamp) {
+		double arrival = (double) (now - _startTime) * _clockRate / 1_000_000_000L;
+		double transit = arrival - (int) timestamp;
+		if (_hasTransit) {
+			double d = Math.abs(transit - _lastTransit);
+			if (d < _clockRate) {
+				_jitter += (d - _jitter) / 16;
+			}
+		}
+		_lastTransit = transit;
+		_hasTransit = true;
+	}
+
+	private void adapt(long now) {
+		_nextAdaptTime = now + ADAPT_INTERVAL;
+
+		long target = targetDelay();
+		long step = packetTime();
+		if (target > _delay + step / 2) {
+			_delay = Math.min(target, _delay + step);
+		} else if (target < _delay - step / 2 && !_lateInInterval) {
+			_delay = Math.max(target, _delay - step);
+		}
+		_lateInInterval = false;
+	}
+
+	private long targetDelay() {
+		long jitter = (long) (_jitter * JITTER_FACTOR * 1_000_000_000L / _clockRate);
+		return Math.max(_minDelay, Math.min(_maxDelay, jitter));
+	}
+
+	private long packetTime() {
+		return _packetSamples * 1_000_000_000L / _clockRate;
+	}
+
+	private long playoutTime(long timestamp) {
+		int samples = (int) (timestamp - _baseTimestamp);
+		return _baseTime + _delay + samples * 1_000_000_000L / _clockRate;
+	}
+
+	private static final class Slot {
+
+		boolean _present;
+
+		long _sqn;
+
+		long _timestamp;
+
+		byte[] _data = new byte[0];
+
+		int _length;
+
+		void set(long sqn, long timestamp, byte[] buf, int off, int len) {
+			if (_data.length < len) {
+				_data = new byte[len];
+			}
+			System.arraycopy(buf, off, _data, 0, len);
+			_length = len;
+			_sqn = sqn;
+			_timestamp = timestamp;
+			_present = true;
+		}
+
+	}
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.media.rx;
+
+/**
+ * Snapshot of the statistics of a {@link JitterBuffer}.
+ *
+ * @see JitterBuffer#getStatistics()
+ */
+public final class JitterBufferStatistics {
+
+	private final long _received;
+
+	private final long _lost;
+
+	private final long _late;
+
+	private final long _duplicates;
+
+	private final long _reordered;
+
+	private final long _highestSqn;
+
+	private final long _cumulativeLost;
+
+	private final long _jitter;
+
+	private final int _clockRate;
+
+	private final int _depth;
+
+	private final long _delay;
+
+	/**
+	 * Creates a {@link JitterBufferStatistics}.
+	 */
+	JitterBufferStatistics(long received, long lost, long late, long duplicates, long reordered, long highestSqn,
+			long cumulativeLost, long jitter, int clockRate, int depth, long delay) {
+		_received = received;
+		_lost = lost;
+		_late = late;
+		_duplicates = duplicates;
+		_reordered = reordered;
+		_highestSqn = highestSqn;
+		_cumulativeLost = cumulativeLost;
+		_jitter = jitter;
+		_clockRate = clockRate;
+		_depth = depth;
+		_delay = delay;
+	}
+
+	/**
+	 * Number of packets received, including late and duplicate packets.
+	 */
+	public long getReceived() {
+		return _received;
+	}
+
+	/**
+	 * Number of packets that were missing at their playout time.
+	 */
+	public long getLost() {
+		return _lost;
+	}
+
+	/**
+	 * Number of packets discarded, because they arrived after their playout time.
+	 */
+	public long getLate() {
+		return _late;
+	}
+
+	/**
+	 * Number of packets discarded as duplicates.
+	 */
+	public long getDuplicates() {
+		return _duplicates;
+	}
+
+	/**
+	 * Number of packets that arrived after a packet with a higher sequence number.
+	 */
+	public long getReordered() {
+		return _reordered;
+	}
+
+	/**
+	 * The extended highest sequence number received, see RFC 3550 section 6.4.1.
+	 */
+	public long getHighestSqn() {
+		return _highestSqn;
+	}
+
+	/**
+	 * Number of packets expected less the number of packets received, see RFC 3550 section 6.4.1.
+	 */
+	public long getCumulativeLost() {
+		return _cumulativeLost;
+	}
+
+	/**
+	 * The interarrival jitter in timestamp units, see RFC 3550 section 6.4.1.
+	 */
+	public long getJitter() {
+		return _jitter;
+	}
+
+	/**
+	 * The interarrival jitter in milliseconds.
+	 */
+	public double getJitterMillis() {
+		return _jitter * 1000.0 / _clockRate;
+	}
+
+	/**
+	 * Number of packets currently waiting for playout.
+	 */
+	public int getDepth() {
+		return _depth;
+	}
+
+	/**
+	 * The current playout delay in milliseconds.
+	 */
+	public long getDelayMillis() {
+		return _delay;
+	}
+
+	@Override
+	public String toString() {
+		return "received=" + _received + ", lost=" + _lost + ", late=" + _late + ", duplicates=" + _duplicates
+			+ ", reordered=" + _reordered + ", jitter=" + String.format("%.1f", getJitterMillis()) + "ms, depth="
+			+ _depth + ", delay=" + _delay + "ms";
+	}
+
+}
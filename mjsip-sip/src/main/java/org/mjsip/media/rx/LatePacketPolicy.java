@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.media.rx;
+
+/**
+ * How a {@link JitterBuffer} handles packets that arrive after their playout time.
+ */
+public enum LatePacketPolicy {
+
+	/**
+	 * Late packets are discarded, the playout delay is only adapted to the measured interarrival
+	 * jitter.
+	 */
+	DROP,
+
+	/**
+	 * Late packets are discarded, and the playout delay is increased by one packet time (up to the
+	 * maximum delay), so that packets arriving equally late in the future can be played.
+	 */
+	EXTEND;
+
+}
@@ -28,4 +28,20 @@ public interface RtpReceiverOptions {
 	 */
 	boolean ssrcCheck();
 
+	/**
+	 * Minimum playout delay of the {@link JitterBuffer} in milliseconds.
+	 */
+	int jitterBufferMinDelay();
+
+	/**
+	 * Maximum playout delay of the {@link JitterBuffer} in milliseconds. A value of 0 means that no
+	 * jitter buffer is used and packets are played out as they arrive.
+	 */
+	int jitterBufferMaxDelay();
+
+	/**
+	 * How the {@link JitterBuffer} handles packets arriving after their playout time.
+	 */
+	LatePacketPolicy latePacketPolicy();
+
 }
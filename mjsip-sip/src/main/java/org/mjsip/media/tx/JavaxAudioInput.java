@@ -68,7 +68,8 @@ public class JavaxAudioInput implements AudioTransmitter {
 		return new RtpAudioTxHandle(sender) {
 			@Override
 			public void start(Executor executor) {
-				super.start(executor);
+				// Reading from the audio line blocks, which must not happen in a shared media clock.
+				executor.execute(getRtpSender());
 				SimpleAudioSystem.startAudioInputLine();
 			}
 
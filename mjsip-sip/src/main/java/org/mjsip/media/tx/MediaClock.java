@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.media.tx;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Central clock driving the paced sending of many media streams from a few threads.
+ *
+ * <p>
+ * Instead of a sleeping thread per stream, each {@link Stream} is assigned to one of a fixed
+ * number of clock threads. A clock thread keeps its streams ordered by the time their next frame
+ * is due and calls {@link Stream#tick(long)} exactly at that time. The stream sends its frame and
+ * returns the due time of the following one. Due times are computed in nanoseconds from the start
+ * of the stream, so that rounding errors do not accumulate.
+ * </p>
+ *
+ * <p>
+ * A clock thread parks until shortly before the next due time and spins for the remainder, see
+ * {@link #SPIN_NANOS}. Since all streams of a thread share it, {@link Stream#tick(long)} must not
+ * block.
+ * </p>
+ *
+ * <p>
+ * When the clock is stopped, all streams still active are informed through
+ * {@link Stream#clockStopped()}.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+public class MediaClock {
+
+	private static final Logger LOG = LoggerFactory.getLogger(MediaClock.class);
+
+	/**
+	 * Time before a due time, in which a clock thread busy waits instead of parking, since waking
+	 * up from park is not accurate to the microsecond.
+	 */
+	public static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+	/**
+	 * A media stream paced by a {@link MediaClock}.
+	 */
+	public interface Stream {
+
+		/**
+		 * Sends the next frame.
+		 *
+		 * @param now
+		 *        The current time as returned by {@link System#nanoTime()}.
+		 * @return The time in nanoseconds when the following frame is due, or <code>-1</code>, if
+		 *         the stream has finished and must be removed from the clock.
+		 */
+		long tick(long now);
+
+		/**
+		 * Called, if the clock is stopped before the stream has finished.
+		 *
+		 * <p>
+		 * The stream is no longer called and must release its resources.
+		 * </p>
+		 */
+		default void clockStopped() {
+			// No resources by default.
+		}
+
+	}
+
+	private static final AtomicInteger CLOCKS = new AtomicInteger();
+
+	private final Worker[] _workers;
+
+	private volatile boolean _stopped;
+
+	/**
+	 * Creates a {@link MediaClock} and starts its threads.
+	 *
+	 * @param threads
+	 *        The number of clock threads to distribute the streams on.
+	 */
+	public MediaClock(int threads) {
+		if (threads <= 0) {
+			throw new IllegalArgumentException("Invalid number of clock threads: " + threads);
+		}
+		int id = CLOCKS.incrementAndGet();
+		_workers = new Worker[threads];
+		for (int n = 0; n < threads; n++) {
+			Worker worker = new Worker();
+			Thread thread = new Thread(worker, "MediaClock-" + id + "-" + n);
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MAX_PRIORITY);
+			worker._thread = thread;
+			_workers[n] = worker;
+			thread.start();
+		}
+	}
+
+	/**
+	 * The number of clock threads.
+	 */
+	public int getThreads() {
+		return _workers.length;
+	}
+
+	/**
+	 * The number of streams currently paced by this clock.
+	 */
+	public int getStreams() {
+		int result = 0;
+		for (Worker worker : _workers) {
+			result += worker._streams.get();
+		}
+		return result;
+	}
+
+	/**
+	 * Adds a stream to the clock thread with the least number of streams.
+	 *
+	 * @param stream
+	 *        The stream to pace.
+	 * @param due
+	 *        The time when the first frame of the stream is due, as returned by
+	 *        {@link System#nanoTime()}.
+	 */
+	public void add(Stream stream, long due) {
+		if (_stopped) {
+			throw new IllegalStateException("Media clock has been stopped.");
+		}
+		Worker worker = _workers[0];
+		for (int n = 1; n < _workers.length; n++) {
+			if (_workers[n]._streams.get() < worker._streams.get()) {
+				worker = _workers[n];
+			}
+		}
+		worker.add(new Entry(stream, due));
+	}
+
+	/**
+	 * Stops all clock threads.
+	 *
+	 * <p>
+	 * Streams that are still active are no longer called, but stopped with
+	 * {@link Stream#clockStopped()}.
+	 * </p>
+	 */
+	public void stop() {
+		_stopped = true;
+		for (Worker worker : _workers) {
+			LockSupport.unpark(worker._thread);
+		}
+	}
+
+	private static final class Entry implements Comparable<Entry> {
+
+		final Stream _stream;
+
+		long _due;
+
+		Entry(Stream stream, long due) {
+			_stream = stream;
+			_due = due;
+		}
+
+		@Override
+		public int compareTo(Entry other) {
+			return Long.compare(_due - other._due, 0);
+		}
+
+	}
+
+	private final class Worker implements Runnable {
+
+		Thread _thread;
+
+		final AtomicInteger _streams = new AtomicInteger();
+
+		private final ConcurrentLinkedQueue<Entry> _added = new ConcurrentLinkedQueue<>();
+
+		private final PriorityQueue<Entry> _queue = new PriorityQueue<>();
+
+		/**
+		 * Whether this worker has left its loop, streams added afterwards must be stopped by the
+		 * adding thread.
+		 */
+		private volatile boolean _done;
+
+		void add(Entry entry) {
+			_streams.incrementAndGet();
+			_added.add(entry);
+			if (_done) {
+				stopAdded();
+			} else {
+				LockSupport.unpark(_thread);
+			}
+		}
+
+		@Override
+		public void run() {
+			try {
+				loop();
+			} finally {
+				_done = true;
+				Entry entry;
+				while ((entry = _queue.poll()) != null) {
+					stop(entry);
+				}
+				stopAdded();
+			}
+		}
+
+		private void stopAdded() {
+			Entry entry;
+			while ((entry = _added.poll()) != null) {
+				stop(entry);
+			}
+		}
+
+		private void stop(Entry entry) {
+			_streams.decrementAndGet();
+			try {
+				entry._stream.clockStopped();
+			} catch (RuntimeException ex) {
+				LOG.error("Stopping media stream failed: {}", entry._stream, ex);
+			}
+		}
+
+		private void loop() {
+			while (!_stopped) {
+				Entry added;
+				while ((added = _added.poll()) != null) {
+					_queue.add(added);
+				}
+
+				Entry next = _queue.peek();
+				if (next == null) {
+					LockSupport.park(this);
+					continue;
+				}
+
+				long now = System.nanoTime();
+				long wait = next._due - now;
+				if (wait > SPIN_NANOS) {
+					LockSupport.parkNanos(this, wait - SPIN_NANOS);
+					continue;
+				}
+				while (wait > 0) {
+					Thread.onSpinWait();
+					now = System.nanoTime();
+					wait = next._due - now;
+				}
+
+				_queue.poll();
+				long due;
+				try {
+					due = next._stream.tick(now);
+				} catch (RuntimeException ex) {
+					LOG.error("Media stream failed, removing it from clock: {}", next._stream, ex);
+					due = -1;
+				}
+				if (due == -1) {
+					_streams.decrementAndGet();
+				} else {
+					next._due = due;
+					_queue.add(next);
+				}
+			}
+		}
+
+	}
+
+}
@@ -32,7 +32,7 @@ public class RtpAudioTxHandle implements AudioTXHandle {
 
 	@Override
 	public void start(Executor executor) {
-		executor.execute(_rtpSender);
+		_rtpSender.start(executor);
 	}
 
 	@Override
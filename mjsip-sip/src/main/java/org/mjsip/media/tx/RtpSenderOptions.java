@@ -22,4 +22,12 @@ public interface RtpSenderOptions {
 	 */
 	long syncAdjust();
 
+	/**
+	 * The clock pacing the sent packets.
+	 * 
+	 * @return The shared {@link MediaClock}, or <code>null</code> to send each stream from its own
+	 *         thread.
+	 */
+	MediaClock mediaClock();
+
 }
@@ -16,6 +16,9 @@ public class PortConfig implements PortOptions {
 	@Option(name = "--port-count", usage = "The number of ports used for RTP media streaming.")
 	private int _portCount = 100;
 
+	@Option(name = "--port-quarantine", usage = "Time in milliseconds a released media port is not reused (0 to reuse immediately).")
+	private long _portQuarantine = 0;
+
 	@Override
 	public int getMediaPort() {
 		return _mediaPort;
@@ -36,11 +39,21 @@ public class PortConfig implements PortOptions {
 		_portCount = portCount;
 	}
 
+	@Override
+	public long getPortQuarantine() {
+		return _portQuarantine;
+	}
+
+	/** @see #getPortQuarantine() */
+	public void setPortQuarantine(long portQuarantine) {
+		_portQuarantine = portQuarantine;
+	}
+
 	/** 
 	 * Creates a {@link PortPool} with this configuration.
 	 */
 	public PortPool createPool() {
-		return new PortPool(getMediaPort(), getPortCount());
+		return new PortPool(getMediaPort(), getPortCount(), getPortQuarantine());
 	}
 
 }
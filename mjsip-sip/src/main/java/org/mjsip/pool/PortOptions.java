@@ -27,4 +27,14 @@ public interface PortOptions {
 	 */
 	int getPortCount();
 
+	/**
+	 * Time in milliseconds a released port is kept in quarantine before it is allocated again.
+	 * 
+	 * <p>
+	 * Prevents that a new media stream receives packets still arriving for the former stream on
+	 * the same port. Use <code>0</code> to reuse released ports immediately.
+	 * </p>
+	 */
+	long getPortQuarantine();
+
 }
@@ -3,105 +3,175 @@
  */
 package org.mjsip.pool;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Pool of host ports to e.g. serve RTP media streams.
+ *
+ * <p>
+ * The pool can be used concurrently from any number of threads without a global lock. The free
+ * ports are kept in several lock-free stacks (stripes). A thread allocates from and releases to
+ * the stripe selected by its thread ID, so that a thread usually reuses the ports it has released
+ * itself. Only if its stripe is empty, a thread takes ports from other stripes.
+ * </p>
+ *
+ * <p>
+ * Optionally, a released port is kept in quarantine for some time before it can be allocated
+ * again. This prevents that a new media stream receives stray packets from the former stream
+ * using the same port.
+ * </p>
  */
 public class PortPool {
-	
+
 	/**
 	 * Exception thrown, when allocating from an exhausted/empty pool.
 	 */
 	public static class Exhausted extends RuntimeException {
-		/** 
+		/**
 		 * Creates a {@link PortPool.Exhausted}.
 		 */
 		public Exhausted(String message) {
 			super(message);
 		}
 	}
-	
+
 	/**
-	 * All ports that are initially available from this pool.
-	 * 
-	 * <p>
-	 * For book keeping in assertions-enabled mode only.
-	 * </p>
+	 * Minimum number of ports per stripe, smaller pools use fewer stripes.
 	 */
-	private final Set<Integer> _allPorts = new HashSet<>();
+	private static final int MIN_STRIPE_PORTS = 32;
+
+	private static final int FREE = 0;
+
+	private static final int ALLOCATED = 1;
+
+	private static final int QUARANTINED = 2;
+
+	private final int _firstPort;
 
 	/**
-	 * Ports that are currently still available from this pool (modified in allocate and release).
-	 * 
+	 * Time in milliseconds a released port is kept in quarantine.
+	 */
+	private final long _quarantine;
+
+	/**
+	 * The state of each port ({@link #FREE}, {@link #ALLOCATED}, or {@link #QUARANTINED}) indexed
+	 * by its offset to {@link #_firstPort}.
+	 */
+	private final AtomicIntegerArray _state;
+
+	/**
+	 * The link to the next free port in the stack of a stripe, indexed by the offset of a port.
+	 *
 	 * <p>
-	 * For book keeping in assertions-enabled mode only.
+	 * Links are stored as offset plus one, <code>0</code> marks the end of a stack.
 	 * </p>
 	 */
-	private final Set<Integer> _availablePorts = new HashSet<>();
-	
+	private final int[] _next;
+
+	private final Stripe[] _stripes;
+
+	private final int _stripeMask;
+
+	private final LongAdder _allocations = new LongAdder();
+
+	private final LongAdder _releases = new LongAdder();
+
+	private final LongAdder _exhausted = new LongAdder();
+
+	private final LongAdder _quarantined = new LongAdder();
+
 	/**
-	 * The buffer of ports.
+	 * Creates a {@link PortPool} without quarantine.
 	 */
-	private final int[] _ports;
-	
+	public PortPool(int firstPort, int portCnt) {
+		this(firstPort, portCnt, 0);
+	}
+
 	/**
-	 * The index in the {@link #_ports} buffer of the next port being allocated.
-	 */
-	private int _next;
-	
-	/** 
 	 * Creates a {@link PortPool}.
+	 *
+	 * @param firstPort
+	 *        The first port in the pool.
+	 * @param portCnt
+	 *        The number of consecutive ports in the pool.
+	 * @param quarantine
+	 *        Time in milliseconds a released port is not allocated again, <code>0</code> to
+	 *        allow immediate reuse.
 	 */
-	public PortPool(int firstPort, int portCnt) {
-		_ports = new int[portCnt];
-		for (int n = 0, p = firstPort, end = firstPort + portCnt; p < end; n++, p++) {
-			Integer port = Integer.valueOf(p);
-			
-			_ports[n] = p;
-			assert createPort(port);
+	public PortPool(int firstPort, int portCnt, long quarantine) {
+		_firstPort = firstPort;
+		_quarantine = quarantine;
+		_state = new AtomicIntegerArray(portCnt);
+		_next = new int[portCnt];
+
+		int stripeCnt = stripeCount(portCnt);
+		_stripes = new Stripe[stripeCnt];
+		_stripeMask = stripeCnt - 1;
+		for (int s = 0; s < stripeCnt; s++) {
+			Stripe stripe = new Stripe();
+			_stripes[s] = stripe;
+
+			// Consecutive ports per stripe, pushed in reverse order to allocate the lowest port first.
+			int start = (int) ((long) portCnt * s / stripeCnt);
+			int end = (int) ((long) portCnt * (s + 1) / stripeCnt);
+			for (int n = end - 1; n >= start; n--) {
+				push(stripe, n);
+			}
 		}
-		_next = 0;
 	}
-	
-	private boolean createPort(Integer port) {
-		_allPorts.add(port);
-		_availablePorts.add(port);
-		return true;
+
+	private static int stripeCount(int portCnt) {
+		int max = Math.max(1, Math.min(2 * Runtime.getRuntime().availableProcessors(), portCnt / MIN_STRIPE_PORTS));
+		return Integer.highestOneBit(max);
 	}
 
-	/** 
+	/**
 	 * Whether there is some port available to allocate.
 	 */
 	public boolean isAvailable() {
-		return _next < _ports.length;
+		long now = _quarantine > 0 ? System.currentTimeMillis() : 0;
+		for (Stripe stripe : _stripes) {
+			if (stripe.hasFree() || stripe.hasExpired(now)) {
+				return true;
+			}
+		}
+		return false;
 	}
 
 	/**
 	 * Allocates a free port from this buffer.
 	 *
 	 * @return The newly allocated buffer.
-	 * 
+	 *
 	 * @throws Exhausted If there are no more ports available.
 	 * @see #isAvailable()
 	 */
-	public synchronized int allocate() {
-		if (!isAvailable()) {
+	public int allocate() {
+		int home = home();
+		long now = 0;
+		if (_quarantine > 0) {
+			now = System.currentTimeMillis();
+			drain(_stripes[home], now);
+		}
+
+		int offset = take(home);
+		if (offset < 0 && _quarantine > 0) {
+			for (Stripe stripe : _stripes) {
+				drain(stripe, now);
+			}
+			offset = take(home);
+		}
+		if (offset < 0) {
+			_exhausted.increment();
 			throw new Exhausted("No more ports available.");
 		}
-		int port = _ports[_next];
-		assert canAllocate(port);
-		_next = _next + 1;
-		return port;
-	}
 
-	private boolean canAllocate(int port) {
-		Integer allocatedPort = Integer.valueOf(port);
-		assert _allPorts.contains(allocatedPort) : "The allocated port is not among the ports of this pool: " + port;
-		assert _availablePorts.contains(allocatedPort) : "The allocated port is not available from this pool: " + port;
-		_availablePorts.remove(allocatedPort);
-		return true;
+		boolean ok = _state.compareAndSet(offset, FREE, ALLOCATED);
+		assert ok : "The allocated port is not available from this pool: " + (_firstPort + offset);
+		_allocations.increment();
+		return _firstPort + offset;
 	}
 
 	/**
@@ -109,23 +179,236 @@ public class PortPool {
 	 *
 	 * @param port The port to release.
 	 */
-	public synchronized void release(int port) {
-		int last = (_next - 1);
-		if (last < 0) {
-			throw new IllegalStateException("Pool has no allocated ports that could be released: " + port);
+	public void release(int port) {
+		int offset = port - _firstPort;
+		if (offset < 0 || offset >= _next.length) {
+			throw new IllegalArgumentException("The released port is not among the ports of this pool: " + port);
 		}
-		
-		assert canRelease(port);
-		_ports[last] = port;
-		_next = last;
+		if (!_state.compareAndSet(offset, ALLOCATED, _quarantine > 0 ? QUARANTINED : FREE)) {
+			throw new IllegalStateException("The released port is not allocated from this pool: " + port);
+		}
+		_releases.increment();
+
+		Stripe stripe = _stripes[home()];
+		if (_quarantine > 0) {
+			_quarantined.increment();
+			stripe.enqueue(offset, System.currentTimeMillis() + _quarantine);
+		} else {
+			push(stripe, offset);
+		}
+	}
+
+	/**
+	 * The number of ports in this pool.
+	 */
+	public int getSize() {
+		return _next.length;
 	}
 
-	private boolean canRelease(int port) {
-		Integer releasedPort = Integer.valueOf(port);
-		assert _allPorts.contains(releasedPort) : "The released port is not among the ports of this pool: " + port;
-		assert !_availablePorts.contains(releasedPort) : "The released port is available from this pool: " + port;
-		_availablePorts.add(releasedPort);
-		return true;
+	/**
+	 * The time in milliseconds a released port is kept in quarantine.
+	 */
+	public long getQuarantine() {
+		return _quarantine;
+	}
+
+	/**
+	 * The number of ports currently allocated.
+	 */
+	public int getAllocatedCount() {
+		return (int) (_allocations.sum() - _releases.sum());
 	}
-	
+
+	/**
+	 * The number of released ports currently in quarantine.
+	 */
+	public int getQuarantinedCount() {
+		return (int) _quarantined.sum();
+	}
+
+	/**
+	 * The fraction of ports that are currently allocated or in quarantine (0.0 to 1.0).
+	 */
+	public double getUtilization() {
+		return (double) (getAllocatedCount() + getQuarantinedCount()) / getSize();
+	}
+
+	/**
+	 * The total number of successful allocations.
+	 */
+	public long getAllocationCount() {
+		return _allocations.sum();
+	}
+
+	/**
+	 * The total number of allocations that failed, because the pool was exhausted.
+	 */
+	public long getExhaustedCount() {
+		return _exhausted.sum();
+	}
+
+	/**
+	 * The index of the stripe of the current thread.
+	 */
+	private int home() {
+		return (int) Thread.currentThread().getId() & _stripeMask;
+	}
+
+	/**
+	 * Takes a free port from the stripe with the given index, or from any other stripe.
+	 *
+	 * @return The offset of the port, <code>-1</code> if no stripe has free ports.
+	 */
+	private int take(int home) {
+		for (int n = 0; n < _stripes.length; n++) {
+			int offset = pop(_stripes[(home + n) & _stripeMask]);
+			if (offset >= 0) {
+				return offset;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Moves the ports of the given stripe with expired quarantine to its stack of free ports.
+	 */
+	private void drain(Stripe stripe, long now) {
+		if (!stripe.hasExpired(now)) {
+			return;
+		}
+		synchronized (stripe) {
+			while (true) {
+				int offset = stripe.dequeue(now);
+				if (offset < 0) {
+					break;
+				}
+				_state.set(offset, FREE);
+				_quarantined.decrement();
+				push(stripe, offset);
+			}
+		}
+	}
+
+	private void push(Stripe stripe, int offset) {
+		AtomicLong head = stripe.head;
+		while (true) {
+			long current = head.get();
+			_next[offset] = (int) current;
+			long update = (stamp(current) + 1) << 32 | (offset + 1);
+			if (head.compareAndSet(current, update)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Pops a port from the stack of the given stripe.
+	 *
+	 * @return The offset of the port, <code>-1</code> if the stack is empty.
+	 */
+	private int pop(Stripe stripe) {
+		AtomicLong head = stripe.head;
+		while (true) {
+			long current = head.get();
+			int top = (int) current;
+			if (top == 0) {
+				return -1;
+			}
+			// Note: The link may be outdated, if the top port has been popped and pushed again
+			// concurrently. In that case, the stamp has changed and the update fails.
+			int next = _next[top - 1];
+			long update = (stamp(current) + 1) << 32 | (next & 0xFFFFFFFFL);
+			if (head.compareAndSet(current, update)) {
+				return top - 1;
+			}
+		}
+	}
+
+	private static long stamp(long head) {
+		return head >>> 32;
+	}
+
+	/**
+	 * Free ports and ports in quarantine for a subset of threads.
+	 */
+	private static final class Stripe {
+
+		/**
+		 * Top of the stack of free ports.
+		 *
+		 * <p>
+		 * The lower 32 bits store the link to the top port (see {@link PortPool#_next}), the upper 32
+		 * bits a stamp that is incremented with each update to detect concurrent modifications.
+		 * </p>
+		 */
+		final AtomicLong head = new AtomicLong();
+
+		/** Offsets of the ports in quarantine in release order, guarded by <code>this</code>. */
+		private int[] _queue = new int[8];
+
+		/** End of quarantine for the ports in {@link #_queue}, guarded by <code>this</code>. */
+		private long[] _until = new long[8];
+
+		private int _first;
+
+		private int _size;
+
+		/**
+		 * End of quarantine of the first port in the queue, {@link Long#MAX_VALUE} if the queue is
+		 * empty.
+		 */
+		private volatile long _firstUntil = Long.MAX_VALUE;
+
+		boolean hasFree() {
+			return (int) head.get() != 0;
+		}
+
+		boolean hasExpired(long now) {
+			return _firstUntil <= now;
+		}
+
+		synchronized void enqueue(int offset, long until) {
+			if (_size == _queue.length) {
+				grow();
+			}
+			int index = (_first + _size) % _queue.length;
+			_queue[index] = offset;
+			_until[index] = until;
+			if (_size++ == 0) {
+				_firstUntil = until;
+			}
+		}
+
+		/**
+		 * Removes the first port from the queue, if its quarantine has expired.
+		 *
+		 * @return The offset of the removed port, <code>-1</code> if there is none.
+		 */
+		synchronized int dequeue(long now) {
+			if (_size == 0 || _until[_first] > now) {
+				return -1;
+			}
+			int offset = _queue[_first];
+			_first = (_first + 1) % _queue.length;
+			_size--;
+			_firstUntil = _size == 0 ? Long.MAX_VALUE : _until[_first];
+			return offset;
+		}
+
+		private void grow() {
+			int capacity = 2 * _queue.length;
+			int[] queue = new int[capacity];
+			long[] until = new long[capacity];
+			for (int n = 0; n < _size; n++) {
+				int index = (_first + n) % _queue.length;
+				queue[n] = _queue[index];
+				until[n] = _until[index];
+			}
+			_queue = queue;
+			_until = until;
+			_first = 0;
+		}
+
+	}
+
 }
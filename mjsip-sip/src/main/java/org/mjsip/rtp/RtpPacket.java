@@ -103,6 +103,16 @@ public class RtpPacket {
 		this.length=length;
 	}
 
+	/** Sets the buffer containing the RTP packet, for reusing this packet holder.
+	  * @param buffer buffer containing the RTP packet 
+	  * @param offset packet offset within the buffer 
+	  * @param length packet length */ 
+	void setPacket(byte[] buffer, int offset, int length) {
+		this.buffer=buffer;
+		this.offset=offset;
+		this.length=length;
+	}
+
 	/** Gets the RTP packet buffer.
 	  * @return the buffer containing the RTP packet (including RTP header and payload) */   
 	public byte[] getPacketBuffer() {
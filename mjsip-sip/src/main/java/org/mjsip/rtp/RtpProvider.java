@@ -23,6 +23,7 @@ package org.mjsip.rtp;
 
 
 import java.io.IOException;
+import java.net.InetAddress;
 
 import org.zoolu.net.IpAddress;
 import org.zoolu.net.SocketAddress;
@@ -33,6 +34,8 @@ import org.zoolu.net.UdpSocket;
 
 
 /** RtpProvider implements the RTP service for receiving and sending RTP packets. 
+  * <p> In steady state, receiving and sending does not allocate: the RTP and UDP packets are reused,
+  * and the remote source and destination addresses are only created or resolved again when they change.
   */
 public class RtpProvider implements UdpProviderListener {
 	
@@ -51,6 +54,21 @@ public class RtpProvider implements UdpProviderListener {
 	/** RtpProvider listener */
 	RtpProviderListener listener;
 
+	/** RTP packet reused for passing received packets to the listener */
+	private final RtpPacket receive_packet=new RtpPacket(new byte[0],0,0);
+
+	/** UDP packet reused for sending */
+	private final UdpPacket send_packet=new UdpPacket(new byte[0],0);
+
+	/** InetAddress of the current remote source */
+	private InetAddress remote_source_inetaddr;
+
+	/** Port of the current remote source */
+	private int remote_source_port;
+
+	/** Remote destination the send packet has been addressed to */
+	private SocketAddress resolved_dest_soaddr;
+
 
 
 	/** Creates a new RTP (receiver only, or symmetric RTP).
@@ -100,15 +118,20 @@ public class RtpProvider implements UdpProviderListener {
 
 	/** Sends a RTP packet. 
 	  * @param rtp_packet RTP packet to be sent */
-	public void send(RtpPacket rtp_packet) throws IOException {
-		if (remote_dest_soaddr==null) {
+	public synchronized void send(RtpPacket rtp_packet) throws IOException {
+		SocketAddress dest_soaddr=remote_dest_soaddr;
+		if (dest_soaddr==null) {
 			if (!symmetric_rtp) throw new IOException("Null destination address");
 			return;
 		}
 		// else
-		UdpPacket udp_packet=new UdpPacket(rtp_packet.buffer,rtp_packet.length);
-		udp_packet.setIpAddress(remote_dest_soaddr.getAddress());
-		udp_packet.setPort(remote_dest_soaddr.getPort());
+		UdpPacket udp_packet=send_packet;
+		if (dest_soaddr!=resolved_dest_soaddr) {
+			udp_packet.setInetAddress(dest_soaddr.getAddress().getInetAddress());
+			udp_packet.setPort(dest_soaddr.getPort());
+			resolved_dest_soaddr=dest_soaddr;
+		}
+		udp_packet.setData(rtp_packet.buffer,rtp_packet.offset,rtp_packet.length);
 		udp.send(udp_packet);
 	}
 
@@ -117,13 +140,19 @@ public class RtpProvider implements UdpProviderListener {
 		udp.halt();
 	}
  
-	/** From UdpProviderListener. When a new UDP datagram is received. */
+	/** From UdpProviderListener. When a new UDP datagram is received.
+	  * The RTP packet passed to the listener is reused for the next datagram. */
 	@Override
 	public void onReceivedPacket(UdpProvider udp, UdpPacket udp_packet) {
-		RtpPacket rtp_packet=new RtpPacket(udp_packet.getData(),udp_packet.getOffset(),udp_packet.getLength());
-		IpAddress remote_ipaddr=udp_packet.getIpAddress();
+		RtpPacket rtp_packet=receive_packet;
+		rtp_packet.setPacket(udp_packet.getData(),udp_packet.getOffset(),udp_packet.getLength());
+		InetAddress remote_inetaddr=udp_packet.getInetAddress();
 		int remote_port=udp_packet.getPort();
-		if (remote_source_soaddr==null || !remote_source_soaddr.getAddress().equals(remote_ipaddr) || remote_source_soaddr.getPort()!=remote_port) remote_source_soaddr=new SocketAddress(remote_ipaddr,remote_port);
+		if (remote_source_soaddr==null || remote_source_port!=remote_port || !remote_inetaddr.equals(remote_source_inetaddr)) {
+			remote_source_inetaddr=remote_inetaddr;
+			remote_source_port=remote_port;
+			remote_source_soaddr=new SocketAddress(new IpAddress(remote_inetaddr),remote_port);
+		}
 		if (symmetric_rtp) remote_dest_soaddr=remote_source_soaddr;
 		if (listener!=null) listener.onReceivedPacket(this,rtp_packet);
 	}
@@ -28,7 +28,8 @@ package org.mjsip.rtp;
   */
 public interface RtpProviderListener {
 	
-	/** When a new RTP packet is received. */
+	/** When a new RTP packet is received.
+	  * The packet and its buffer are reused for the next packet, they are only valid during this call. */
 	public void onReceivedPacket(RtpProvider rtp, RtpPacket rtp_packet);
 
 	/** When RtpProvider terminates. */
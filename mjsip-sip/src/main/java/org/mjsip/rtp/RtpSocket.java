@@ -23,6 +23,7 @@ package org.mjsip.rtp;
 
 
 import java.io.IOException;
+import java.net.InetAddress;
 
 import org.zoolu.net.IpAddress;
 import org.zoolu.net.SocketAddress;
@@ -32,6 +33,8 @@ import org.zoolu.net.UdpSocket;
 
 /** RtpSocket implements a RTP socket for receiving and sending RTP packets. 
   * <p> RtpSocket is associated to a UdpSocket used to send and/or receive RtpPackets.
+  * <p> In steady state, receiving and sending does not allocate: the UDP packets are reused,
+  * and the remote source and destination addresses are only created or resolved again when they change.
   */
 public class RtpSocket {
 	
@@ -47,6 +50,21 @@ public class RtpSocket {
 	/** Whether outgoing RTP packets have to be sent to the same address where incoming RTP packets come from (symmetric RTP mode) */
 	boolean symmetric_rtp=true;
 
+	/** UDP packet reused for receiving */
+	private final UdpPacket receive_packet=new UdpPacket(new byte[0],0);
+
+	/** UDP packet reused for sending */
+	private final UdpPacket send_packet=new UdpPacket(new byte[0],0);
+
+	/** InetAddress of the current remote source */
+	private InetAddress remote_source_inetaddr;
+
+	/** Port of the current remote source */
+	private int remote_source_port;
+
+	/** Remote destination the send packet has been addressed to */
+	private SocketAddress resolved_dest_soaddr;
+
 
 
 	/** Creates a new RTP socket (only receiver).
@@ -93,26 +111,36 @@ public class RtpSocket {
 	/** Receives a RTP packet from this socket.
 	  * @param rtp_packet RTP packet that will containing the received packet */
 	public void receive(RtpPacket rtp_packet) throws IOException {
-		UdpPacket udp_packet=new UdpPacket(rtp_packet.buffer,rtp_packet.buffer.length);
+		UdpPacket udp_packet=receive_packet;
+		udp_packet.setData(rtp_packet.buffer,0,rtp_packet.buffer.length);
 		udp_socket.receive(udp_packet);
 		rtp_packet.length=udp_packet.getLength();
-		IpAddress remote_ipaddr=udp_packet.getIpAddress();
+		InetAddress remote_inetaddr=udp_packet.getInetAddress();
 		int remote_port=udp_packet.getPort();
-		if (remote_source_soaddr==null || !remote_source_soaddr.getAddress().equals(remote_ipaddr) || remote_source_soaddr.getPort()!=remote_port) remote_source_soaddr=new SocketAddress(remote_ipaddr,remote_port);
+		if (remote_source_soaddr==null || remote_source_port!=remote_port || !remote_inetaddr.equals(remote_source_inetaddr)) {
+			remote_source_inetaddr=remote_inetaddr;
+			remote_source_port=remote_port;
+			remote_source_soaddr=new SocketAddress(new IpAddress(remote_inetaddr),remote_port);
+		}
 		if (symmetric_rtp) remote_dest_soaddr=remote_source_soaddr;
 	}
 	
 	/** Sends a RTP packet from this socket      
 	  * @param rtp_packet RTP packet to be sent */
-	public void send(RtpPacket rtp_packet) throws IOException {
-		if (remote_dest_soaddr==null) {
+	public synchronized void send(RtpPacket rtp_packet) throws IOException {
+		SocketAddress dest_soaddr=remote_dest_soaddr;
+		if (dest_soaddr==null) {
 			if (!symmetric_rtp) throw new IOException("Null destination address");
 			return;
 		}
 		// else
-		UdpPacket udp_packet=new UdpPacket(rtp_packet.buffer,rtp_packet.offset,rtp_packet.length);
-		udp_packet.setIpAddress(remote_dest_soaddr.getAddress());
-		udp_packet.setPort(remote_dest_soaddr.getPort());
+		UdpPacket udp_packet=send_packet;
+		if (dest_soaddr!=resolved_dest_soaddr) {
+			udp_packet.setInetAddress(dest_soaddr.getAddress().getInetAddress());
+			udp_packet.setPort(dest_soaddr.getPort());
+			resolved_dest_soaddr=dest_soaddr;
+		}
+		udp_packet.setData(rtp_packet.buffer,rtp_packet.offset,rtp_packet.length);
 		udp_socket.send(udp_packet);
 	}
 
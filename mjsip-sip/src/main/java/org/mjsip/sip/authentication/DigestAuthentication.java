@@ -42,6 +42,9 @@ public class DigestAuthentication {
 
 	protected byte[] body;
 
+	/** Precomputed H(unq(username) ":" unq(realm) ":" passwd), <code>null</code> if computed from the password. */
+	protected byte[] ha1;
+
 	/** Constructs a new {@link DigestAuthentication}. */
 	public DigestAuthentication(String method, AuthenticationHeader ah, byte[] body, String passwd) {
 		this.method = method;
@@ -80,6 +83,31 @@ public class DigestAuthentication {
 		}
 	}
 
+	/** Uses a precomputed H(unq(username) ":" unq(realm) ":" passwd) instead of the password.
+	  * @param ha1 the value computed by {@link #HA1(String, String, String)}
+	  * @return this object */
+	public DigestAuthentication setHA1(byte[] ha1) {
+		this.ha1=ha1;
+		return this;
+	}
+
+
+	/** Calculates H(unq(username) ":" unq(realm) ":" passwd), the secret the digest-response is based on.
+	  * @param username the user name
+	  * @param realm the authentication realm
+	  * @param passwd the password
+	  * @return the MD5 hash */
+	public static byte[] HA1(String username, String realm, String passwd) {
+		StringBuilder sb=new StringBuilder();
+		if (username!=null) sb.append(username);
+		sb.append(":");
+		if (realm!=null) sb.append(realm);
+		sb.append(":");
+		if (passwd!=null) sb.append(passwd);
+		return MD5(sb.toString());
+	}
+
+
 	/** Gets a String representation of the object. */
 	@Override
 	public String toString() {
@@ -140,7 +168,7 @@ public class DigestAuthentication {
 	  * <br>   KD ( H(A1), unq(nonce) ":" H(A2) )
 	  */
 	public String getResponse() {
-		String secret=HEX(MD5(A1()));
+		String secret=HEX(isSession() || ha1==null? MD5(A1()) : ha1);
 		StringBuilder sb=new StringBuilder();
 		if (nonce!=null) sb.append(nonce);
 		sb.append(":");
@@ -176,14 +204,13 @@ public class DigestAuthentication {
 	  * <br>   A1 = H( unq(username) ":" unq(realm) ":" passwd ) ":" unq(nonce) ":" unq(cnonce)
 	  */
 	private byte[] A1() {
-		StringBuilder sb=new StringBuilder();
-		if (username!=null) sb.append(username);
-		sb.append(":");
-		if (realm!=null) sb.append(realm);
-		sb.append(":");
-		if (passwd!=null) sb.append(passwd); 
-		
-		if (algorithm==null || !algorithm.equalsIgnoreCase("MD5-sess")) {
+		if (!isSession()) {
+			StringBuilder sb=new StringBuilder();
+			if (username!=null) sb.append(username);
+			sb.append(":");
+			if (realm!=null) sb.append(realm);
+			sb.append(":");
+			if (passwd!=null) sb.append(passwd); 
 			return sb.toString().getBytes();
 		}
 		else {
@@ -192,10 +219,16 @@ public class DigestAuthentication {
 			if (nonce!=null) sb2.append(nonce); 
 			sb2.append(":");
 			if (cnonce!=null) sb2.append(cnonce); 
-			return cat(MD5(sb.toString()),sb2.toString().getBytes()); 
+			return cat(ha1!=null? ha1 : HA1(username,realm,passwd),sb2.toString().getBytes()); 
 		}
 	}
 
+
+	/** Whether the "algorithm" directive's value is "MD5-sess". */
+	private boolean isSession() {
+		return algorithm!=null && algorithm.equalsIgnoreCase("MD5-sess");
+	}
+
   
 	/** Calculates A2 value.
 	  * <p> If the "qop" directive's value is "auth" or is unspecified:
@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.sip.authentication;
+
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.mjsip.sip.header.AuthenticationHeader;
+
+/**
+ * Server-side verification of HTTP digest responses (RFC 2617) based on a precomputed H(A1).
+ *
+ * <p>
+ * Computes the same digest-response as {@link DigestAuthentication#getResponse()}, but directly on
+ * byte arrays instead of concatenating hexadecimal strings, and compares the result with the binary
+ * value of the <code>response</code> parameter. The {@link MessageDigest} instances and buffers are
+ * taken from a small lock-free pool, so that verification allocates only little garbage and can be
+ * called from any number of threads.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+public final class DigestVerifier {
+
+	/** Size of an MD5 hash in bytes. */
+	private static final int HASH_SIZE = 16;
+
+	private static final byte COLON = ':';
+
+	private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+	/** Number of pooled engines. */
+	private static final int POOL_SIZE = 16;
+
+	private static final AtomicReferenceArray<Engine> POOL = new AtomicReferenceArray<>(POOL_SIZE);
+
+	private DigestVerifier() {
+		// Static utility.
+	}
+
+	/**
+	 * Calculates H(unq(username) ":" unq(realm) ":" passwd).
+	 *
+	 * @see DigestAuthentication#HA1(String, String, String)
+	 */
+	public static byte[] HA1(String username, String realm, byte[] passwd) {
+		Engine engine = acquire();
+		try {
+			engine.reset();
+			engine.append(username);
+			engine.append(COLON);
+			engine.append(realm);
+			engine.append(COLON);
+			engine.append(passwd);
+			return engine.digest();
+		} finally {
+			release(engine);
+		}
+	}
+
+	/**
+	 * Whether the digest-response in the given authorization header is correct.
+	 *
+	 * @param method
+	 *        The method of the request.
+	 * @param ah
+	 *        The (proxy) authorization header of the request.
+	 * @param body
+	 *        The body of the request, only used with <code>qop=auth-int</code>.
+	 * @param ha1
+	 *        H(unq(username) ":" unq(realm) ":" passwd) of the user, see
+	 *        {@link #HA1(String, String, byte[])}.
+	 */
+	public static boolean checkResponse(String method, AuthenticationHeader ah, byte[] body, byte[] ha1) {
+		Map<String, String> params = ah.getParameters();
+		String response = params.get("response");
+		if (response == null || response.length() != 2 * HASH_SIZE) {
+			return false;
+		}
+		Engine engine = acquire();
+		try {
+			byte[] expected = engine.expected;
+			if (!parseHex(response, expected)) {
+				return false;
+			}
+
+			String nonce = params.get("nonce");
+			String qop = params.get("qop");
+
+			byte[] secret;
+			String algorithm = params.get("algorithm");
+			if (algorithm != null && algorithm.equalsIgnoreCase("MD5-sess")) {
+				// Note: Same as DigestAuthentication, the binary H(A1) is used as prefix.
+				engine.reset();
+				engine.append(ha1);
+				engine.append(COLON);
+				engine.append(nonce);
+				engine.append(COLON);
+				engine.append(params.get("cnonce"));
+				secret = engine.digest(engine.secret);
+			} else {
+				secret = ha1;
+			}
+
+			// H(A2)
+			engine.reset();
+			engine.append(method);
+			engine.append(COLON);
+			engine.append(params.get("uri"));
+			if (qop != null && qop.equalsIgnoreCase("auth-int")) {
+				engine.append(COLON);
+				engine.md.reset();
+				engine.appendHex(engine.md.digest(body == null ? new byte[0] : body));
+			}
+			byte[] ha2 = engine.digest(engine.ha2);
+
+			// KD(H(A1), unq(nonce) ":" [nc ":" unq(cnonce) ":" unq(qop) ":"] H(A2))
+			engine.reset();
+			engine.appendHex(secret);
+			engine.append(COLON);
+			engine.append(nonce);
+			engine.append(COLON);
+			if (qop != null) {
+				engine.append(params.get("nc"));
+				engine.append(COLON);
+				engine.append(params.get("cnonce"));
+				engine.append(COLON);
+				engine.append(qop);
+				engine.append(COLON);
+			}
+			engine.appendHex(ha2);
+			return MessageDigest.isEqual(expected, engine.digest(engine.result));
+		} finally {
+			release(engine);
+		}
+	}
+
+	private static boolean parseHex(String hex, byte[] result) {
+		for (int n = 0; n < result.length; n++) {
+			int high = Character.digit(hex.charAt(2 * n), 16);
+			int low = Character.digit(hex.charAt(2 * n + 1), 16);
+			if (high < 0 || low < 0) {
+				return false;
+			}
+			result[n] = (byte) (high << 4 | low);
+		}
+		return true;
+	}
+
+	private static Engine acquire() {
+		int start = slot();
+		for (int n = 0; n < POOL_SIZE; n++) {
+			Engine engine = POOL.getAndSet((start + n) % POOL_SIZE, null);
+			if (engine != null) {
+				return engine;
+			}
+		}
+		return new Engine();
+	}
+
+	private static void release(Engine engine) {
+		int start = slot();
+		for (int n = 0; n < POOL_SIZE; n++) {
+			if (POOL.compareAndSet((start + n) % POOL_SIZE, null, engine)) {
+				return;
+			}
+		}
+		// Pool is full, drop.
+	}
+
+	private static int slot() {
+		return (int) (Thread.currentThread().getId() % POOL_SIZE);
+	}
+
+	/**
+	 * A {@link MessageDigest} with a buffer collecting the data to hash.
+	 */
+	private static final class Engine {
+
+		final MessageDigest md;
+
+		final byte[] expected = new byte[HASH_SIZE];
+
+		final byte[] secret = new byte[HASH_SIZE];
+
+		final byte[] ha2 = new byte[HASH_SIZE];
+
+		final byte[] result = new byte[HASH_SIZE];
+
+		private byte[] _buffer = new byte[256];
+
+		private int _length;
+
+		Engine() {
+			try {
+				md = MessageDigest.getInstance("MD5");
+			} catch (NoSuchAlgorithmException ex) {
+				throw new IllegalStateException("MD5 not supported.", ex);
+			}
+		}
+
+		void reset() {
+			_length = 0;
+		}
+
+		void append(byte b) {
+			ensureCapacity(1);
+			_buffer[_length++] = b;
+		}
+
+		void append(byte[] data) {
+			if (data == null) {
+				return;
+			}
+			ensureCapacity(data.length);
+			System.arraycopy(data, 0, _buffer, _length, data.length);
+			_length += data.length;
+		}
+
+		void append(String str) {
+			if (str == null) {
+				return;
+			}
+			int length = str.length();
+			ensureCapacity(length);
+			for (int n = 0; n < length; n++) {
+				char c = str.charAt(n);
+				if (c >= 0x80) {
+					// Not ASCII, same encoding as String.getBytes() in DigestAuthentication.
+					_length -= n;
+					append(str.getBytes());
+					return;
+				}
+				_buffer[_length++] = (byte) c;
+			}
+		}
+
+		void appendHex(byte[] data) {
+			ensureCapacity(2 * data.length);
+			for (byte b : data) {
+				_buffer[_length++] = HEX_DIGITS[(b >> 4) & 0x0F];
+				_buffer[_length++] = HEX_DIGITS[b & 0x0F];
+			}
+		}
+
+		byte[] digest() {
+			md.reset();
+			md.update(_buffer, 0, _length);
+			return md.digest();
+		}
+
+		byte[] digest(byte[] result) {
+			md.reset();
+			md.update(_buffer, 0, _length);
+			try {
+				md.digest(result, 0, HASH_SIZE);
+			} catch (DigestException ex) {
+				throw new IllegalStateException(ex);
+			}
+			return result;
+		}
+
+		private void ensureCapacity(int additional) {
+			if (_length + additional > _buffer.length) {
+				byte[] buffer = new byte[Math.max(2 * _buffer.length, _length + additional)];
+				System.arraycopy(_buffer, 0, buffer, 0, _length);
+				_buffer = buffer;
+			}
+		}
+
+	}
+
+}
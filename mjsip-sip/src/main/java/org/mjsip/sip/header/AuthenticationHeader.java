@@ -24,6 +24,8 @@
 package org.mjsip.sip.header;
 
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Vector;
 
 import org.mjsip.sip.provider.SipParser;
@@ -133,6 +135,29 @@ public abstract class AuthenticationHeader extends LegacyHeader {
 	}
 
  
+	/** Gets all parameters, without quotes, parsing the header value only once.
+	  * @return the parameter values by parameter name, null values for parameters without value */
+	public Map<String,String> getParameters() {
+		char[] name_separators={'=', ' ', '\t'};
+		Map<String,String> params=new HashMap<>();
+		SipParser par=new SipParser(value);
+		par.skipString(); // skip the auth_scheme
+		par.skipWSPCRLF();
+		while (par.hasMore()) {
+			String name=par.getWord(name_separators);
+			int comma=par.indexOfCommaHeaderSeparator();
+			int end=(comma>=0)? comma : value.length();
+			String param=value.substring(par.getPos(),end);
+			int eq=param.indexOf('=');
+			// the first occurrence wins, as in getParameter()
+			params.putIfAbsent(name,(eq>=0)? new SipParser(param.substring(eq+1)).getStringUnquoted() : null);
+			par.setPos(end);
+			par.goToCommaHeaderSeparator().skipChar().skipWSPCRLF();
+		}
+		return params;
+	}
+
+ 
 	/** Gets a String Vector of parameter names.
 	  * @return Returns a String Vector of all parameter names or null if no parameter is present. */
 	public Vector<String> getParameterNames() {
@@ -39,43 +39,82 @@ public class CSeqHeader extends LegacyHeader {
 	//{  super(SipHeaders.CSeq);
 	//}
 
+	/** Sequence number parsed from the value, only valid if <i>method</i> is not null */
+	private String seqn;
+
+	/** Method parsed from the value, or null if the value has not been parsed yet.
+	  * Volatile, since a parsed header may be shared by threads processing the same message. */
+	private volatile String method=null;
+
 	public CSeqHeader(String hvalue) {
 		super(SipHeaders.CSeq,hvalue);
 	}
 
 	public CSeqHeader(Header hd) {
 		super(hd);
+		if (hd instanceof CSeqHeader) {
+			CSeqHeader csh=(CSeqHeader)hd;
+			seqn=csh.seqn;
+			method=csh.method;
+		}
 	}
 	
 	public CSeqHeader(long seq, String method) {
 		super(SipHeaders.CSeq,String.valueOf(seq)+" "+method);
+		this.seqn=String.valueOf(seq);
+		this.method=method;
+	}
+
+	/** Sets value of Header */
+	@Override
+	public void setValue(String hvalue) {
+		super.setValue(hvalue);
+		method=null;
+	}
+
+	/** Parses the value, if not yet done. */
+	private void parse() {
+		if (method!=null) return;
+		SipParser par=new SipParser(value);
+		String parsed_seqn=par.getString();
+		String parsed_method=par.getString();
+		// Note: The sequence number is published by the write to the volatile method.
+		seqn=parsed_seqn;
+		method=parsed_method;
 	}
 
 	/** Gets method of CSeqHeader */
 	public String getMethod() {
-		SipParser par=new SipParser(value);
-		par.skipString(); // skip sequence number
-		return par.getString();
+		parse();
+		return method;
 	}
 
 	/** Gets sequence number of CSeqHeader */
 	public long getSequenceNumber() {
-		return (new SipParser(value)).getInt();
+		parse();
+		return Long.parseLong(seqn);
+	}
+
+	/** Sets the sequence number and method of CSeqHeader */
+	private void set(long seqn, String method) {
+		this.seqn=String.valueOf(seqn);
+		this.method=method;
+		value=this.seqn+" "+method;
 	}
 
 	/** Sets method of CSeqHeader */
 	public void setMethod(String method) {
-		value=getSequenceNumber()+" "+method;
+		set(getSequenceNumber(),method);
 	}
 
 	/** Sets sequence number of CSeqHeader */
 	public void setSequenceNumber(long sequenceNumber) {
-		value=String.valueOf(sequenceNumber)+" "+getMethod();
+		set(sequenceNumber,getMethod());
 	}
 
 	/** Increments sequence number of CSeqHeader */
 	public CSeqHeader incSequenceNumber() {
-		value=String.valueOf(getSequenceNumber()+1)+" "+getMethod();
+		set(getSequenceNumber()+1,getMethod());
 		return this;
 	}
 }
@@ -48,6 +48,9 @@ public class CallIdHeader extends LegacyHeader {
 	//{  super(SipHeaders.Call_ID);
 	//}
 
+	/** Call-Id parsed from the value, or null if the value has not been parsed yet */
+	private String call_id=null;
+
 	/** Creates a CallIdHeader with value <i>hvalue</i> */
 	public CallIdHeader(String hvalue) {
 		super(SipHeaders.Call_ID,hvalue);
@@ -56,15 +59,25 @@ public class CallIdHeader extends LegacyHeader {
 	/** Creates a new CallIdHeader equal to CallIdHeader <i>hd</i> */
 	public CallIdHeader(Header hd) {
 		super(hd);
+		if (hd instanceof CallIdHeader) call_id=((CallIdHeader)hd).call_id;
+	}
+
+	/** Sets value of Header */
+	@Override
+	public void setValue(String hvalue) {
+		super.setValue(hvalue);
+		call_id=null;
 	}
 
 	/** Gets Call-Id of CallIdHeader */
 	public String getCallId() {
-		return (new Parser(value)).getString();
+		if (call_id==null) call_id=(new Parser(value)).getString();
+		return call_id;
 	}
 
 	/** Sets Call-Id of CallIdHeader */
 	public void setCallId(String callId) {
 		value=callId;
+		call_id=null;
 	}
 }
@@ -86,6 +86,8 @@ public abstract class CoreSipHeaders {
 	public static final String Record_Route="Record-Route"; 
 	/** String "Require" */
 	public static final String Require="Require";   
+	/** String "Retry-After" */
+	public static final String Retry_After="Retry-After";   
 	/** String "Route" */
 	public static final String Route="Route";   
 	/** String "Server" */
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.sip.header;
+
+/**
+ * Untyped header field of a received message, whose value is decoded from the receive buffer
+ * not before it is requested.
+ *
+ * <p>
+ * Most header fields of a received message are never looked at by the application, or are only
+ * accessed through their typed form. Decoding the value lazily saves creating strings for all
+ * other header fields.
+ * </p>
+ *
+ * @see org.mjsip.sip.provider.SipByteParser
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+public final class ReceivedHeader extends LegacyHeader {
+
+	private final byte[] _data;
+
+	private final int _offset;
+
+	private final int _length;
+
+	private boolean _decoded;
+
+	/**
+	 * Creates a {@link ReceivedHeader}.
+	 *
+	 * @param hname
+	 *        The header name.
+	 * @param data
+	 *        The buffer containing the header value, must not be modified afterwards.
+	 * @param offset
+	 *        The start of the value in the given buffer.
+	 * @param length
+	 *        The length of the value in the given buffer.
+	 */
+	public ReceivedHeader(String hname, byte[] data, int offset, int length) {
+		super(hname, null);
+		_data = data;
+		_offset = offset;
+		_length = length;
+	}
+
+	@Override
+	public String getValue() {
+		String result = value;
+		if (result == null && !_decoded) {
+			// Note: Concurrent readers may decode the value twice, which is harmless, since the
+			// results are equal.
+			result = new String(_data, _offset, _length);
+			value = result;
+		}
+		return result;
+	}
+
+	@Override
+	public void setValue(String hvalue) {
+		_decoded = true;
+		super.setValue(hvalue);
+	}
+
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.sip.header;
+
+import org.zoolu.util.Parser;
+
+/** SIP Retry-After header field, defined in RFC 3261.
+  * The Retry-After header field indicates how long (in seconds) the service is expected to be
+  * unavailable to the requesting client, e.g. in a 503 (Service Unavailable) response.
+  */
+public class RetryAfterHeader extends ParametricHeader {
+
+	/** Value delimiters. */
+	private static final char [] delim={'(', ';', ' ', '\t', '\n', '\r'};
+
+	/** Creates a new RetryAfterHeader. */
+	public RetryAfterHeader(Header hd) {
+		super(hd);
+	}
+
+	/** Creates a new RetryAfterHeader.
+	  * @param delta_seconds the time (in seconds) after which the request may be retried. */
+	public RetryAfterHeader(int delta_seconds) {
+		super(SipHeaders.Retry_After,String.valueOf(delta_seconds));
+	}
+
+	/** Gets the time (in seconds) after which the request may be retried. */
+	public int getDeltaSeconds() {
+		return Integer.parseInt((new Parser(value)).getWord(delim));
+	}
+
+}
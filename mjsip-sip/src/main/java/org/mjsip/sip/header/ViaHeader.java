@@ -75,6 +75,17 @@ public class ViaHeader extends HeaderWithParams {
 
 	private int _port;
 
+	/** Creates a new ViaHeader equal to the given one. */
+	public ViaHeader(ViaHeader hd) {
+		super(hd);
+		_protocol = hd._protocol;
+		_version = hd._version;
+		_transport = hd._transport;
+		_host = hd._host;
+		_ipv6 = hd._ipv6;
+		_port = hd._port;
+	}
+
 	/** Creates a new ViaHeader. */
 	public ViaHeader(String proto, String host, int port) {
 		this(proto.toUpperCase(), host, SipURI.isIPv6(host), port);
@@ -22,18 +22,25 @@
  */
 package org.mjsip.sip.message;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 import org.mjsip.sdp.SdpMessage;
 import org.mjsip.sip.header.ContentDispositionHeader;
 import org.mjsip.sip.header.ContentLengthHeader;
 import org.mjsip.sip.header.ContentTypeHeader;
 import org.mjsip.sip.header.Header;
+import org.mjsip.sip.header.LegacyHeader;
 import org.mjsip.sip.header.MultipleHeader;
 import org.mjsip.sip.header.RequestLine;
 import org.mjsip.sip.header.SipHeaders;
 import org.mjsip.sip.header.StatusLine;
 import org.mjsip.sip.provider.ConnectionId;
+import org.mjsip.sip.provider.SipByteParser;
 import org.mjsip.sip.provider.SipParser;
 import org.slf4j.LoggerFactory;
 import org.zoolu.util.ByteUtils;
@@ -90,9 +97,20 @@ public abstract class BasicSipMessage {
 	/** Status-line */
 	protected StatusLine status_line=null;
 
-	/** Vector of all header fields */
+	/** Vector of all header fields.
+	  * The header fields are private to this message: Header fields passed in are copied, and
+	  * public getters return copies. Otherwise, a header field modified in place would not
+	  * invalidate the {@link #encoded} form of this message. */
 	protected Vector<Header> headers = new Vector<>();
 
+	/** Typed header fields already parsed from the header fields received, indexed by header name.
+	  * Only valid as long as the vector of header fields is not modified, see {@link #headersChanged()}.
+	  * Concurrent, since the getters of a received message may be called by multiple receive workers. */
+	private final Map<String,Header> parsed_headers=new ConcurrentHashMap<>();
+
+	/** The encoded message, or null if not yet encoded since the last modification, see {@link #messageChanged()}. */
+	private volatile byte[] encoded=null;
+
 	/** Message body */
 	protected byte[] body=null;
 
@@ -160,6 +178,7 @@ public abstract class BasicSipMessage {
 		status_line=msg.status_line;
 		//headers=new Vector();
 		for (int i=0; i<msg.headers.size(); i++) headers.addElement(msg.headers.elementAt(i));
+		headersChanged();
 		body=msg.body;
 	}
 	
@@ -184,6 +203,7 @@ public abstract class BasicSipMessage {
 			// parse all header fields
 			//headers=new Vector();
 			if (headers.size()>0) headers.removeAllElements();
+			headersChanged();
 			Header h = par.getHeader();
 			while (h!=null) {
 				headers.addElement(h);
@@ -272,17 +292,21 @@ public abstract class BasicSipMessage {
 				throw new MalformedSipMessageException("No SIP header delimiter found.");
 			}
 			// else
-			String siph_str=new String(buf,off,siph_len);
+			if (siph_len<SIP_VERSION.length()) throw new MalformedSipMessageException("Message header too short.");
+			// Note: The header fields reference their values in the parsed bytes, therefore the
+			// (potentially reused) receive buffer must not be parsed directly.
+			byte[] siph_bytes=Arrays.copyOfRange(buf,off,off+siph_len);
+			SipByteParser par=new SipByteParser(siph_bytes,0,siph_len);
 
 			// parse first line
-			SipParser par=new SipParser(siph_str);
-			String proto_version=siph_str.substring(0,SIP_VERSION.length());
-			if (proto_version.equalsIgnoreCase(SIP_VERSION)) status_line=par.getStatusLine();
-			else request_line=par.getRequestLine();
+			String first_line=par.getLine();
+			if (first_line.regionMatches(true,0,SIP_VERSION,0,SIP_VERSION.length())) status_line=new SipParser(first_line).getStatusLine();
+			else request_line=new SipParser(first_line).getRequestLine();
 
 			// parse all header fields
 			//headers=new Vector();
 			if (headers.size()>0) headers.removeAllElements();
+			headersChanged();
 			Header h = par.getHeader();
 			while (h!=null) {
 				headers.addElement(h);
@@ -376,16 +400,89 @@ public abstract class BasicSipMessage {
 	/** Gets the array of bytes of this message.
 	  * @return an array of bytes containing this message */
 	public byte[] getBytes() {
-		byte[] data=getMessageHeader().toString().getBytes();
-		if (body!=null) {
-			byte[] siph=data;
-			data=new byte[siph.length+body.length];
+		return getEncoded().clone();
+	}
+
+	/** Gets the message as an array of bytes without copying.
+	  * <p>
+	  * The message is encoded at most once until it is modified. This allows retransmitting a message
+	  * without encoding it again. The returned array is shared with all subsequent callers and
+	  * therefore must not be modified, use {@link #getBytes()} to get a private copy.
+	  * </p>
+	  * @return the encoded message */
+	public byte[] getEncoded() {
+		byte[] result=encoded;
+		if (result==null) {
+			result=encode();
+			encoded=result;
+		}
+		return result;
+	}
+
+	/** Writes the message to the given buffer, e.g. a buffer reused for sending multiple messages.
+	  * @param buffer the buffer to write to, starting at its current position
+	  * @throws java.nio.BufferOverflowException if there is insufficient space in the buffer, see {@link #getLength()} */
+	public void writeTo(ByteBuffer buffer) {
+		buffer.put(getEncoded());
+	}
+
+	/** Encodes the message.
+	  * <p>
+	  * The message is written directly into an array of the exact size. Only messages containing
+	  * non-ASCII characters in the message header (which is unusual) take the detour through a
+	  * string encoded with the platform's default charset.
+	  * </p> */
+	private byte[] encode() {
+		String first_line=(request_line!=null)? request_line.toString() : (status_line!=null)? status_line.toString() : "";
+		int count=headers.size();
+		String[] names=new String[count];
+		String[] values=new String[count];
+		int length=first_line.length()+2;
+		for (int i=0; i<count; i++) {
+			Header h=headers.elementAt(i);
+			names[i]=h.getName();
+			values[i]=String.valueOf(h.getValue());
+			length+=names[i].length()+2+values[i].length()+2;
+		}
+		int body_len=(body!=null)? body.length : 0;
+
+		byte[] data=new byte[length+body_len];
+		int pos=putAscii(data,0,first_line);
+		for (int i=0; i<count && pos>=0; i++) {
+			pos=putAscii(data,pos,names[i]);
+			if (pos<0) break;
+			data[pos++]=':';
+			data[pos++]=' ';
+			pos=putAscii(data,pos,values[i]);
+			if (pos<0) break;
+			data[pos++]='\r';
+			data[pos++]='\n';
+		}
+		if (pos<0) {
+			byte[] siph=getMessageHeader().toString().getBytes();
+			data=new byte[siph.length+body_len];
 			ByteUtils.copy(siph,data,0);
-			ByteUtils.copy(body,data,siph.length);
+			pos=siph.length;
 		}
+		else {
+			data[pos++]='\r';
+			data[pos++]='\n';
+		}
+		if (body!=null) ByteUtils.copy(body,data,pos);
 		return data;
 	}
 
+	/** Writes the given string to the given position of the array, if it consists of ASCII characters only.
+	  * @return the position after the written characters, or -1 if the string contains non-ASCII characters */
+	private static int putAscii(byte[] data, int pos, String str) {
+		for (int i=0, len=str.length(); i<len; i++) {
+			char c=str.charAt(i);
+			if (c>=0x80) return -1;
+			data[pos++]=(byte)c;
+		}
+		return pos;
+	}
+
 
 	/** Gets the message header. */
 	private StringBuilder getMessageHeader() {
@@ -447,11 +544,34 @@ public abstract class BasicSipMessage {
 		setConnectionId(null);
 	}
 
-	/** Gets message length. */
+	/** Gets message length.
+	  * <p>
+	  * The length is computed without encoding the message, if it has not been encoded yet.
+	  * </p> */
 	public int getLength() {
-		int len=getMessageHeader().length();
-		if (body!=null) len+=body.length;
-		return len;
+		byte[] result=encoded;
+		if (result!=null) return result.length;
+
+		String first_line=(request_line!=null)? request_line.toString() : (status_line!=null)? status_line.toString() : "";
+		// Note: The first line already ends with CRLF, only the empty line after the header fields is added.
+		int length=asciiLength(first_line);
+		for (int i=0, count=headers.size(); i<count && length>=0; i++) {
+			Header h=headers.elementAt(i);
+			int name_len=asciiLength(h.getName());
+			int value_len=asciiLength(String.valueOf(h.getValue()));
+			length=(name_len<0 || value_len<0)? -1 : length+name_len+2+value_len+2;
+		}
+		if (length<0) length=getMessageHeader().toString().getBytes().length;
+		else length+=2;
+		return length+((body!=null)? body.length : 0);
+	}
+
+	/** The number of characters of the given string, or -1 if it contains non-ASCII characters. */
+	private static int asciiLength(String str) {
+		for (int i=0, len=str.length(); i<len; i++) {
+			if (str.charAt(i)>=0x80) return -1;
+		}
+		return str.length();
 	}
 
 
@@ -488,11 +608,13 @@ public abstract class BasicSipMessage {
 	/** Sets the RequestLine of the Message. */
 	public void setRequestLine(RequestLine rl) {
 		request_line=rl;
+		messageChanged();
 	}   
 	
 	/** Removes the RequestLine of the Message. */
 	public void removeRequestLine() {
 		request_line=null;
+		messageChanged();
 	} 
 
 
@@ -525,11 +647,13 @@ public abstract class BasicSipMessage {
 	/** Sets the StatusLine of the Message. */
 	public void setStatusLine(StatusLine sl) {
 		status_line=sl;
+		messageChanged();
 	}      
 	
 	/** Removes the StatusLine of the Message. */
 	public void removeStatusLine() {
 		status_line=null;
+		messageChanged();
 	} 
 
 
@@ -560,21 +684,43 @@ public abstract class BasicSipMessage {
 
 	/** Whether Message has any headers of specified name. */   
 	public boolean hasHeader(String name) {
-		Header hd = getHeader(name);
-		if (hd==null) return false;
-		else return true;
+		return indexOfHeader(name)>=0;
 	}
 	
-	/** Gets the first Header of specified name (Returns null if no Header is found). */
+	/** Gets a copy of the first Header of specified name (Returns null if no Header is found).
+	  * Modifying the result does not modify the message, use {@link #setHeader(Header)}. */
 	public Header getHeader(String hname) {
+		Header h=findHeader(hname);
+		if (h==null) return null;
+		else return copyOf(h);
+	}
+
+	/** Gets copies of all Headers of specified name (Returns empty Vector if no Header is found). */
+	public Vector<Header> getHeaders(String hname) {
+		Vector<Header> v = findHeaders(hname);
+		for (int i=0; i<v.size(); i++) v.setElementAt(copyOf(v.elementAt(i)),i);
+		return v; 
+	}
+
+	/** Gets copies of all Headers. */
+	public Vector<Header> getHeaders() {
+		Vector<Header> v = new Vector<>();
+		for (int i=0; i<headers.size(); i++) v.addElement(copyOf(headers.elementAt(i)));
+		return v;
+	}
+
+	/** Gets the first Header of specified name without copying (Returns null if no Header is found).
+	  * The result is shared with this message and must not be modified. */
+	protected Header findHeader(String hname) {
 		int i=indexOfHeader(hname);
 		if (i<0) return null;
 		else
 			return headers.elementAt(i);
 	}
 
-	/** Gets a Vector of all Headers of specified name (Returns empty Vector if no Header is found). */
-	public Vector<Header> getHeaders(String hname) {
+	/** Gets a Vector of all Headers of specified name without copying them.
+	  * The headers are shared with this message and must not be modified. */
+	protected Vector<Header> findHeaders(String hname) {
 		Vector<Header> v = new Vector<>();
 		for (int i=0; i<headers.size(); i++) {
 			Header hi = headers.elementAt(i);
@@ -583,11 +729,43 @@ public abstract class BasicSipMessage {
 		return v; 
 	}
 
-	/** Gets a Vector with all Headers. */
-	public Vector<Header> getHeaders() {
-		Vector<Header> v = new Vector<>();
-		for (int i=0; i<headers.size(); i++) v.addElement(headers.elementAt(i));
-		return v;
+	/** Creates a copy of a header field passed in or out. */
+	private static Header copyOf(Header header) {
+		return new LegacyHeader(header);
+	}
+
+	/** Gets the first Header of specified name converted to its typed form.
+	  * <p>
+	  * A header field is parsed at most once. The result is kept until the header fields of this
+	  * message are modified. Since the returned object is shared, it must not be modified and must
+	  * not be passed to the caller of a public getter, which has to return a copy instead.
+	  * </p>
+	  * @param hname the header name, one of the constants in {@link SipHeaders}
+	  * @param parser creates the typed header from the given (untyped) header
+	  * @return the typed header or null if no Header is found */
+	@SuppressWarnings("unchecked")
+	protected <H extends Header> H getParsedHeader(String hname, Function<Header,H> parser) {
+		Header cached=parsed_headers.get(hname);
+		if (cached!=null) return (H)cached;
+		Header h=findHeader(hname);
+		if (h==null) return null;
+		H result=parser.apply(h);
+		// Note: If another thread parsed the same header concurrently, its result is shared.
+		Header other=parsed_headers.putIfAbsent(hname,result);
+		if (other!=null) return (H)other;
+		return result;
+	}
+
+	/** Invalidates all typed header fields parsed so far, must be called whenever the vector of
+	  * header fields is modified. */
+	protected void headersChanged() {
+		parsed_headers.clear();
+		messageChanged();
+	}
+
+	/** Invalidates the encoded form of this message, must be called whenever the message is modified. */
+	protected void messageChanged() {
+		encoded=null;
 	}
 
 	/** Adds Header at the top/bottom.
@@ -603,7 +781,8 @@ public abstract class BasicSipMessage {
 			int ct=indexOfHeader(SipHeaders.Content_Type);
 			if (ct>=0 && ct<pos) pos=ct;
 		}
-		headers.insertElementAt(header,pos);
+		headers.insertElementAt(copyOf(header),pos);
+		headersChanged();
 	}
 	
 	/** Adds a Vector of Headers at the top/bottom. */
@@ -618,7 +797,8 @@ public abstract class BasicSipMessage {
 			int ct=indexOfHeader(SipHeaders.Content_Type);
 			if (ct>=0 && ct<pos) pos=ct;
 		}
-		for (int i=0; i<headers.size(); i++) this.headers.insertElementAt(headers.elementAt(i),pos+i);
+		for (int i=0; i<headers.size(); i++) this.headers.insertElementAt(copyOf(headers.elementAt(i)),pos+i);
+		headersChanged();
 	}
 
 	/** Adds MultipleHeader(s) <i>mheader</i> at the top/bottom. */
@@ -632,7 +812,8 @@ public abstract class BasicSipMessage {
 	public void addHeaderBefore(Header new_header, String refer_hname) {
 		int i=indexOfHeader(refer_hname);
 		if (i<0) i=0;
-		headers.insertElementAt(new_header,i);
+		headers.insertElementAt(copyOf(new_header),i);
+		headersChanged();
 	}
 
 	/** Adds MultipleHeader(s) before the first header <i>refer_hname</i>
@@ -644,6 +825,7 @@ public abstract class BasicSipMessage {
 			if (index<0) index=0;
 			Vector<Header> hs = mheader.getHeaders();
 			for (int k=0; k<hs.size(); k++) headers.insertElementAt(hs.elementAt(k),index+k);
+			headersChanged();
 		}
 	}
 
@@ -652,7 +834,8 @@ public abstract class BasicSipMessage {
 	public void addHeaderAfter(Header new_header, String refer_hname) {
 		int i=indexOfHeader(refer_hname);
 		if (i>=0) i++; else i=headers.size();
-		headers.insertElementAt(new_header,i);
+		headers.insertElementAt(copyOf(new_header),i);
+		headersChanged();
 	}
 
 	/** Adds MultipleHeader(s) after the first header <i>refer_hname</i>
@@ -664,6 +847,7 @@ public abstract class BasicSipMessage {
 			if (index>=0) index++; else index=headers.size();
 			Vector<Header> hs = mheader.getHeaders();
 			for (int k=0; k<hs.size(); k++) headers.insertElementAt(hs.elementAt(k),index+k);
+			headersChanged();
 		}
 	}
 
@@ -682,7 +866,10 @@ public abstract class BasicSipMessage {
 				if (first) i=headers.size();
 			}
 		}
-		if (index>=0) headers.removeElementAt(index);
+		if (index>=0) {
+			headers.removeElementAt(index);
+			headersChanged();
+		}
 	}
 	
 	/** Removes all Headers of specified name. */
@@ -694,6 +881,7 @@ public abstract class BasicSipMessage {
 				i--;
 			}
 		}
+		headersChanged();
 	}
 	
 	/** Sets the Header <i>hd</i> removing any previous headers of the same type.. */
@@ -705,7 +893,7 @@ public abstract class BasicSipMessage {
 			if (hname.equalsIgnoreCase(hi.getName())) {
 				if (not_found) {
 					// replace it
-					headers.setElementAt(hd,i);
+					headers.setElementAt(copyOf(hd),i);
 					not_found=false;
 				}
 				else  {
@@ -716,6 +904,7 @@ public abstract class BasicSipMessage {
 			}
 		}
 		if (not_found) addHeader(hd,false);
+		else headersChanged();
 	}          
 
 	/** Sets MultipleHeader <i>mheader</i>. */
@@ -742,6 +931,7 @@ public abstract class BasicSipMessage {
 				}
 			}
 			if (not_found) addHeaders(mheader,false);
+			else headersChanged();
 		}
 	}
 
@@ -787,6 +977,7 @@ public abstract class BasicSipMessage {
 			setContentLengthHeader(new ContentLengthHeader(0));
 			this.body=null;
 		}
+		messageChanged();
 	}
 	/** Gets message body. The end of body is evaluated
 	  * from the Content-Length header if present (RFC3261 compliant),
@@ -801,6 +992,7 @@ public abstract class BasicSipMessage {
 		removeContentDispositionHeader();
 		removeContentLengthHeader();
 		this.body=null;
+		messageChanged();
 	}
 	/** Sets sdp body. */
 	public void setSdpBody(SdpMessage body) {
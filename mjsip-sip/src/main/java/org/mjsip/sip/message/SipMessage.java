@@ -59,6 +59,7 @@ import org.mjsip.sip.header.ReferredByHeader;
 import org.mjsip.sip.header.ReplacesHeader;
 import org.mjsip.sip.header.RequestLine;
 import org.mjsip.sip.header.RequireHeader;
+import org.mjsip.sip.header.RetryAfterHeader;
 import org.mjsip.sip.header.RouteHeader;
 import org.mjsip.sip.header.ServerHeader;
 import org.mjsip.sip.header.SessionExpiresHeader;
@@ -163,7 +164,7 @@ public class SipMessage extends BasicSipMessage {
 
 	/** Returns the transaction method. */
 	public String getTransactionMethod() {
-		return getCSeqHeader().getMethod();
+		return getParsedHeader(SipHeaders.CSeq,CSeqHeader::new).getMethod();
 	} 
  
 
@@ -173,7 +174,7 @@ public class SipMessage extends BasicSipMessage {
 	}  
 	/** Gets MaxForwardsHeader of Message. */
 	public MaxForwardsHeader getMaxForwardsHeader() {
-		Header h = getHeader(SipHeaders.Max_Forwards);
+		MaxForwardsHeader h = getParsedHeader(SipHeaders.Max_Forwards,MaxForwardsHeader::new);
 		if (h==null) return null;
 		else return new MaxForwardsHeader(h);
 	} 
@@ -193,7 +194,7 @@ public class SipMessage extends BasicSipMessage {
 	}  
 	/** Gets FromHeader of Message. */
 	public FromHeader getFromHeader() {
-		Header h = getHeader(SipHeaders.From);
+		FromHeader h = getParsedHeader(SipHeaders.From,FromHeader::new);
 		if (h==null) return null;
 		else return new FromHeader(h);
 	} 
@@ -212,7 +213,7 @@ public class SipMessage extends BasicSipMessage {
 	} 
 	/** Gets ToHeader of Message. */
 	public ToHeader getToHeader() {
-		Header h = getHeader(SipHeaders.To);
+		ToHeader h = getParsedHeader(SipHeaders.To,ToHeader::new);
 		if (h==null) return null;
 		else return new ToHeader(h);
 	} 
@@ -242,7 +243,7 @@ public class SipMessage extends BasicSipMessage {
 	/** Gets a MultipleHeader of Contacts.
 	  * @return all contacts (MultipleHeader of <code>ContactHeader</code>) */
 	public MultipleHeader getContacts() {
-		Vector<Header> v=getHeaders(SipHeaders.Contact);
+		Vector<Header> v=findHeaders(SipHeaders.Contact);
 		if (!v.isEmpty()) return new MultipleHeader(v);
 		else return null;
 	}   
@@ -282,17 +283,16 @@ public class SipMessage extends BasicSipMessage {
 	/** Gets the top ViaHeader.
 	  * @return the top Via header field */  
 	public ViaHeader getViaHeader() {
-		//Header h=getHeader(SipHeaders.Via);
-		//if (h==null) return null; else return new ViaHeader(h);
-		MultipleHeader mh=getVias();
-		if (mh == null)
+		// Note: The top Via is the first via-parm of the first Via header field.
+		ViaHeader vh=getParsedHeader(SipHeaders.Via,h -> ViaHeader.parse(h.getValue()));
+		if (vh == null)
 			return null;
-		return ViaHeader.parse(mh.getTop().getValue());
+		return new ViaHeader(vh);
 	} 
 	/** Gets all Via header fields.
 	  * @return all Via header fields (MultipleHeader of <code>ViaHeader</code>) */
 	public MultipleHeader getVias() {
-		Vector<Header> v=getHeaders(SipHeaders.Via);
+		Vector<Header> v=findHeaders(SipHeaders.Via);
 		if (!v.isEmpty()) return new MultipleHeader(v);
 		else return null;
 	}
@@ -342,7 +342,7 @@ public class SipMessage extends BasicSipMessage {
 	/** Gets all Route header fields.
 	  * @return all routes (MultipleHeader of <code>RouteHeader</code>) */
 	public MultipleHeader getRoutes() {
-		Vector<Header> v=getHeaders(SipHeaders.Route);
+		Vector<Header> v=findHeaders(SipHeaders.Route);
 		if (!v.isEmpty()) return new MultipleHeader(v);
 		else return null;
 	}
@@ -391,7 +391,7 @@ public class SipMessage extends BasicSipMessage {
 	/** Gets all Record-Route header fields.
 	  * @return all routes (MultipleHeader of <code>RecordRouteHeader</code>) */
 	public MultipleHeader getRecordRoutes() {
-		Vector<Header> v=getHeaders(SipHeaders.Record_Route);
+		Vector<Header> v=findHeaders(SipHeaders.Record_Route);
 		if (!v.isEmpty()) return new MultipleHeader(v);
 		else return null;
 	}
@@ -434,7 +434,7 @@ public class SipMessage extends BasicSipMessage {
 	/** Gets all Service-Route header fields.
 	  * @return all service routes (MultipleHeader of <code>ServiceRouteHeader</code>) */
 	public MultipleHeader getServiceRoutes() {
-		Vector<Header> v=getHeaders(SipHeaders.ServiceRoute);
+		Vector<Header> v=findHeaders(SipHeaders.ServiceRoute);
 		if (!v.isEmpty()) return new MultipleHeader(v);
 		else return null;
 	}
@@ -456,7 +456,7 @@ public class SipMessage extends BasicSipMessage {
 	}  
 	/** Gets CSeqHeader of Message. */
 	public CSeqHeader getCSeqHeader() {
-		Header h = getHeader(SipHeaders.CSeq);
+		CSeqHeader h = getParsedHeader(SipHeaders.CSeq,CSeqHeader::new);
 		if (h==null) return null;
 		else return new CSeqHeader(h);
 	} 
@@ -480,7 +480,7 @@ public class SipMessage extends BasicSipMessage {
 	} 
 	/** Gets CallIdHeader of Message. */
 	public CallIdHeader getCallIdHeader() {
-		Header h = getHeader(SipHeaders.Call_ID);
+		CallIdHeader h = getParsedHeader(SipHeaders.Call_ID,CallIdHeader::new);
 		if (h==null) return null;
 		else return new CallIdHeader(h);
 	} 
@@ -500,7 +500,7 @@ public class SipMessage extends BasicSipMessage {
 	} 
 	/** Gets SubjectHeader of Message. */
 	public SubjectHeader getSubjectHeader() {
-		Header h = getHeader(SipHeaders.Subject);
+		Header h = findHeader(SipHeaders.Subject);
 		if (h==null) return null;
 		else return new SubjectHeader(h);
 	} 
@@ -516,7 +516,7 @@ public class SipMessage extends BasicSipMessage {
 	}  
 	/** Gets DateHeader of Message. */
 	public DateHeader getDateHeader() {
-		Header h = getHeader(SipHeaders.Date);
+		Header h = findHeader(SipHeaders.Date);
 		if (h==null) return null;
 		else return new DateHeader(h);
 	} 
@@ -540,7 +540,7 @@ public class SipMessage extends BasicSipMessage {
 	} 
 	/** Gets UserAgentHeader. */
 	public UserAgentHeader getUserAgentHeader() {
-		Header h = getHeader(SipHeaders.User_Agent);
+		Header h = findHeader(SipHeaders.User_Agent);
 		if (h==null) return null;
 		else return new UserAgentHeader(h);
 	} 
@@ -560,7 +560,7 @@ public class SipMessage extends BasicSipMessage {
 	} 
 	/** Gets ServerHeader. */
 	public ServerHeader getServerHeader() {
-		Header h = getHeader(SipHeaders.Server);
+		Header h = findHeader(SipHeaders.Server);
 		if (h==null) return null;
 		else return new ServerHeader(h);
 	} 
@@ -570,6 +570,26 @@ public class SipMessage extends BasicSipMessage {
 	}
 
 
+	/** Whether has RetryAfterHeader. */
+	public boolean hasRetryAfterHeader() {
+		return hasHeader(SipHeaders.Retry_After);
+	}
+	/** Sets RetryAfterHeader. */
+	public void setRetryAfterHeader(RetryAfterHeader h)  {
+		setHeader(h);
+	} 
+	/** Gets RetryAfterHeader. */
+	public RetryAfterHeader getRetryAfterHeader() {
+		Header h = findHeader(SipHeaders.Retry_After);
+		if (h==null) return null;
+		else return new RetryAfterHeader(h);
+	} 
+	/** Removes RetryAfterHeader. */
+	public void removeRetryAfterHeader()  {
+		removeHeader(SipHeaders.Retry_After);
+	}
+
+
 	/** Whether has AcceptHeader. */
 	public boolean hasAcceptHeader() {
 		return hasHeader(SipHeaders.Accept);
@@ -580,7 +600,7 @@ public class SipMessage extends BasicSipMessage {
 	} 
 	/** Gets AcceptHeader. */
 	public AcceptHeader getAcceptHeader() {
-		Header h = getHeader(SipHeaders.Accept);
+		Header h = findHeader(SipHeaders.Accept);
 		if (h==null) return null;
 		else return new AcceptHeader(h);
 	} 
@@ -600,7 +620,7 @@ public class SipMessage extends BasicSipMessage {
 	} 
 	/** Gets AcceptEncodingHeader. */
 	public AcceptEncodingHeader getAcceptEncodingHeader() {
-		Header h = getHeader(SipHeaders.Accept_Encoding);
+		Header h = findHeader(SipHeaders.Accept_Encoding);
 		if (h==null) return null;
 		else return new AcceptEncodingHeader(h);
 	} 
@@ -620,7 +640,7 @@ public class SipMessage extends BasicSipMessage {
 	} 
 	/** Gets AcceptLanguageHeader. */
 	public AcceptLanguageHeader getAcceptLanguageHeader() {
-		Header h = getHeader(SipHeaders.Accept_Language);
+		Header h = findHeader(SipHeaders.Accept_Language);
 		if (h==null) return null;
 		else return new AcceptLanguageHeader(h);
 	} 
@@ -640,7 +660,7 @@ public class SipMessage extends BasicSipMessage {
 	} 
 	/** Gets AlertInfoHeader. */
 	public AlertInfoHeader getAlertInfoHeader() {
-		Header h = getHeader(SipHeaders.Alert_Info);
+		Header h = findHeader(SipHeaders.Alert_Info);
 		if (h==null) return null;
 		else return new AlertInfoHeader(h);
 	} 
@@ -660,7 +680,7 @@ public class SipMessage extends BasicSipMessage {
 	} 
 	/** Gets AllowHeader. */
 	public AllowHeader getAllowHeader() {
-		Header h = getHeader(SipHeaders.Allow);
+		Header h = findHeader(SipHeaders.Allow);
 		if (h==null) return null;
 		else return new AllowHeader(h);
 	} 
@@ -676,7 +696,7 @@ public class SipMessage extends BasicSipMessage {
 	}   
 	/** Gets ExpiresHeader of Message. */
 	public ExpiresHeader getExpiresHeader() {
-		Header h = getHeader(SipHeaders.Expires);
+		Header h = findHeader(SipHeaders.Expires);
 		if (h==null) return null;
 		else return new ExpiresHeader(h);
 	} 
@@ -700,7 +720,7 @@ public class SipMessage extends BasicSipMessage {
 	} 
 	/** Gets AuthenticationInfoHeader. */
 	public AuthenticationInfoHeader getAuthenticationInfoHeader() {
-		Header h = getHeader(SipHeaders.Authentication_Info);
+		Header h = findHeader(SipHeaders.Authentication_Info);
 		if (h==null) return null;
 		else return new AuthenticationInfoHeader(h);
 	} 
@@ -720,7 +740,7 @@ public class SipMessage extends BasicSipMessage {
 	} 
 	/** Gets AuthorizationHeader. */
 	public AuthorizationHeader getAuthorizationHeader() {
-		Header h = getHeader(SipHeaders.Authorization);
+		Header h = findHeader(SipHeaders.Authorization);
 		if (h==null) return null;
 		else return new AuthorizationHeader(h);
 	} 
@@ -740,7 +760,7 @@ public class SipMessage extends BasicSipMessage {
 	} 
 	/** Gets WwwAuthenticateHeader. */
 	public WwwAuthenticateHeader getWwwAuthenticateHeader() {
-		Header h = getHeader(SipHeaders.WWW_Authenticate);
+		Header h = findHeader(SipHeaders.WWW_Authenticate);
 		if (h==null) return null;
 		else return new WwwAuthenticateHeader(h);
 	} 
@@ -760,7 +780,7 @@ public class SipMessage extends BasicSipMessage {
 	} 
 	/** Gets ProxyAuthenticateHeader. */
 	public ProxyAuthenticateHeader getProxyAuthenticateHeader() {
-		Header h = getHeader(SipHeaders.Proxy_Authenticate);
+		Header h = findHeader(SipHeaders.Proxy_Authenticate);
 		if (h==null) return null;
 		else return new ProxyAuthenticateHeader(h);
 	} 
@@ -780,7 +800,7 @@ public class SipMessage extends BasicSipMessage {
 	} 
 	/** Gets ProxyAuthorizationHeader. */
 	public ProxyAuthorizationHeader getProxyAuthorizationHeader() {
-		Header h = getHeader(SipHeaders.Proxy_Authorization);
+		Header h = findHeader(SipHeaders.Proxy_Authorization);
 		if (h==null) return null;
 		else return new ProxyAuthorizationHeader(h);
 	} 
@@ -800,7 +820,7 @@ public class SipMessage extends BasicSipMessage {
 	} 
 	/** Gets SupportedHeader. */
 	public SupportedHeader getSupportedHeader() {
-		Header h = getHeader(SipHeaders.Supported);
+		Header h = findHeader(SipHeaders.Supported);
 		if (h==null) return null;
 		else return new SupportedHeader(h);
 	} 
@@ -820,7 +840,7 @@ public class SipMessage extends BasicSipMessage {
 	} 
 	/** Gets RequireHeader. */
 	public RequireHeader getRequireHeader() {
-		Header h = getHeader(SipHeaders.Require);
+		Header h = findHeader(SipHeaders.Require);
 		if (h==null) return null;
 		else return new RequireHeader(h);
 	} 
@@ -840,7 +860,7 @@ public class SipMessage extends BasicSipMessage {
 	} 
 	/** Gets UnsupportedHeader. */
 	public UnsupportedHeader getUnsupportedHeader() {
-		Header h = getHeader(SipHeaders.Unsupported);
+		Header h = findHeader(SipHeaders.Unsupported);
 		if (h==null) return null;
 		else return new UnsupportedHeader(h);
 	} 
@@ -860,7 +880,7 @@ public class SipMessage extends BasicSipMessage {
 	} 
 	/** Gets ProxyRequireHeader. */
 	public ProxyRequireHeader getProxyRequireHeader() {
-		Header h = getHeader(SipHeaders.Proxy_Require);
+		Header h = findHeader(SipHeaders.Proxy_Require);
 		if (h==null) return null;
 		else return new ProxyRequireHeader(h);
 	} 
@@ -965,7 +985,7 @@ public class SipMessage extends BasicSipMessage {
 	}
 	/** Gets RSeqHeader */
 	public RSeqHeader getRSeqHeader() {
-		Header h = getHeader(SipHeaders.RSeq);
+		Header h = findHeader(SipHeaders.RSeq);
 		if (h==null) return null;
 		return new RSeqHeader(h);
 	}  
@@ -985,7 +1005,7 @@ public class SipMessage extends BasicSipMessage {
 	}
 	/** Gets RAckHeader */
 	public RAckHeader getRAckHeader() {
-		Header h = getHeader(SipHeaders.RAck);
+		Header h = findHeader(SipHeaders.RAck);
 		if (h==null) return null;
 		return new RAckHeader(h);
 	}  
@@ -1005,7 +1025,7 @@ public class SipMessage extends BasicSipMessage {
 	}
 	/** Gets SessionExpiresHeader */
 	public SessionExpiresHeader getSessionExpiresHeader() {
-		Header h = getHeader(SipHeaders.Session_Expires);
+		Header h = findHeader(SipHeaders.Session_Expires);
 		if (h==null) return null;
 		return new SessionExpiresHeader(h);
 	}  
@@ -1025,7 +1045,7 @@ public class SipMessage extends BasicSipMessage {
 	}
 	/** Gets MinSEHeader */
 	public MinSEHeader getMinSEHeader() {
-		Header h = getHeader(SipHeaders.Min_SE);
+		Header h = findHeader(SipHeaders.Min_SE);
 		if (h==null) return null;
 		return new MinSEHeader(h);
 	}  
@@ -1045,7 +1065,7 @@ public class SipMessage extends BasicSipMessage {
 	}
 	/** Gets ReferToHeader */
 	public ReferToHeader getReferToHeader() {
-		Header h = getHeader(SipHeaders.Refer_To);
+		Header h = findHeader(SipHeaders.Refer_To);
 		if (h==null) return null;
 		return new ReferToHeader(h);
 	}  
@@ -1065,7 +1085,7 @@ public class SipMessage extends BasicSipMessage {
 	}
 	/** Gets ReplacesHeader */
 	public ReplacesHeader getReplacesHeader() {
-		Header h = getHeader(SipHeaders.Replaces);
+		Header h = findHeader(SipHeaders.Replaces);
 		if (h==null) return null;
 		return new ReplacesHeader(h);
 	}  
@@ -1085,7 +1105,7 @@ public class SipMessage extends BasicSipMessage {
 	}
 	/** Gets ReferredByHeader */
 	public ReferredByHeader getReferredByHeader() {
-		Header h = getHeader(SipHeaders.Referred_By);
+		Header h = findHeader(SipHeaders.Referred_By);
 		if (h==null) return null;
 		return new ReferredByHeader(h);
 	}  
@@ -1105,7 +1125,7 @@ public class SipMessage extends BasicSipMessage {
 	}
 	/** Gets EventHeader */
 	public EventHeader getEventHeader() {
-		Header h = getHeader(SipHeaders.Event);
+		Header h = findHeader(SipHeaders.Event);
 		if (h==null) return null;
 		return new EventHeader(h);
 	}  
@@ -1125,7 +1145,7 @@ public class SipMessage extends BasicSipMessage {
 	}
 	/** Gets AllowEventsHeader */
 	public AllowEventsHeader getAllowEventsHeader() {
-		Header h = getHeader(SipHeaders.Allow_Events);
+		Header h = findHeader(SipHeaders.Allow_Events);
 		if (h==null) return null;
 		return new AllowEventsHeader(h);
 	}  
@@ -1145,7 +1165,7 @@ public class SipMessage extends BasicSipMessage {
 	}
 	/** Gets SubscriptionStateHeader */
 	public SubscriptionStateHeader getSubscriptionStateHeader() {
-		Header h = getHeader(SipHeaders.Subscription_State);
+		Header h = findHeader(SipHeaders.Subscription_State);
 		if (h==null) return null;
 		return new SubscriptionStateHeader(h);
 	}  
@@ -1169,7 +1189,7 @@ public class SipMessage extends BasicSipMessage {
 	} 
 	/** Gets InfoPackageHeader. */
 	public InfoPackageHeader getInfoPackageHeader() {
-		Header h = getHeader(SipHeaders.Info_Package);
+		Header h = findHeader(SipHeaders.Info_Package);
 		if (h==null) return null;
 		else return new InfoPackageHeader(h);
 	} 
@@ -1190,7 +1210,7 @@ public class SipMessage extends BasicSipMessage {
 	} 
 	/** Gets RecvInfoHeader. */
 	public RecvInfoHeader getRecvInfoHeader() {
-		Header h = getHeader(SipHeaders.Recv_Info);
+		Header h = findHeader(SipHeaders.Recv_Info);
 		if (h==null) return null;
 		else return new RecvInfoHeader(h);
 	} 
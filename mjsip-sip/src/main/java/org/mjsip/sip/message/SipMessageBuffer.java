@@ -95,6 +95,7 @@ public class SipMessageBuffer {
 	public synchronized SipMessageBuffer skip(int n) {
 		offset+=n;
 		if (buffer==null || offset>buffer.length) throw new RuntimeException("Exceeded the buffer length: "+offset+">"+(buffer==null? 0 : buffer.length));
+		releaseIfEmpty();
 		return this;
 	}
 
@@ -122,6 +123,16 @@ public class SipMessageBuffer {
 		return this;
 	}
 
+	/** Drops the buffer array as soon as all data has been consumed.
+	  * A parsed message does not reference the buffer, so an idle connection does not need to keep its
+	  * last message in memory. */
+	private void releaseIfEmpty() {
+		if (buffer!=null && offset==buffer.length) {
+			buffer=null;
+			offset=0;
+		}
+	}
+
 	/** Tries to get a new SIP message from the buffer.
 	  * <p>
 	  * The buffer is a stream of messages, therefore only a message with a Content-Length header field
@@ -149,6 +160,7 @@ public class SipMessageBuffer {
 				throw new MalformedSipMessageException("Message too large: More than "+max_message_size+" bytes received without a complete message.");
 			throw ex;
 		}
+		releaseIfEmpty();
 		// DEBUG:
 		/*try {
 			offset+=msg.setMessage(buffer,offset,buffer.length-offset);
@@ -4,67 +4,63 @@
 package org.mjsip.sip.provider;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * Listener lists with copy on write semantics.
  *
+ * <p>
+ * Messages can be delivered concurrently from multiple threads without locking. A modification
+ * replaces the list, so that a concurrent delivery continues with the listeners registered when
+ * it started.
+ * </p>
+ *
  * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
  */
 public abstract class CopyOnWriteListeners<L, M> {
 
-	private boolean _iterating;
-
-	private List<L> _list = new ArrayList<>();
+	private volatile List<L> _list = Collections.emptyList();
 
 	/**
 	 * Adds the given element.
 	 */
-	public boolean add(L listener) {
+	public synchronized boolean add(L listener) {
 		if (_list.contains(listener)) {
 			return false;
 		}
-		return copyWhileIterating().add(listener);
-	}
-
-	private List<L> copyWhileIterating() {
-		if (_iterating) {
-			_list = new ArrayList<>(_list);
-		}
-		return _list;
+		List<L> copy = new ArrayList<>(_list);
+		copy.add(listener);
+		_list = copy;
+		return true;
 	}
 
 	/**
 	 * Removes the given element.
 	 */
-	public boolean remove(L listener) {
+	public synchronized boolean remove(L listener) {
 		if (!_list.contains(listener)) {
 			return false;
 		}
-		return copyWhileIterating().remove(listener);
+		List<L> copy = new ArrayList<>(_list);
+		copy.remove(listener);
+		_list = copy;
+		return true;
 	}
 
 	/**
 	 * Clears this list.
 	 */
-	public void clear() {
-		copyWhileIterating().clear();
+	public synchronized void clear() {
+		_list = Collections.emptyList();
 	}
 
 	/**
 	 * Delivers the message to all listeners.
 	 */
 	public void notify(M msg) {
-		boolean before = _iterating;
-		try {
-			_iterating = true;
-			for (L listener : _list) {
-				handle(listener, msg);
-			}
-		} finally {
-			if (_iterating) {
-				_iterating = before;
-			}
+		for (L listener : _list) {
+			handle(listener, msg);
 		}
 	}
 
@@ -0,0 +1,410 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.sip.provider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.mjsip.sip.message.SipMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.zoolu.net.SocketAddress;
+
+/**
+ * Service sending keep-alive tokens to any number of targets from the {@link SipProvider}'s
+ * scheduler.
+ *
+ * <p>
+ * In contrast to {@link SipKeepAlive}, no thread is created per target. The targets are kept in a
+ * hashed timing wheel with one bucket per tick. A single periodic task advances the wheel and sends
+ * the tokens of all targets due in the current tick as a batch. Adding, removing, and changing the
+ * interval of a target are constant time operations.
+ * </p>
+ *
+ * <p>
+ * By default, the RFC 5626 ping (CRLF CRLF) is sent, which is answered by a pong (CRLF) from the
+ * remote {@link UdpTransport}. Received pongs are reported through
+ * {@link SipTransportListener#onReceivedPong(SipTransport, SocketAddress)} and counted, see
+ * {@link #getPongsReceived()}.
+ * </p>
+ *
+ * @see SipProvider#keepAlive()
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+public class KeepAliveService {
+
+	private static final Logger LOG = LoggerFactory.getLogger(KeepAliveService.class);
+
+	/** Default duration of a tick in milliseconds. */
+	public static final long DEFAULT_TICK = 1000;
+
+	/** The RFC 5626 ping sent by default. */
+	public static final byte[] PING = UdpTransport.PING;
+
+	/** Number of buckets in the wheel, must be a power of two. */
+	private static final int WHEEL_SIZE = 512;
+
+	private static final int MASK = WHEEL_SIZE - 1;
+
+	private final SipProvider _provider;
+
+	private final long _tick;
+
+	private final SipMessage _defaultToken;
+
+	/**
+	 * Head of the doubly linked list of targets per bucket, guarded by <code>this</code>.
+	 */
+	private final Target[] _wheel = new Target[WHEEL_SIZE];
+
+	/** The next tick to process, guarded by <code>this</code>. */
+	private long _next;
+
+	/** Number of active targets, guarded by <code>this</code>. */
+	private int _size;
+
+	private final LongAdder _pingsSent = new LongAdder();
+
+	private final LongAdder _pongsReceived = new LongAdder();
+
+	private long _startMillis;
+
+	private ScheduledFuture<?> _task;
+
+	/**
+	 * Creates a {@link KeepAliveService}.
+	 *
+	 * <p>
+	 * The service does not send any tokens before it is {@link #start() started}.
+	 * </p>
+	 *
+	 * @param provider
+	 *        The {@link SipProvider} to send the tokens with.
+	 * @param tick
+	 *        The resolution of the keep-alive intervals in milliseconds.
+	 */
+	public KeepAliveService(SipProvider provider, long tick) {
+		if (tick <= 0) {
+			throw new IllegalArgumentException("Tick must be positive: " + tick);
+		}
+		_provider = provider;
+		_tick = tick;
+		_defaultToken = new SipKeepAlive.SipToken(new String(PING));
+	}
+
+	/**
+	 * Starts sending tokens from the {@link SipProvider}'s scheduler.
+	 */
+	public synchronized void start() {
+		if (_task != null) {
+			return;
+		}
+		_startMillis = System.currentTimeMillis() - _next * _tick;
+		_task = _provider.scheduler().schedulerWithFixedDelay(_tick, this::onTimeout);
+	}
+
+	/**
+	 * Stops sending tokens.
+	 *
+	 * <p>
+	 * The registered targets are kept, the service may be {@link #start() started} again.
+	 * </p>
+	 */
+	public synchronized void halt() {
+		if (_task != null) {
+			_task.cancel(false);
+			_task = null;
+		}
+	}
+
+	/**
+	 * Starts sending the default ping to the given destination.
+	 *
+	 * @see #add(SocketAddress, SipMessage, long)
+	 */
+	public Target add(SocketAddress destination, long interval) {
+		return add(destination, null, interval);
+	}
+
+	/**
+	 * Starts sending keep-alive tokens to the given destination.
+	 *
+	 * @param destination
+	 *        The address to send the tokens to.
+	 * @param token
+	 *        The token to send, <code>null</code> for the default ping.
+	 * @param interval
+	 *        The time between two tokens in milliseconds.
+	 * @return The handle to change or {@link Target#cancel() cancel} the keep-alive.
+	 */
+	public Target add(SocketAddress destination, SipMessage token, long interval) {
+		Target target = new Target(destination, token == null ? _defaultToken : token, interval);
+		synchronized (this) {
+			_size++;
+			schedule(target, interval);
+		}
+		return target;
+	}
+
+	/**
+	 * The number of targets.
+	 */
+	public synchronized int size() {
+		return _size;
+	}
+
+	/**
+	 * The total number of keep-alive tokens sent.
+	 */
+	public long getPingsSent() {
+		return _pingsSent.sum();
+	}
+
+	/**
+	 * The total number of pongs received.
+	 */
+	public long getPongsReceived() {
+		return _pongsReceived.sum();
+	}
+
+	/**
+	 * Called by the {@link SipProvider} when a pong has been received.
+	 */
+	void onPong(SocketAddress remote) {
+		_pongsReceived.increment();
+	}
+
+	private void onTimeout() {
+		long now = (System.currentTimeMillis() - _startMillis) / _tick;
+		try {
+			// Catches up ticks missed due to a delayed scheduler, the due targets are pinged only once.
+			advance(Math.min(now - nextTick(), WHEEL_SIZE));
+		} catch (RuntimeException ex) {
+			LOG.warn("Sending keep-alive tokens failed.", ex);
+		}
+	}
+
+	private synchronized long nextTick() {
+		return _next;
+	}
+
+	/**
+	 * Processes the given number of ticks and sends the tokens of all targets that become due.
+	 *
+	 * @return The number of tokens sent.
+	 */
+	int advance(long ticks) {
+		List<Target> batch = new ArrayList<>();
+		synchronized (this) {
+			long now = System.currentTimeMillis();
+			for (long n = 0; n < ticks; n++) {
+				collect(batch, now);
+			}
+			for (Target target : batch) {
+				target._batched = false;
+			}
+		}
+		for (Target target : batch) {
+			send(target);
+		}
+		return batch.size();
+	}
+
+	/**
+	 * Adds the targets of the current bucket that are due to the given batch and reschedules them.
+	 */
+	private void collect(List<Target> batch, long now) {
+		int slot = (int) (_next++ & MASK);
+		Target target = _wheel[slot];
+		while (target != null) {
+			Target next = target._next;
+			if (target._rounds > 0) {
+				target._rounds--;
+			} else {
+				unlink(target);
+				if (target._expires > 0 && target._expires <= now) {
+					target._cancelled = true;
+					_size--;
+				} else {
+					// Note: The target is inserted at the head of its new bucket, if this is the
+					// current bucket, it is not visited again in this tick.
+					schedule(target, target._interval);
+					if (!target._batched) {
+						target._batched = true;
+						batch.add(target);
+					}
+				}
+			}
+			target = next;
+		}
+	}
+
+	private void send(Target target) {
+		SocketAddress destination = target._destination;
+		String proto = _provider.getDefaultTransport();
+		if (destination == null || proto == null) {
+			return;
+		}
+		_provider.sendRawMessage(target._token, proto, destination.getAddress(), destination.getPort(), 127);
+		_pingsSent.increment();
+	}
+
+	/**
+	 * Inserts the given target into the bucket of the tick after the given delay.
+	 */
+	private void schedule(Target target, long delay) {
+		long ticks = Math.max(1, (delay + _tick - 1) / _tick);
+		int slot = (int) ((_next + ticks - 1) & MASK);
+		target._rounds = (ticks - 1) / WHEEL_SIZE;
+		target._slot = slot;
+		target._prev = null;
+		target._next = _wheel[slot];
+		if (target._next != null) {
+			target._next._prev = target;
+		}
+		_wheel[slot] = target;
+	}
+
+	private void unlink(Target target) {
+		if (target._prev != null) {
+			target._prev._next = target._next;
+		} else {
+			_wheel[target._slot] = target._next;
+		}
+		if (target._next != null) {
+			target._next._prev = target._prev;
+		}
+		target._prev = null;
+		target._next = null;
+		target._slot = -1;
+	}
+
+	/**
+	 * A destination of keep-alive tokens.
+	 */
+	public final class Target {
+
+		private volatile SocketAddress _destination;
+
+		private final SipMessage _token;
+
+		/** Time between two tokens in milliseconds, guarded by the service. */
+		private long _interval;
+
+		/** Absolute expiration time in milliseconds, 0 if the target does not expire. */
+		private long _expires;
+
+		/** Number of full wheel turns before the target is due, guarded by the service. */
+		private long _rounds;
+
+		/** The bucket of the target, <code>-1</code> if not scheduled, guarded by the service. */
+		private int _slot = -1;
+
+		private Target _prev;
+
+		private Target _next;
+
+		private boolean _cancelled;
+
+		/** Whether the target is already part of the batch being collected. */
+		private boolean _batched;
+
+		Target(SocketAddress destination, SipMessage token, long interval) {
+			_destination = destination;
+			_token = token;
+			_interval = interval;
+		}
+
+		/**
+		 * The address the tokens are sent to.
+		 */
+		public SocketAddress getDestination() {
+			return _destination;
+		}
+
+		/**
+		 * Changes the address the tokens are sent to.
+		 */
+		public void setDestination(SocketAddress destination) {
+			_destination = destination;
+		}
+
+		/**
+		 * The time between two tokens in milliseconds.
+		 */
+		public long getInterval() {
+			synchronized (KeepAliveService.this) {
+				return _interval;
+			}
+		}
+
+		/**
+		 * Changes the time between two tokens.
+		 *
+		 * <p>
+		 * The next token is sent after the new interval.
+		 * </p>
+		 *
+		 * @param interval
+		 *        The new interval in milliseconds.
+		 */
+		public void setInterval(long interval) {
+			synchronized (KeepAliveService.this) {
+				_interval = interval;
+				if (_slot >= 0) {
+					unlink(this);
+					schedule(this, interval);
+				}
+			}
+		}
+
+		/**
+		 * Stops sending tokens after the given time.
+		 *
+		 * @param time
+		 *        The time in milliseconds from now, 0 to send tokens until {@link #cancel()} is
+		 *        called.
+		 */
+		public void setExpirationTime(long time) {
+			synchronized (KeepAliveService.this) {
+				_expires = time > 0 ? System.currentTimeMillis() + time : 0;
+			}
+		}
+
+		/**
+		 * Whether tokens are still sent to this target.
+		 */
+		public boolean isRunning() {
+			synchronized (KeepAliveService.this) {
+				return !_cancelled;
+			}
+		}
+
+		/**
+		 * Stops sending tokens to this target.
+		 */
+		public void cancel() {
+			synchronized (KeepAliveService.this) {
+				if (_cancelled) {
+					return;
+				}
+				_cancelled = true;
+				_size--;
+				if (_slot >= 0) {
+					unlink(this);
+				}
+			}
+		}
+
+		@Override
+		public String toString() {
+			return _destination + " (" + getInterval() + "ms)";
+		}
+
+	}
+
+}
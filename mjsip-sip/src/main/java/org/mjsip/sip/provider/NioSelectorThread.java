@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.sip.provider;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+import org.slf4j.LoggerFactory;
+
+/**
+ * Thread serving a {@link Selector} for a set of non-blocking channels.
+ *
+ * <p>
+ * Each registered channel has a {@link Handler} as attachment that is called from this thread
+ * whenever the channel is ready. Registrations are passed to this thread through a task queue,
+ * since registering a channel with a selector blocks while the selector is waiting.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+final class NioSelectorThread extends Thread {
+
+	private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(NioSelectorThread.class);
+
+	/** Size of the buffer shared by all connections of a selector thread for reading. */
+	private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Callback for channels registered with a {@link NioSelectorThread}.
+	 */
+	interface Handler {
+
+		/**
+		 * Called from the selector thread, if the channel of the given key is ready.
+		 *
+		 * @param key
+		 *        The selection key of the channel.
+		 * @param readBuffer
+		 *        Buffer for reading data, only valid during this call.
+		 */
+		void onReady(SelectionKey key, ByteBuffer readBuffer) throws IOException;
+
+		/**
+		 * Called from the selector thread, if {@link #onReady(SelectionKey, ByteBuffer)} failed or
+		 * the selector thread terminates.
+		 */
+		void onClose(Exception error);
+
+	}
+
+	private final Selector _selector;
+
+	private final ConcurrentLinkedQueue<Runnable> _tasks = new ConcurrentLinkedQueue<>();
+
+	private final ByteBuffer _readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+	private volatile boolean _stopped;
+
+	/**
+	 * Creates a {@link NioSelectorThread}.
+	 */
+	NioSelectorThread(String name) throws IOException {
+		super(name);
+		setDaemon(true);
+		_selector = Selector.open();
+	}
+
+	/**
+	 * Registers the given channel with this selector.
+	 *
+	 * @param channel
+	 *        The channel in non-blocking mode.
+	 * @param ops
+	 *        The initial interest set.
+	 * @param handler
+	 *        The handler to call for the channel.
+	 * @param onRegistered
+	 *        Callback receiving the selection key in the selector thread, may be <code>null</code>.
+	 */
+	void register(SelectableChannel channel, int ops, Handler handler, Consumer<SelectionKey> onRegistered) {
+		execute(() -> {
+			try {
+				SelectionKey key = channel.register(_selector, ops, handler);
+				if (onRegistered != null) {
+					onRegistered.accept(key);
+				}
+			} catch (IOException | RuntimeException ex) {
+				handler.onClose(ex);
+			}
+		});
+	}
+
+	/**
+	 * Executes the given task in the selector thread.
+	 */
+	void execute(Runnable task) {
+		_tasks.add(task);
+		_selector.wakeup();
+	}
+
+	/**
+	 * Wakes up the selector, e.g. after the interest set of a key has been changed.
+	 */
+	void wakeup() {
+		_selector.wakeup();
+	}
+
+	/**
+	 * Stops this thread and closes all channels registered with it.
+	 */
+	void halt() {
+		_stopped = true;
+		_selector.wakeup();
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (!_stopped) {
+				_selector.select();
+				runTasks();
+
+				Iterator<SelectionKey> it = _selector.selectedKeys().iterator();
+				while (it.hasNext()) {
+					SelectionKey key = it.next();
+					it.remove();
+
+					Handler handler = (Handler) key.attachment();
+					try {
+						handler.onReady(key, _readBuffer);
+					} catch (IOException | CancelledKeyException ex) {
+						handler.onClose(ex);
+					} catch (RuntimeException ex) {
+						LOG.warn("Processing channel {} failed.", key.channel(), ex);
+						handler.onClose(ex);
+					}
+				}
+			}
+		} catch (IOException | ClosedSelectorException ex) {
+			LOG.error("Selector {} failed.", getName(), ex);
+		} finally {
+			close();
+		}
+	}
+
+	private void runTasks() {
+		Runnable task;
+		while ((task = _tasks.poll()) != null) {
+			task.run();
+		}
+	}
+
+	private void close() {
+		_tasks.clear();
+		try {
+			for (SelectionKey key : new ArrayList<>(_selector.keys())) {
+				((Handler) key.attachment()).onClose(null);
+			}
+			_selector.close();
+		} catch (IOException | ClosedSelectorException ex) {
+			LOG.debug("Closing selector {} failed.", getName(), ex);
+		}
+	}
+
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.sip.provider;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import org.slf4j.LoggerFactory;
+import org.zoolu.net.IpAddress;
+import org.zoolu.net.SocketAddress;
+
+/**
+ * TCP transport for SIP serving all connections by a fixed number of selector threads.
+ *
+ * <p>
+ * This is an alternative to {@link TcpTransport} that does not require a reader thread per
+ * connection. An idle connection only holds its socket and an empty receive buffer, so that a
+ * single instance can keep a large number of registered clients connected.
+ * </p>
+ *
+ * <p>
+ * Received messages are dispatched in the selector thread serving the connection, so that messages
+ * of the same connection are processed in order.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+public class NioTcpTransport extends SipTransportCO {
+
+	private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(NioTcpTransport.class);
+
+	/** Maximum number of pending incoming connections. */
+	private static final int BACKLOG = 1024;
+
+	/** Default for {@link #setMaxPendingBytes(int)}. */
+	public static final int DEFAULT_MAX_PENDING_BYTES = 1024 * 1024;
+
+	private final ServerSocketChannel _server;
+
+	/** The local address for outgoing connections, <code>null</code> for any. */
+	private final InetAddress _bindAddress;
+
+	private final NioSelectorThread[] _selectors;
+
+	private int _next;
+
+	private volatile int _maxPendingBytes = DEFAULT_MAX_PENDING_BYTES;
+
+	/**
+	 * Creates a {@link NioTcpTransport}.
+	 *
+	 * @param local_port
+	 *        The port to listen on.
+	 * @param host_ipaddr
+	 *        The address to bind to, <code>null</code> for all local addresses.
+	 * @param nmax_connections
+	 *        The maximum number of open connections.
+	 * @param selectors
+	 *        The number of selector threads.
+	 */
+	public NioTcpTransport(int local_port, IpAddress host_ipaddr, int nmax_connections, int selectors) throws IOException {
+		super(local_port, nmax_connections);
+		if (selectors <= 0) {
+			throw new IllegalArgumentException("At least one selector is required: " + selectors);
+		}
+
+		_bindAddress = host_ipaddr == null ? null : host_ipaddr.getInetAddress();
+		_server = ServerSocketChannel.open();
+		try {
+			_server.bind(new InetSocketAddress(_bindAddress, local_port), BACKLOG);
+			_server.configureBlocking(false);
+
+			_selectors = new NioSelectorThread[selectors];
+			for (int n = 0; n < selectors; n++) {
+				_selectors[n] = new NioSelectorThread("SipTcp-" + getLocalPort() + "-" + n);
+			}
+		} catch (IOException ex) {
+			_server.close();
+			throw ex;
+		}
+		for (NioSelectorThread selector : _selectors) {
+			selector.start();
+		}
+
+		_selectors[0].register(_server, SelectionKey.OP_ACCEPT, new NioSelectorThread.Handler() {
+			@Override
+			public void onReady(SelectionKey key, ByteBuffer readBuffer) throws IOException {
+				acceptConnections();
+			}
+
+			@Override
+			public void onClose(Exception error) {
+				LOG.debug("TCP server {} terminated.", NioTcpTransport.this, error);
+			}
+		}, null);
+	}
+
+	@Override
+	public String getProtocol() {
+		return TcpTransport.PROTO_TCP;
+	}
+
+	@Override
+	public int getLocalPort() {
+		return _server.socket().getLocalPort();
+	}
+
+	/**
+	 * The maximum number of bytes queued for sending to a single peer.
+	 *
+	 * @see #setMaxPendingBytes(int)
+	 */
+	public int getMaxPendingBytes() {
+		return _maxPendingBytes;
+	}
+
+	/**
+	 * Sets the maximum number of bytes queued for sending to a single peer.
+	 *
+	 * <p>
+	 * A connection to a peer that does not read its data is closed, when sending a message would
+	 * exceed this limit. The limit applies to connections created afterwards.
+	 * </p>
+	 */
+	public void setMaxPendingBytes(int maxPendingBytes) {
+		_maxPendingBytes = maxPendingBytes;
+	}
+
+	/**
+	 * The number of currently open connections.
+	 */
+	public int getConnectionCount() {
+		return connections.size();
+	}
+
+	@Override
+	public void halt() {
+		super.halt();
+		for (NioSelectorThread selector : _selectors) {
+			selector.halt();
+		}
+		try {
+			_server.close();
+		} catch (IOException ex) {
+			LOG.debug("Closing TCP server {} failed.", this, ex);
+		}
+	}
+
+	private void acceptConnections() throws IOException {
+		SocketChannel channel;
+		while ((channel = _server.accept()) != null) {
+			try {
+				NioTcpTransportConnection conn = new NioTcpTransportConnection(channel, nextSelector(), getMaxMessageSize(),
+						_maxPendingBytes, this_conn_listener);
+				LOG.debug("tcp connection {} opened", conn);
+				addConnection(conn);
+				if (listener != null) {
+					listener.onIncomingTransportConnection(this,
+							new SocketAddress(conn.getRemoteAddress(), conn.getRemotePort()));
+				}
+			} catch (IOException ex) {
+				LOG.info("Handling incoming connection failed: {}", ex.getMessage());
+				channel.close();
+			}
+		}
+	}
+
+	@Override
+	protected SipTransportConnection createTransportConnection(SocketAddress remote_soaddr) throws IOException {
+		// Do not block the caller (typically the SIP processing thread) until the peer answers, the
+		// connect is finished in the selector thread.
+		SocketChannel channel = SocketChannel.open();
+		try {
+			channel.configureBlocking(false);
+			// Assigns the local port before the connect has finished.
+			channel.bind(new InetSocketAddress(_bindAddress, 0));
+			channel.connect(new InetSocketAddress(remote_soaddr.getAddress().getInetAddress(), remote_soaddr.getPort()));
+			return new NioTcpTransportConnection(channel, nextSelector(), getMaxMessageSize(), _maxPendingBytes,
+					this_conn_listener);
+		} catch (IOException ex) {
+			channel.close();
+			throw ex;
+		}
+	}
+
+	private synchronized NioSelectorThread nextSelector() {
+		NioSelectorThread result = _selectors[_next++];
+		if (_next == _selectors.length) {
+			_next = 0;
+		}
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "tcp:" + _server.socket().getLocalSocketAddress() + " (" + _selectors.length + " selectors)";
+	}
+
+}
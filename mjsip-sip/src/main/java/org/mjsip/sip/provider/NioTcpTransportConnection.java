@@ -0,0 +1,357 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.sip.provider;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+
+import org.mjsip.sip.message.IncompleteSipMessageException;
+import org.mjsip.sip.message.SipMessage;
+import org.mjsip.sip.message.SipMessageBuffer;
+import org.slf4j.LoggerFactory;
+import org.zoolu.net.IpAddress;
+
+/**
+ * {@link SipTransportConnection} for a non-blocking {@link SocketChannel} served by a
+ * {@link NioSelectorThread}.
+ *
+ * <p>
+ * Received data is framed by a {@link SipMessageBuffer} and dispatched in the selector thread.
+ * Messages are sent directly from the calling thread as long as the socket accepts the data. The
+ * remainder is queued and written by the selector thread when the socket becomes writable again.
+ * If the peer does not read and the queued data exceeds a limit, the connection is closed.
+ * </p>
+ *
+ * <p>
+ * An outgoing connection may be created before the connect has finished. The connect is then
+ * completed by the selector thread, and messages sent in the meantime are queued.
+ * </p>
+ *
+ * @see NioTcpTransport
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+public class NioTcpTransportConnection implements SipTransportConnection, NioSelectorThread.Handler {
+
+	private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(NioTcpTransportConnection.class);
+
+	private final SocketChannel _channel;
+
+	private final NioSelectorThread _selector;
+
+	private final IpAddress _remoteAddress;
+
+	private final int _remotePort;
+
+	/**
+	 * The local address, may be the wildcard address until a pending connect has finished.
+	 */
+	private volatile IpAddress _localAddress;
+
+	private volatile int _localPort;
+
+	private final ConnectionId _connectionId;
+
+	private final SipMessageBuffer _buffer;
+
+	private final int _maxPendingBytes;
+
+	private volatile SipTransportConnectionListener _listener;
+
+	private volatile long _lastTime;
+
+	/**
+	 * Outgoing data not yet accepted by the socket, <code>null</code> if there is none.
+	 *
+	 * <p>
+	 * Guarded by <code>this</code>.
+	 * </p>
+	 */
+	private ArrayDeque<ByteBuffer> _outbound;
+
+	/** The number of bytes in {@link #_outbound}. Guarded by <code>this</code>. */
+	private int _pendingBytes;
+
+	/** Whether the connect has finished. Guarded by <code>this</code>. */
+	private boolean _connected;
+
+	/**
+	 * The key of the channel, <code>null</code> until registered. Guarded by <code>this</code>.
+	 */
+	private SelectionKey _key;
+
+	/** Guarded by <code>this</code>. */
+	private boolean _closed;
+
+	/**
+	 * Creates a {@link NioTcpTransportConnection} and registers it with the given selector.
+	 *
+	 * @param channel
+	 *        The connected channel, or a bound non-blocking channel with a pending connect.
+	 * @param selector
+	 *        The selector thread serving the connection.
+	 * @param maxMessageSize
+	 *        The maximum size of a single received SIP message (in bytes).
+	 * @param maxPendingBytes
+	 *        The maximum number of bytes queued for sending, before the connection is closed.
+	 * @param listener
+	 *        The connection listener.
+	 */
+	NioTcpTransportConnection(SocketChannel channel, NioSelectorThread selector, int maxMessageSize,
+			int maxPendingBytes, SipTransportConnectionListener listener) throws IOException {
+		_channel = channel;
+		_selector = selector;
+		_listener = listener;
+		_buffer = new SipMessageBuffer(maxMessageSize);
+		_maxPendingBytes = maxPendingBytes;
+
+		channel.configureBlocking(false);
+		channel.socket().setTcpNoDelay(true);
+		_connected = channel.isConnected();
+		InetSocketAddress remote = (InetSocketAddress) channel.getRemoteAddress();
+		_remoteAddress = new IpAddress(remote.getAddress());
+		_remotePort = remote.getPort();
+		initLocalAddress();
+		_connectionId = new ConnectionId(this);
+		_lastTime = System.currentTimeMillis();
+
+		selector.register(channel, _connected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT, this,
+				this::onRegistered);
+	}
+
+	private void initLocalAddress() throws IOException {
+		InetSocketAddress local = (InetSocketAddress) _channel.getLocalAddress();
+		_localAddress = new IpAddress(local.getAddress());
+		_localPort = local.getPort();
+	}
+
+	private synchronized void onRegistered(SelectionKey key) {
+		if (_closed) {
+			key.cancel();
+			return;
+		}
+		_key = key;
+		if (_connected && _outbound != null) {
+			key.interestOpsOr(SelectionKey.OP_WRITE);
+		}
+	}
+
+	@Override
+	public void setListener(SipTransportConnectionListener listener) {
+		_listener = listener;
+	}
+
+	@Override
+	public String getProtocol() {
+		return TcpTransport.PROTO_TCP;
+	}
+
+	@Override
+	public IpAddress getRemoteAddress() {
+		return _remoteAddress;
+	}
+
+	@Override
+	public int getRemotePort() {
+		return _remotePort;
+	}
+
+	@Override
+	public IpAddress getLocalAddress() {
+		return _localAddress;
+	}
+
+	@Override
+	public int getLocalPort() {
+		return _localPort;
+	}
+
+	@Override
+	public long getLastTimeMillis() {
+		return _lastTime;
+	}
+
+	/**
+	 * The number of bytes waiting to be written to the socket.
+	 */
+	public synchronized int getPendingBytes() {
+		return _pendingBytes;
+	}
+
+	@Override
+	public void sendMessage(SipMessage msg) throws IOException {
+		_lastTime = System.currentTimeMillis();
+		ByteBuffer data = ByteBuffer.wrap(msg.getEncoded());
+		synchronized (this) {
+			if (_closed) {
+				throw new IOException("Connection closed: " + this);
+			}
+			if (_outbound == null && _connected) {
+				_channel.write(data);
+				if (!data.hasRemaining()) {
+					return;
+				}
+			}
+			if (_pendingBytes + (long) data.remaining() <= _maxPendingBytes) {
+				if (_outbound == null) {
+					_outbound = new ArrayDeque<>(4);
+					if (_connected && _key != null) {
+						_key.interestOpsOr(SelectionKey.OP_WRITE);
+						_selector.wakeup();
+					}
+				}
+				_outbound.add(data);
+				_pendingBytes += data.remaining();
+				return;
+			}
+		}
+
+		// The peer does not read, the message stream can only be recovered by a new connection.
+		IOException error = new IOException(
+				"Send queue limit of " + _maxPendingBytes + " bytes exceeded, closing connection: " + this);
+		LOG.warn(error.getMessage());
+		terminate(error);
+		throw error;
+	}
+
+	@Override
+	public void onReady(SelectionKey key, ByteBuffer readBuffer) throws IOException {
+		if (key.isValid() && key.isConnectable()) {
+			finishConnect(key);
+		}
+		if (key.isValid() && key.isWritable()) {
+			flush(key);
+		}
+		if (key.isValid() && key.isReadable()) {
+			read(readBuffer);
+		}
+	}
+
+	private synchronized void finishConnect(SelectionKey key) throws IOException {
+		if (!_channel.finishConnect()) {
+			return;
+		}
+		_connected = true;
+		initLocalAddress();
+		LOG.debug("tcp connection {} established", this);
+		key.interestOps(_outbound == null ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+	}
+
+	private synchronized void flush(SelectionKey key) throws IOException {
+		if (_outbound != null) {
+			ByteBuffer data;
+			while ((data = _outbound.peek()) != null) {
+				_pendingBytes -= _channel.write(data);
+				if (data.hasRemaining()) {
+					return;
+				}
+				_outbound.poll();
+			}
+			_outbound = null;
+		}
+		key.interestOpsAnd(~SelectionKey.OP_WRITE);
+	}
+
+	private void read(ByteBuffer readBuffer) throws IOException {
+		readBuffer.clear();
+		int len = _channel.read(readBuffer);
+		if (len < 0) {
+			onClose(null);
+			return;
+		}
+		if (len == 0) {
+			return;
+		}
+		LOG.debug("Received {} bytes of data.", len);
+		_lastTime = System.currentTimeMillis();
+		_buffer.append(readBuffer.array(), 0, len);
+
+		SipMessage msg;
+		while ((msg = nextMessage()) != null) {
+			msg.setRemoteAddress(_remoteAddress.toString());
+			msg.setRemotePort(_remotePort);
+			msg.setTransportProtocol(getProtocol());
+			msg.setConnectionId(_connectionId);
+			SipTransportConnectionListener listener = _listener;
+			if (listener != null) {
+				listener.onReceivedMessage(this, msg);
+			}
+		}
+	}
+
+	/**
+	 * Tries to get a SIP message from the receive buffer.
+	 *
+	 * @see TcpTransportConnection
+	 */
+	private SipMessage nextMessage() {
+		// Skip possible leading CRLF (keep-alive).
+		byte b;
+		while (_buffer.getLength() > 0 && ((b = _buffer.byteAt(0)) == '\r' || b == '\n')) {
+			_buffer.skip(1);
+		}
+		try {
+			return _buffer.parseSipMessage();
+		} catch (IncompleteSipMessageException ex) {
+			return null;
+		} catch (Exception ex) {
+			// The start of the next message within the stream is unknown (see RFC 3261, 18.3).
+			LOG.warn("Closing connection {} due to a framing error: {}", _connectionId, ex.getMessage());
+			halt();
+			return null;
+		}
+	}
+
+	@Override
+	public void onClose(Exception error) {
+		terminate(error);
+	}
+
+	@Override
+	public void halt() {
+		terminate(null);
+	}
+
+	private void terminate(Exception error) {
+		synchronized (this) {
+			if (_closed) {
+				return;
+			}
+			_closed = true;
+			_outbound = null;
+			_pendingBytes = 0;
+			if (_key != null) {
+				_key.cancel();
+			}
+		}
+		try {
+			_channel.close();
+		} catch (IOException ex) {
+			LOG.debug("Closing connection {} failed.", _connectionId, ex);
+		}
+
+		SipTransportConnectionListener listener = _listener;
+		_listener = null;
+		if (listener != null) {
+			listener.onConnectionTerminated(this, error);
+		}
+	}
+
+	/**
+	 * Whether this connection has been closed.
+	 */
+	public synchronized boolean isClosed() {
+		return _closed;
+	}
+
+	@Override
+	public String toString() {
+		return "tcp:" + _localAddress + ":" + _localPort + "<->" + _remoteAddress + ":" + _remotePort;
+	}
+
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.sip.provider;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Writer of a capture file in the classic libpcap format.
+ *
+ * <p>
+ * Each message is written as a raw IP packet (link type {@link #LINKTYPE_RAW}) with synthetic IP
+ * and UDP headers, independently of the transport the message was actually sent over. This lets
+ * packet analyzers decode the messages as SIP. Messages not fitting into a single datagram are
+ * truncated in the capture, their original length is kept.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+class PcapWriter implements Closeable {
+
+	/** Magic number of a pcap file with timestamps in microseconds. */
+	private static final int MAGIC = 0xa1b2c3d4;
+
+	/** Link type of raw IPv4 and IPv6 packets. */
+	static final int LINKTYPE_RAW = 101;
+
+	private static final int SNAP_LEN = 0xffff;
+
+	private static final int IPV4_HEADER = 20;
+
+	private static final int IPV6_HEADER = 40;
+
+	private static final int UDP_HEADER = 8;
+
+	private static final int PROTO_UDP = 17;
+
+	/** Size of the global file header. */
+	static final int FILE_HEADER = 24;
+
+	/** Size of the header of each packet record. */
+	static final int RECORD_HEADER = 16;
+
+	private static final byte[] UNKNOWN_IPV4 = new byte[4];
+
+	private static final byte[] UNKNOWN_IPV6 = new byte[16];
+
+	private final DataOutputStream _out;
+
+	/**
+	 * Creates a {@link PcapWriter} and writes the file header.
+	 */
+	PcapWriter(OutputStream out) throws IOException {
+		_out = new DataOutputStream(out);
+		_out.writeInt(MAGIC);
+		_out.writeShort(2);
+		_out.writeShort(4);
+		// Time zone offset and accuracy of timestamps.
+		_out.writeInt(0);
+		_out.writeInt(0);
+		_out.writeInt(SNAP_LEN);
+		_out.writeInt(LINKTYPE_RAW);
+	}
+
+	/**
+	 * Writes a message as UDP packet.
+	 *
+	 * @param timeMicros
+	 *        The capture time in microseconds since the epoch.
+	 * @param src
+	 *        The source address, see {@link #address(String)}.
+	 * @param srcPort
+	 *        The source port.
+	 * @param dst
+	 *        The destination address, see {@link #address(String)}.
+	 * @param dstPort
+	 *        The destination port.
+	 * @param data
+	 *        The message.
+	 * @return The number of bytes written.
+	 */
+	int write(long timeMicros, byte[] src, int srcPort, byte[] dst, int dstPort, byte[] data) throws IOException {
+		boolean v6 = src.length == 16 || dst.length == 16;
+		int ipHeader = v6 ? IPV6_HEADER : IPV4_HEADER;
+		int payload = Math.min(data.length, SNAP_LEN - ipHeader - UDP_HEADER);
+		int captured = ipHeader + UDP_HEADER + payload;
+
+		_out.writeInt((int) (timeMicros / 1000000));
+		_out.writeInt((int) (timeMicros % 1000000));
+		_out.writeInt(captured);
+		_out.writeInt(ipHeader + UDP_HEADER + data.length);
+
+		int udpLength = UDP_HEADER + payload;
+		if (v6) {
+			_out.writeInt(6 << 28);
+			_out.writeShort(udpLength);
+			_out.writeByte(PROTO_UDP);
+			// Hop limit.
+			_out.writeByte(64);
+			_out.write(toIpv6(src));
+			_out.write(toIpv6(dst));
+		} else {
+			int[] header = {
+				0x4500, captured, 0, 0, (64 << 8) | PROTO_UDP, 0,
+				(src[0] & 0xff) << 8 | (src[1] & 0xff), (src[2] & 0xff) << 8 | (src[3] & 0xff),
+				(dst[0] & 0xff) << 8 | (dst[1] & 0xff), (dst[2] & 0xff) << 8 | (dst[3] & 0xff) };
+			header[5] = checksum(header);
+			for (int word : header) {
+				_out.writeShort(word);
+			}
+		}
+		_out.writeShort(srcPort);
+		_out.writeShort(dstPort);
+		_out.writeShort(udpLength);
+		// Note: A zero UDP checksum is only valid for IPv4, packet analyzers do not verify it by default.
+		_out.writeShort(0);
+		_out.write(data, 0, payload);
+		return RECORD_HEADER + captured;
+	}
+
+	/**
+	 * Flushes written packets to the underlying stream.
+	 */
+	void flush() throws IOException {
+		_out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		_out.close();
+	}
+
+	/**
+	 * Converts a numeric IPv4 or IPv6 address to its bytes.
+	 *
+	 * <p>
+	 * Host names are not resolved, since this would block the export. For them and for invalid
+	 * addresses, the unspecified address is returned.
+	 * </p>
+	 */
+	static byte[] address(String address) {
+		if (address == null || address.isEmpty()) {
+			return UNKNOWN_IPV4;
+		}
+		boolean v6 = address.indexOf(':') >= 0;
+		if (!v6 && !isNumericIpv4(address)) {
+			return UNKNOWN_IPV4;
+		}
+		if (v6 && address.startsWith("[") && address.endsWith("]")) {
+			address = address.substring(1, address.length() - 1);
+		}
+		try {
+			return InetAddress.getByName(address).getAddress();
+		} catch (UnknownHostException ex) {
+			return v6 ? UNKNOWN_IPV6 : UNKNOWN_IPV4;
+		}
+	}
+
+	private static boolean isNumericIpv4(String address) {
+		for (int n = 0, cnt = address.length(); n < cnt; n++) {
+			char ch = address.charAt(n);
+			if (ch != '.' && (ch < '0' || ch > '9')) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The IPv6 form of the given address, IPv4 addresses are mapped to <code>::ffff:a.b.c.d</code>.
+	 */
+	private static byte[] toIpv6(byte[] address) {
+		if (address.length == 16) {
+			return address;
+		}
+		byte[] result = new byte[16];
+		result[10] = (byte) 0xff;
+		result[11] = (byte) 0xff;
+		System.arraycopy(address, 0, result, 12, 4);
+		return result;
+	}
+
+	/**
+	 * The checksum of an IPv4 header given as 16 bit words.
+	 */
+	private static int checksum(int[] words) {
+		int sum = 0;
+		for (int word : words) {
+			sum += word;
+		}
+		while ((sum >>> 16) != 0) {
+			sum = (sum & 0xffff) + (sum >>> 16);
+		}
+		return ~sum & 0xffff;
+	}
+
+}
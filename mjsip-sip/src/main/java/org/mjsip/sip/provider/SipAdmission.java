@@ -0,0 +1,480 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.sip.provider;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.mjsip.sip.header.CallIdHeader;
+import org.mjsip.sip.message.SipMessage;
+import org.mjsip.time.Scheduler;
+import org.mjsip.time.Threads;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Admission stage decoupling the transports from the processing of received SIP messages.
+ *
+ * <p>
+ * Received messages are queued by {@link Priority} and taken from the queues by a single
+ * dispatcher thread. Messages completing work already accepted (responses, ACK, CANCEL and BYE)
+ * are processed before other in-dialog requests, and these before requests starting new work (e.g.
+ * new INVITEs and REGISTERs). The dispatcher either processes the messages itself, or hands them
+ * to a pool of {@link SipReceiveWorkers}, so that messages of different calls are processed in
+ * parallel.
+ * </p>
+ *
+ * <p>
+ * Priorities never reorder messages of the same call: A message is only queued by its priority,
+ * if no other message with the same Call-ID is waiting. Otherwise, it waits behind the earlier
+ * messages of its call. This prevents e.g. a CANCEL from overtaking its INVITE, or a BYE from
+ * overtaking a re-INVITE. Since the workers are selected by Call-ID, the order of dispatching is
+ * also the order of processing.
+ * </p>
+ *
+ * <p>
+ * Under overload, new work is shed first: A request starting new work that arrives while the
+ * number of pending messages has reached the shed threshold is {@link Handler#reject(SipMessage)
+ * rejected}, typically with a stateless 503 response. Other requests are only rejected, when the
+ * queue of their priority is full. Responses and ACKs that cannot be queued are dropped, since
+ * they cannot be answered. Retransmitted requests of a server transaction that already exists are
+ * never rejected, since the transaction has already been accepted (see
+ * {@link Handler#hasTransaction(SipMessage)}).
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+public class SipAdmission {
+
+	private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(SipAdmission.class);
+
+	/**
+	 * Processing priority of a received message.
+	 */
+	public enum Priority {
+
+		/** Responses, ACK, CANCEL and BYE requests completing work already accepted. */
+		HIGH,
+
+		/** Other requests within a dialog. */
+		NORMAL,
+
+		/** Requests outside of a dialog starting new work, e.g. new INVITEs and REGISTERs. */
+		LOW;
+
+	}
+
+	/**
+	 * Callback of a {@link SipAdmission} stage.
+	 */
+	public interface Handler {
+
+		/**
+		 * Processes an admitted message in the dispatcher thread or in a worker thread.
+		 */
+		void dispatch(SipMessage msg);
+
+		/**
+		 * Rejects a request that was not admitted, called in the thread of the transport.
+		 */
+		void reject(SipMessage request);
+
+		/**
+		 * Whether the given request is a retransmission for a server transaction that already
+		 * exists, called in the thread of the transport before the request is rejected.
+		 */
+		default boolean hasTransaction(SipMessage request) {
+			return false;
+		}
+
+	}
+
+	private static final Priority[] PRIORITIES = Priority.values();
+
+	private final Handler _handler;
+
+	private final int _queueSize;
+
+	private final int _shedThreshold;
+
+	private final ReentrantLock _lock = new ReentrantLock();
+
+	private final Condition _changed = _lock.newCondition();
+
+	private final List<ArrayDeque<SipMessage>> _queues = new ArrayList<>(PRIORITIES.length);
+
+	/**
+	 * Messages waiting behind a message of the same call in {@link #_queues}, indexed by Call-ID.
+	 * A call has an entry, as long as one of its messages is queued.
+	 */
+	private final Map<String, ArrayDeque<SipMessage>> _calls = new HashMap<>();
+
+	/**
+	 * The number of waiting messages per priority, either queued or behind a message of the same
+	 * call.
+	 */
+	private final int[] _waiting = new int[PRIORITIES.length];
+
+	private final AtomicLong[] _admitted = new AtomicLong[PRIORITIES.length];
+
+	private final AtomicLong _rejected = new AtomicLong();
+
+	private final AtomicLong _dropped = new AtomicLong();
+
+	private final SipReceiveWorkers _workers;
+
+	private final int _maxInFlight;
+
+	private final Thread _dispatcher;
+
+	private int _pending;
+
+	private int _inFlight;
+
+	private int _maxPending;
+
+	private boolean _stopped;
+
+	/**
+	 * Creates a {@link SipAdmission} stage processing messages in its dispatcher thread.
+	 *
+	 * @see #SipAdmission(String, int, int, SipReceiveWorkers, ThreadFactory, Handler)
+	 */
+	public SipAdmission(String name, int queueSize, int shedThreshold, Handler handler) {
+		this(name, queueSize, shedThreshold, null, Threads.platformThreads(), handler);
+	}
+
+	/**
+	 * Creates a {@link SipAdmission} stage and starts its dispatcher thread.
+	 *
+	 * @param name
+	 *        Name of the dispatcher thread.
+	 * @param queueSize
+	 *        Maximum number of pending messages per {@link Priority}.
+	 * @param shedThreshold
+	 *        Number of pending messages (of all priorities) from which requests starting new work
+	 *        are rejected.
+	 * @param workers
+	 *        Workers processing admitted messages, <code>null</code> for processing them in the
+	 *        dispatcher thread. The workers are not halted with this stage.
+	 * @param threads
+	 *        Factory for the dispatcher thread, see {@link Scheduler#loopThreads()}.
+	 * @param handler
+	 *        Callback processing admitted messages and rejecting requests.
+	 */
+	public SipAdmission(String name, int queueSize, int shedThreshold, SipReceiveWorkers workers,
+			ThreadFactory threads, Handler handler) {
+		if (queueSize <= 0) {
+			throw new IllegalArgumentException("Invalid queue size: " + queueSize);
+		}
+		_handler = handler;
+		_queueSize = queueSize;
+		_shedThreshold = shedThreshold > 0 ? shedThreshold : queueSize;
+		for (int n = 0; n < PRIORITIES.length; n++) {
+			_queues.add(new ArrayDeque<>());
+			_admitted[n] = new AtomicLong();
+		}
+
+		// Note: Only a few messages are handed to the workers at a time, so that pending messages
+		// wait in the priority queues and the queues of the workers never overflow. Twice the
+		// number of workers keeps the workers busy, even if some of them are selected by more
+		// than one of the messages.
+		_workers = workers;
+		_maxInFlight = workers == null ? 0 : 2 * workers.getWorkerCount();
+		_dispatcher = Threads.newThread(threads, name, this::run);
+		_dispatcher.setDaemon(true);
+		_dispatcher.start();
+	}
+
+	/**
+	 * The processing priority of the given message.
+	 */
+	public static Priority priority(SipMessage msg) {
+		if (msg.isResponse() || msg.isAck() || msg.isCancel() || msg.isBye()) {
+			return Priority.HIGH;
+		}
+		if (msg.getToHeader() != null && msg.getToHeader().hasTag()) {
+			return Priority.NORMAL;
+		}
+		return Priority.LOW;
+	}
+
+	/**
+	 * Queues the given message for processing, or rejects or drops it, if the stage is overloaded.
+	 *
+	 * @return Whether the message has been queued.
+	 */
+	public boolean admit(SipMessage msg) {
+		Priority priority = priority(msg);
+		Boolean admitted = offer(msg, priority, false);
+		if (admitted == null) {
+			return false;
+		}
+		boolean request = msg.isRequest() && !msg.isAck();
+		if (!admitted.booleanValue() && request && _handler.hasTransaction(msg)) {
+			// Note: Checked only when the request is about to be rejected, since a lookup for each
+			// received request would cost more than the retransmissions seen in normal operation.
+			admitted = offer(msg, priority, true);
+			if (admitted == null) {
+				return false;
+			}
+		}
+
+		if (admitted.booleanValue()) {
+			_admitted[priority.ordinal()].incrementAndGet();
+			return true;
+		}
+
+		if (request) {
+			long rejected = _rejected.incrementAndGet();
+			if (Long.bitCount(rejected) == 1) {
+				// Note: Log with exponentially decreasing frequency, not to flood the log under overload.
+				LOG.warn("Overload, {} requests rejected so far.", Long.valueOf(rejected));
+			}
+			try {
+				_handler.reject(msg);
+			} catch (RuntimeException ex) {
+				LOG.warn("Rejecting request failed.", ex);
+			}
+		} else {
+			long dropped = _dropped.incrementAndGet();
+			if (Long.bitCount(dropped) == 1) {
+				LOG.warn("Overload, {} messages dropped so far.", Long.valueOf(dropped));
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Queues the given message, if the limits of its priority allow it.
+	 *
+	 * @param force
+	 *        Whether to queue the message regardless of the limits.
+	 * @return Whether the message has been queued, <code>null</code> if the stage is halted.
+	 */
+	private Boolean offer(SipMessage msg, Priority priority, boolean force) {
+		_lock.lock();
+		try {
+			if (_stopped) {
+				return null;
+			}
+			if (!force && (_waiting[priority.ordinal()] >= _queueSize
+				|| (priority == Priority.LOW && _pending >= _shedThreshold))) {
+				return Boolean.FALSE;
+			}
+			enqueue(msg, priority);
+			_waiting[priority.ordinal()]++;
+			_pending++;
+			if (_pending > _maxPending) {
+				_maxPending = _pending;
+			}
+			_changed.signal();
+			return Boolean.TRUE;
+		} finally {
+			_lock.unlock();
+		}
+	}
+
+	/**
+	 * Queues the given message by its priority, or behind a waiting message of the same call.
+	 */
+	private void enqueue(SipMessage msg, Priority priority) {
+		String callId = callId(msg);
+		if (callId != null) {
+			ArrayDeque<SipMessage> waiting = _calls.get(callId);
+			if (waiting != null) {
+				waiting.add(msg);
+				return;
+			}
+			_calls.put(callId, new ArrayDeque<>(2));
+		}
+		_queues.get(priority.ordinal()).add(msg);
+	}
+
+	/**
+	 * Stops the dispatcher thread. Pending messages are discarded.
+	 */
+	public void halt() {
+		_lock.lock();
+		try {
+			_stopped = true;
+			for (ArrayDeque<SipMessage> queue : _queues) {
+				queue.clear();
+			}
+			_calls.clear();
+			Arrays.fill(_waiting, 0);
+			_pending = 0;
+			_changed.signalAll();
+		} finally {
+			_lock.unlock();
+		}
+	}
+
+	/**
+	 * The number of worker threads processing admitted messages, 0 if messages are processed in
+	 * the dispatcher thread.
+	 */
+	public int getWorkerCount() {
+		return _workers == null ? 0 : _workers.getWorkerCount();
+	}
+
+	/**
+	 * The maximum number of pending messages per {@link Priority}.
+	 */
+	public int getQueueSize() {
+		return _queueSize;
+	}
+
+	/**
+	 * The number of pending messages from which requests starting new work are rejected.
+	 */
+	public int getShedThreshold() {
+		return _shedThreshold;
+	}
+
+	/**
+	 * The number of messages currently waiting for being processed.
+	 */
+	public int getPending() {
+		_lock.lock();
+		try {
+			return _pending;
+		} finally {
+			_lock.unlock();
+		}
+	}
+
+	/**
+	 * The largest number of messages waiting at the same time so far.
+	 */
+	public int getMaxPending() {
+		_lock.lock();
+		try {
+			return _maxPending;
+		} finally {
+			_lock.unlock();
+		}
+	}
+
+	/**
+	 * The number of messages of the given priority that have been admitted for processing.
+	 */
+	public long getAdmittedCount(Priority priority) {
+		return _admitted[priority.ordinal()].get();
+	}
+
+	/**
+	 * The number of requests that have been rejected.
+	 */
+	public long getRejectedCount() {
+		return _rejected.get();
+	}
+
+	/**
+	 * The number of responses and ACKs that have been dropped, because their queue was full.
+	 */
+	public long getDroppedCount() {
+		return _dropped.get();
+	}
+
+	private void run() {
+		while (true) {
+			SipMessage msg;
+			_lock.lock();
+			try {
+				while (!_stopped && (_pending == 0 || (_workers != null && _inFlight >= _maxInFlight))) {
+					_changed.awaitUninterruptibly();
+				}
+				if (_stopped) {
+					return;
+				}
+				msg = next();
+				_pending--;
+				if (_workers != null) {
+					_inFlight++;
+				}
+			} finally {
+				_lock.unlock();
+			}
+
+			if (_workers == null) {
+				process(msg);
+			} else if (!_workers.execute(hash(callId(msg)), () -> processInWorker(msg))) {
+				// Only when the workers are halted, or their queues are smaller than the number of
+				// messages in flight.
+				completed();
+			}
+		}
+	}
+
+	private void processInWorker(SipMessage msg) {
+		try {
+			process(msg);
+		} finally {
+			completed();
+		}
+	}
+
+	private void process(SipMessage msg) {
+		// Note: A failure while processing a single message must not terminate the dispatcher
+		// or worker, since that would stop processing for other peers.
+		try {
+			_handler.dispatch(msg);
+		} catch (Throwable ex) {
+			LOG.warn("Processing of received message failed.", ex);
+		}
+	}
+
+	private void completed() {
+		_lock.lock();
+		try {
+			_inFlight--;
+			_changed.signal();
+		} finally {
+			_lock.unlock();
+		}
+	}
+
+	/**
+	 * Takes the message with the highest priority from the queues, and moves the next message of
+	 * its call (if any) to the queue of that message's priority.
+	 */
+	private SipMessage next() {
+		for (ArrayDeque<SipMessage> queue : _queues) {
+			SipMessage msg = queue.poll();
+			if (msg != null) {
+				_waiting[priority(msg).ordinal()]--;
+				String callId = callId(msg);
+				if (callId != null) {
+					ArrayDeque<SipMessage> waiting = _calls.get(callId);
+					SipMessage following = waiting.poll();
+					if (following == null) {
+						_calls.remove(callId);
+					} else {
+						_queues.get(priority(following).ordinal()).add(following);
+					}
+				}
+				return msg;
+			}
+		}
+		throw new IllegalStateException("No pending message.");
+	}
+
+	private static String callId(SipMessage msg) {
+		CallIdHeader header = msg.getCallIdHeader();
+		return header == null ? null : header.getCallId();
+	}
+
+	private static int hash(String callId) {
+		return callId == null ? 0 : callId.hashCode();
+	}
+
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.sip.provider;
+
+import org.mjsip.sip.header.Header;
+import org.mjsip.sip.header.ReceivedHeader;
+import org.mjsip.sip.header.SipHeaders;
+
+/**
+ * Parser for the header of a SIP message working directly on the received bytes.
+ *
+ * <p>
+ * In contrast to {@link SipParser}, the header is not converted to a string before parsing. Only
+ * the first line is decoded, header fields are created as {@link ReceivedHeader}s referencing
+ * their value in the buffer. Header names are taken from {@link SipHeaders}, if they are spelled
+ * as defined there.
+ * </p>
+ *
+ * <p>
+ * The result is the same as parsing the header with {@link SipParser#getHeader()} after decoding
+ * it with the platform's default charset, as long as that charset is a superset of US-ASCII.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+public class SipByteParser {
+
+	/** Well-known header names, indexed by their first character. */
+	private static final String[][] KNOWN_NAMES=new String[128][];
+
+	static {
+		String[] names={
+			SipHeaders.Accept, SipHeaders.Accept_Encoding, SipHeaders.Accept_Language,
+			SipHeaders.Alert_Info, SipHeaders.Allow, SipHeaders.Allow_Events,
+			SipHeaders.Authentication_Info, SipHeaders.Authorization, SipHeaders.Call_ID,
+			SipHeaders.Call_ID_short, SipHeaders.Contact, SipHeaders.Contact_short,
+			SipHeaders.Content_Disposition, SipHeaders.Content_Length, SipHeaders.Content_Length_short,
+			SipHeaders.Content_Type, SipHeaders.Content_Type_short, SipHeaders.CSeq, SipHeaders.Date,
+			SipHeaders.Event, SipHeaders.Event_short, SipHeaders.Expires, SipHeaders.From,
+			SipHeaders.From_short, SipHeaders.Info_Package, SipHeaders.Max_Forwards, SipHeaders.Min_SE,
+			SipHeaders.Proxy_Authenticate, SipHeaders.Proxy_Authorization, SipHeaders.Proxy_Require,
+			SipHeaders.RAck, SipHeaders.Reason, SipHeaders.Record_Route, SipHeaders.Recv_Info,
+			SipHeaders.Refer_To, SipHeaders.Referred_By, SipHeaders.Replaces, SipHeaders.Require,
+			SipHeaders.Retry_After, SipHeaders.Route, SipHeaders.RSeq, SipHeaders.Server, SipHeaders.ServiceRoute,
+			SipHeaders.Session_Expires, SipHeaders.Subject, SipHeaders.Subject_short,
+			SipHeaders.Subscription_State, SipHeaders.Supported, SipHeaders.Supported_short,
+			SipHeaders.To, SipHeaders.To_short, SipHeaders.Unsupported, SipHeaders.User_Agent,
+			SipHeaders.Via, SipHeaders.Via_short, SipHeaders.WWW_Authenticate,
+		};
+		for (String name : names) {
+			int index=name.charAt(0);
+			String[] bucket=KNOWN_NAMES[index];
+			if (bucket==null) {
+				bucket=new String[] { name };
+			} else {
+				String[] copy=new String[bucket.length+1];
+				System.arraycopy(bucket,0,copy,0,bucket.length);
+				copy[bucket.length]=name;
+				bucket=copy;
+			}
+			KNOWN_NAMES[index]=bucket;
+		}
+	}
+
+	private final byte[] _data;
+
+	private final int _end;
+
+	private int _pos;
+
+	/**
+	 * Creates a {@link SipByteParser}.
+	 *
+	 * @param data
+	 *        The buffer containing the message header. Since the created header fields reference
+	 *        the buffer, it must not be modified afterwards.
+	 * @param offset
+	 *        The start of the message header in the given buffer.
+	 * @param length
+	 *        The length of the message header including the terminating empty line.
+	 */
+	public SipByteParser(byte[] data, int offset, int length) {
+		_data=data;
+		_pos=offset;
+		_end=offset+length;
+	}
+
+	/**
+	 * Whether there are more bytes to parse.
+	 */
+	public boolean hasMore() {
+		return _pos<_end;
+	}
+
+	/**
+	 * The current position in the buffer.
+	 */
+	public int getPos() {
+		return _pos;
+	}
+
+	/**
+	 * Decodes the next line (including folded continuation lines) and moves to the start of the
+	 * following line.
+	 *
+	 * @return The line without its line terminator.
+	 */
+	public String getLine() {
+		int begin=_pos;
+		int end=indexOfEOH(begin);
+		_pos=nextLine(end);
+		return new String(_data,begin,end-begin);
+	}
+
+	/**
+	 * Parses the next header field and moves to the start of the following one.
+	 *
+	 * @return The header field, or <code>null</code>, if there are no more bytes, or the next line
+	 *         is not a header field (e.g. the empty line terminating the message header).
+	 * @see SipParser#getHeader()
+	 */
+	public Header getHeader() {
+		if (!hasMore()) return null;
+		int begin=_pos;
+		int end=indexOfEOH(begin);
+		_pos=nextLine(end);
+
+		int colon=begin;
+		while (colon<end && _data[colon]!=':') colon++;
+		if (colon==end) return null;
+
+		int nameBegin=begin;
+		int nameEnd=colon;
+		while (nameBegin<nameEnd && isTrimmed(_data[nameBegin])) nameBegin++;
+		while (nameEnd>nameBegin && isTrimmed(_data[nameEnd-1])) nameEnd--;
+
+		int valueBegin=colon+1;
+		int valueEnd=end;
+		while (valueBegin<valueEnd && isTrimmed(_data[valueBegin])) valueBegin++;
+		while (valueEnd>valueBegin && isTrimmed(_data[valueEnd-1])) valueEnd--;
+
+		return new ReceivedHeader(name(nameBegin,nameEnd),_data,valueBegin,valueEnd-valueBegin);
+	}
+
+	/**
+	 * Finds the end of the header field starting at the given position, taking folded
+	 * continuation lines into account.
+	 *
+	 * @return The position of the line terminator, or the end of the buffer.
+	 * @see SipParser#indexOfEOH()
+	 */
+	private int indexOfEOH(int pos) {
+		while (true) {
+			while (pos<_end && !isCRLF(_data[pos])) pos++;
+			if (pos==_end) return _end;
+			int next=nextLine(pos);
+			if (next==_end || !isWSP(_data[next])) return pos;
+			pos=next;
+		}
+	}
+
+	/**
+	 * The start of the line following the given position.
+	 *
+	 * @see org.zoolu.util.Parser#goToNextLine()
+	 */
+	private int nextLine(int pos) {
+		while (pos<_end && !isCRLF(_data[pos])) pos++;
+		if (pos<_end) {
+			if (_data[pos]=='\r' && pos+1<_end && _data[pos+1]=='\n') pos+=2;
+			else pos++;
+		}
+		return pos;
+	}
+
+	/**
+	 * The header name in the given range, the constant from {@link SipHeaders}, if it is spelled
+	 * the same.
+	 */
+	private String name(int begin, int end) {
+		if (begin<end) {
+			int first=_data[begin];
+			String[] bucket=(first>=0)? KNOWN_NAMES[first] : null;
+			if (bucket!=null) {
+				for (String name : bucket) {
+					if (matches(name,begin,end)) return name;
+				}
+			}
+		}
+		return new String(_data,begin,end-begin);
+	}
+
+	private boolean matches(String name, int begin, int end) {
+		int length=name.length();
+		if (end-begin!=length) return false;
+		for (int n=0; n<length; n++) {
+			if (_data[begin+n]!=name.charAt(n)) return false;
+		}
+		return true;
+	}
+
+	/** Characters removed by {@link String#trim()}. */
+	private static boolean isTrimmed(byte ch) {
+		return (ch & 0xFF)<=' ';
+	}
+
+	private static boolean isCRLF(byte ch) {
+		return ch=='\r' || ch=='\n';
+	}
+
+	private static boolean isWSP(byte ch) {
+		return ch==' ' || ch=='\t';
+	}
+
+}
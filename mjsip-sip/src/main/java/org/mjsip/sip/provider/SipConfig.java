@@ -162,6 +162,45 @@ public class SipConfig implements SipOptions {
 	@Option(name = "--max-message-size", usage = "Maximum size of a single SIP message received over a stream-oriented transport.")
 	private int _maxMessageSize = SipMessageBuffer.DEFAULT_MAX_MESSAGE_SIZE;
 
+	@Option(name = "--udp-receivers", usage = "Number of threads receiving datagrams on the UDP port.")
+	private int _udpReceivers = 1;
+
+	@Option(name = "--admission-queue-size", usage = "Maximum number of received messages per priority waiting for being processed, 0 for processing messages in the transport threads.")
+	private int _admissionQueueSize = 0;
+
+	@Option(name = "--admission-shed-threshold", usage = "Number of pending received messages from which new requests are rejected with 503, 0 for the admission queue size.")
+	private int _admissionShedThreshold = 0;
+
+	@Option(name = "--admission-retry-after", usage = "Retry-After in seconds of a 503 response rejecting a request under overload.")
+	private int _admissionRetryAfter = 5;
+
+	@Option(name = "--udp-batch-size", usage = "Maximum number of datagrams a UDP receiver drains per wakeup, 0 for receiving one datagram at a time from a blocking socket.")
+	private int _udpBatchSize = 0;
+
+	@Option(name = "--udp-receive-buffer", usage = "Size of the UDP socket receive buffer (SO_RCVBUF) in bytes, 0 for the platform default.")
+	private int _udpReceiveBufferSize = 0;
+
+	@Option(name = "--tcp-selectors", usage = "Number of selector threads serving TCP connections, 0 for a reader thread per connection.")
+	private int _tcpSelectors = 0;
+
+	@Option(name = "--receive-workers", usage = "Number of worker threads processing received UDP messages, 0 for processing them in the receiver thread.")
+	private int _receiveWorkers = 0;
+
+	@Option(name = "--receive-queue-size", usage = "Maximum number of received messages waiting for a single worker thread.")
+	private int _receiveQueueSize = SipReceiveWorkers.DEFAULT_QUEUE_SIZE;
+
+	@Option(name = "--trace-capacity", usage = "Number of most recent SIP messages kept in memory, 0 for not tracing messages.")
+	private int _traceCapacity = 0;
+
+	@Option(name = "--trace-file", usage = "Path prefix of the pcap files the message trace is written to.")
+	private String _traceFile = null;
+
+	@Option(name = "--trace-file-size", usage = "Size in bytes from which the message trace is written to the next file.")
+	private long _traceFileSize = 10L * 1024 * 1024;
+
+	@Option(name = "--trace-files", usage = "Number of message trace files to keep, 0 for keeping all files.")
+	private int _traceFiles = 10;
+
 	@Option(name = "--outbound-proxy", handler = SipURIHandler.class, usage = "Use the given outbound proxy.")
 	private SipURI _outboundProxy = null;
 
@@ -556,6 +595,136 @@ public class SipConfig implements SipOptions {
 		this._maxMessageSize = maxMessageSize;
 	}
 
+	@Override
+	public int getUdpReceivers() {
+		return _udpReceivers;
+	}
+
+	/** @see #getUdpReceivers() */
+	public void setUdpReceivers(int udpReceivers) {
+		this._udpReceivers = udpReceivers;
+	}
+
+	@Override
+	public int getAdmissionQueueSize() {
+		return _admissionQueueSize;
+	}
+
+	/** @see #getAdmissionQueueSize() */
+	public void setAdmissionQueueSize(int admissionQueueSize) {
+		this._admissionQueueSize = admissionQueueSize;
+	}
+
+	@Override
+	public int getAdmissionShedThreshold() {
+		return _admissionShedThreshold;
+	}
+
+	/** @see #getAdmissionShedThreshold() */
+	public void setAdmissionShedThreshold(int admissionShedThreshold) {
+		this._admissionShedThreshold = admissionShedThreshold;
+	}
+
+	@Override
+	public int getAdmissionRetryAfter() {
+		return _admissionRetryAfter;
+	}
+
+	/** @see #getAdmissionRetryAfter() */
+	public void setAdmissionRetryAfter(int admissionRetryAfter) {
+		this._admissionRetryAfter = admissionRetryAfter;
+	}
+
+	@Override
+	public int getUdpBatchSize() {
+		return _udpBatchSize;
+	}
+
+	/** @see #getUdpBatchSize() */
+	public void setUdpBatchSize(int udpBatchSize) {
+		this._udpBatchSize = udpBatchSize;
+	}
+
+	@Override
+	public int getUdpReceiveBufferSize() {
+		return _udpReceiveBufferSize;
+	}
+
+	/** @see #getUdpReceiveBufferSize() */
+	public void setUdpReceiveBufferSize(int udpReceiveBufferSize) {
+		this._udpReceiveBufferSize = udpReceiveBufferSize;
+	}
+
+	@Override
+	public int getTcpSelectors() {
+		return _tcpSelectors;
+	}
+
+	/** @see #getTcpSelectors() */
+	public void setTcpSelectors(int tcpSelectors) {
+		this._tcpSelectors = tcpSelectors;
+	}
+
+	@Override
+	public int getReceiveWorkers() {
+		return _receiveWorkers;
+	}
+
+	/** @see #getReceiveWorkers() */
+	public void setReceiveWorkers(int receiveWorkers) {
+		this._receiveWorkers = receiveWorkers;
+	}
+
+	@Override
+	public int getReceiveQueueSize() {
+		return _receiveQueueSize;
+	}
+
+	/** @see #getReceiveQueueSize() */
+	public void setReceiveQueueSize(int receiveQueueSize) {
+		this._receiveQueueSize = receiveQueueSize;
+	}
+
+	@Override
+	public int getTraceCapacity() {
+		return _traceCapacity;
+	}
+
+	/** @see #getTraceCapacity() */
+	public void setTraceCapacity(int traceCapacity) {
+		this._traceCapacity = traceCapacity;
+	}
+
+	@Override
+	public String getTraceFile() {
+		return _traceFile;
+	}
+
+	/** @see #getTraceFile() */
+	public void setTraceFile(String traceFile) {
+		this._traceFile = traceFile;
+	}
+
+	@Override
+	public long getTraceFileSize() {
+		return _traceFileSize;
+	}
+
+	/** @see #getTraceFileSize() */
+	public void setTraceFileSize(long traceFileSize) {
+		this._traceFileSize = traceFileSize;
+	}
+
+	@Override
+	public int getTraceFiles() {
+		return _traceFiles;
+	}
+
+	/** @see #getTraceFiles() */
+	public void setTraceFiles(int traceFiles) {
+		this._traceFiles = traceFiles;
+	}
+
 	@Override
 	public SipURI getOutboundProxy() {
 		return _outboundProxy;
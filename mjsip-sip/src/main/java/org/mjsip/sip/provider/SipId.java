@@ -22,21 +22,40 @@
  */
 package org.mjsip.sip.provider;
 
+import java.util.Objects;
+
 import org.mjsip.sip.header.CSeqHeader;
 import org.mjsip.sip.header.ViaHeader;
 import org.mjsip.sip.message.SipMessage;
 import org.mjsip.sip.message.SipMethods;
-import org.zoolu.util.Identifier;
 
 /** SipId is the abstract identifier for addressing a dialog, a transaction, or a given method.
+  * <p>
+  * An identifier is a value composed of the fields that identify the dialog or transaction. Its
+  * hash code is computed once when it is created, so that creating an identifier for each
+  * received message and looking it up does not require building a string key. The string form
+  * of the identifier (for logging) is only created on demand.
+  * </p>
   */
-public final class SipId extends Identifier {
+public final class SipId {
 	
+	/** Kind of identifier addressing messages of a given method. */
+	private static final int METHOD=0;
+
+	/** Kind of identifier addressing a client transaction. */
+	private static final int CLIENT_TRANSACTION=1;
+
+	/** Kind of identifier addressing a server transaction. */
+	private static final int SERVER_TRANSACTION=2;
+
+	/** Kind of identifier addressing a dialog. */
+	private static final int DIALOG=3;
+
 	/** Identifier for ANY messages (regardless their method). */
 	public static final SipId ANY_METHOD = new SipId("ANY");
 
 	public static SipId createDialogId(String call_id, String local_tag, String remote_tag) {
-		return new SipId(dialodId(call_id, local_tag, remote_tag));
+		return new SipId(DIALOG, call_id, 0, local_tag, remote_tag);
 	}
 
 	public static SipId createDialogId(SipMessage msg) {
@@ -51,11 +70,7 @@ public final class SipId extends Identifier {
 			remote_tag = msg.getToHeader().getTag();
 		}
 
-		return new SipId(dialodId(call_id, local_tag, remote_tag));
-	}
-
-	private static String dialodId(String call_id, String local_tag, String remote_tag) {
-		return call_id + "-" + local_tag + "-" + remote_tag;
+		return createDialogId(call_id, local_tag, remote_tag);
 	}
 
 	public static SipId createTransactionServerId(String method) {
@@ -79,21 +94,18 @@ public final class SipId extends Identifier {
 		if (top_via != null) {
 			if (top_via.hasBranch())
 				branch = top_via.getBranch();
-			sent_by = top_via.getSentBy();
+			else
+				// Note: Only required as replacement for the branch.
+				sent_by = top_via.getSentBy();
 		}
 		CSeqHeader cseqh = msg.getCSeqHeader();
 		long seqn = cseqh.getSequenceNumber();
 		String method = cseqh.getMethod();
-		return new SipId(transactionId(uac, call_id, seqn, method, sent_by, branch));
-	}
-
-	public static SipId createTransactionId(boolean uac, String call_id, long seqn, String method,
-			String sent_by, String branch) {
-		return new SipId(transactionId(uac, call_id, seqn, method, sent_by, branch));
+		return createTransactionId(uac, call_id, seqn, method, sent_by, branch);
 	}
 
 	/**
-	 * Gets the string value of the transaction identifier.
+	 * Creates a transaction identifier.
 	 * 
 	 * @param uac
 	 *        whether it is a UAC side (true=UAC, false=UAS)
@@ -101,20 +113,21 @@ public final class SipId extends Identifier {
 	 *        the call-id
 	 * @param seqn
 	 *        the CSeq sequence number
+	 * @param method
+	 *        the CSeq method
 	 * @param sent_by
-	 *        the Via sent-by address
+	 *        the Via sent-by address, only used if there is no branch
 	 * @param branch
 	 *        the Via branch
-	 * @return the string value for a transaction identifier
+	 * @return the transaction identifier
 	 */
-	private static String transactionId(boolean uac, String call_id, long seqn, String method, String sent_by,
-			String branch) {
+	public static SipId createTransactionId(boolean uac, String call_id, long seqn, String method,
+			String sent_by, String branch) {
 		if (method.equals(SipMethods.ACK))
 			method = SipMethods.INVITE;
-		String type = (uac) ? "client" : "server";
 		if (branch == null)
 			branch = sent_by;
-		return call_id + "-" + seqn + "-" + method + "-" + type + "-" + branch;
+		return new SipId(uac ? CLIENT_TRANSACTION : SERVER_TRANSACTION, call_id, seqn, method, branch);
 	}
 
 	public static SipId createTransactionClientId(SipMessage msg) {
@@ -126,18 +139,77 @@ public final class SipId extends Identifier {
 	}
 
 	public static SipId createMethodId(SipMessage msg) {
-		return new SipId(msg.getCSeqHeader().getMethod());
+		return new SipId(msg.getTransactionMethod());
+	}
+
+	/** The kind of identifier, one of {@link #METHOD}, {@link #CLIENT_TRANSACTION}, {@link #SERVER_TRANSACTION}, {@link #DIALOG} */
+	private final int _kind;
+
+	/** The call-id, or the method for a method identifier */
+	private final String _callId;
+
+	/** The CSeq sequence number of a transaction */
+	private final long _seqn;
+
+	/** The method of a transaction, or the local tag of a dialog */
+	private final String _key1;
+
+	/** The branch of a transaction, or the remote tag of a dialog */
+	private final String _key2;
+
+	private final int _hash;
+
+	/** Creates a new method identifier.
+	  * @param method the method */
+	private SipId(String method) {
+		this(METHOD, method, 0, null, null);
 	}
 
-	/** Creates a new SipId.
-	  * @param str_id the string value of the identifier */
-	private SipId(String str_id) {
-		super(str_id);
+	/** Creates a new SipId. */
+	private SipId(int kind, String callId, long seqn, String key1, String key2) {
+		_kind = kind;
+		_callId = callId;
+		_seqn = seqn;
+		_key1 = key1;
+		_key2 = key2;
+
+		int hash = kind;
+		hash = 31 * hash + Objects.hashCode(callId);
+		hash = 31 * hash + Long.hashCode(seqn);
+		hash = 31 * hash + Objects.hashCode(key1);
+		hash = 31 * hash + Objects.hashCode(key2);
+		_hash = hash;
 	}
 
-	/** Creates a new SipId
-	  * @param id a SIP identifier */
-	private SipId(SipId id) {
-		super(id);
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (!(obj instanceof SipId)) {
+			return false;
+		}
+		SipId other = (SipId) obj;
+		return _hash == other._hash && _kind == other._kind && _seqn == other._seqn
+			&& Objects.equals(_callId, other._callId) && Objects.equals(_key1, other._key1)
+			&& Objects.equals(_key2, other._key2);
+	}
+
+	@Override
+	public int hashCode() {
+		return _hash;
+	}
+
+	@Override
+	public String toString() {
+		switch (_kind) {
+		case METHOD:
+			return _callId;
+		case DIALOG:
+			return _callId + "-" + _key1 + "-" + _key2;
+		default:
+			String type = (_kind == CLIENT_TRANSACTION) ? "client" : "server";
+			return _callId + "-" + _seqn + "-" + _key1 + "-" + type + "-" + _key2;
+		}
 	}
 }
@@ -37,7 +37,7 @@ import org.zoolu.net.SocketAddress;
 public class SipKeepAlive extends UdpKeepAlive {
 	
 	/** Class SipToken extends class SipMessage in order to support simple and eventually malformed SIP message tokens. */
-	private static class SipToken extends SipMessage {
+	static class SipToken extends SipMessage {
 		/** The raw message */
 		String token;   
 		/** Creates a new SipToken. */
@@ -50,6 +50,9 @@ public class SipKeepAlive extends UdpKeepAlive {
 		/** Gets message length */
 		@Override
 		public int getLength() {  return token.length();  }   
+		/** Gets the raw bytes to send. */
+		@Override
+		public byte[] getEncoded() {  return token.getBytes();  }   
 	}
 
 	/** SipProvider */
@@ -52,6 +52,130 @@ public interface SipOptions {
 		return SipMessageBuffer.DEFAULT_MAX_MESSAGE_SIZE;
 	}
 
+	/**
+	 * Number of threads receiving datagrams on the UDP port. Values greater than one bind several
+	 * sockets to the same port using SO_REUSEPORT, if supported by the platform.
+	 */
+	default int getUdpReceivers() {
+		return 1;
+	}
+
+	/**
+	 * Maximum number of received messages per priority waiting for being processed. Values greater
+	 * than zero decouple the transports from message processing by an admission stage that
+	 * processes responses, ACK, CANCEL and BYE before other requests, and sheds new work under
+	 * overload. Use 0 for processing messages directly in the transport threads.
+	 *
+	 * @see SipAdmission
+	 */
+	default int getAdmissionQueueSize() {
+		return 0;
+	}
+
+	/**
+	 * Number of pending received messages from which new INVITEs, REGISTERs and other requests
+	 * outside of a dialog are rejected with 503 (Service Unavailable). Use 0 for the
+	 * {@link #getAdmissionQueueSize() queue size}.
+	 */
+	default int getAdmissionShedThreshold() {
+		return 0;
+	}
+
+	/**
+	 * Value in seconds of the Retry-After header of a 503 response rejecting a request under
+	 * overload.
+	 */
+	default int getAdmissionRetryAfter() {
+		return 5;
+	}
+
+	/**
+	 * Maximum number of datagrams a UDP receiver thread drains from its socket per wakeup. Values
+	 * greater than zero use non-blocking channels instead of blocking sockets. Use 0 for receiving
+	 * one datagram at a time.
+	 *
+	 * @see org.zoolu.net.UdpBatchProvider
+	 */
+	default int getUdpBatchSize() {
+		return 0;
+	}
+
+	/**
+	 * Size of the receive buffer (SO_RCVBUF) of the UDP sockets in bytes. A larger buffer absorbs
+	 * longer bursts of datagrams before the operating system drops them. Use 0 for the platform
+	 * default.
+	 */
+	default int getUdpReceiveBufferSize() {
+		return 0;
+	}
+
+	/**
+	 * Number of selector threads serving TCP connections with non-blocking I/O. Use 0 for a
+	 * blocking reader thread per connection.
+	 *
+	 * @see NioTcpTransport
+	 */
+	default int getTcpSelectors() {
+		return 0;
+	}
+
+	/**
+	 * Number of worker threads processing received UDP messages. Messages are assigned to workers
+	 * by their Call-ID, so that messages of the same call are processed in order. Use 0 for
+	 * processing messages directly in the receiver thread.
+	 *
+	 * <p>
+	 * With an {@link #getAdmissionQueueSize() admission stage}, the workers process the admitted
+	 * messages of all transports instead, and the UDP transport passes received messages directly
+	 * to the admission stage.
+	 * </p>
+	 */
+	default int getReceiveWorkers() {
+		return 0;
+	}
+
+	/**
+	 * Maximum number of received messages waiting for a single worker thread. Messages arriving
+	 * while the queue is full are dropped.
+	 * 
+	 * @see #getReceiveWorkers()
+	 */
+	default int getReceiveQueueSize() {
+		return SipReceiveWorkers.DEFAULT_QUEUE_SIZE;
+	}
+
+	/**
+	 * Number of most recently sent and received messages kept in memory by the {@link SipTrace}
+	 * of a provider. Use 0 for not tracing messages.
+	 */
+	default int getTraceCapacity() {
+		return 0;
+	}
+
+	/**
+	 * Path prefix of the pcap files the trace is exported to, or <code>null</code> for keeping
+	 * the trace in memory only.
+	 * 
+	 * @see SipTraceExporter
+	 */
+	default String getTraceFile() {
+		return null;
+	}
+
+	/**
+	 * Size in bytes from which the export of the trace continues with the next file.
+	 */
+	default long getTraceFileSize() {
+		return 10L * 1024 * 1024;
+	}
+
+	/**
+	 * Number of trace files to keep, 0 for keeping all files.
+	 */
+	default int getTraceFiles() {
+		return 10;
+	}
+
 	/**
 	 * Outbound proxy URI ([sip:]host_addr[:host_port][;transport=proto]). Use 'NONE' for not using
 	 * an outbound proxy (or let it undefined).
@@ -27,17 +27,19 @@ package org.mjsip.sip.provider;
 
 import java.io.IOException;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.mjsip.sip.address.GenericURI;
 import org.mjsip.sip.address.NameAddress;
 import org.mjsip.sip.address.SipURI;
 import org.mjsip.sip.address.UnexpectedUriSchemeException;
+import org.mjsip.sip.header.RetryAfterHeader;
 import org.mjsip.sip.header.ViaHeader;
 import org.mjsip.sip.message.SipMessage;
 import org.mjsip.sip.message.SipMessageFactory;
+import org.mjsip.sip.message.SipResponses;
 import org.mjsip.time.Scheduler;
 import org.slf4j.LoggerFactory;
 import org.zoolu.net.AddressType;
@@ -107,6 +109,9 @@ public class SipProvider implements SipTransportListener {
 	public static final String PROTO_DTLS="dtls";
 	/** SCTP protocol type */
 	public static final String PROTO_SCTP="sctp";
+
+	/** Time in milliseconds between two exports of the message trace to files. */
+	private static final long TRACE_EXPORT_INTERVAL=100;
 	
 
 	// ************************ Other attributes *************************
@@ -117,8 +122,12 @@ public class SipProvider implements SipTransportListener {
 	/** Default transport */
 	String default_transport=null;
 	
-	/** Table of sip listeners (Hashtable<SipId id, SipProviderListener listener>) */
-	private final Map<SipId, SipProviderListener> sip_listeners = new HashMap<>();
+	/** Table of sip listeners (Hashtable<SipId id, SipProviderListener listener>).
+	  * <p>
+	  * Note: Looked up for every received message without locking, while listeners are concurrently
+	  * added and removed when transactions and dialogs are created and terminated.
+	  * </p> */
+	private final Map<SipId, SipProviderListener> sip_listeners = new ConcurrentHashMap<>();
 	
 	/** Vector of promiscuous listeners (Vector<SipProviderListener>) */
 	private CopyOnWriteListeners<SipProviderListener, SipMessage> promisquousListeners = new CopyOnWriteListeners<>() {
@@ -142,6 +151,21 @@ public class SipProvider implements SipTransportListener {
 
 	private final SipMessageFactory _sipMessageFactory;
 
+	/** Admission stage for received messages, or <code>null</code> for processing them in the transport threads. */
+	private final SipAdmission _admission;
+
+	/** Workers processing the messages admitted by {@link #_admission}, or <code>null</code>. */
+	private SipReceiveWorkers _admissionWorkers;
+
+	/** Service sending keep-alive tokens, created on first use. */
+	private volatile KeepAliveService _keepAlive;
+
+	/** Ring of recently sent and received messages, or <code>null</code> if messages are not traced. */
+	private final SipTrace _trace;
+
+	/** Writer of the trace to files, or <code>null</code>. */
+	private final SipTraceExporter _traceExporter;
+
 	/**
 	 * Creates a new {@link SipProvider}.
 	 */
@@ -149,10 +173,92 @@ public class SipProvider implements SipTransportListener {
 		this._sipConfig = sipConfig;
 		_scheduler = scheduler;
 		_sipMessageFactory = new SipMessageFactory(sipConfig);
+		_admission = sipConfig.getAdmissionQueueSize() > 0 ? createAdmission() : null;
+		_trace = sipConfig.getTraceCapacity() > 0 ? new SipTrace(sipConfig.getTraceCapacity(), getViaAddress(), getPort()) : null;
+		_traceExporter = _trace != null && sipConfig.getTraceFile() != null
+				? new SipTraceExporter(_trace, sipConfig.getTraceFile(), sipConfig.getTraceFileSize(), sipConfig.getTraceFiles(), TRACE_EXPORT_INTERVAL)
+				: null;
 		initLog();
 		initSipTrasport(sipConfig.getTransportProtocols(),sipConfig.getTransportPorts());
 	}
 
+	/**
+	 * Creates the admission stage for received messages.
+	 */
+	private SipAdmission createAdmission() {
+		// Note: The admission stage takes over the receive workers, the transports pass received
+		// messages directly to the stage.
+		if (_sipConfig.getReceiveWorkers() > 0) {
+			_admissionWorkers = new SipReceiveWorkers("SipWorker-" + _sipConfig.getHostPort(),
+					_sipConfig.getReceiveWorkers(), _sipConfig.getReceiveQueueSize());
+		}
+		return new SipAdmission("SipAdmission-" + _sipConfig.getHostPort(), _sipConfig.getAdmissionQueueSize(),
+				_sipConfig.getAdmissionShedThreshold(), _admissionWorkers, _scheduler.loopThreads(),
+				new SipAdmission.Handler() {
+					@Override
+					public void dispatch(SipMessage msg) {
+						dispatchMessage(msg);
+					}
+
+					@Override
+					public void reject(SipMessage request) {
+						rejectOverload(request);
+					}
+
+					@Override
+					public boolean hasTransaction(SipMessage request) {
+						return sip_listeners.containsKey(SipId.createTransactionId(false, request));
+					}
+				});
+	}
+
+	/**
+	 * The admission stage for received messages.
+	 * 
+	 * @return The admission stage with its counters, or <code>null</code>, if received messages
+	 *         are processed directly in the transport threads.
+	 * @see SipOptions#getAdmissionQueueSize()
+	 */
+	public SipAdmission getAdmission() {
+		return _admission;
+	}
+
+	/**
+	 * The ring of recently sent and received messages.
+	 * 
+	 * @return The trace, or <code>null</code> if messages are not traced.
+	 * @see SipOptions#getTraceCapacity()
+	 */
+	public SipTrace trace() {
+		return _trace;
+	}
+
+	/**
+	 * The writer exporting the {@link #trace()} to pcap files.
+	 * 
+	 * @return The exporter, or <code>null</code> if the trace is not exported.
+	 * @see SipOptions#getTraceFile()
+	 */
+	public SipTraceExporter traceExporter() {
+		return _traceExporter;
+	}
+
+	/**
+	 * The service sending keep-alive tokens to remote nodes.
+	 * 
+	 * <p>
+	 * The service is created and started on first access and sends tokens from the
+	 * {@link #scheduler()} until this provider is halted.
+	 * </p>
+	 */
+	public synchronized KeepAliveService keepAlive() {
+		if (_keepAlive == null) {
+			_keepAlive = new KeepAliveService(this, KeepAliveService.DEFAULT_TICK);
+			_keepAlive.start();
+		}
+		return _keepAlive;
+	}
+
 	/** Inits logs. */ 
 	private void initLog() {
 		LOG.info("SipStack: {}", SipStack.release);
@@ -207,13 +313,18 @@ public class SipProvider implements SipTransportListener {
 				if (proto.equals(PROTO_UDP)) {
 					if (port == 0)
 						port = _sipConfig.getHostPort();
-					transp = new UdpTransport(port, _sipConfig.getBindingIpAddr());
+					transp = createUdpTransport(port);
 				}
 				else
 				if (proto.equals(PROTO_TCP)) {
 					if (port == 0)
 						port = _sipConfig.getHostPort();
-					transp = new TcpTransport(port, _sipConfig.getBindingIpAddr(), _sipConfig.getMaxConnections());
+					if (_sipConfig.getTcpSelectors() > 0)
+						transp = new NioTcpTransport(port, _sipConfig.getBindingIpAddr(), _sipConfig.getMaxConnections(),
+								_sipConfig.getTcpSelectors());
+					else
+						transp = new TcpTransport(port, _sipConfig.getBindingIpAddr(), _sipConfig.getMaxConnections(),
+								_scheduler.loopThreads());
 				}
 				else
 				if (proto.equals(PROTO_TLS)) {
@@ -274,6 +385,18 @@ public class SipProvider implements SipTransportListener {
 	}
 
 
+	/**
+	 * Creates the UDP transport according to the receive options.
+	 */
+	private UdpTransport createUdpTransport(int port) throws IOException {
+		UdpTransport result = new UdpTransport(port, _sipConfig.getBindingIpAddr(), _sipConfig.getUdpReceivers(),
+				_sipConfig.getUdpBatchSize(), _sipConfig.getUdpReceiveBufferSize(), _scheduler.loopThreads());
+		if (_sipConfig.getReceiveWorkers() > 0 && _admission == null) {
+			result.setReceiveWorkers(_sipConfig.getReceiveWorkers(), _sipConfig.getReceiveQueueSize());
+		}
+		return result;
+	}
+
 	/** Stops the transport services. */ 
 	private void stopSipTrasport() {
 		if (sip_transports!=null)  {
@@ -316,6 +439,10 @@ public class SipProvider implements SipTransportListener {
 	public synchronized void halt() {
 		LOG.debug("halt: SipProvider is going down");
 		stopSipTrasport();
+		if (_admission != null) _admission.halt();
+		if (_admissionWorkers != null) _admissionWorkers.halt();
+		if (_keepAlive != null) _keepAlive.halt();
+		if (_traceExporter != null) _traceExporter.halt();
 		sip_listeners.clear();
 		promisquousListeners.clear();
 		exceptionListeners.clear();
@@ -519,7 +646,7 @@ public class SipProvider implements SipTransportListener {
 	  * as to be associated to. It may identify a method, a transaction, or a dialog, or all messages.
 	  * Use MethodId.ANY to capture all messages.
 	  * @param listener is the SipProviderListener that the specified type of messages has to be passed to. */
-	public synchronized void addSelectiveListener(SipId id, SipProviderListener listener) {
+	public void addSelectiveListener(SipId id, SipProviderListener listener) {
 		LOG.debug("Adding SipProviderListener: {}", id);
 		sip_listeners.put(id,listener);   
 	}
@@ -527,7 +654,7 @@ public class SipProvider implements SipTransportListener {
 
 	/** Removes a SipProviderListener.
 	  * @param id specifies the messages that the listener was associated to. */
-	public synchronized void removeSelectiveListener(SipId id) {
+	public void removeSelectiveListener(SipId id) {
 		LOG.debug("Removing SipProviderListener: {}", id);
 		sip_listeners.remove(id);
 	}
@@ -612,6 +739,7 @@ public class SipProvider implements SipTransportListener {
 
 				logMessage("Sent message to: ", conn.getProtocol(), conn.getRemoteAddress().toString(),
 						conn.getRemotePort(), msg);
+				traceMessage(true, conn.getProtocol(), conn.getRemoteAddress().toString(), conn.getRemotePort(), msg);
 				return conn_id;
 			}
 			catch (IOException e) {
@@ -818,7 +946,7 @@ public class SipProvider implements SipTransportListener {
 
 	/** Sends the <i>msg</i> message, specifing the transport protocol, nexthop address and port.
 	  * For request messages, no via address is added. */
-	private ConnectionId sendRawMessage(SipMessage msg, String proto, IpAddress dest_ipaddr, int dest_port, int ttl) {
+	ConnectionId sendRawMessage(SipMessage msg, String proto, IpAddress dest_ipaddr, int dest_port, int ttl) {
 		if (proto==null) {
 			LOG.warn("No protocol, message discarded.");
 			return null;
@@ -834,6 +962,7 @@ public class SipProvider implements SipTransportListener {
 			ConnectionId connection_id=sip_transport.sendMessage(msg,dest_ipaddr,dest_port,ttl);
 
 			logMessage("Sent message to: ", proto, dest_ipaddr.toString(), dest_port, msg);
+			traceMessage(true, proto, dest_ipaddr.toString(), dest_port, msg);
 
 			return connection_id;
 		}
@@ -878,7 +1007,9 @@ public class SipProvider implements SipTransportListener {
 					msg.getRemotePort(), msg);
 			
 			// discard too short messages (e.g. CRLFCRLF "PING", or CRLF "PONG")
-			if (msg.getLength()<=4) {
+			// Note: A message with a first line is never too short, checking this first avoids
+			// encoding each received message just to find out its length.
+			if (!msg.isRequest() && !msg.isResponse() && msg.getLength()<=4) {
 				LOG.warn("message too short: discarded.");
 				return;
 			}
@@ -888,6 +1019,7 @@ public class SipProvider implements SipTransportListener {
 				LOG.warn("NOT a SIP message: discarded.");
 				return;
 			}
+			traceMessage(false, msg.getTransportProtocol(), msg.getRemoteAddress(), msg.getRemotePort(), msg);
 			
 			// if a request, handle "received" and "rport" parameters
 			if (msg.isRequest()) {
@@ -922,7 +1054,23 @@ public class SipProvider implements SipTransportListener {
 					msg.addViaHeader(vh);
 				}
 			}
-			
+
+			if (_admission != null) {
+				_admission.admit(msg);
+				return;
+			}
+		}
+		catch (Exception exception) {
+			LOG.warn("Error handling a new incoming message", exception);
+			exceptionListeners.notify(new MessageProblem(msg, exception));
+			return;
+		}
+		dispatchMessage(msg);
+	}
+
+	/** Passes a received message to the listeners. */
+	private void dispatchMessage(SipMessage msg) {
+		try {
 			promisquousListeners.notify(msg);
 			
 			// check if the message is still valid
@@ -945,9 +1093,17 @@ public class SipProvider implements SipTransportListener {
 		}
 	}
 
+	/** Rejects a request statelessly with 503 (Service Unavailable), because the provider is overloaded. */
+	private void rejectOverload(SipMessage req) {
+		String local_tag=req.getToHeader().hasTag()? null : pickTag(req);
+		SipMessage resp=_sipMessageFactory.createResponse(req,SipResponses.SERVICE_UNAVAILABLE,null,local_tag,null,null,null);
+		resp.setRetryAfterHeader(new RetryAfterHeader(_sipConfig.getAdmissionRetryAfter()));
+		sendMessage(resp);
+	}
+
 	/** Gets a listener for a given message.
 	 * @param msg the SIP message */
-	private synchronized SipProviderListener getListener(SipMessage msg) {
+	private SipProviderListener getListener(SipMessage msg) {
 		// try to look for a transaction (requests go to transaction servers and response go to transaction clients)
 		SipId transactionKey = SipId.createTransactionId(!msg.isRequest(), msg);
 		SipProviderListener transactionListener = sip_listeners.get(transactionKey);
@@ -996,7 +1152,7 @@ public class SipProvider implements SipTransportListener {
 				// Ignore.
 			}
 			try {
-				SipTransport udp = new UdpTransport(_sipConfig.getHostPort(), _sipConfig.getBindingIpAddr());
+				SipTransport udp = createUdpTransport(_sipConfig.getHostPort());
 				setTransport(udp);
 			}
 			catch (Exception e) {
@@ -1006,6 +1162,14 @@ public class SipProvider implements SipTransportListener {
 	}   
 
 
+	/** When a keep-alive pong is received. */
+	@Override
+	public void onReceivedPong(SipTransport transport, SocketAddress remote_soaddr) {
+		KeepAliveService keep_alive=_keepAlive;
+		if (keep_alive!=null) keep_alive.onPong(remote_soaddr);
+	}
+
+
 	/** When a new incoming transport connection is established. It is called only for CO transport portocols. */ 
 	@Override
 	public void onIncomingTransportConnection(SipTransport transport, SocketAddress remote_soaddr) {
@@ -1185,6 +1349,16 @@ public class SipProvider implements SipTransportListener {
 		}
 	}
 
+	/** Adds the SIP message to the message trace, if enabled. */
+	private final void traceMessage(boolean outgoing, String proto, String addr, int port, SipMessage msg) {
+		SipTrace trace=_trace;
+		if (trace!=null) {
+			// Note: For a sent message, the encoded form is already available, a received message
+			// is encoded once before it is modified.
+			trace.record(outgoing, proto, addr, port, msg.getEncoded());
+		}
+	}
+
 	/**
 	 * Computes a new timeout based on the last retransmission timeout.
 	 */
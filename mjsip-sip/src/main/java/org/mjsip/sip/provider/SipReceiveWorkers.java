@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.sip.provider;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pool of worker threads processing received SIP messages.
+ *
+ * <p>
+ * Each worker has its own bounded queue. Tasks are assigned to workers by a shard key (e.g. the
+ * hash of the message's Call-ID), so that all messages of the same call are processed in order
+ * by the same worker, while messages of different calls are processed in parallel.
+ * </p>
+ *
+ * <p>
+ * If the queue of the selected worker is full, the task is dropped. This is acceptable for
+ * datagram transports, since the sender retransmits messages that are not answered.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+public class SipReceiveWorkers {
+
+	private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(SipReceiveWorkers.class);
+
+	/** Default capacity of the queue of a single worker. */
+	public static final int DEFAULT_QUEUE_SIZE=1024;
+
+	/** Header name "Call-ID" in lower case. */
+	private static final byte[] CALL_ID="call-id".getBytes();
+
+	/** Compact header name "i" of the Call-ID header in lower case. */
+	private static final byte[] CALL_ID_SHORT="i".getBytes();
+
+	private final Worker[] _workers;
+
+	private final AtomicLong _dropped=new AtomicLong();
+
+	private volatile boolean _stopped;
+
+	/**
+	 * Creates a {@link SipReceiveWorkers} pool and starts its threads.
+	 *
+	 * @param name
+	 *        Prefix for the names of the worker threads.
+	 * @param workerCount
+	 *        The number of worker threads.
+	 * @param queueSize
+	 *        The maximum number of pending tasks per worker.
+	 */
+	public SipReceiveWorkers(String name, int workerCount, int queueSize) {
+		if (workerCount<=0) throw new IllegalArgumentException("At least one worker is required: "+workerCount);
+		if (queueSize<=0) throw new IllegalArgumentException("Invalid queue size: "+queueSize);
+
+		_workers=new Worker[workerCount];
+		for (int n=0; n<workerCount; n++) {
+			_workers[n]=new Worker(name+"-"+n,queueSize);
+		}
+		for (Worker worker : _workers) {
+			worker.start();
+		}
+	}
+
+	/**
+	 * The number of worker threads.
+	 */
+	public int getWorkerCount() {
+		return _workers.length;
+	}
+
+	/**
+	 * The number of tasks that have been dropped, because the queue of their worker was full.
+	 */
+	public long getDroppedCount() {
+		return _dropped.get();
+	}
+
+	/**
+	 * Enqueues the given task to the worker selected by the given shard key.
+	 *
+	 * <p>
+	 * All tasks with the same shard key are executed in submission order.
+	 * </p>
+	 *
+	 * @return Whether the task was accepted, <code>false</code> if it was dropped because the
+	 *         queue of the selected worker is full or the pool is halted.
+	 */
+	public boolean execute(int shardKey, Runnable task) {
+		if (_stopped) return false;
+
+		Worker worker=_workers[Math.floorMod(spread(shardKey),_workers.length)];
+		if (worker._queue.offer(task)) return true;
+
+		long dropped=_dropped.incrementAndGet();
+		if (Long.bitCount(dropped)==1) {
+			// Note: Log with exponentially decreasing frequency, not to flood the log under overload.
+			LOG.warn("Receive queue of {} is full, {} messages dropped so far.",worker.getName(),Long.valueOf(dropped));
+		}
+		return false;
+	}
+
+	/**
+	 * Stops all worker threads. Tasks still pending are discarded.
+	 */
+	public void halt() {
+		_stopped=true;
+		for (Worker worker : _workers) {
+			worker.interrupt();
+		}
+	}
+
+	/** Mixes the bits of a hash code, since Call-IDs often differ only in a few characters. */
+	private static int spread(int hash) {
+		int h=hash*0x9E3779B9;
+		return h^(h>>>16);
+	}
+
+	/**
+	 * Computes a hash of the Call-ID header value of the raw SIP message in the given buffer.
+	 *
+	 * <p>
+	 * Only the header lines are scanned, the message is not parsed. Both the full name
+	 * <code>Call-ID</code> and the compact form <code>i</code> are recognized case-insensitively.
+	 * </p>
+	 *
+	 * @return The hash of the Call-ID value, or <code>0</code>, if the message has no Call-ID
+	 *         header.
+	 */
+	public static int callIdHash(byte[] data, int offset, int length) {
+		int end=offset+length;
+		int line=offset;
+		while (line<end) {
+			int eol=line;
+			while (eol<end && data[eol]!='\n') eol++;
+			int lineEnd=(eol>line && data[eol-1]=='\r')? eol-1 : eol;
+			if (lineEnd==line) {
+				// Empty line, end of header.
+				break;
+			}
+			if (line>offset) {
+				int value=matchHeaderName(data,line,lineEnd,CALL_ID);
+				if (value<0) value=matchHeaderName(data,line,lineEnd,CALL_ID_SHORT);
+				if (value>=0) {
+					while (value<lineEnd && isSpace(data[value])) value++;
+					int valueEnd=lineEnd;
+					while (valueEnd>value && isSpace(data[valueEnd-1])) valueEnd--;
+					int hash=1;
+					for (int n=value; n<valueEnd; n++) {
+						hash=31*hash+data[n];
+					}
+					return hash;
+				}
+			}
+			line=eol+1;
+		}
+		return 0;
+	}
+
+	/**
+	 * Checks whether the line starts with the given (lower case) header name followed by optional
+	 * white space and a colon.
+	 *
+	 * @return The index directly after the colon, or <code>-1</code>, if the name does not match.
+	 */
+	private static int matchHeaderName(byte[] data, int start, int end, byte[] name) {
+		if (end-start<=name.length) return -1;
+		for (int n=0; n<name.length; n++) {
+			int ch=data[start+n];
+			if (ch>='A' && ch<='Z') ch+='a'-'A';
+			if (ch!=name[n]) return -1;
+		}
+		int pos=start+name.length;
+		while (pos<end && isSpace(data[pos])) pos++;
+		if (pos<end && data[pos]==':') return pos+1;
+		return -1;
+	}
+
+	private static boolean isSpace(byte ch) {
+		return ch==' ' || ch=='\t';
+	}
+
+	private static class Worker extends Thread {
+
+		final BlockingQueue<Runnable> _queue;
+
+		Worker(String name, int queueSize) {
+			super(name);
+			_queue=new ArrayBlockingQueue<>(queueSize);
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				Runnable task;
+				try {
+					task=_queue.take();
+				}
+				catch (InterruptedException e) {
+					break;
+				}
+				// Note: A failure while processing a single message must not terminate the worker,
+				// since that would stop processing for all calls assigned to it.
+				try {
+					task.run();
+				}
+				catch (Throwable t) {
+					LOG.warn("Processing of received message failed.",t);
+				}
+			}
+			_queue.clear();
+		}
+	}
+
+}
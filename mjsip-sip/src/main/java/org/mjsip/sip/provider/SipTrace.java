@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.sip.provider;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * In-memory ring of the most recent SIP messages sent and received by a {@link SipProvider}.
+ *
+ * <p>
+ * Each message is recorded as an {@link Entry} with its encoded bytes, a timestamp, its direction
+ * and the remote address. Recording neither locks nor formats the message: A writer claims the
+ * next sequence number and stores its entry into the slot of this number, overwriting the oldest
+ * entry once the ring is full, but never a newer entry of a concurrent writer. Readers find out whether an entry has been overwritten from its
+ * sequence number.
+ * </p>
+ *
+ * <p>
+ * The ring is exported asynchronously as pcap files by a {@link SipTraceExporter}, or on demand
+ * as JSON lines with {@link #writeJson(Appendable)}.
+ * </p>
+ *
+ * @see SipOptions#getTraceCapacity()
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+public class SipTrace {
+
+	/**
+	 * A recorded message.
+	 */
+	public static final class Entry {
+
+		private final long _seq;
+
+		private final long _timeMicros;
+
+		private final boolean _outgoing;
+
+		private final String _protocol;
+
+		private final String _remoteAddress;
+
+		private final int _remotePort;
+
+		private final byte[] _data;
+
+		Entry(long seq, long timeMicros, boolean outgoing, String protocol, String remoteAddress, int remotePort,
+				byte[] data) {
+			_seq = seq;
+			_timeMicros = timeMicros;
+			_outgoing = outgoing;
+			_protocol = protocol;
+			_remoteAddress = remoteAddress;
+			_remotePort = remotePort;
+			_data = data;
+		}
+
+		/**
+		 * The sequence number of this entry within its {@link SipTrace}, starting with 0.
+		 */
+		public long getSeq() {
+			return _seq;
+		}
+
+		/**
+		 * The time the message was sent or received in microseconds since the epoch.
+		 */
+		public long getTimeMicros() {
+			return _timeMicros;
+		}
+
+		/**
+		 * Whether the message was sent, <code>false</code> if it was received.
+		 */
+		public boolean isOutgoing() {
+			return _outgoing;
+		}
+
+		/**
+		 * The transport protocol, e.g. "udp".
+		 */
+		public String getProtocol() {
+			return _protocol;
+		}
+
+		/**
+		 * The address the message was sent to or received from.
+		 */
+		public String getRemoteAddress() {
+			return _remoteAddress;
+		}
+
+		/**
+		 * The port the message was sent to or received from.
+		 */
+		public int getRemotePort() {
+			return _remotePort;
+		}
+
+		/**
+		 * The encoded message, shared with the message and therefore must not be modified.
+		 */
+		public byte[] getData() {
+			return _data;
+		}
+	}
+
+	private final AtomicReferenceArray<Entry> _slots;
+
+	private final int _mask;
+
+	private final AtomicLong _next = new AtomicLong();
+
+	private final String _localAddress;
+
+	private final int _localPort;
+
+	/** Wall clock time in microseconds at {@link #_baseNanos}. */
+	private final long _baseMicros;
+
+	private final long _baseNanos;
+
+	/**
+	 * Creates a {@link SipTrace}.
+	 *
+	 * @param capacity
+	 *        The minimum number of messages to keep, rounded up to the next power of two.
+	 * @param localAddress
+	 *        The address of the local {@link SipProvider}.
+	 * @param localPort
+	 *        The port of the local {@link SipProvider}.
+	 */
+	public SipTrace(int capacity, String localAddress, int localPort) {
+		if (capacity <= 0 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("Invalid trace capacity: " + capacity);
+		}
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		_slots = new AtomicReferenceArray<>(size);
+		_mask = size - 1;
+		_localAddress = localAddress;
+		_localPort = localPort;
+		_baseMicros = System.currentTimeMillis() * 1000;
+		_baseNanos = System.nanoTime();
+	}
+
+	/**
+	 * The number of messages kept.
+	 */
+	public int getCapacity() {
+		return _slots.length();
+	}
+
+	/**
+	 * The address of the local {@link SipProvider}.
+	 */
+	public String getLocalAddress() {
+		return _localAddress;
+	}
+
+	/**
+	 * The port of the local {@link SipProvider}.
+	 */
+	public int getLocalPort() {
+		return _localPort;
+	}
+
+	/**
+	 * Records a message.
+	 *
+	 * @param outgoing
+	 *        Whether the message is sent, <code>false</code> if it is received.
+	 * @param protocol
+	 *        The transport protocol.
+	 * @param remoteAddress
+	 *        The address the message is sent to or received from.
+	 * @param remotePort
+	 *        The port the message is sent to or received from.
+	 * @param data
+	 *        The encoded message, must not be modified afterwards.
+	 */
+	public void record(boolean outgoing, String protocol, String remoteAddress, int remotePort, byte[] data) {
+		long timeMicros = _baseMicros + (System.nanoTime() - _baseNanos) / 1000;
+		long seq = _next.getAndIncrement();
+		Entry entry = new Entry(seq, timeMicros, outgoing, protocol, remoteAddress, remotePort, data);
+		int index = index(seq);
+		while (true) {
+			Entry current = _slots.get(index);
+			if (current != null && current.getSeq() > seq) {
+				// Note: The writer was delayed until its entry was already overwritten. Storing it
+				// anyway would replace the newer entry.
+				return;
+			}
+			if (_slots.compareAndSet(index, current, entry)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * The sequence number of the next message to record, which is the number of messages
+	 * recorded so far.
+	 */
+	public long getNextSeq() {
+		return _next.get();
+	}
+
+	/**
+	 * Looks up the entry with the given sequence number.
+	 *
+	 * @return The entry, or <code>null</code> if it has already been overwritten, or has not yet
+	 *         been stored by its writer. In the latter case {@link #isOverwritten(long)} is
+	 *         <code>false</code>.
+	 */
+	public Entry get(long seq) {
+		Entry entry = _slots.get(index(seq));
+		return entry != null && entry.getSeq() == seq ? entry : null;
+	}
+
+	/**
+	 * Whether the entry with the given sequence number is no longer available.
+	 */
+	public boolean isOverwritten(long seq) {
+		if (seq < _next.get() - _slots.length()) {
+			return true;
+		}
+		Entry entry = _slots.get(index(seq));
+		return entry != null && entry.getSeq() > seq;
+	}
+
+	/**
+	 * All entries currently in the ring, oldest first.
+	 */
+	public List<Entry> snapshot() {
+		long end = _next.get();
+		long start = Math.max(0, end - _slots.length());
+		List<Entry> result = new ArrayList<>((int) (end - start));
+		for (long seq = start; seq < end; seq++) {
+			Entry entry = get(seq);
+			if (entry != null) {
+				result.add(entry);
+			}
+		}
+		return result;
+	}
+
+	private int index(long seq) {
+		return (int) seq & _mask;
+	}
+
+	/**
+	 * Writes all entries currently in the ring as JSON lines, one object per message, oldest
+	 * first.
+	 *
+	 * <p>
+	 * Each object has the fields <code>seq</code>, <code>time</code> (microseconds since the
+	 * epoch), <code>dir</code> (<code>in</code> or <code>out</code>), <code>proto</code>,
+	 * <code>src</code>, <code>dst</code> (both <code>address:port</code>) and <code>msg</code>
+	 * (the message decoded as UTF-8).
+	 * </p>
+	 */
+	public void writeJson(Appendable out) throws IOException {
+		for (Entry entry : snapshot()) {
+			writeJson(out, entry);
+		}
+	}
+
+	private void writeJson(Appendable out, Entry entry) throws IOException {
+		String remote = endpoint(entry.getRemoteAddress(), entry.getRemotePort());
+		String local = endpoint(_localAddress, _localPort);
+		out.append("{\"seq\":").append(Long.toString(entry.getSeq()));
+		out.append(",\"time\":").append(Long.toString(entry.getTimeMicros()));
+		out.append(",\"dir\":\"").append(entry.isOutgoing() ? "out" : "in");
+		out.append("\",\"proto\":");
+		appendString(out, entry.getProtocol());
+		out.append(",\"src\":");
+		appendString(out, entry.isOutgoing() ? local : remote);
+		out.append(",\"dst\":");
+		appendString(out, entry.isOutgoing() ? remote : local);
+		out.append(",\"msg\":");
+		appendString(out, new String(entry.getData(), StandardCharsets.UTF_8));
+		out.append("}\n");
+	}
+
+	private static String endpoint(String address, int port) {
+		if (address == null) {
+			return "?:" + port;
+		}
+		return address.indexOf(':') >= 0 ? "[" + address + "]:" + port : address + ":" + port;
+	}
+
+	private static void appendString(Appendable out, String value) throws IOException {
+		out.append('"');
+		if (value != null) {
+			for (int n = 0, cnt = value.length(); n < cnt; n++) {
+				char ch = value.charAt(n);
+				switch (ch) {
+					case '"':
+						out.append("\\\"");
+						break;
+					case '\\':
+						out.append("\\\\");
+						break;
+					case '\r':
+						out.append("\\r");
+						break;
+					case '\n':
+						out.append("\\n");
+						break;
+					case '\t':
+						out.append("\\t");
+						break;
+					default:
+						if (ch < 0x20) {
+							out.append(String.format("\\u%04x", Integer.valueOf(ch)));
+						} else {
+							out.append(ch);
+						}
+				}
+			}
+		}
+		out.append('"');
+	}
+
+}
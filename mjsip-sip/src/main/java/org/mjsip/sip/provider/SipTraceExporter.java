@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.sip.provider;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.LoggerFactory;
+
+/**
+ * Background thread writing the messages of a {@link SipTrace} to rotating pcap files.
+ *
+ * <p>
+ * The exporter follows the ring from its own thread, so that sending and receiving messages is
+ * never delayed by file output. Files are named <code>&lt;prefix&gt;-&lt;n&gt;.pcap</code> with
+ * an increasing number <code>n</code>. When a file exceeds the maximum size, the next file is
+ * started and the oldest file beyond the maximum number of files is deleted. Messages overwritten
+ * in the ring before being exported are counted as {@link #getLostCount() lost}.
+ * </p>
+ *
+ * @see PcapWriter
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+public class SipTraceExporter {
+
+	private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(SipTraceExporter.class);
+
+	private final SipTrace _trace;
+
+	private final String _prefix;
+
+	private final long _maxFileSize;
+
+	private final int _maxFiles;
+
+	private final long _interval;
+
+	private final byte[] _localAddress;
+
+	private final AtomicLong _exported = new AtomicLong();
+
+	private final AtomicLong _lost = new AtomicLong();
+
+	private final Thread _thread;
+
+	private volatile boolean _stopped;
+
+	/** The sequence number of the next entry to export, only accessed by the export thread. */
+	private long _cursor;
+
+	/** Number of the current file, only accessed by the export thread. */
+	private int _fileNumber;
+
+	private PcapWriter _writer;
+
+	private long _fileSize;
+
+	/**
+	 * Creates a {@link SipTraceExporter} and starts its thread.
+	 *
+	 * @param trace
+	 *        The trace to export.
+	 * @param prefix
+	 *        The path of the files without number and extension.
+	 * @param maxFileSize
+	 *        The size in bytes from which the next file is started.
+	 * @param maxFiles
+	 *        The number of files to keep, 0 for keeping all files.
+	 * @param interval
+	 *        Time in milliseconds between two exports.
+	 */
+	public SipTraceExporter(SipTrace trace, String prefix, long maxFileSize, int maxFiles, long interval) {
+		_trace = trace;
+		_prefix = prefix;
+		_maxFileSize = maxFileSize;
+		_maxFiles = maxFiles;
+		_interval = interval;
+		_localAddress = PcapWriter.address(trace.getLocalAddress());
+		_cursor = trace.getNextSeq();
+		_thread = new Thread(this::run, "SipTraceExporter-" + trace.getLocalPort());
+		_thread.setDaemon(true);
+		_thread.start();
+	}
+
+	/**
+	 * The file with the given number.
+	 */
+	public File getFile(int number) {
+		return new File(_prefix + "-" + number + ".pcap");
+	}
+
+	/**
+	 * The number of messages written to files.
+	 */
+	public long getExportedCount() {
+		return _exported.get();
+	}
+
+	/**
+	 * The number of messages that have been overwritten in the ring before they could be written.
+	 */
+	public long getLostCount() {
+		return _lost.get();
+	}
+
+	/**
+	 * Stops the export thread after writing all messages recorded so far.
+	 */
+	public void halt() {
+		_stopped = true;
+		_thread.interrupt();
+	}
+
+	/**
+	 * Waits until the export thread has terminated after {@link #halt()}.
+	 */
+	public void join() throws InterruptedException {
+		_thread.join();
+	}
+
+	private void run() {
+		try {
+			while (!_stopped) {
+				export();
+				try {
+					TimeUnit.MILLISECONDS.sleep(_interval);
+				} catch (InterruptedException ex) {
+					// Halted, export the remaining messages.
+				}
+			}
+			export();
+		} catch (IOException ex) {
+			LOG.error("Writing SIP trace failed, export stopped.", ex);
+		} finally {
+			closeFile();
+		}
+	}
+
+	/**
+	 * Writes all entries recorded since the last export.
+	 */
+	private void export() throws IOException {
+		long end = _trace.getNextSeq();
+		long oldest = end - _trace.getCapacity();
+		if (_cursor < oldest) {
+			_lost.addAndGet(oldest - _cursor);
+			_cursor = oldest;
+		}
+		boolean written = false;
+		while (_cursor < end) {
+			SipTrace.Entry entry = _trace.get(_cursor);
+			if (entry == null) {
+				if (!_trace.isOverwritten(_cursor)) {
+					// Still being written, continue with the next export.
+					break;
+				}
+				_lost.incrementAndGet();
+			} else {
+				write(entry);
+				written = true;
+			}
+			_cursor++;
+		}
+		if (written) {
+			_writer.flush();
+		}
+	}
+
+	private void write(SipTrace.Entry entry) throws IOException {
+		if (_writer == null || _fileSize >= _maxFileSize) {
+			nextFile();
+		}
+		byte[] remote = PcapWriter.address(entry.getRemoteAddress());
+		int localPort = _trace.getLocalPort();
+		if (entry.isOutgoing()) {
+			_fileSize += _writer.write(entry.getTimeMicros(), _localAddress, localPort, remote,
+				entry.getRemotePort(), entry.getData());
+		} else {
+			_fileSize += _writer.write(entry.getTimeMicros(), remote, entry.getRemotePort(), _localAddress,
+				localPort, entry.getData());
+		}
+		_exported.incrementAndGet();
+	}
+
+	private void nextFile() throws IOException {
+		closeFile();
+		_fileNumber++;
+		File file = getFile(_fileNumber);
+		File dir = file.getAbsoluteFile().getParentFile();
+		if (dir != null) {
+			dir.mkdirs();
+		}
+		_writer = new PcapWriter(new BufferedOutputStream(new FileOutputStream(file)));
+		_fileSize = PcapWriter.FILE_HEADER;
+		if (_maxFiles > 0 && _fileNumber > _maxFiles) {
+			File expired = getFile(_fileNumber - _maxFiles);
+			if (!expired.delete()) {
+				LOG.warn("Cannot delete SIP trace file: {}", expired);
+			}
+		}
+		LOG.info("Writing SIP trace to: {}", file);
+	}
+
+	private void closeFile() {
+		if (_writer != null) {
+			try {
+				_writer.close();
+			} catch (IOException ex) {
+				LOG.warn("Closing SIP trace file failed.", ex);
+			}
+			_writer = null;
+		}
+	}
+
+}
@@ -45,4 +45,9 @@ public interface SipTransportListener {
 
 	/** When SipTransport terminates. */
 	public void onTransportTerminated(SipTransport transport, Exception error);
+
+	/** When a keep-alive pong (CRLF) is received. It is called only for CL transport protocols. */
+	public default void onReceivedPong(SipTransport transport, SocketAddress remote_soaddr) {
+		// Ignore.
+	}
 }
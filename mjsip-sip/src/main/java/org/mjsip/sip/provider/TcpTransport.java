@@ -26,7 +26,9 @@ package org.mjsip.sip.provider;
 
 
 import java.io.IOException;
+import java.util.concurrent.ThreadFactory;
 
+import org.mjsip.time.Threads;
 import org.slf4j.LoggerFactory;
 import org.zoolu.net.IpAddress;
 import org.zoolu.net.SocketAddress;
@@ -48,6 +50,9 @@ public class TcpTransport extends SipTransportCO/* implements TcpServerListener*
 	/** TCP server */
 	TcpServer tcp_server=null;
 
+	/** Factory of the server and connection threads */
+	ThreadFactory thread_factory=Threads.platformThreads();
+
 
 
 	/** Creates a new TcpTransport */ 
@@ -66,6 +71,16 @@ public class TcpTransport extends SipTransportCO/* implements TcpServerListener*
 	}
 
 
+	/** Creates a new TcpTransport
+	  * @param thread_factory the factory of the server and connection threads, see {@link org.mjsip.time.Scheduler#loopThreads()} */ 
+	public TcpTransport(int local_port, IpAddress host_ipaddr,
+			int nmax_connections, ThreadFactory thread_factory) throws IOException {
+		super(local_port, nmax_connections);
+		this.thread_factory=thread_factory;
+		init(local_port,host_ipaddr);
+	}
+
+
 	/** Inits the TcpTransport */ 
 	private void init(int local_port, IpAddress host_ipaddr) throws IOException {
 		if (tcp_server!=null) tcp_server.halt();
@@ -80,8 +95,7 @@ public class TcpTransport extends SipTransportCO/* implements TcpServerListener*
 				processServerTerminated(tcp_server,error);
 			}
 		};
-		if (host_ipaddr==null) tcp_server=new TcpServer(local_port,this_tcp_server_listener);
-		else tcp_server=new TcpServer(local_port,host_ipaddr,this_tcp_server_listener);
+		tcp_server=new TcpServer(local_port,host_ipaddr,0,this_tcp_server_listener,thread_factory);
 	}
 
 
@@ -113,7 +127,7 @@ public class TcpTransport extends SipTransportCO/* implements TcpServerListener*
 		LOG.debug("incoming connection from {}:{}", socket.getAddress(), socket.getPort());
 		if (tcp_server==this.tcp_server) {
 			try {
-				SipTransportConnection conn = new TcpTransportConnection(socket, getMaxMessageSize(), this_conn_listener);
+				SipTransportConnection conn = new TcpTransportConnection(socket, getMaxMessageSize(), thread_factory, this_conn_listener);
 				LOG.debug("tcp connection {} opened", conn);
 				addConnection(conn);
 				if (listener != null)
@@ -136,7 +150,7 @@ public class TcpTransport extends SipTransportCO/* implements TcpServerListener*
 	@Override
 	protected SipTransportConnection createTransportConnection(SocketAddress remote_soaddr) throws IOException {
 		TcpSocket tcp_socket=new TcpSocket(remote_soaddr.getAddress(),remote_soaddr.getPort());
-		return new TcpTransportConnection(tcp_socket,getMaxMessageSize(),this_conn_listener);
+		return new TcpTransportConnection(tcp_socket,getMaxMessageSize(),thread_factory,this_conn_listener);
 	}
 
 
@@ -26,10 +26,12 @@ package org.mjsip.sip.provider;
 
 
 import java.io.IOException;
+import java.util.concurrent.ThreadFactory;
 
 import org.mjsip.sip.message.IncompleteSipMessageException;
 import org.mjsip.sip.message.SipMessage;
 import org.mjsip.sip.message.SipMessageBuffer;
+import org.mjsip.time.Threads;
 import org.slf4j.LoggerFactory;
 import org.zoolu.net.IpAddress;
 import org.zoolu.net.TcpConnection;
@@ -95,7 +97,24 @@ public class TcpTransportConnection implements SipTransportConnection/*, TcpConn
 	 *        the TcpTransportConnection listener
 	 */
 	public TcpTransportConnection(TcpSocket socket, int max_message_size, SipTransportConnectionListener listener) throws IOException {
-		init(socket,max_message_size,listener);
+		this(socket,max_message_size,Threads.platformThreads(),listener);
+	}
+
+
+	/**
+	 * Creates a new TcpTransportConnection.
+	 *
+	 * @param socket
+	 *        the TCP socket
+	 * @param max_message_size
+	 *        the maximum size of a single received SIP message (in bytes)
+	 * @param thread_factory
+	 *        the factory of the receiver thread
+	 * @param listener
+	 *        the TcpTransportConnection listener
+	 */
+	public TcpTransportConnection(TcpSocket socket, int max_message_size, ThreadFactory thread_factory, SipTransportConnectionListener listener) throws IOException {
+		init(socket,max_message_size,thread_factory,listener);
 	}
 
 
@@ -106,10 +125,12 @@ public class TcpTransportConnection implements SipTransportConnection/*, TcpConn
 	 *        the TCP socket
 	 * @param max_message_size
 	 *        the maximum size of a single received SIP message (in bytes)
+	 * @param thread_factory
+	 *        the factory of the receiver thread
 	 * @param listener
 	 *        the TcpTransportConnection listener
 	 */
-	private void init(TcpSocket socket, int max_message_size, SipTransportConnectionListener listener) throws IOException {
+	private void init(TcpSocket socket, int max_message_size, ThreadFactory thread_factory, SipTransportConnectionListener listener) throws IOException {
 		this.listener=listener;
 		this.buffer=new SipMessageBuffer(max_message_size);
 		TcpConnectionListener this_tcp_conn_listener=new TcpConnectionListener() {
@@ -122,7 +143,7 @@ public class TcpTransportConnection implements SipTransportConnection/*, TcpConn
 				processConnectionTerminated(tcp_conn,error);
 			}
 		};
-		tcp_conn=new TcpConnection(socket,this_tcp_conn_listener);
+		tcp_conn=new TcpConnection(socket,0,this_tcp_conn_listener,thread_factory);
 		connection_id=new ConnectionId(this);
 		last_time=System.currentTimeMillis();
 	}
@@ -185,7 +206,7 @@ public class TcpTransportConnection implements SipTransportConnection/*, TcpConn
 	public void sendMessage(SipMessage msg) throws IOException {
 		if (tcp_conn!=null) {
 			last_time=System.currentTimeMillis();
-			byte[] data=msg.getBytes();
+			byte[] data=msg.getEncoded();
 			tcp_conn.send(data);
 			
 			// DEBUG:
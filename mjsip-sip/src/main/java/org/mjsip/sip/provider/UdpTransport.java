@@ -23,11 +23,18 @@
 package org.mjsip.sip.provider;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadFactory;
 
 import org.mjsip.sip.message.MalformedSipMessageException;
 import org.mjsip.sip.message.SipMessage;
+import org.mjsip.time.Threads;
 import org.slf4j.LoggerFactory;
 import org.zoolu.net.IpAddress;
+import org.zoolu.net.SocketAddress;
+import org.zoolu.net.UdpBatchProvider;
 import org.zoolu.net.UdpPacket;
 import org.zoolu.net.UdpProvider;
 import org.zoolu.net.UdpProviderListener;
@@ -53,9 +60,24 @@ public class UdpTransport implements SipTransport/*, UdpProviderListener*/ {
 	/** UDP provider */
 	UdpProvider udp_provider;  
 
+	/** Additional UDP providers reading from sockets bound to the same port (SO_REUSEPORT) */
+	List<UdpProvider> additional_providers=new CopyOnWriteArrayList<>();
+
+	/** Workers processing received messages, or <code>null</code> for processing them in the receiver thread */
+	volatile SipReceiveWorkers workers=null;
+
 	/** SipTransport listener */
 	SipTransportListener listener = null;
 
+	/** Number of datagrams drained per wakeup of a receiver in channel mode, or 0 for blocking sockets */
+	int batch_size=0;
+
+	/** Requested socket receive buffer size (SO_RCVBUF) in bytes, or 0 for the platform default */
+	int receive_buffer_size=0;
+
+	/** Factory of the receiver threads */
+	ThreadFactory thread_factory=Threads.platformThreads();
+
 	/** Creates a new UdpTransport */ 
 	public UdpTransport(UdpSocket socket) {
 		init(socket);
@@ -74,6 +96,66 @@ public class UdpTransport implements SipTransport/*, UdpProviderListener*/ {
 	}
 
 
+	/** Creates a new UdpTransport with several receiver threads.
+	  * <p>
+	  * If <i>receivers</i> is greater than one and the platform supports it, each receiver thread
+	  * reads from its own socket bound to the same port with the SO_REUSEPORT option. Otherwise a
+	  * single receiver thread is used.
+	  * </p>
+	  * @param local_port the local port, or 0 for an ephemeral port
+	  * @param host_ipaddr the local address to bind to, or <code>null</code> for all interfaces
+	  * @param receivers the number of receiver threads */ 
+	public UdpTransport(int local_port, IpAddress host_ipaddr, int receivers) throws IOException {
+		this(local_port,host_ipaddr,receivers,0,0);
+	}
+
+
+	/** Creates a new UdpTransport with several receiver threads, optionally in channel mode.
+	  * <p>
+	  * If <i>batch_size</i> is greater than zero, the sockets are opened in channel mode and each
+	  * receiver thread drains all datagrams ready at a wakeup, see {@link UdpBatchProvider}.
+	  * </p>
+	  * @param local_port the local port, or 0 for an ephemeral port
+	  * @param host_ipaddr the local address to bind to, or <code>null</code> for all interfaces
+	  * @param receivers the number of receiver threads
+	  * @param batch_size the maximum number of datagrams received per batch, or 0 for blocking sockets receiving one datagram at a time
+	  * @param receive_buffer_size the socket receive buffer size (SO_RCVBUF) in bytes, or 0 for the platform default */ 
+	public UdpTransport(int local_port, IpAddress host_ipaddr, int receivers, int batch_size, int receive_buffer_size) throws IOException {
+		this(local_port,host_ipaddr,receivers,batch_size,receive_buffer_size,Threads.platformThreads());
+	}
+
+
+	/** Creates a new UdpTransport with several receiver threads created by the given factory.
+	  * @param local_port the local port, or 0 for an ephemeral port
+	  * @param host_ipaddr the local address to bind to, or <code>null</code> for all interfaces
+	  * @param receivers the number of receiver threads
+	  * @param batch_size the maximum number of datagrams received per batch, or 0 for blocking sockets receiving one datagram at a time
+	  * @param receive_buffer_size the socket receive buffer size (SO_RCVBUF) in bytes, or 0 for the platform default
+	  * @param thread_factory the factory of the receiver threads, see {@link org.mjsip.time.Scheduler#loopThreads()} */ 
+	public UdpTransport(int local_port, IpAddress host_ipaddr, int receivers, int batch_size, int receive_buffer_size, ThreadFactory thread_factory) throws IOException {
+		this.thread_factory=thread_factory;
+		this.batch_size=batch_size;
+		this.receive_buffer_size=receive_buffer_size;
+		if (receivers>1 && !UdpSocket.isReusePortSupported()) {
+			LOG.warn("SO_REUSEPORT is not supported, using a single UDP receiver thread.");
+			receivers=1;
+		}
+		boolean reuse_port=receivers>1;
+		init(openSocket(local_port,host_ipaddr,reuse_port));
+		// Note: Additional sockets must be bound to the port actually chosen by the first one.
+		int port=getLocalPort();
+		try {
+			for (int n=1; n<receivers; n++) {
+				additional_providers.add(createUdpProvider(openSocket(port,host_ipaddr,true)));
+			}
+		}
+		catch (IOException e) {
+			halt();
+			throw e;
+		}
+	}
+
+
 	/** Inits the UdpTransport */ 
 	private void init(int local_port, IpAddress host_ipaddr) throws IOException {
 		UdpSocket socket=(host_ipaddr==null)? new UdpSocket(local_port) : new UdpSocket(local_port,host_ipaddr);
@@ -82,11 +164,46 @@ public class UdpTransport implements SipTransport/*, UdpProviderListener*/ {
 	}
 
 
+	/** Opens a socket according to the batch and receive buffer settings. */ 
+	private UdpSocket openSocket(int port, IpAddress host_ipaddr, boolean reuse_port) throws IOException {
+		UdpSocket socket;
+		if (batch_size>0) socket=UdpSocket.openChannel(port,host_ipaddr,reuse_port);
+		else
+		if (reuse_port) socket=new UdpSocket(port,host_ipaddr,true);
+		else socket=(host_ipaddr==null)? new UdpSocket(port) : new UdpSocket(port,host_ipaddr);
+		if (receive_buffer_size>0) {
+			try {
+				socket.setReceiverBufferSize(receive_buffer_size);
+				long actual=socket.getReceiverBufferSize();
+				if (actual<receive_buffer_size) LOG.warn("UDP receive buffer limited to {} bytes by the platform, requested {}.",Long.valueOf(actual),Integer.valueOf(receive_buffer_size));
+			}
+			catch (IOException e) {
+				socket.close();
+				throw e;
+			}
+		}
+		return socket;
+	}
+
+
 	/** Inits the UdpTransport */ 
 	private void init(UdpSocket socket) {
 		if (udp_provider!=null) udp_provider.halt();
 		// start udp
-		UdpProviderListener this_udp_provider_listener=new UdpProviderListener() {
+		udp_provider=createUdpProvider(socket);
+	}
+
+
+	/** Creates the receiver for the given socket. */ 
+	private UdpProvider createUdpProvider(UdpSocket socket) {
+		if (socket.getChannel()!=null) return new UdpBatchProvider(socket,batch_size,0,createUdpProviderListener(),thread_factory);
+		else return new UdpProvider(socket,0,createUdpProviderListener(),thread_factory);
+	}
+
+
+	/** Creates the listener for received UDP datagrams. */ 
+	private UdpProviderListener createUdpProviderListener() {
+		return new UdpProviderListener() {
 			@Override
 			public void onReceivedPacket(UdpProvider udp, UdpPacket packet) {
 				processReceivedPacket(udp,packet);
@@ -96,7 +213,35 @@ public class UdpTransport implements SipTransport/*, UdpProviderListener*/ {
 				processServiceTerminated(udp,error);
 			}
 		};
-		udp_provider=new UdpProvider(socket,this_udp_provider_listener);
+	}
+
+
+	/** Processes received messages in a pool of worker threads instead of the receiver thread.
+	  * <p>
+	  * Messages are assigned to workers by their Call-ID, so that messages of the same call are
+	  * processed in order, while different calls are processed in parallel. A datagram that
+	  * arrives while the queue of its worker is full is dropped.
+	  * </p>
+	  * @param worker_count the number of worker threads, 0 for processing messages in the receiver thread
+	  * @param queue_size the maximum number of pending messages per worker */ 
+	public void setReceiveWorkers(int worker_count, int queue_size) {
+		SipReceiveWorkers before=workers;
+		workers=(worker_count>0)? new SipReceiveWorkers("SipWorker-"+getLocalPort(),worker_count,queue_size) : null;
+		if (before!=null) before.halt();
+	}
+
+
+	/** Gets the workers processing received messages.
+	  * @return the worker pool, or <code>null</code> if messages are processed in the receiver thread */ 
+	public SipReceiveWorkers getReceiveWorkers() {
+		return workers;
+	}
+
+
+	/** Gets the UDP provider receiving on the local port.
+	  * @return the provider, a {@link UdpBatchProvider} in channel mode, or <code>null</code> if the transport has terminated */ 
+	public UdpProvider getUdpProvider() {
+		return udp_provider;
 	}
 
 
@@ -132,7 +277,7 @@ public class UdpTransport implements SipTransport/*, UdpProviderListener*/ {
 	@Override
 	public ConnectionId sendMessage(SipMessage msg, IpAddress dest_ipaddr, int dest_port, int ttl) throws IOException {
 		if (udp_provider!=null) {
-			byte[] data=msg.getBytes();
+			byte[] data=msg.getEncoded();
 			UdpPacket packet=new UdpPacket(data,data.length);
 			// if (ttl>0 && multicast_address) do something?
 			packet.setIpAddress(dest_ipaddr);
@@ -147,6 +292,8 @@ public class UdpTransport implements SipTransport/*, UdpProviderListener*/ {
 	@Override
 	public void halt() {
 		if (udp_provider!=null) udp_provider.halt();
+		for (UdpProvider provider : additional_providers) provider.halt();
+		if (workers!=null) workers.halt();
 	}
 
 
@@ -168,33 +315,60 @@ public class UdpTransport implements SipTransport/*, UdpProviderListener*/ {
 		}
 		else
 		if (ByteUtils.match(packet.getData(),packet.getOffset(),packet.getLength(),PONG,0,PONG.length)) {
-			// do something..
+			SipTransportListener listener=this.listener;
+			if (listener!=null) listener.onReceivedPong(this,new SocketAddress(packet.getIpAddress(),packet.getPort()));
 		}
 		else {
-			SipMessage msg;
-			try {
-				msg=SipMessage.parse(packet.getData(),packet.getOffset(),packet.getLength());
+			SipReceiveWorkers workers=this.workers;
+			if (workers==null) {
+				processReceivedMessage(packet.getData(),packet.getOffset(),packet.getLength(),packet.getIpAddress(),packet.getPort());
 			}
-			catch (MalformedSipMessageException e) {
-				// Note: A partially parsed message must not be passed on, since it may lack even the
-				// request line or the Via header field.
-				LOG.info("Dropping malformed message from {}:{}: {}",packet.getIpAddress(),
-						Integer.valueOf(packet.getPort()),e.getMessage());
-				return;
+			else {
+				// Note: The receive buffer is reused by the UDP provider for the next datagram.
+				byte[] data=Arrays.copyOfRange(packet.getData(),packet.getOffset(),packet.getOffset()+packet.getLength());
+				IpAddress remote_ipaddr=packet.getIpAddress();
+				int remote_port=packet.getPort();
+				workers.execute(SipReceiveWorkers.callIdHash(data,0,data.length),
+						() -> processReceivedMessage(data,0,data.length,remote_ipaddr,remote_port));
 			}
-			msg.setRemoteAddress(packet.getIpAddress().toString());
-			msg.setRemotePort(packet.getPort());
-			msg.setTransportProtocol(PROTO_UDP);
-			if (listener!=null) listener.onReceivedMessage(this,msg);
 		}
 	}   
 
 
+	/** Parses a received datagram and passes the message to the listener. */
+	private void processReceivedMessage(byte[] data, int offset, int length, IpAddress remote_ipaddr, int remote_port) {
+		SipMessage msg;
+		try {
+			msg=SipMessage.parse(data,offset,length);
+		}
+		catch (MalformedSipMessageException e) {
+			// Note: A partially parsed message must not be passed on, since it may lack even the
+			// request line or the Via header field.
+			LOG.info("Dropping malformed message from {}:{}: {}",remote_ipaddr,
+					Integer.valueOf(remote_port),e.getMessage());
+			return;
+		}
+		msg.setRemoteAddress(remote_ipaddr.toString());
+		msg.setRemotePort(remote_port);
+		msg.setTransportProtocol(PROTO_UDP);
+		SipTransportListener listener=this.listener;
+		if (listener!=null) listener.onReceivedMessage(this,msg);
+	}
+
+
 	/** When DatagramService stops receiving UDP datagrams. */
 	private void processServiceTerminated(UdpProvider udp, Exception error) {
-		if (listener!=null) listener.onTransportTerminated(this,error);
 		UdpSocket socket=udp.getUdpSocket();
 		if (socket!=null) try { socket.close(); } catch (Exception e) {}
+		if (udp!=udp_provider) {
+			// An additional receiver terminated, the transport remains available.
+			additional_providers.remove(udp);
+			if (error!=null) LOG.warn("UDP receiver {} terminated.",udp,error);
+			return;
+		}
+		if (listener!=null) listener.onTransportTerminated(this,error);
+		for (UdpProvider provider : additional_providers) provider.halt();
+		if (workers!=null) workers.halt();
 		this.udp_provider=null;
 		this.listener=null;
 	}   
@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.media;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for {@link RtpStreamReceiver}.
+ */
+@SuppressWarnings("javadoc")
+class TestRtpStreamReceiver {
+
+	@Test
+	void testClockRate() {
+		// PCMU and PCMA
+		assertEquals(8000, RtpStreamReceiver.getClockRate(0, 8000));
+		assertEquals(8000, RtpStreamReceiver.getClockRate(8, 8000));
+
+		// G.722 is sampled at 16 kHz, but uses an 8 kHz RTP clock (RFC 3551).
+		assertEquals(8000, RtpStreamReceiver.getClockRate(9, 16000));
+
+		// L16 stereo
+		assertEquals(44100, RtpStreamReceiver.getClockRate(10, 44100));
+
+		// Dynamic payload types use the codec sample rate.
+		assertEquals(16000, RtpStreamReceiver.getClockRate(96, 16000));
+	}
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.media;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for {@link StreamerOptions.Builder}.
+ */
+@SuppressWarnings("javadoc")
+class TestStreamerOptions {
+
+	@Test
+	void testJitterBufferMaxBelowMin() {
+		StreamerOptions options = StreamerOptions.builder()
+			.setJitterBufferMinDelay(40)
+			.setJitterBufferMaxDelay(30)
+			.build();
+		assertEquals(30, options.jitterBufferMinDelay());
+		assertEquals(30, options.jitterBufferMaxDelay());
+	}
+
+	@Test
+	void testJitterBufferMinAboveMax() {
+		StreamerOptions options = StreamerOptions.builder()
+			.setJitterBufferMaxDelay(100)
+			.setJitterBufferMinDelay(120)
+			.build();
+		assertEquals(120, options.jitterBufferMinDelay());
+		assertEquals(120, options.jitterBufferMaxDelay());
+	}
+
+	@Test
+	void testJitterBufferDisabled() {
+		StreamerOptions options = StreamerOptions.builder()
+			.setJitterBufferMinDelay(40)
+			.setJitterBufferMaxDelay(0)
+			.build();
+		assertEquals(40, options.jitterBufferMinDelay());
+		assertEquals(0, options.jitterBufferMaxDelay());
+	}
+
+	@Test
+	void testNegativeDelay() {
+		assertThrows(IllegalArgumentException.class, () -> StreamerOptions.builder().setJitterBufferMinDelay(-1));
+		assertThrows(IllegalArgumentException.class, () -> StreamerOptions.builder().setJitterBufferMaxDelay(-1));
+	}
+
+}
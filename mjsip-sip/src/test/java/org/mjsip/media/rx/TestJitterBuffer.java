@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.media.rx;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.mjsip.rtp.RtpPacket;
+
+/**
+ * Test for {@link JitterBuffer}.
+ */
+@SuppressWarnings("javadoc")
+class TestJitterBuffer {
+
+	private static final int CLOCK_RATE = 8000;
+
+	/** Samples per packet of 20ms. */
+	private static final int SAMPLES = 160;
+
+	private static final long MS = 1_000_000L;
+
+	/** Arbitrary start time, {@link System#nanoTime()} may be negative. */
+	private static final long T0 = -5_000 * MS;
+
+	private final List<String> _played = new ArrayList<>();
+
+	private final JitterBuffer.Sink _sink = (buf, off, len, sqnInterval, timestampInterval) -> _played
+		.add(buf[off] + "/" + sqnInterval + "/" + timestampInterval);
+
+	@Test
+	void testPlayoutDelay() throws Exception {
+		JitterBuffer buffer = new JitterBuffer(CLOCK_RATE, 40, 200, LatePacketPolicy.DROP);
+
+		assertTrue(buffer.add(packet(100, 0, false), T0));
+		assertEquals(T0 + 40 * MS, buffer.playout(T0, _sink));
+		assertEquals(T0 + 40 * MS, buffer.playout(T0 + 39 * MS, _sink));
+		assertEquals(0, _played.size());
+
+		assertEquals(-1, buffer.playout(T0 + 40 * MS, _sink));
+		assertEquals(List.of("0/0/0"), _played);
+
+		assertTrue(buffer.add(packet(101, 1, false), T0 + 20 * MS));
+		assertEquals(T0 + 60 * MS, buffer.playout(T0 + 41 * MS, _sink));
+		buffer.playout(T0 + 60 * MS, _sink);
+		assertEquals(List.of("0/0/0", "1/1/160"), _played);
+	}
+
+	@Test
+	void testReorder() throws Exception {
+		JitterBuffer buffer = new JitterBuffer(CLOCK_RATE, 60, 200, LatePacketPolicy.DROP);
+
+		buffer.add(packet(10, 0, false), T0);
+		buffer.add(packet(12, 2, false), T0 + 40 * MS);
+		buffer.add(packet(11, 1, false), T0 + 45 * MS);
+		buffer.add(packet(13, 3, false), T0 + 60 * MS);
+		buffer.playout(T0 + 200 * MS, _sink);
+
+		assertEquals(List.of("0/0/0", "1/1/160", "2/1/160", "3/1/160"), _played);
+		JitterBufferStatistics statistics = buffer.getStatistics();
+		assertEquals(4, statistics.getReceived());
+		assertEquals(1, statistics.getReordered());
+		assertEquals(0, statistics.getLost());
+		assertEquals(0, statistics.getCumulativeLost());
+	}
+
+	@Test
+	void testDuplicate() throws Exception {
+		JitterBuffer buffer = new JitterBuffer(CLOCK_RATE, 40, 200, LatePacketPolicy.DROP);
+
+		assertTrue(buffer.add(packet(1, 0, false), T0));
+		assertFalse(buffer.add(packet(1, 0, false), T0 + 1 * MS));
+		buffer.playout(T0 + 40 * MS, _sink);
+		assertFalse(buffer.add(packet(1, 0, false), T0 + 41 * MS));
+
+		assertEquals(List.of("0/0/0"), _played);
+		assertEquals(2, buffer.getStatistics().getDuplicates());
+	}
+
+	@Test
+	void testLossAndLate() throws Exception {
+		JitterBuffer buffer = new JitterBuffer(CLOCK_RATE, 40, 200, LatePacketPolicy.DROP);
+
+		buffer.add(packet(1, 0, false), T0);
+		buffer.add(packet(3, 2, false), T0 + 40 * MS);
+		buffer.playout(T0 + 80 * MS, _sink);
+
+		// Packet 2 was skipped, the gap is reported for silence padding.
+		assertEquals(List.of("0/0/0", "2/2/320"), _played);
+
+		assertFalse(buffer.add(packet(2, 1, false), T0 + 90 * MS));
+
+		JitterBufferStatistics statistics = buffer.getStatistics();
+		assertEquals(1, statistics.getLost());
+		assertEquals(1, statistics.getLate());
+		assertEquals(0, statistics.getCumulativeLost());
+		assertEquals(3, statistics.getHighestSqn());
+	}
+
+	@Test
+	void testLateExtendsDelay() throws Exception {
+		JitterBuffer buffer = new JitterBuffer(CLOCK_RATE, 40, 200, LatePacketPolicy.EXTEND);
+
+		buffer.add(packet(1, 0, false), T0);
+		buffer.add(packet(3, 2, false), T0 + 40 * MS);
+		buffer.playout(T0 + 80 * MS, _sink);
+		assertEquals(40, buffer.getStatistics().getDelayMillis());
+
+		buffer.add(packet(2, 1, false), T0 + 90 * MS);
+		assertEquals(60, buffer.getStatistics().getDelayMillis());
+
+		// Packet 4 is now due 20ms later.
+		buffer.add(packet(4, 3, false), T0 + 60 * MS);
+		assertEquals(T0 + 120 * MS, buffer.playout(T0 + 100 * MS, _sink));
+	}
+
+	@Test
+	void testSequenceWrap() throws Exception {
+		JitterBuffer buffer = new JitterBuffer(CLOCK_RATE, 40, 200, LatePacketPolicy.DROP);
+
+		buffer.add(packet(65534, 0, false), T0);
+		buffer.add(packet(0, 2, false), T0 + 40 * MS);
+		buffer.add(packet(65535, 1, false), T0 + 41 * MS);
+		buffer.add(packet(1, 3, false), T0 + 60 * MS);
+		buffer.playout(T0 + 200 * MS, _sink);
+
+		assertEquals(List.of("0/0/0", "1/1/160", "2/1/160", "3/1/160"), _played);
+		assertEquals(65536 + 1, buffer.getStatistics().getHighestSqn());
+	}
+
+	@Test
+	void testTimestampWrap() throws Exception {
+		JitterBuffer buffer = new JitterBuffer(CLOCK_RATE, 40, 200, LatePacketPolicy.DROP);
+
+		long ts = 0xFFFFFFFFL - 100;
+		buffer.add(packet(1, ts, (byte) 0, false), T0);
+		buffer.add(packet(2, (ts + SAMPLES) & 0xFFFFFFFFL, (byte) 1, false), T0 + 20 * MS);
+		buffer.playout(T0 + 40 * MS, _sink);
+		assertEquals(T0 + 60 * MS, buffer.playout(T0 + 40 * MS, _sink));
+		buffer.playout(T0 + 60 * MS, _sink);
+
+		assertEquals(List.of("0/0/0", "1/1/160"), _played);
+	}
+
+	@Test
+	void testSenderRestart() throws Exception {
+		JitterBuffer buffer = new JitterBuffer(CLOCK_RATE, 40, 200, LatePacketPolicy.DROP);
+
+		buffer.add(packet(1000, 0, false), T0);
+		buffer.playout(T0 + 40 * MS, _sink);
+
+		// New sequence and timestamp space.
+		buffer.add(packet(20, 900000, (byte) 0, true), T0 + 50 * MS);
+		buffer.add(packet(21, 900000 + SAMPLES, (byte) 1, false), T0 + 70 * MS);
+		assertEquals(T0 + 90 * MS, buffer.playout(T0 + 50 * MS, _sink));
+		buffer.playout(T0 + 110 * MS, _sink);
+
+		assertEquals(List.of("0/0/0", "0/0/0", "1/1/160"), _played);
+		assertEquals(0, buffer.getStatistics().getLost());
+		assertEquals(0, buffer.getStatistics().getCumulativeLost());
+	}
+
+	@Test
+	void testAdaptToJitter() throws Exception {
+		JitterBuffer buffer = new JitterBuffer(CLOCK_RATE, 20, 200, LatePacketPolicy.DROP);
+
+		// Packets arrive with alternating 0 and 30ms network delay.
+		for (int n = 0; n < 200; n++) {
+			long arrival = T0 + n * 20 * MS + (n % 2) * 30 * MS;
+			buffer.add(packet(n, n, n % 10 == 0), arrival);
+			buffer.playout(arrival, _sink);
+		}
+		buffer.playout(T0 + 5000 * MS, _sink);
+
+		JitterBufferStatistics statistics = buffer.getStatistics();
+		assertTrue(statistics.getJitterMillis() > 20, "Jitter: " + statistics.getJitterMillis());
+		assertTrue(statistics.getDelayMillis() >= 40, "Delay: " + statistics.getDelayMillis());
+		assertTrue(statistics.getLost() < 100, "Lost: " + statistics.getLost());
+		assertEquals(200, statistics.getReceived());
+	}
+
+	private static RtpPacket packet(int sqn, int frame, boolean marker) {
+		return packet(sqn, 4711L + frame * SAMPLES, (byte) frame, marker);
+	}
+
+	private static RtpPacket packet(int sqn, long timestamp, byte data, boolean marker) {
+		byte[] payload = { data, 0, 0, 0 };
+		RtpPacket result = new RtpPacket(0, 1234, sqn, timestamp, payload, 0, payload.length);
+		result.setMarker(marker);
+		return result;
+	}
+
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.media.tx;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mjsip.media.RtpStreamSender;
+import org.mjsip.media.StreamerOptions;
+import org.mjsip.rtp.RtpPacket;
+import org.mjsip.time.Threads;
+import org.zoolu.net.IpAddress;
+import org.zoolu.net.UdpPacket;
+import org.zoolu.net.UdpSocket;
+
+/**
+ * Test for {@link MediaClock}.
+ */
+@SuppressWarnings("javadoc")
+class TestMediaClock {
+
+	private static final long PERIOD = TimeUnit.MILLISECONDS.toNanos(5);
+
+	private MediaClock _clock;
+
+	@BeforeEach
+	void setUp() {
+		_clock = new MediaClock(2);
+	}
+
+	@AfterEach
+	void tearDown() {
+		_clock.stop();
+	}
+
+	@Test
+	void testPacing() throws Exception {
+		int streams = 10;
+		int ticks = 20;
+		CountDownLatch done = new CountDownLatch(streams);
+		List<long[]> times = new ArrayList<>();
+		long start = System.nanoTime();
+		for (int n = 0; n < streams; n++) {
+			long[] streamTimes = new long[ticks];
+			times.add(streamTimes);
+			_clock.add(new MediaClock.Stream() {
+				int _tick;
+
+				@Override
+				public long tick(long now) {
+					streamTimes[_tick++] = now;
+					if (_tick == ticks) {
+						done.countDown();
+						return -1;
+					}
+					return start + _tick * PERIOD;
+				}
+			}, start);
+		}
+
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		awaitNoStreams();
+
+		for (long[] streamTimes : times) {
+			for (int n = 0; n < ticks; n++) {
+				assertTrue(streamTimes[n] - start >= n * PERIOD, "Too early: " + n);
+			}
+			// No drift: the last tick is due at a fixed offset from the start.
+			long total = streamTimes[ticks - 1] - start;
+			assertTrue(total < (ticks - 1) * PERIOD + TimeUnit.MILLISECONDS.toNanos(50), "Too late: " + total);
+		}
+	}
+
+	@Test
+	void testFailingStream() throws Exception {
+		CountDownLatch done = new CountDownLatch(1);
+		_clock.add(now -> {
+			throw new IllegalStateException("Failure for test.");
+		}, System.nanoTime());
+		_clock.add(now -> {
+			done.countDown();
+			return -1;
+		}, System.nanoTime() + PERIOD);
+
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		awaitNoStreams();
+	}
+
+	private void awaitNoStreams() throws InterruptedException {
+		// Streams are removed after their last tick has returned.
+		long timeout = System.currentTimeMillis() + 5000;
+		while (_clock.getStreams() > 0 && System.currentTimeMillis() < timeout) {
+			Thread.sleep(1);
+		}
+		assertEquals(0, _clock.getStreams());
+	}
+
+	@Test
+	void testRtpStreamSender() throws Exception {
+		IpAddress localhost = new IpAddress(InetAddress.getLoopbackAddress());
+		UdpSocket receiver = new UdpSocket(0, localhost);
+		UdpSocket socket = new UdpSocket(0, localhost);
+		try {
+			receiver.setSoTimeout(5000);
+
+			int packets = 10;
+			byte[] data = new byte[packets * 160];
+			StreamerOptions options = StreamerOptions.builder().setMediaClock(_clock).build();
+			RtpStreamSender sender = new RtpStreamSender(options, new ByteArrayInputStream(data), true, 0, null,
+				8000, 1, 20, 160, null, socket, localhost.toString(), receiver.getLocalPort(), null, null);
+
+			long start = System.nanoTime();
+			AtomicBoolean ownThread = new AtomicBoolean();
+			sender.start(command -> {
+				// Only blocking reads of the input stream may be passed to the executor.
+				if (command == sender) {
+					ownThread.set(true);
+				} else {
+					ForkJoinPool.commonPool().execute(command);
+				}
+			});
+
+			int sqn = -1;
+			for (int n = 0; n < packets; n++) {
+				UdpPacket udp = new UdpPacket(new byte[2000], 2000);
+				receiver.receive(udp);
+				RtpPacket rtp = new RtpPacket(udp.getData(), udp.getOffset(), udp.getLength());
+				assertEquals(160, rtp.getPayloadLength());
+				if (sqn >= 0) {
+					assertEquals((sqn + 1) & 0xFFFF, rtp.getSequenceNumber());
+				}
+				sqn = rtp.getSequenceNumber();
+			}
+			long duration = System.nanoTime() - start;
+			assertTrue(duration >= TimeUnit.MILLISECONDS.toNanos(9 * 20), "Too fast: " + duration);
+
+			sender.join();
+			assertEquals(packets, sender.getPacketCounter());
+			assertFalse(ownThread.get(), "Must not use an own thread.");
+		} finally {
+			receiver.close();
+			socket.close();
+		}
+	}
+
+	@Test
+	void testBlockingInput() throws Exception {
+		IpAddress localhost = new IpAddress(InetAddress.getLoopbackAddress());
+		UdpSocket socket = new UdpSocket(0, localhost);
+		try {
+			PipedOutputStream out = new PipedOutputStream();
+			PipedInputStream in = new PipedInputStream(out);
+			StreamerOptions options = StreamerOptions.builder().setMediaClock(_clock).build();
+			RtpStreamSender sender = new RtpStreamSender(options, in, true, 0, null,
+				8000, 1, 5, 40, null, socket, localhost.toString(), 9, null, null);
+			sender.start(command -> Threads.start("reader", command));
+
+			// A stream, for which no data is available, does not block other streams of the same clock.
+			CountDownLatch ticks = new CountDownLatch(2 * 20);
+			_clock.add(now -> {
+				ticks.countDown();
+				return ticks.getCount() == 0 ? -1 : now + PERIOD;
+			}, System.nanoTime());
+			_clock.add(now -> {
+				ticks.countDown();
+				return ticks.getCount() == 0 ? -1 : now + PERIOD;
+			}, System.nanoTime());
+			assertTrue(ticks.await(10, TimeUnit.SECONDS));
+
+			out.close();
+			sender.join();
+			assertEquals(0, sender.getPacketCounter());
+		} finally {
+			socket.close();
+		}
+	}
+
+	@Test
+	void testStop() throws Exception {
+		IpAddress localhost = new IpAddress(InetAddress.getLoopbackAddress());
+		UdpSocket socket = new UdpSocket(0, localhost);
+		try {
+			CountDownLatch terminated = new CountDownLatch(1);
+			StreamerOptions options = StreamerOptions.builder().setMediaClock(_clock).build();
+			RtpStreamSender sender = new RtpStreamSender(options, new ByteArrayInputStream(new byte[1000 * 160]), true,
+				0, null, 8000, 1, 20, 160, null, socket, localhost.toString(), 9, null,
+				(rs, error) -> terminated.countDown());
+			sender.start(command -> ForkJoinPool.commonPool().execute(command));
+			assertEquals(1, _clock.getStreams());
+
+			_clock.stop();
+
+			// The sender is terminated, although its stream has not finished.
+			assertTrue(terminated.await(10, TimeUnit.SECONDS));
+			assertEquals(0, _clock.getStreams());
+		} finally {
+			socket.close();
+		}
+	}
+
+}
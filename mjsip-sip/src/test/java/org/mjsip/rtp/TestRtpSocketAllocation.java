@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.rtp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.SocketTimeoutException;
+
+import org.junit.jupiter.api.Test;
+import org.zoolu.net.IpAddress;
+import org.zoolu.net.SocketAddress;
+import org.zoolu.net.UdpPacket;
+import org.zoolu.net.UdpSocket;
+
+/**
+ * Test asserting that the steady-state media flow through {@link RtpSocket} and {@link RtpProvider}
+ * does not allocate per packet.
+ */
+@SuppressWarnings("javadoc")
+class TestRtpSocketAllocation {
+
+	/** Number of concurrent streams. */
+	private static final int STREAMS=100;
+
+	/** Packets per second of a stream with 20ms packet time. */
+	private static final int PACKET_RATE=50;
+
+	/** Number of simulated seconds of media flow. */
+	private static final int SECONDS=10;
+
+	/** Number of packets per stream sent and received before measuring. */
+	private static final int WARMUP=1000;
+
+	/** Size of a G.711 packet with 20ms packet time. */
+	private static final int PACKET_SIZE=172;
+
+	private static final InetAddress PEER=InetAddress.getLoopbackAddress();
+
+	private static final int PEER_PORT=4000;
+
+	@Test
+	void testRtpSocket() throws IOException {
+		FakeUdpSocket[] udp_sockets=new FakeUdpSocket[STREAMS];
+		RtpSocket[] sockets=new RtpSocket[STREAMS];
+		for (int n=0; n<STREAMS; n++) {
+			udp_sockets[n]=new FakeUdpSocket(PEER_PORT+2*n);
+			sockets[n]=new RtpSocket(udp_sockets[n],new SocketAddress(new IpAddress(PEER),PEER_PORT+2*n));
+		}
+		RtpPacket rx_packet=new RtpPacket(new byte[2000],0);
+		RtpPacket tx_packet=new RtpPacket(0,4711,1,0,new byte[PACKET_SIZE-12],0,PACKET_SIZE-12);
+
+		Runnable flow=() -> {
+			try {
+				for (int n=0; n<STREAMS; n++) {
+					sockets[n].receive(rx_packet);
+					sockets[n].send(tx_packet);
+				}
+			} catch (IOException ex) {
+				throw new AssertionError(ex);
+			}
+		};
+
+		long allocated=measure(flow);
+		assertTrue(allocated<STREAMS*PACKET_RATE, "Allocated " + allocated + " bytes for " + STREAMS*PACKET_RATE*SECONDS + " packets.");
+
+		for (int n=0; n<STREAMS; n++) {
+			assertEquals(PACKET_SIZE,rx_packet.getPacketLength());
+			assertEquals(PEER_PORT+2*n,sockets[n].getRemoteSourceSoAddress().getPort());
+			assertEquals(2*(PACKET_RATE*SECONDS+WARMUP),udp_sockets[n].getSenderPacketCounter()+udp_sockets[n].getReceiverPacketCounter());
+			assertEquals(PEER_PORT+2*n,udp_sockets[n].sent_port);
+		}
+	}
+
+	@Test
+	void testRtpProvider() throws IOException {
+		FakeUdpSocket udp_socket=new FakeUdpSocket(PEER_PORT);
+		int[] received={ 0 };
+		RtpProvider[] providers=new RtpProvider[STREAMS];
+		for (int n=0; n<STREAMS; n++) {
+			providers[n]=new RtpProvider(udp_socket,new RtpProviderListener() {
+				@Override
+				public void onReceivedPacket(RtpProvider rtp, RtpPacket rtp_packet) {
+					received[0]+=rtp_packet.getPacketLength();
+				}
+				@Override
+				public void onServiceTerminated(RtpProvider rtp, Exception error) {
+					// ignore
+				}
+			});
+		}
+		try {
+			UdpPacket udp_packet=new UdpPacket(new byte[2000],0);
+			RtpPacket tx_packet=new RtpPacket(0,4711,1,0,new byte[PACKET_SIZE-12],0,PACKET_SIZE-12);
+
+			Runnable flow=() -> {
+				try {
+					for (int n=0; n<STREAMS; n++) {
+						udp_socket.fill(udp_packet);
+						providers[n].onReceivedPacket(providers[n].getUdpProvider(),udp_packet);
+						providers[n].send(tx_packet);
+					}
+				} catch (IOException ex) {
+					throw new AssertionError(ex);
+				}
+			};
+
+			long allocated=measure(flow);
+			assertTrue(allocated<STREAMS*PACKET_RATE, "Allocated " + allocated + " bytes for " + STREAMS*PACKET_RATE*SECONDS + " packets.");
+			assertEquals(STREAMS*(PACKET_RATE*SECONDS+WARMUP)*PACKET_SIZE,received[0]);
+			assertEquals(STREAMS*(PACKET_RATE*SECONDS+WARMUP),udp_socket.getSenderPacketCounter());
+		}
+		finally {
+			for (RtpProvider provider : providers) provider.halt();
+		}
+	}
+
+	@Test
+	void testSourceChange() throws IOException {
+		FakeUdpSocket udp_socket=new FakeUdpSocket(PEER_PORT);
+		RtpSocket socket=new RtpSocket(udp_socket);
+		RtpPacket rx_packet=new RtpPacket(new byte[2000],0);
+
+		socket.receive(rx_packet);
+		SocketAddress source=socket.getRemoteSourceSoAddress();
+		assertEquals(PEER_PORT,source.getPort());
+
+		// The same source does not create a new address, although the InetAddress is another instance.
+		udp_socket.source=InetAddress.getByAddress(PEER.getAddress());
+		socket.receive(rx_packet);
+		assertSame(source,socket.getRemoteSourceSoAddress());
+
+		// The symmetric destination follows a changed source.
+		udp_socket.source_port=PEER_PORT+1;
+		socket.receive(rx_packet);
+		assertNotSame(source,socket.getRemoteSourceSoAddress());
+		assertEquals(PEER_PORT+1,socket.getRemoteSourceSoAddress().getPort());
+
+		socket.send(rx_packet);
+		assertEquals(PEER_PORT+1,udp_socket.sent_port);
+	}
+
+	/** Runs the given flow for all packets of all streams and returns the number of bytes allocated while measuring. */
+	private static long measure(Runnable flow) {
+		com.sun.management.ThreadMXBean bean=(com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		assertTrue(bean.isThreadAllocatedMemorySupported());
+		bean.setThreadAllocatedMemoryEnabled(true);
+		long thread=Thread.currentThread().getId();
+
+		for (int n=0; n<WARMUP; n++) flow.run();
+
+		long before=bean.getThreadAllocatedBytes(thread);
+		for (int n=0; n<PACKET_RATE*SECONDS; n++) flow.run();
+		return bean.getThreadAllocatedBytes(thread)-before;
+	}
+
+	/** UDP socket delivering RTP packets from a fixed source without network access. */
+	static class FakeUdpSocket extends UdpSocket {
+
+		private final byte[] data=new RtpPacket(0,4711,1,0,new byte[PACKET_SIZE-12],0,PACKET_SIZE-12).getPacketBuffer();
+
+		InetAddress source=PEER;
+
+		int source_port;
+
+		int sent_port;
+
+		private long received;
+
+		private long sent;
+
+		FakeUdpSocket(int source_port) {
+			this.source_port=source_port;
+		}
+
+		void fill(UdpPacket pkt) {
+			System.arraycopy(data,0,pkt.getData(),pkt.getOffset(),data.length);
+			pkt.setLength(data.length);
+			pkt.setInetAddress(source);
+			pkt.setPort(source_port);
+		}
+
+		@Override
+		public void receive(UdpPacket pkt) throws IOException {
+			if (Thread.currentThread().getName().startsWith("UdpProvider")) {
+				// The receiver thread of a RtpProvider, packets are injected by the test.
+				try {
+					Thread.sleep(100);
+				} catch (InterruptedException ex) {
+					// ignore
+				}
+				throw new SocketTimeoutException();
+			}
+			fill(pkt);
+			received++;
+		}
+
+		@Override
+		public void send(UdpPacket pkt) throws IOException {
+			sent_port=pkt.getPort();
+			sent++;
+		}
+
+		@Override
+		public void setSoTimeout(int timeout) {
+			// ignore
+		}
+
+		@Override
+		public int getLocalPort() {
+			return 0;
+		}
+
+		@Override
+		public long getReceiverPacketCounter() {
+			return received;
+		}
+
+		@Override
+		public long getSenderPacketCounter() {
+			return sent;
+		}
+
+	}
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.sip.authentication;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.mjsip.sip.header.AuthorizationHeader;
+import org.mjsip.sip.header.WwwAuthenticateHeader;
+
+/**
+ * Test for {@link DigestVerifier}.
+ */
+@SuppressWarnings("javadoc")
+class TestDigestVerifier {
+
+	private static final byte[] BODY = "v=0\r\n".getBytes();
+
+	@Test
+	void testRfcExample() {
+		AuthorizationHeader ah = new AuthorizationHeader(
+				"Digest username=\"Mufasa\", "
+				+ "realm=\"testrealm@host.com\", " 
+				+ "nonce=\"dcd98b7102dd2f0e8b11d0f600bfb0c093\", "
+				+ "uri=\"/dir/index.html\", " 
+				+ "qop=auth, " 
+				+ "nc=00000001, " 
+				+ "cnonce=\"0a4f113b\", "
+				+ "response=\"6629fae49393a05397450978507c4ef1\", " 
+				+ "opaque=\"5ccc069c403ebaf9f0171e9517f40e41\"\n");
+		assertEquals("auth", ah.getParameters().get("qop"));
+		assertEquals("/dir/index.html", ah.getParameters().get("uri"));
+		assertEquals("5ccc069c403ebaf9f0171e9517f40e41", ah.getParameters().get("opaque"));
+
+		byte[] ha1 = DigestVerifier.HA1("Mufasa", "testrealm@host.com", "Circle Of Life".getBytes());
+		assertArrayEquals(DigestAuthentication.HA1("Mufasa", "testrealm@host.com", "Circle Of Life"), ha1);
+		assertTrue(DigestVerifier.checkResponse("GET", ah, null, ha1));
+		assertFalse(DigestVerifier.checkResponse("POST", ah, null, ha1));
+		assertFalse(DigestVerifier.checkResponse("GET", ah, null,
+			DigestVerifier.HA1("Mufasa", "testrealm@host.com", "Circle of Life".getBytes())));
+	}
+
+	@Test
+	void testSameAsDigestAuthentication() {
+		for (String algorithm : new String[] { null, "MD5", "MD5-sess" }) {
+			for (String qop : new String[] { null, "auth", "auth-int" }) {
+				WwwAuthenticateHeader challenge = new WwwAuthenticateHeader("Digest");
+				challenge.addRealmParam("example.com");
+				challenge.addNonceParam("7a0e9f5c2d1b4e3f");
+				if (algorithm != null) {
+					challenge.addAlgorithParam(algorithm);
+				}
+				DigestAuthentication client = new DigestAuthentication("REGISTER", "sip:example.com", challenge, qop,
+					null, 7, BODY, "alice", "sécret");
+				AuthorizationHeader ah = client.getAuthorizationHeader();
+				byte[] ha1 = DigestVerifier.HA1("alice", "example.com", "sécret".getBytes());
+
+				String config = "algorithm=" + algorithm + ", qop=" + qop;
+				assertTrue(new DigestAuthentication("REGISTER", ah, BODY, "sécret").checkResponse(), config);
+				assertTrue(DigestVerifier.checkResponse("REGISTER", ah, BODY, ha1), config);
+				if ("auth-int".equals(qop)) {
+					assertFalse(DigestVerifier.checkResponse("REGISTER", ah, "v=1\r\n".getBytes(), ha1), config);
+				}
+			}
+		}
+	}
+
+	@Test
+	void testMalformedResponse() {
+		byte[] ha1 = DigestVerifier.HA1("alice", "example.com", "secret".getBytes());
+		assertFalse(DigestVerifier.checkResponse("REGISTER",
+			new AuthorizationHeader("Digest username=\"alice\", realm=\"example.com\", nonce=\"1\", uri=\"sip:example.com\""),
+			null, ha1));
+		assertFalse(DigestVerifier.checkResponse("REGISTER",
+			new AuthorizationHeader("Digest username=\"alice\", realm=\"example.com\", nonce=\"1\", uri=\"sip:example.com\", "
+				+ "response=\"zz29fae49393a05397450978507c4ef1\""),
+			null, ha1));
+		assertFalse(DigestVerifier.checkResponse("REGISTER",
+			new AuthorizationHeader("Digest username=\"alice\", realm=\"example.com\", nonce=\"1\", uri=\"sip:example.com\", "
+				+ "response=\"6629fae4\""),
+			null, ha1));
+	}
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.sip.message;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+import org.mjsip.sip.header.CSeqHeader;
+import org.mjsip.sip.header.Header;
+import org.mjsip.sip.header.LegacyHeader;
+import org.mjsip.sip.header.MaxForwardsHeader;
+import org.mjsip.sip.header.StatusLine;
+import org.mjsip.sip.header.SubjectHeader;
+
+/**
+ * Test for encoding a {@link SipMessage} to bytes.
+ *
+ * @see BasicSipMessage#getEncoded()
+ */
+@SuppressWarnings("javadoc")
+class TestSipMessageEncoding {
+
+	private static final String MESSAGE=
+		"SIP/2.0 200 OK\r\n"+
+		"Via: SIP/2.0/UDP client.example.com;branch=z9hG4bK74bf9\r\n"+
+		"From: <sip:alice@example.com>;tag=9fxced76sl\r\n"+
+		"To: <sip:bob@example.com>;tag=8321234356\r\n"+
+		"Call-ID: 3848276298220188511@client.example.com\r\n"+
+		"CSeq: 1 INVITE\r\n"+
+		"Content-Type: application/sdp\r\n"+
+		"Content-Length: 5\r\n"+
+		"\r\n"+
+		"v=0\r\n";
+
+	@Test
+	void testEncoding() {
+		SipMessage msg=new SipMessage(MESSAGE);
+		assertArrayEquals(MESSAGE.getBytes(),msg.getEncoded());
+		assertEquals(MESSAGE.length(),msg.getLength());
+
+		ByteBuffer buffer=ByteBuffer.allocate(1000);
+		buffer.put((byte)'x');
+		msg.writeTo(buffer);
+		assertEquals(1+MESSAGE.length(),buffer.position());
+	}
+
+	@Test
+	void testCached() {
+		SipMessage msg=new SipMessage(MESSAGE);
+		byte[] encoded=msg.getEncoded();
+		assertSame(encoded,msg.getEncoded());
+
+		byte[] copy=msg.getBytes();
+		assertNotSame(encoded,copy);
+		assertArrayEquals(encoded,copy);
+	}
+
+	@Test
+	void testInvalidateOnModification() {
+		SipMessage msg=new SipMessage(MESSAGE);
+
+		byte[] before=msg.getEncoded();
+		msg.setCSeqHeader(new CSeqHeader(2,"INVITE"));
+		assertNotSame(before,msg.getEncoded());
+		assertEquals(msg.toString(),new String(msg.getEncoded()));
+
+		before=msg.getEncoded();
+		msg.setStatusLine(new StatusLine(180,"Ringing"));
+		assertNotSame(before,msg.getEncoded());
+		assertEquals(msg.toString(),new String(msg.getEncoded()));
+
+		before=msg.getEncoded();
+		msg.setBody("application/sdp","v=1\r\n".getBytes());
+		assertNotSame(before,msg.getEncoded());
+		assertEquals(msg.toString(),new String(msg.getEncoded()));
+
+		before=msg.getEncoded();
+		msg.removeBody();
+		assertNotSame(before,msg.getEncoded());
+		assertEquals(msg.toString(),new String(msg.getEncoded()));
+	}
+
+	@Test
+	void testNonAscii() {
+		SipMessage msg=new SipMessage(MESSAGE);
+		msg.setSubjectHeader(new SubjectHeader("Grüße"));
+		assertArrayEquals(msg.toString().getBytes(),msg.getEncoded());
+	}
+
+	@Test
+	void testModifyingHeadersInPlace() {
+		SipMessage msg=new SipMessage(MESSAGE);
+		byte[] before=msg.getEncoded();
+
+		// Headers returned by the message are copies.
+		LegacyHeader cseq=(LegacyHeader)msg.getHeader("CSeq");
+		cseq.setValue("2 INVITE");
+		for (Header header : msg.getHeaders()) {
+			((LegacyHeader)header).setValue("changed");
+		}
+		assertSame(before,msg.getEncoded());
+		assertArrayEquals(MESSAGE.getBytes(),msg.getEncoded());
+
+		// Headers passed to the message are copied.
+		MaxForwardsHeader maxfwd=new MaxForwardsHeader(70);
+		msg.setMaxForwardsHeader(maxfwd);
+		byte[] encoded=msg.getEncoded();
+		maxfwd.decrement();
+		assertSame(encoded,msg.getEncoded());
+		assertEquals(70,msg.getMaxForwardsHeader().getNumber());
+		assertFalse(msg.toString().contains("Max-Forwards: 69"));
+	}
+
+	@Test
+	void testLengthWithoutEncoding() {
+		SipMessage msg=new SipMessage(MESSAGE);
+		assertEquals(MESSAGE.length(),msg.getLength());
+		msg.setCSeqHeader(new CSeqHeader(1234,"INVITE"));
+		assertEquals(msg.getEncoded().length,msg.getLength());
+
+		msg.setSubjectHeader(new SubjectHeader("Grüße"));
+		int length=msg.getLength();
+		assertEquals(msg.getEncoded().length,length);
+	}
+
+}
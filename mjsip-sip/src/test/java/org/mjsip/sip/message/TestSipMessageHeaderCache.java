@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.sip.message;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.mjsip.sip.header.CSeqHeader;
+import org.mjsip.sip.header.CallIdHeader;
+import org.mjsip.sip.header.ToHeader;
+import org.mjsip.sip.header.ViaHeader;
+
+/**
+ * Test for the typed header accessors of {@link SipMessage} that parse a received header field
+ * only once.
+ *
+ * @see BasicSipMessage#getParsedHeader(String, java.util.function.Function)
+ */
+@SuppressWarnings("javadoc")
+class TestSipMessageHeaderCache {
+
+	private static final String MESSAGE=
+		"INVITE sip:bob@example.com SIP/2.0\r\n"+
+		"Via: SIP/2.0/UDP proxy.example.com:5060;branch=z9hG4bK77ef4c, SIP/2.0/UDP client.example.com;branch=z9hG4bK74bf9\r\n"+
+		"Via: SIP/2.0/UDP other.example.com;branch=z9hG4bK0815\r\n"+
+		"From: <sip:alice@example.com>;tag=9fxced76sl\r\n"+
+		"To: <sip:bob@example.com>\r\n"+
+		"Call-ID: 3848276298220188511@client.example.com\r\n"+
+		"CSeq: 4711 INVITE\r\n"+
+		"Content-Length: 0\r\n"+
+		"\r\n";
+
+	@Test
+	void testParsedValues() {
+		SipMessage msg=new SipMessage(MESSAGE);
+
+		ViaHeader via=msg.getViaHeader();
+		assertEquals("proxy.example.com",via.getHost());
+		assertEquals(5060,via.getPort());
+		assertEquals("z9hG4bK77ef4c",via.getBranch());
+
+		assertEquals(4711,msg.getCSeqHeader().getSequenceNumber());
+		assertEquals("INVITE",msg.getCSeqHeader().getMethod());
+		assertEquals("INVITE",msg.getTransactionMethod());
+		assertEquals("3848276298220188511@client.example.com",msg.getCallIdHeader().getCallId());
+	}
+
+	@Test
+	void testModifyingResultDoesNotModifyMessage() {
+		SipMessage msg=new SipMessage(MESSAGE);
+
+		ViaHeader via=msg.getViaHeader();
+		assertNotSame(via,msg.getViaHeader());
+		via.setBranch("z9hG4bKchanged");
+		assertEquals("z9hG4bK77ef4c",msg.getViaHeader().getBranch());
+
+		CSeqHeader cseq=msg.getCSeqHeader().incSequenceNumber();
+		assertEquals(4712,cseq.getSequenceNumber());
+		assertEquals(4711,msg.getCSeqHeader().getSequenceNumber());
+
+		ToHeader to=msg.getToHeader();
+		to.setTag("a6c85cf");
+		assertNull(msg.getToHeader().getTag());
+	}
+
+	@Test
+	void testInvalidateOnModification() {
+		SipMessage msg=new SipMessage(MESSAGE);
+		assertEquals("z9hG4bK77ef4c",msg.getViaHeader().getBranch());
+		assertEquals(4711,msg.getCSeqHeader().getSequenceNumber());
+
+		msg.removeViaHeader();
+		assertEquals("z9hG4bK74bf9",msg.getViaHeader().getBranch());
+
+		msg.addViaHeader(new ViaHeader("udp","192.0.2.1",5070));
+		assertEquals("192.0.2.1",msg.getViaHeader().getHost());
+
+		msg.setCSeqHeader(new CSeqHeader(4712,"ACK"));
+		assertEquals(4712,msg.getCSeqHeader().getSequenceNumber());
+		assertEquals("ACK",msg.getTransactionMethod());
+
+		msg.setCallIdHeader(new CallIdHeader("other@client.example.com"));
+		assertEquals("other@client.example.com",msg.getCallIdHeader().getCallId());
+
+		msg.removeCallIdHeader();
+		assertNull(msg.getCallIdHeader());
+	}
+
+	@Test
+	void testCopyDoesNotShareCache() {
+		SipMessage msg=new SipMessage(MESSAGE);
+		assertEquals(4711,msg.getCSeqHeader().getSequenceNumber());
+
+		SipMessage copy=new SipMessage(msg);
+		copy.setCSeqHeader(new CSeqHeader(1,"BYE"));
+		assertEquals(4711,msg.getCSeqHeader().getSequenceNumber());
+		assertEquals("BYE",copy.getCSeqHeader().getMethod());
+	}
+
+	@Test
+	void testLargeSequenceNumber() {
+		SipMessage msg=new SipMessage(MESSAGE.replace("CSeq: 4711","CSeq: 4294967295"));
+		assertEquals(4294967295L,msg.getCSeqHeader().getSequenceNumber());
+		assertEquals(4294967296L,msg.getCSeqHeader().incSequenceNumber().getSequenceNumber());
+	}
+
+	@Test
+	void testConcurrentAccess() throws InterruptedException {
+		int threads=4;
+		AtomicInteger errors=new AtomicInteger();
+		for (int n=0; n<200; n++) {
+			SipMessage msg=new SipMessage(MESSAGE);
+			CountDownLatch start=new CountDownLatch(1);
+			List<Thread> readers=new ArrayList<>();
+			for (int t=0; t<threads; t++) {
+				Thread reader=new Thread(() -> {
+					try {
+						start.await();
+						if (msg.getCSeqHeader().getSequenceNumber()!=4711
+							|| !"INVITE".equals(msg.getTransactionMethod())
+							|| !"z9hG4bK77ef4c".equals(msg.getViaHeader().getBranch())
+							|| !"3848276298220188511@client.example.com".equals(msg.getCallIdHeader().getCallId())) {
+							errors.incrementAndGet();
+						}
+					} catch (RuntimeException|InterruptedException ex) {
+						errors.incrementAndGet();
+					}
+				});
+				readers.add(reader);
+				reader.start();
+			}
+			start.countDown();
+			for (Thread reader : readers) {
+				reader.join();
+			}
+		}
+		assertEquals(0,errors.get());
+	}
+
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.sip.provider;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mjsip.sip.message.SipMessage;
+import org.mjsip.time.ConfiguredScheduler;
+import org.mjsip.time.SchedulerConfig;
+import org.zoolu.net.IpAddress;
+import org.zoolu.net.SocketAddress;
+
+/**
+ * Test for {@link KeepAliveService}.
+ */
+@SuppressWarnings("javadoc")
+class TestKeepAliveService {
+
+	/** Maximum time to wait for a pong. */
+	private static final int TIMEOUT_MS=5000;
+
+	private static final long TICK=1000;
+
+	private SipProvider _provider;
+
+	private FakeTransport _transport;
+
+	private KeepAliveService _service;
+
+	@BeforeEach
+	void setUp() {
+		SipConfig config=new SipConfig();
+		config.setTransportProtocols(new String[0]);
+		_provider=new SipProvider(config,new ConfiguredScheduler(new SchedulerConfig()));
+		_transport=new FakeTransport();
+		_provider.setTransport(_transport);
+
+		// Not started, ticks are advanced by the test.
+		_service=new KeepAliveService(_provider,TICK);
+	}
+
+	@AfterEach
+	void tearDown() {
+		_provider.halt();
+	}
+
+	@Test
+	void testBatches() {
+		_service.add(target(1),TICK);
+		_service.add(target(2),2*TICK);
+		_service.add(target(3),3*TICK);
+		assertEquals(3,_service.size());
+
+		assertEquals(1,_service.advance(1));
+		assertEquals(List.of(1),_transport.ports());
+		assertEquals(2,_service.advance(1));
+		assertEquals(2,_service.advance(1));
+		assertEquals(2,_service.advance(1));
+		assertEquals(7,_service.getPingsSent());
+		assertEquals(7,_transport.sent.size());
+		assertEquals("\r\n\r\n",_transport.sent.get(0).toString());
+	}
+
+	@Test
+	void testLongInterval() {
+		// More than a full turn of the wheel.
+		_service.add(target(1),600*TICK);
+		assertEquals(0,_service.advance(599));
+		assertEquals(1,_service.advance(1));
+		assertEquals(0,_service.advance(599));
+		assertEquals(1,_service.advance(1));
+	}
+
+	@Test
+	void testChangeAndCancel() {
+		KeepAliveService.Target first=_service.add(target(1),10*TICK);
+		KeepAliveService.Target second=_service.add(target(2),10*TICK);
+		assertEquals(0,_service.advance(5));
+
+		first.setInterval(2*TICK);
+		assertEquals(2*TICK,first.getInterval());
+		assertEquals(1,_service.advance(2));
+		assertEquals(List.of(1),_transport.ports());
+
+		first.setDestination(target(3));
+		second.cancel();
+		assertFalse(second.isRunning());
+		assertEquals(1,_service.size());
+		assertEquals(1,_service.advance(2));
+		assertEquals(1,_service.advance(2));
+		assertEquals(List.of(1,3,3),_transport.ports());
+
+		first.cancel();
+		first.cancel();
+		assertEquals(0,_service.size());
+		assertEquals(0,_service.advance(20));
+	}
+
+	@Test
+	void testCatchUp() {
+		// A target is pinged only once, even if several of its intervals have been missed.
+		_service.add(target(1),TICK);
+		assertEquals(1,_service.advance(5));
+		assertEquals(1,_service.advance(1));
+	}
+
+	@Test
+	void testExpiration() throws InterruptedException {
+		KeepAliveService.Target target=_service.add(target(1),TICK);
+		target.setExpirationTime(1);
+		Thread.sleep(10);
+		assertEquals(0,_service.advance(1));
+		assertFalse(target.isRunning());
+		assertEquals(0,_service.size());
+	}
+
+	@Test
+	void testCustomToken() {
+		_service.add(target(1),new SipKeepAlive.SipToken("\r\n"),TICK);
+		assertEquals(1,_service.advance(1));
+		assertEquals("\r\n",_transport.sent.get(0).toString());
+	}
+
+	@Test
+	void testPong() throws IOException, InterruptedException {
+		IpAddress localhost=new IpAddress(InetAddress.getLoopbackAddress());
+		SipConfig config=new SipConfig();
+		config.setTransportProtocols(new String[0]);
+		SipProvider provider=new SipProvider(config,new ConfiguredScheduler(new SchedulerConfig()));
+		UdpTransport remote=new UdpTransport(0,localhost);
+		try {
+			provider.setTransport(new UdpTransport(0,localhost));
+			KeepAliveService service=provider.keepAlive();
+			service.add(new SocketAddress(localhost,remote.getLocalPort()),60*TICK);
+			service.advance(60);
+			assertTrue(service.getPingsSent()>0);
+
+			long timeout=System.currentTimeMillis()+TIMEOUT_MS;
+			while (service.getPongsReceived()==0 && System.currentTimeMillis()<timeout) {
+				Thread.sleep(10);
+			}
+			assertTrue(service.getPongsReceived()>0,"No pong received.");
+		}
+		finally {
+			remote.halt();
+			provider.halt();
+		}
+	}
+
+	private static SocketAddress target(int port) {
+		return new SocketAddress("127.0.0.1",port);
+	}
+
+	private static class FakeTransport implements SipTransport {
+
+		final List<SipMessage> sent=new ArrayList<>();
+
+		final List<Integer> ports=new ArrayList<>();
+
+		List<Integer> ports() {
+			return ports;
+		}
+
+		@Override
+		public String getProtocol() {
+			return SipProvider.PROTO_UDP;
+		}
+
+		@Override
+		public int getLocalPort() {
+			return 5060;
+		}
+
+		@Override
+		public void halt() {
+			// Ignore.
+		}
+
+		@Override
+		public void setListener(SipTransportListener listener) {
+			// Ignore.
+		}
+
+		@Override
+		public ConnectionId sendMessage(SipMessage msg, IpAddress dest_ipaddr, int dest_port, int ttl) {
+			sent.add(msg);
+			ports.add(Integer.valueOf(dest_port));
+			return null;
+		}
+
+	}
+
+}
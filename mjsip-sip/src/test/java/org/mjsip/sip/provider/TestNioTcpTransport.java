@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.sip.provider;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.mjsip.sip.message.SipMessage;
+import org.zoolu.net.IpAddress;
+import org.zoolu.net.SocketAddress;
+
+/**
+ * Test for {@link NioTcpTransport}.
+ */
+class TestNioTcpTransport {
+
+	/** Maximum time to wait for the messages to be delivered. */
+	private static final int TIMEOUT_MS=5000;
+
+	private static final IpAddress LOCALHOST=new IpAddress(InetAddress.getLoopbackAddress());
+
+	/**
+	 * Messages arriving in arbitrary fragments must be framed as with {@link TcpTransport}, and
+	 * responses must be sent back through the connection the request was received on.
+	 */
+	@Test
+	void testFraming() throws IOException, InterruptedException {
+		Collector collector=new Collector();
+		NioTcpTransport transport=new NioTcpTransport(0,LOCALHOST,100,2);
+		transport.setListener(collector);
+		try (Socket client=new Socket(LOCALHOST.getInetAddress(),transport.getLocalPort())) {
+			byte[] data=("\r\n\r\n"+request(1,"v=0\r\n")+"\r\n"+request(2,"")).getBytes(StandardCharsets.UTF_8);
+			OutputStream out=client.getOutputStream();
+			for (int pos=0; pos<data.length; pos+=7) {
+				out.write(data,pos,Math.min(7,data.length-pos));
+				out.flush();
+				Thread.sleep(1);
+			}
+
+			SipMessage first=collector.next();
+			assertEquals(1,first.getCSeqHeader().getSequenceNumber());
+			assertEquals("v=0\r\n",first.getStringBody());
+			assertEquals(TcpTransport.PROTO_TCP,first.getTransportProtocol());
+			assertNotNull(first.getConnectionId());
+
+			SipMessage second=collector.next();
+			assertEquals(2,second.getCSeqHeader().getSequenceNumber());
+			assertEquals(1,transport.getConnectionCount());
+
+			SipMessage response=new SipMessage("SIP/2.0 200 OK\r\nCall-ID: call@client\r\nCSeq: 2 OPTIONS\r\nContent-Length: 0\r\n\r\n");
+			response.setConnectionId(second.getConnectionId());
+			transport.sendMessageCO(response);
+
+			byte[] expected=response.getEncoded();
+			byte[] received=client.getInputStream().readNBytes(expected.length);
+			assertEquals(new String(expected),new String(received));
+		}
+		finally {
+			transport.halt();
+		}
+	}
+
+	/**
+	 * A message larger than the socket buffers is queued and written as soon as the peer reads.
+	 */
+	@Test
+	void testQueuedWrite() throws IOException, InterruptedException {
+		Collector collector=new Collector();
+		NioTcpTransport transport=new NioTcpTransport(0,LOCALHOST,100,1);
+		transport.setListener(collector);
+		transport.setMaxPendingBytes(32*1024*1024);
+		try (Socket client=new Socket(LOCALHOST.getInetAddress(),transport.getLocalPort())) {
+			client.getOutputStream().write(request(1,"").getBytes(StandardCharsets.UTF_8));
+			SipMessage request=collector.next();
+
+			char[] body=new char[8*1024*1024];
+			Arrays.fill(body,'x');
+			SipMessage response=new SipMessage("SIP/2.0 200 OK\r\nCall-ID: call@client\r\nCSeq: 1 OPTIONS\r\n\r\n");
+			response.setBody("text/plain",new String(body).getBytes(StandardCharsets.UTF_8));
+			response.setConnectionId(request.getConnectionId());
+
+			// Does not block, although the client does not read yet.
+			transport.sendMessageCO(response);
+			transport.sendMessageCO(response);
+
+			InputStream in=client.getInputStream();
+			byte[] expected=response.getEncoded();
+			for (int n=0; n<2; n++) {
+				byte[] received=in.readNBytes(expected.length);
+				assertTrue(Arrays.equals(expected,received),"Message "+n+" corrupted.");
+			}
+		}
+		finally {
+			transport.halt();
+		}
+	}
+
+	/**
+	 * A connection to a peer that does not read is closed, when the send queue limit is exceeded.
+	 */
+	@Test
+	void testSendQueueLimit() throws IOException, InterruptedException {
+		Collector collector=new Collector();
+		NioTcpTransport transport=new NioTcpTransport(0,LOCALHOST,100,1);
+		transport.setListener(collector);
+		transport.setMaxPendingBytes(64*1024);
+		try (Socket client=new Socket(LOCALHOST.getInetAddress(),transport.getLocalPort())) {
+			client.getOutputStream().write(request(1,"").getBytes(StandardCharsets.UTF_8));
+			SipMessage request=collector.next();
+
+			char[] body=new char[1024*1024];
+			Arrays.fill(body,'x');
+			SipMessage response=new SipMessage("SIP/2.0 200 OK\r\nCall-ID: call@client\r\nCSeq: 1 OPTIONS\r\n\r\n");
+			response.setBody("text/plain",new String(body).getBytes(StandardCharsets.UTF_8));
+			response.setConnectionId(request.getConnectionId());
+
+			assertThrows(IOException.class,() -> {
+				for (int n=0; n<100; n++) {
+					transport.sendMessageCO(response);
+				}
+			});
+			waitFor(() -> transport.getConnectionCount()==0);
+		}
+		finally {
+			transport.halt();
+		}
+	}
+
+	/**
+	 * Connections established from one transport to another are reused and closed connections are
+	 * removed.
+	 */
+	@Test
+	void testConnections() throws IOException, InterruptedException {
+		Collector collector=new Collector();
+		NioTcpTransport server=new NioTcpTransport(0,LOCALHOST,1000,2);
+		server.setListener(collector);
+		NioTcpTransport client=new NioTcpTransport(0,LOCALHOST,1000,1);
+		try {
+			for (int n=1; n<=3; n++) {
+				client.sendMessage(new SipMessage(request(n,"")),LOCALHOST,server.getLocalPort(),0);
+				assertEquals(n,collector.next().getCSeqHeader().getSequenceNumber());
+			}
+			assertEquals(1,client.getConnectionCount());
+			assertEquals(1,server.getConnectionCount());
+
+			List<Socket> idle=new ArrayList<>();
+			try {
+				for (int n=0; n<100; n++) {
+					idle.add(new Socket(LOCALHOST.getInetAddress(),server.getLocalPort()));
+				}
+				waitFor(() -> server.getConnectionCount()==101);
+			}
+			finally {
+				for (Socket socket : idle) socket.close();
+			}
+			waitFor(() -> server.getConnectionCount()==1);
+
+			client.halt();
+			waitFor(() -> server.getConnectionCount()==0);
+		}
+		finally {
+			client.halt();
+			server.halt();
+		}
+	}
+
+	private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+		long timeout=System.currentTimeMillis()+TIMEOUT_MS;
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.currentTimeMillis()<timeout,"Timeout.");
+			Thread.sleep(10);
+		}
+	}
+
+	private static String request(long seq, String body) {
+		return
+			"OPTIONS sip:bob@example.com SIP/2.0\r\n"+
+			"Via: SIP/2.0/TCP client.example.com:5060;branch=z9hG4bK"+seq+"\r\n"+
+			"From: <sip:alice@example.com>;tag=9fxced76sl\r\n"+
+			"To: <sip:bob@example.com>\r\n"+
+			"Call-ID: call@client\r\n"+
+			"CSeq: "+seq+" OPTIONS\r\n"+
+			"Content-Length: "+body.length()+"\r\n"+
+			"\r\n"+
+			body;
+	}
+
+	/**
+	 * Listener collecting received messages.
+	 */
+	private static class Collector implements SipTransportListener {
+
+		private final BlockingQueue<SipMessage> _messages=new LinkedBlockingQueue<>();
+
+		SipMessage next() throws InterruptedException {
+			SipMessage result=_messages.poll(TIMEOUT_MS,TimeUnit.MILLISECONDS);
+			assertNotNull(result,"No message received.");
+			return result;
+		}
+
+		@Override
+		public void onReceivedMessage(SipTransport transport, SipMessage msg) {
+			_messages.add(msg);
+		}
+
+		@Override
+		public void onIncomingTransportConnection(SipTransport transport, SocketAddress remote_soaddr) {
+			// Ignore.
+		}
+
+		@Override
+		public void onTransportConnectionTerminated(SipTransport transport, SocketAddress remote_soaddr, Exception error) {
+			// Ignore.
+		}
+
+		@Override
+		public void onTransportTerminated(SipTransport transport, Exception error) {
+			// Ignore.
+		}
+	}
+
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.sip.provider;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.mjsip.sip.message.SipMessage;
+import org.mjsip.sip.provider.SipAdmission.Priority;
+import org.mjsip.time.ConfiguredScheduler;
+import org.mjsip.time.SchedulerConfig;
+import org.mjsip.time.Threads;
+import org.zoolu.net.IpAddress;
+
+/**
+ * Test for admission control and overload shedding in {@link SipProvider}.
+ */
+@SuppressWarnings("javadoc")
+class TestSipAdmission {
+
+	/** Maximum time to wait for the dispatcher thread. */
+	private static final int TIMEOUT_MS=5000;
+
+	@Test
+	void testPriority() {
+		assertEquals(Priority.LOW,SipAdmission.priority(request("INVITE","1",null)));
+		assertEquals(Priority.LOW,SipAdmission.priority(request("REGISTER","2",null)));
+		assertEquals(Priority.NORMAL,SipAdmission.priority(request("INVITE","3","a6c85cf")));
+		assertEquals(Priority.HIGH,SipAdmission.priority(request("ACK","4","a6c85cf")));
+		assertEquals(Priority.HIGH,SipAdmission.priority(request("CANCEL","5",null)));
+		assertEquals(Priority.HIGH,SipAdmission.priority(request("BYE","6","a6c85cf")));
+		assertEquals(Priority.HIGH,SipAdmission.priority(response("7")));
+	}
+
+	/**
+	 * While the dispatcher is busy, new requests beyond the shed threshold are rejected with 503, and
+	 * messages completing accepted work are processed before the new requests that were admitted.
+	 */
+	@Test
+	void testOverload() throws InterruptedException {
+		SipConfig config=new SipConfig();
+		config.setTransportProtocols(new String[0]);
+		config.setAdmissionQueueSize(4);
+		config.setAdmissionShedThreshold(2);
+		SipProvider provider=new SipProvider(config,new ConfiguredScheduler(new SchedulerConfig()));
+		try {
+			FakeTransport transport=new FakeTransport();
+			provider.setTransport(transport);
+
+			CountDownLatch busy=new CountDownLatch(1);
+			CountDownLatch release=new CountDownLatch(1);
+			List<String> processed=new ArrayList<>();
+			CountDownLatch done=new CountDownLatch(8);
+			provider.addPromiscuousListener((sipProvider, msg) -> {
+				busy.countDown();
+				try {
+					release.await(TIMEOUT_MS,TimeUnit.MILLISECONDS);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+				synchronized (processed) {
+					processed.add(msg.getCallIdHeader().getCallId());
+				}
+				done.countDown();
+			});
+
+			SipAdmission admission=provider.getAdmission();
+			assertNotNull(admission);
+
+			// Blocks the dispatcher.
+			provider.onReceivedMessage(transport,request("INVITE","1",null));
+			assertTrue(busy.await(TIMEOUT_MS,TimeUnit.MILLISECONDS));
+
+			provider.onReceivedMessage(transport,request("INVITE","2",null));
+			provider.onReceivedMessage(transport,request("REGISTER","3",null));
+			// Shed threshold reached.
+			provider.onReceivedMessage(transport,request("INVITE","4",null));
+			provider.onReceivedMessage(transport,request("BYE","5","a6c85cf"));
+			provider.onReceivedMessage(transport,response("6"));
+			provider.onReceivedMessage(transport,request("INVITE","7","a6c85cf"));
+			provider.onReceivedMessage(transport,request("ACK","8","a6c85cf"));
+			provider.onReceivedMessage(transport,request("ACK","9","a6c85cf"));
+			// Queue for high priority messages full.
+			provider.onReceivedMessage(transport,request("ACK","10","a6c85cf"));
+			provider.onReceivedMessage(transport,request("BYE","11","a6c85cf"));
+
+			assertEquals(2,transport.sent.size());
+			SipMessage reject=transport.sent.get(0);
+			assertEquals(503,reject.getStatusLine().getCode());
+			assertEquals("4",reject.getCallIdHeader().getCallId());
+			assertTrue(reject.getToHeader().hasTag());
+			assertTrue(reject.hasRetryAfterHeader());
+			assertEquals(5,reject.getRetryAfterHeader().getDeltaSeconds());
+			SipMessage rejectBye=transport.sent.get(1);
+			assertEquals(503,rejectBye.getStatusLine().getCode());
+			assertEquals("11",rejectBye.getCallIdHeader().getCallId());
+			assertEquals("a6c85cf",rejectBye.getToHeader().getTag());
+
+			assertEquals(7,admission.getPending());
+
+			release.countDown();
+			assertTrue(done.await(TIMEOUT_MS,TimeUnit.MILLISECONDS));
+			synchronized (processed) {
+				assertEquals(List.of("1","5","6","8","9","7","2","3"),processed);
+			}
+
+			assertEquals(3,admission.getAdmittedCount(Priority.LOW));
+			assertEquals(1,admission.getAdmittedCount(Priority.NORMAL));
+			assertEquals(4,admission.getAdmittedCount(Priority.HIGH));
+			assertEquals(2,admission.getRejectedCount());
+			assertEquals(1,admission.getDroppedCount());
+			assertEquals(7,admission.getMaxPending());
+		} finally {
+			provider.halt();
+		}
+	}
+
+	/**
+	 * Messages completing accepted work never overtake earlier messages of the same call.
+	 */
+	@Test
+	void testCallOrder() throws InterruptedException {
+		CountDownLatch busy=new CountDownLatch(1);
+		CountDownLatch release=new CountDownLatch(1);
+		List<String> processed=new ArrayList<>();
+		CountDownLatch done=new CountDownLatch(5);
+		SipAdmission admission=new SipAdmission("TestAdmission",10,10,new SipAdmission.Handler() {
+			@Override
+			public void dispatch(SipMessage msg) {
+				busy.countDown();
+				await(release);
+				synchronized (processed) {
+					processed.add(msg.getCallIdHeader().getCallId()+":"+msg.getCSeqHeader().getMethod());
+				}
+				done.countDown();
+			}
+
+			@Override
+			public void reject(SipMessage request) {
+				throw new AssertionError("Unexpected reject.");
+			}
+		});
+		try {
+			// Blocks the dispatcher.
+			admission.admit(request("OPTIONS","0",null));
+			assertTrue(busy.await(TIMEOUT_MS,TimeUnit.MILLISECONDS));
+
+			admission.admit(request("INVITE","1",null));
+			admission.admit(request("CANCEL","1",null));
+			admission.admit(request("INVITE","2","a6c85cf"));
+			admission.admit(request("BYE","2","a6c85cf"));
+			assertEquals(4,admission.getPending());
+
+			release.countDown();
+			assertTrue(done.await(TIMEOUT_MS,TimeUnit.MILLISECONDS));
+			synchronized (processed) {
+				assertEquals(List.of("0:OPTIONS","2:INVITE","2:BYE","1:INVITE","1:CANCEL"),processed);
+			}
+			assertEquals(0,admission.getPending());
+		} finally {
+			admission.halt();
+		}
+	}
+
+	/**
+	 * With workers, messages of different calls are processed in parallel.
+	 */
+	@Test
+	void testWorkers() throws InterruptedException {
+		CountDownLatch started=new CountDownLatch(2);
+		CountDownLatch release=new CountDownLatch(1);
+		CountDownLatch done=new CountDownLatch(3);
+		List<String> processed=new ArrayList<>();
+		SipReceiveWorkers workers=new SipReceiveWorkers("TestWorker",2,4);
+		SipAdmission admission=new SipAdmission("TestAdmission",10,10,workers,Threads.platformThreads(),new SipAdmission.Handler() {
+			@Override
+			public void dispatch(SipMessage msg) {
+				started.countDown();
+				await(release);
+				synchronized (processed) {
+					processed.add(msg.getCallIdHeader().getCallId()+":"+msg.getCSeqHeader().getMethod());
+				}
+				done.countDown();
+			}
+
+			@Override
+			public void reject(SipMessage request) {
+				throw new AssertionError("Unexpected reject.");
+			}
+		});
+		try {
+			assertEquals(2,admission.getWorkerCount());
+			// Note: The Call-IDs are selected to be assigned to different workers.
+			admission.admit(request("INVITE","1",null));
+			admission.admit(request("CANCEL","1",null));
+			admission.admit(request("INVITE","3",null));
+
+			// Two messages are processed at the same time, which must be of different calls.
+			assertTrue(started.await(TIMEOUT_MS,TimeUnit.MILLISECONDS));
+			release.countDown();
+			assertTrue(done.await(TIMEOUT_MS,TimeUnit.MILLISECONDS));
+			synchronized (processed) {
+				assertEquals(3,processed.size());
+				assertTrue(processed.indexOf("1:INVITE")<processed.indexOf("1:CANCEL"));
+			}
+		} finally {
+			admission.halt();
+			workers.halt();
+		}
+	}
+
+	/**
+	 * A retransmission for an existing server transaction is not rejected under overload.
+	 */
+	@Test
+	void testRetransmission() throws InterruptedException {
+		CountDownLatch busy=new CountDownLatch(1);
+		CountDownLatch release=new CountDownLatch(1);
+		List<String> rejected=new ArrayList<>();
+		SipAdmission admission=new SipAdmission("TestAdmission",10,1,new SipAdmission.Handler() {
+			@Override
+			public void dispatch(SipMessage msg) {
+				busy.countDown();
+				await(release);
+			}
+
+			@Override
+			public void reject(SipMessage request) {
+				rejected.add(request.getCallIdHeader().getCallId());
+			}
+
+			@Override
+			public boolean hasTransaction(SipMessage request) {
+				return request.getCallIdHeader().getCallId().equals("2");
+			}
+		});
+		try {
+			// Blocks the dispatcher.
+			admission.admit(request("INVITE","0",null));
+			assertTrue(busy.await(TIMEOUT_MS,TimeUnit.MILLISECONDS));
+
+			assertTrue(admission.admit(request("INVITE","1",null)));
+			// Shed threshold reached.
+			assertTrue(admission.admit(request("INVITE","2",null)));
+			assertFalse(admission.admit(request("INVITE","3",null)));
+
+			assertEquals(List.of("3"),rejected);
+			assertEquals(2,admission.getPending());
+		} finally {
+			release.countDown();
+			admission.halt();
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(TIMEOUT_MS,TimeUnit.MILLISECONDS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static SipMessage request(String method, String callId, String toTag) {
+		return new SipMessage(
+			method+" sip:bob@127.0.0.1 SIP/2.0\r\n"+
+			"Via: SIP/2.0/UDP 127.0.0.1:5070;branch=z9hG4bK"+callId+"\r\n"+
+			"From: <sip:alice@127.0.0.1>;tag=9fxced76sl\r\n"+
+			"To: <sip:bob@127.0.0.1>"+(toTag!=null? ";tag="+toTag : "")+"\r\n"+
+			"Call-ID: "+callId+"\r\n"+
+			"CSeq: 1 "+method+"\r\n"+
+			"Content-Length: 0\r\n"+
+			"\r\n");
+	}
+
+	private static SipMessage response(String callId) {
+		return new SipMessage(
+			"SIP/2.0 200 OK\r\n"+
+			"Via: SIP/2.0/UDP 127.0.0.1:5060;branch=z9hG4bK"+callId+"\r\n"+
+			"From: <sip:alice@127.0.0.1>;tag=9fxced76sl\r\n"+
+			"To: <sip:bob@127.0.0.1>;tag=a6c85cf\r\n"+
+			"Call-ID: "+callId+"\r\n"+
+			"CSeq: 1 INVITE\r\n"+
+			"Content-Length: 0\r\n"+
+			"\r\n");
+	}
+
+	/**
+	 * {@link SipTransport} capturing the sent messages.
+	 */
+	private static class FakeTransport implements SipTransport {
+
+		final List<SipMessage> sent=new ArrayList<>();
+
+		@Override
+		public String getProtocol() {
+			return SipProvider.PROTO_UDP;
+		}
+
+		@Override
+		public int getLocalPort() {
+			return 5060;
+		}
+
+		@Override
+		public void halt() {
+			// Ignore.
+		}
+
+		@Override
+		public void setListener(SipTransportListener listener) {
+			// Ignore.
+		}
+
+		@Override
+		public ConnectionId sendMessage(SipMessage msg, IpAddress dest_ipaddr, int dest_port, int ttl) {
+			sent.add(msg);
+			return null;
+		}
+
+	}
+
+}
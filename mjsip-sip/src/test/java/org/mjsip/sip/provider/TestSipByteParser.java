@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.sip.provider;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.mjsip.sip.header.Header;
+import org.mjsip.sip.header.SipHeaders;
+import org.mjsip.sip.message.SipMessage;
+
+/**
+ * Test for {@link SipByteParser} comparing its results with the results of {@link SipParser}.
+ */
+@SuppressWarnings("javadoc")
+class TestSipByteParser {
+
+	private static final String[] FIRST_LINES={
+		"INVITE sip:bob@example.com SIP/2.0",
+		"REGISTER sip:example.com;transport=tcp SIP/2.0",
+		"SIP/2.0 200 OK",
+		"SIP/2.0 486 Busy Here",
+		"sip/2.0 180 Ringing",
+	};
+
+	private static final String[] NAMES={
+		"Via", "v", "From", "f", "To", "t", "Call-ID", "i", "CSeq", "Contact", "m", "Max-Forwards",
+		"Content-Type", "Content-Length", "l", "call-id", "VIA", "X-Custom", "Route", "Record-Route",
+		"WWW-Authenticate", "RSeq", "Ü-Header",
+	};
+
+	private static final String VALUE_CHARS=
+		"abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 \t;:=,<>\"@.-_/\\äöü€";
+
+	private static final String[] SEPARATORS={ ":", ": ", " : ", ":\t", "\t:  ", ":" };
+
+	private static final String[] LINE_ENDS={ "\r\n", "\r\n", "\n", "\r" };
+
+	private static final String[] FOLDS={ "\r\n ", "\r\n\t", "\n ", "\r\n  \t" };
+
+	private static final byte[] NOISE={ ':', '\r', '\n', ' ', '\t', 0, 0x7F, (byte)0xC3, (byte)0xFF, 'a' };
+
+	@Test
+	void testTypicalMessage() {
+		String header=
+			"INVITE sip:bob@example.com SIP/2.0\r\n"+
+			"Via: SIP/2.0/UDP client.example.com:5060;branch=z9hG4bK74bf9\r\n"+
+			"From: \"Alice\" <sip:alice@example.com>;tag=9fxced76sl\r\n"+
+			"To: <sip:bob@example.com>\r\n"+
+			"Subject: Folded\r\n  value\r\n"+
+			"Call-ID: 3848276298220188511@client.example.com\r\n"+
+			"CSeq: 1 INVITE\r\n"+
+			"\r\n";
+		byte[] data=header.getBytes(StandardCharsets.UTF_8);
+
+		SipByteParser par=new SipByteParser(data,0,data.length);
+		assertEquals("INVITE sip:bob@example.com SIP/2.0",par.getLine());
+
+		Header via=par.getHeader();
+		assertSame(SipHeaders.Via,via.getName());
+		assertEquals("SIP/2.0/UDP client.example.com:5060;branch=z9hG4bK74bf9",via.getValue());
+
+		List<Header> headers=new ArrayList<>();
+		headers.add(via);
+		for (Header h=par.getHeader(); h!=null; h=par.getHeader()) headers.add(h);
+		assertEquals(6,headers.size());
+		assertEquals("Folded\r\n  value",headers.get(3).getValue());
+		assertEquals(data.length,par.getPos());
+
+		SipMessage msg=new SipMessage(data,0,data.length);
+		assertEquals("INVITE",msg.getRequestLine().getMethod());
+		assertEquals("3848276298220188511@client.example.com",msg.getCallIdHeader().getCallId());
+		assertEquals("z9hG4bK74bf9",msg.getViaHeader().getBranch());
+	}
+
+	/**
+	 * Differential test parsing randomly generated and mutated message headers with both the
+	 * byte-level and the string-based parser.
+	 */
+	@Test
+	void testSameResultAsSipParser() {
+		Random rnd=new Random(4711);
+		for (int n=0; n<20000; n++) {
+			byte[] data=randomHeader(rnd);
+			assertEquals(parseString(data),parseBytes(data),() -> "Input: "+new String(data));
+		}
+	}
+
+	private static byte[] randomHeader(Random rnd) {
+		StringBuilder buffer=new StringBuilder();
+		buffer.append(pick(rnd,FIRST_LINES)).append(pick(rnd,LINE_ENDS));
+		int count=rnd.nextInt(12);
+		for (int n=0; n<count; n++) {
+			if (rnd.nextInt(20)==0) buffer.append(pick(rnd,new String[] { " ", "\t", "  " }));
+			buffer.append(pick(rnd,NAMES));
+			if (rnd.nextInt(30)!=0) buffer.append(pick(rnd,SEPARATORS));
+			int length=rnd.nextInt(40);
+			for (int k=0; k<length; k++) {
+				if (rnd.nextInt(50)==0) buffer.append(pick(rnd,FOLDS));
+				else buffer.append(VALUE_CHARS.charAt(rnd.nextInt(VALUE_CHARS.length())));
+			}
+			buffer.append(pick(rnd,LINE_ENDS));
+		}
+		if (rnd.nextBoolean()) buffer.append("\r\n");
+
+		byte[] result=buffer.toString().getBytes(StandardCharsets.UTF_8);
+
+		// Byte-level noise that may even break multi-byte characters.
+		int mutations=rnd.nextInt(3);
+		for (int n=0; n<mutations && result.length>0; n++) {
+			result[rnd.nextInt(result.length)]=NOISE[rnd.nextInt(NOISE.length)];
+		}
+		return result;
+	}
+
+	private static String pick(Random rnd, String[] values) {
+		return values[rnd.nextInt(values.length)];
+	}
+
+	/**
+	 * Parses as {@link org.mjsip.sip.message.BasicSipMessage} did before {@link SipByteParser}
+	 * was introduced.
+	 */
+	private static List<String> parseString(byte[] data) {
+		List<String> result=new ArrayList<>();
+		String str=new String(data,0,data.length);
+		SipParser par=new SipParser(str);
+		// Only the line boundary is relevant, the first line is parsed by SipParser in both cases.
+		int eol=par.indexOfEOH();
+		result.add(str.substring(0,eol));
+		par.setPos(eol);
+		par.goToNextLine();
+		for (Header h=par.getHeader(); h!=null; h=par.getHeader()) {
+			result.add(h.getName()+"|"+h.getValue());
+		}
+		result.add("end="+par.getPos());
+		return result;
+	}
+
+	private static List<String> parseBytes(byte[] data) {
+		List<String> result=new ArrayList<>();
+		SipByteParser par=new SipByteParser(data,0,data.length);
+		result.add(par.getLine());
+		for (Header h=par.getHeader(); h!=null; h=par.getHeader()) {
+			result.add(h.getName()+"|"+h.getValue());
+		}
+		// Convert the byte position to the position in the decoded string.
+		result.add("end="+new String(data,0,par.getPos()).length());
+		return result;
+	}
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.sip.provider;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+import org.mjsip.sip.message.SipMessage;
+
+/**
+ * Test for {@link SipId}.
+ */
+@SuppressWarnings("javadoc")
+class TestSipId {
+
+	@Test
+	void testTransactionId() {
+		SipId id=SipId.createTransactionServerId("call@host",1,"INVITE","host:5060","z9hG4bK1");
+		assertEquals(id,SipId.createTransactionServerId("call@host",1,"INVITE",null,"z9hG4bK1"));
+		assertEquals(id.hashCode(),SipId.createTransactionServerId("call@host",1,"INVITE",null,"z9hG4bK1").hashCode());
+
+		// An ACK belongs to the INVITE transaction.
+		assertEquals(id,SipId.createTransactionServerId("call@host",1,"ACK",null,"z9hG4bK1"));
+
+		assertNotEquals(id,SipId.createTransactionClientId(request("call@host",1,"INVITE","z9hG4bK1")));
+		assertNotEquals(id,SipId.createTransactionServerId("call@host",2,"INVITE",null,"z9hG4bK1"));
+		assertNotEquals(id,SipId.createTransactionServerId("call@host",1,"BYE",null,"z9hG4bK1"));
+		assertNotEquals(id,SipId.createTransactionServerId("call@host",1,"INVITE",null,"z9hG4bK2"));
+
+		// Without branch, the sent-by address identifies the transaction.
+		assertEquals(SipId.createTransactionServerId("call@host",1,"INVITE","host:5060",null),
+			SipId.createTransactionServerId("call@host",1,"INVITE",null,"host:5060"));
+
+		assertEquals("call@host-1-INVITE-server-z9hG4bK1",id.toString());
+	}
+
+	@Test
+	void testTransactionIdFromMessage() {
+		SipMessage msg=request("call@host",4711,"INVITE","z9hG4bK1");
+		assertEquals(SipId.createTransactionServerId("call@host",4711,"INVITE",null,"z9hG4bK1"),
+			SipId.createTransactionServerId(msg));
+	}
+
+	@Test
+	void testFieldsAreNotConcatenated() {
+		// Formerly, both identifiers had the same string representation "a-b-c-d".
+		assertNotEquals(SipId.createDialogId("a-b","c","d"),SipId.createDialogId("a","b-c","d"));
+	}
+
+	@Test
+	void testMethodId() {
+		assertEquals(SipId.ANY_METHOD,SipId.createMethodId("ANY"));
+		assertEquals(SipId.createMethodId("OPTIONS"),SipId.createTransactionServerId("OPTIONS"));
+		assertNotEquals(SipId.createMethodId("OPTIONS"),SipId.createDialogId("OPTIONS",null,null));
+		assertEquals("OPTIONS",SipId.createMethodId("OPTIONS").toString());
+	}
+
+	private static SipMessage request(String callId, long seqn, String method, String branch) {
+		return new SipMessage(
+			method+" sip:bob@example.com SIP/2.0\r\n"+
+			"Via: SIP/2.0/UDP client.example.com:5060;branch="+branch+"\r\n"+
+			"From: <sip:alice@example.com>;tag=9fxced76sl\r\n"+
+			"To: <sip:bob@example.com>\r\n"+
+			"Call-ID: "+callId+"\r\n"+
+			"CSeq: "+seqn+" "+method+"\r\n"+
+			"\r\n");
+	}
+
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.sip.provider;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for {@link SipTrace} and {@link SipTraceExporter}.
+ */
+@SuppressWarnings("javadoc")
+class TestSipTrace {
+
+	private static final byte[] MESSAGE = ("OPTIONS sip:bob@example.com SIP/2.0\r\n"
+		+ "Via: SIP/2.0/UDP 10.0.0.1:5060;branch=z9hG4bK1\r\n"
+		+ "Subject: \"quoted\"\r\n"
+		+ "Content-Length: 0\r\n"
+		+ "\r\n").getBytes(StandardCharsets.UTF_8);
+
+	@Test
+	void testOverwrite() {
+		SipTrace trace = new SipTrace(3, "10.0.0.1", 5060);
+		assertEquals(4, trace.getCapacity());
+
+		for (int n = 0; n < 6; n++) {
+			trace.record(n % 2 == 0, "udp", "10.0.0.2", 5000 + n, MESSAGE);
+		}
+		assertEquals(6, trace.getNextSeq());
+		assertNull(trace.get(1));
+		assertTrue(trace.isOverwritten(1));
+		assertEquals(5005, trace.get(5).getRemotePort());
+		assertFalse(trace.isOverwritten(5));
+
+		List<SipTrace.Entry> entries = trace.snapshot();
+		assertEquals(4, entries.size());
+		assertEquals(2, entries.get(0).getSeq());
+		assertEquals(5, entries.get(3).getSeq());
+		assertTrue(entries.get(0).getTimeMicros() <= entries.get(3).getTimeMicros());
+	}
+
+	@Test
+	void testJson() throws IOException {
+		SipTrace trace = new SipTrace(4, "10.0.0.1", 5060);
+		trace.record(false, "udp", "10.0.0.2", 5070, MESSAGE);
+		trace.record(true, "tcp", "::1", 5080, MESSAGE);
+
+		StringBuilder out = new StringBuilder();
+		trace.writeJson(out);
+		String[] lines = out.toString().split("\n");
+		assertEquals(2, lines.length);
+		assertTrue(lines[0].startsWith("{\"seq\":0,\"time\":"));
+		assertTrue(lines[0].contains(
+			"\"dir\":\"in\",\"proto\":\"udp\",\"src\":\"10.0.0.2:5070\",\"dst\":\"10.0.0.1:5060\""));
+		assertTrue(lines[0].contains("\"msg\":\"OPTIONS sip:bob@example.com SIP/2.0\\r\\nVia:"));
+		assertTrue(lines[0].contains("Subject: \\\"quoted\\\"\\r\\n"));
+		assertTrue(lines[0].endsWith("\\r\\n\\r\\n\"}"));
+		assertTrue(lines[1].contains("\"dir\":\"out\",\"proto\":\"tcp\",\"src\":\"10.0.0.1:5060\",\"dst\":\"[::1]:5080\""));
+	}
+
+	@Test
+	void testConcurrentRecord() throws InterruptedException {
+		SipTrace trace = new SipTrace(1024, "10.0.0.1", 5060);
+		int threads = 8;
+		int count = 10000;
+		List<Thread> writers = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			int port = t;
+			Thread writer = new Thread(() -> {
+				for (int n = 0; n < count; n++) {
+					trace.record(true, "udp", "10.0.0.2", port, MESSAGE);
+				}
+			});
+			writers.add(writer);
+			writer.start();
+		}
+		for (Thread writer : writers) {
+			writer.join();
+		}
+		assertEquals(threads * count, trace.getNextSeq());
+		List<SipTrace.Entry> entries = trace.snapshot();
+		assertEquals(1024, entries.size());
+		for (int n = 1; n < entries.size(); n++) {
+			assertEquals(entries.get(n - 1).getSeq() + 1, entries.get(n).getSeq());
+		}
+	}
+
+	@Test
+	void testPcapExport() throws Exception {
+		File dir = File.createTempFile("trace", "");
+		dir.delete();
+		String prefix = new File(dir, "sip").getPath();
+
+		SipTrace trace = new SipTrace(64, "10.0.0.1", 5060);
+		// Each file takes two messages.
+		long fileSize = PcapWriter.FILE_HEADER + 2 * (PcapWriter.RECORD_HEADER + 28 + MESSAGE.length);
+		SipTraceExporter exporter = new SipTraceExporter(trace, prefix, fileSize, 2, 10);
+		try {
+			trace.record(false, "udp", "10.0.0.2", 5070, MESSAGE);
+			trace.record(true, "udp", "10.0.0.2", 5070, MESSAGE);
+			trace.record(true, "tls", "2001:db8::2", 5061, MESSAGE);
+			trace.record(false, "udp", "proxy.example.com", 5080, MESSAGE);
+			trace.record(true, "udp", "10.0.0.3", 5090, MESSAGE);
+		} finally {
+			exporter.halt();
+			exporter.join();
+		}
+		assertEquals(5, exporter.getExportedCount());
+		assertEquals(0, exporter.getLostCount());
+
+		// The first file has been deleted, since only two files are kept.
+		assertFalse(exporter.getFile(1).exists());
+		File second = exporter.getFile(2);
+		File third = exporter.getFile(3);
+		assertTrue(third.exists());
+
+		try (DataInputStream in = new DataInputStream(new FileInputStream(second))) {
+			assertEquals(0xa1b2c3d4, in.readInt());
+			assertEquals(2, in.readShort());
+			assertEquals(4, in.readShort());
+			in.readInt();
+			in.readInt();
+			in.readInt();
+			assertEquals(PcapWriter.LINKTYPE_RAW, in.readInt());
+
+			// IPv6 packet from the local (IPv4 mapped) address to the remote address.
+			readRecordHeader(in, 48 + MESSAGE.length);
+			assertEquals(6, in.readInt() >>> 28);
+			assertEquals(8 + MESSAGE.length, in.readUnsignedShort());
+			assertEquals(17, in.readUnsignedByte());
+			in.readUnsignedByte();
+			byte[] src = new byte[16];
+			in.readFully(src);
+			assertArrayEquals(new byte[] { 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, -1, -1, 10, 0, 0, 1 }, src);
+			byte[] dst = new byte[16];
+			in.readFully(dst);
+			assertEquals(0x20, dst[0]);
+			assertEquals(2, dst[15]);
+			assertUdp(in, 5060, 5061);
+
+			// IPv4 packet from an unresolved host name.
+			readRecordHeader(in, 28 + MESSAGE.length);
+			int[] header = new int[10];
+			int sum = 0;
+			for (int n = 0; n < header.length; n++) {
+				header[n] = in.readUnsignedShort();
+				sum += header[n];
+			}
+			assertEquals(0x4500, header[0]);
+			assertEquals(28 + MESSAGE.length, header[1]);
+			assertEquals(0xffff, (sum & 0xffff) + (sum >>> 16));
+			assertEquals(0, header[6]);
+			assertEquals(0, header[7]);
+			assertEquals(10 << 8, header[8]);
+			assertEquals(1, header[9]);
+			assertUdp(in, 5080, 5060);
+			assertEquals(-1, in.read());
+		} finally {
+			for (int n = 1; n <= 3; n++) {
+				exporter.getFile(n).delete();
+			}
+			dir.delete();
+		}
+	}
+
+	private static void readRecordHeader(DataInputStream in, int length) throws IOException {
+		in.readInt();
+		in.readInt();
+		assertEquals(length, in.readInt());
+		assertEquals(length, in.readInt());
+	}
+
+	private static void assertUdp(DataInputStream in, int srcPort, int dstPort) throws IOException {
+		assertEquals(srcPort, in.readUnsignedShort());
+		assertEquals(dstPort, in.readUnsignedShort());
+		assertEquals(8 + MESSAGE.length, in.readUnsignedShort());
+		in.readUnsignedShort();
+		byte[] data = new byte[MESSAGE.length];
+		in.readFully(data);
+		assertArrayEquals(MESSAGE, data);
+	}
+
+}
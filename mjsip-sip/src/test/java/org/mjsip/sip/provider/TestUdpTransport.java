@@ -10,7 +10,9 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -18,6 +20,7 @@ import org.junit.jupiter.api.Test;
 import org.mjsip.sip.message.SipMessage;
 import org.zoolu.net.IpAddress;
 import org.zoolu.net.SocketAddress;
+import org.zoolu.net.UdpBatchProvider;
 import org.zoolu.net.UdpPacket;
 import org.zoolu.net.UdpSocket;
 
@@ -57,7 +60,7 @@ class TestUdpTransport {
 		CountDownLatch received=new CountDownLatch(1);
 		List<SipMessage> messages=new ArrayList<>();
 
-		SipTransportListener listener=new SipTransportListener() {
+		SipTransportListener listener=new MessageCollector() {
 			@Override
 			public void onReceivedMessage(SipTransport transport, SipMessage msg) {
 				synchronized (messages) {
@@ -65,21 +68,6 @@ class TestUdpTransport {
 				}
 				received.countDown();
 			}
-
-			@Override
-			public void onIncomingTransportConnection(SipTransport transport, SocketAddress remote_soaddr) {
-				// Ignore.
-			}
-
-			@Override
-			public void onTransportConnectionTerminated(SipTransport transport, SocketAddress remote_soaddr, Exception error) {
-				// Ignore.
-			}
-
-			@Override
-			public void onTransportTerminated(SipTransport transport, Exception error) {
-				// Ignore.
-			}
 		};
 
 		IpAddress localhost=new IpAddress(InetAddress.getLoopbackAddress());
@@ -106,4 +94,161 @@ class TestUdpTransport {
 		}
 	}
 
+	/**
+	 * With receive workers, messages of different calls are processed in parallel, but the
+	 * messages of a single call must still be delivered in order.
+	 */
+	@Test
+	void testReceiveWorkersKeepCallOrder() throws IOException, InterruptedException {
+		int calls=10;
+		int messagesPerCall=20;
+
+		CountDownLatch received=new CountDownLatch(calls*messagesPerCall);
+		Map<String, List<Long>> sequences=new HashMap<>();
+
+		SipTransportListener listener=new MessageCollector() {
+			@Override
+			public void onReceivedMessage(SipTransport transport, SipMessage msg) {
+				synchronized (sequences) {
+					sequences.computeIfAbsent(msg.getCallIdHeader().getCallId(),x -> new ArrayList<>())
+						.add(Long.valueOf(msg.getCSeqHeader().getSequenceNumber()));
+				}
+				received.countDown();
+			}
+		};
+
+		IpAddress localhost=new IpAddress(InetAddress.getLoopbackAddress());
+		try (UdpSocket sender=new UdpSocket(0,localhost)) {
+			UdpTransport transport=new UdpTransport(0,localhost);
+			transport.setReceiveWorkers(4,calls*messagesPerCall);
+			transport.setListener(listener);
+			try {
+				for (int seq=1; seq<=messagesPerCall; seq++) {
+					for (int call=0; call<calls; call++) {
+						String datagram=
+							"OPTIONS sip:bob@example.com SIP/2.0\r\n"+
+							"Via: SIP/2.0/UDP client.example.com:5060;branch=z9hG4bK"+call+"x"+seq+"\r\n"+
+							"From: <sip:alice@example.com>;tag=9fxced76sl\r\n"+
+							"To: <sip:bob@example.com>\r\n"+
+							"Call-ID: call"+call+"@client.example.com\r\n"+
+							"CSeq: "+seq+" OPTIONS\r\n"+
+							"Content-Length: 0\r\n\r\n";
+						byte[] buf=datagram.getBytes(StandardCharsets.UTF_8);
+						sender.send(new UdpPacket(buf,buf.length,localhost,transport.getLocalPort()));
+					}
+					// Note: Do not overrun the socket's receive buffer, datagrams would be lost.
+					Thread.sleep(5);
+				}
+
+				assertTrue(received.await(TIMEOUT_MS,TimeUnit.MILLISECONDS),"Not all messages have been received.");
+				synchronized (sequences) {
+					assertEquals(calls,sequences.size());
+					for (Map.Entry<String, List<Long>> entry : sequences.entrySet()) {
+						List<Long> seqs=entry.getValue();
+						for (int n=0; n<seqs.size(); n++) {
+							assertEquals(n+1,seqs.get(n).longValue(),"Order of call "+entry.getKey());
+						}
+					}
+				}
+			}
+			finally {
+				transport.halt();
+			}
+		}
+	}
+
+	/**
+	 * In channel mode, a burst of datagrams is drained in batches and responses are sent over the
+	 * same channel.
+	 */
+	@Test
+	void testBatchMode() throws IOException, InterruptedException {
+		int count=100;
+
+		CountDownLatch received=new CountDownLatch(count);
+		List<SipMessage> messages=new ArrayList<>();
+
+		SipTransportListener listener=new MessageCollector() {
+			@Override
+			public void onReceivedMessage(SipTransport transport, SipMessage msg) {
+				synchronized (messages) {
+					messages.add(msg);
+				}
+				received.countDown();
+			}
+		};
+
+		IpAddress localhost=new IpAddress(InetAddress.getLoopbackAddress());
+		try (UdpSocket sender=new UdpSocket(0,localhost)) {
+			sender.setSoTimeout(TIMEOUT_MS);
+			UdpTransport transport=new UdpTransport(0,localhost,1,8,1024*1024);
+			transport.setListener(listener);
+			try {
+				assertTrue(transport.getUdpProvider() instanceof UdpBatchProvider);
+				for (int seq=1; seq<=count; seq++) {
+					byte[] buf=(HEADER.replace("CSeq: 1 ","CSeq: "+seq+" ")+"Content-Length: 5\r\n\r\nv=0\r\n").getBytes(StandardCharsets.UTF_8);
+					sender.send(new UdpPacket(buf,buf.length,localhost,transport.getLocalPort()));
+				}
+
+				assertTrue(received.await(TIMEOUT_MS,TimeUnit.MILLISECONDS),"Not all messages have been received.");
+				synchronized (messages) {
+					for (int n=0; n<count; n++) {
+						assertEquals(n+1,messages.get(n).getCSeqHeader().getSequenceNumber());
+					}
+				}
+				UdpBatchProvider provider=(UdpBatchProvider)transport.getUdpProvider();
+				assertEquals(count,provider.getReceivedCount());
+				assertEquals(0,provider.getDroppedCount());
+				assertTrue(provider.getMaxBatch()<=8);
+
+				SipMessage msg=messages.get(0);
+				transport.sendMessage(msg,localhost,sender.getLocalPort(),0);
+				UdpPacket response=new UdpPacket(new byte[4000],4000);
+				sender.receive(response);
+				assertEquals(msg.getLength(),response.getLength());
+			}
+			finally {
+				transport.halt();
+			}
+		}
+	}
+
+	/**
+	 * The Call-ID used for assigning messages to workers must not depend on the header form.
+	 */
+	@Test
+	void testCallIdHash() {
+		assertEquals(hash("INVITE sip:bob@x SIP/2.0\r\nCall-ID: abc@host\r\n\r\n"),
+			hash("INVITE sip:bob@x SIP/2.0\r\nVia: SIP/2.0/UDP h\r\ni :  abc@host \r\n\r\n"));
+		assertEquals(hash("SIP/2.0 200 OK\r\ncall-id:abc@host\r\n\r\n"),
+			hash("SIP/2.0 200 OK\r\nCALL-ID: abc@host\r\n\r\n"));
+		assertEquals(0,hash("SIP/2.0 200 OK\r\nTo: <sip:i@x>\r\n\r\nCall-ID: abc@host\r\n"));
+	}
+
+	private static int hash(String message) {
+		byte[] data=message.getBytes(StandardCharsets.UTF_8);
+		return SipReceiveWorkers.callIdHash(data,0,data.length);
+	}
+
+	/**
+	 * Base class for test listeners that only observe received messages.
+	 */
+	private static abstract class MessageCollector implements SipTransportListener {
+
+		@Override
+		public void onIncomingTransportConnection(SipTransport transport, SocketAddress remote_soaddr) {
+			// Ignore.
+		}
+
+		@Override
+		public void onTransportConnectionTerminated(SipTransport transport, SocketAddress remote_soaddr, Exception error) {
+			// Ignore.
+		}
+
+		@Override
+		public void onTransportTerminated(SipTransport transport, Exception error) {
+			// Ignore.
+		}
+	}
+
 }
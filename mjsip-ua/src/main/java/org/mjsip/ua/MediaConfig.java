@@ -6,6 +6,7 @@ package org.mjsip.ua;
 import org.kohsuke.args4j.Option;
 import org.mjsip.config.YesNoHandler;
 import org.mjsip.media.MediaDesc;
+import org.mjsip.media.rx.LatePacketPolicy;
 import org.mjsip.sip.config.MediaDescHandler;
 import org.mjsip.sip.config.SocketAddressHandler;
 import org.zoolu.net.SocketAddress;
@@ -57,6 +58,17 @@ public class MediaConfig implements MediaOptions {
 	@Option(name = "--symmetric-rtp", handler = YesNoHandler.class)
 	private boolean _symmetricRtp=false;
 
+	// Note: The jitter buffer options are declared at the setters, which keep the delay range consistent.
+	private int _jitterBufferMinDelay=40;
+
+	private int _jitterBufferMaxDelay=0;
+
+	@Option(name = "--late-packets", usage = "How the receiver jitter buffer handles late packets.")
+	private LatePacketPolicy _latePacketPolicy=LatePacketPolicy.DROP;
+
+	@Option(name = "--media-clock-threads", usage = "Number of threads of a shared media clock sending all RTP streams, 0 for a thread per stream.")
+	private int _mediaClockThreads=0;
+
 	@Override
 	public int getRandomEarlyDropRate() {
 		return _randomEarlyDropRate;
@@ -67,6 +79,70 @@ public class MediaConfig implements MediaOptions {
 		_randomEarlyDropRate = randomEarlyDropRate;
 	}
 
+	@Override
+	public int getJitterBufferMinDelay() {
+		return _jitterBufferMinDelay;
+	}
+
+	/**
+	 * If the jitter buffer is enabled with a smaller maximum delay, the maximum delay is raised to
+	 * the given value.
+	 * 
+	 * @see #getJitterBufferMinDelay()
+	 */
+	@Option(name = "--jitter-buffer-min", usage = "Minimum playout delay of the receiver jitter buffer in milliseconds.")
+	public void setJitterBufferMinDelay(int jitterBufferMinDelay) {
+		if (jitterBufferMinDelay < 0) {
+			throw new IllegalArgumentException("Invalid jitter buffer minimum delay: " + jitterBufferMinDelay);
+		}
+		_jitterBufferMinDelay = jitterBufferMinDelay;
+		if (_jitterBufferMaxDelay > 0 && _jitterBufferMaxDelay < jitterBufferMinDelay) {
+			_jitterBufferMaxDelay = jitterBufferMinDelay;
+		}
+	}
+
+	@Override
+	public int getJitterBufferMaxDelay() {
+		return _jitterBufferMaxDelay;
+	}
+
+	/**
+	 * If the given value enables the jitter buffer and is smaller than the minimum delay, the
+	 * minimum delay is lowered to the given value.
+	 * 
+	 * @see #getJitterBufferMaxDelay()
+	 */
+	@Option(name = "--jitter-buffer-max", usage = "Maximum playout delay of the receiver jitter buffer in milliseconds, 0 for no jitter buffer.")
+	public void setJitterBufferMaxDelay(int jitterBufferMaxDelay) {
+		if (jitterBufferMaxDelay < 0) {
+			throw new IllegalArgumentException("Invalid jitter buffer maximum delay: " + jitterBufferMaxDelay);
+		}
+		_jitterBufferMaxDelay = jitterBufferMaxDelay;
+		if (jitterBufferMaxDelay > 0 && _jitterBufferMinDelay > jitterBufferMaxDelay) {
+			_jitterBufferMinDelay = jitterBufferMaxDelay;
+		}
+	}
+
+	@Override
+	public LatePacketPolicy getLatePacketPolicy() {
+		return _latePacketPolicy;
+	}
+
+	/** @see #getLatePacketPolicy() */
+	public void setLatePacketPolicy(LatePacketPolicy latePacketPolicy) {
+		_latePacketPolicy = latePacketPolicy;
+	}
+
+	@Override
+	public int getMediaClockThreads() {
+		return _mediaClockThreads;
+	}
+
+	/** @see #getMediaClockThreads() */
+	public void setMediaClockThreads(int mediaClockThreads) {
+		_mediaClockThreads = mediaClockThreads;
+	}
+
 	@Override
 	public boolean isSymmetricRtp() {
 		return _symmetricRtp;
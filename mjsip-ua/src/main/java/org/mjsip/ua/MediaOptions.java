@@ -4,6 +4,7 @@
 package org.mjsip.ua;
 
 import org.mjsip.media.MediaDesc;
+import org.mjsip.media.rx.LatePacketPolicy;
 import org.zoolu.net.SocketAddress;
 
 /**
@@ -31,6 +32,24 @@ public interface MediaOptions {
 	 */
 	int getRandomEarlyDropRate();
 
+	/** Minimum playout delay of the receiver jitter buffer in milliseconds. */
+	int getJitterBufferMinDelay();
+
+	/**
+	 * Maximum playout delay of the receiver jitter buffer in milliseconds. A value of 0 means that
+	 * received packets are played out without jitter buffer.
+	 */
+	int getJitterBufferMaxDelay();
+
+	/** How the receiver jitter buffer handles packets arriving after their playout time. */
+	LatePacketPolicy getLatePacketPolicy();
+
+	/**
+	 * Number of threads of a media clock that paces all sent RTP streams. A value of 0 means that
+	 * each stream is sent from its own thread.
+	 */
+	int getMediaClockThreads();
+
 	/** Whether using RAT (Robust Audio Tool) as audio sender/receiver */
 	boolean isUseRat();
 
@@ -3,6 +3,11 @@
  */
 package org.mjsip.up;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.mjsip.pool.PortPool;
@@ -39,5 +44,96 @@ class TestPortPool {
 		Assertions.assertEquals(10, pool.allocate());
 		Assertions.assertTrue(pool.isAvailable());
 	}
-	
+
+	@Test
+	void testQuarantine() throws InterruptedException {
+		PortPool pool = new PortPool(10, 2, 100);
+
+		Assertions.assertEquals(10, pool.allocate());
+		Assertions.assertEquals(11, pool.allocate());
+		pool.release(10);
+		Assertions.assertEquals(1, pool.getQuarantinedCount());
+		Assertions.assertFalse(pool.isAvailable());
+		Assertions.assertThrows(Exhausted.class, pool::allocate, "A port in quarantine must not be reused.");
+		Assertions.assertEquals(1, pool.getExhaustedCount());
+
+		Thread.sleep(150);
+		Assertions.assertTrue(pool.isAvailable());
+		Assertions.assertEquals(10, pool.allocate());
+		Assertions.assertEquals(0, pool.getQuarantinedCount());
+	}
+
+	@Test
+	void testInvalidRelease() {
+		PortPool pool = new PortPool(10, 3);
+		Assertions.assertThrows(IllegalStateException.class, () -> pool.release(10));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> pool.release(13));
+
+		Assertions.assertEquals(10, pool.allocate());
+		pool.release(10);
+		Assertions.assertThrows(IllegalStateException.class, () -> pool.release(10),
+			"A port must not be released twice.");
+	}
+
+	@Test
+	void testMetrics() {
+		PortPool pool = new PortPool(10, 4);
+		pool.allocate();
+		pool.allocate();
+		int port = pool.allocate();
+		pool.release(port);
+		Assertions.assertEquals(4, pool.getSize());
+		Assertions.assertEquals(2, pool.getAllocatedCount());
+		Assertions.assertEquals(3, pool.getAllocationCount());
+		Assertions.assertEquals(0.5, pool.getUtilization());
+	}
+
+	@Test
+	void testConcurrent() throws InterruptedException {
+		int portCnt = 1000;
+		int threadCnt = 8;
+		PortPool pool = new PortPool(10000, portCnt);
+		ConcurrentHashMap<Integer, Thread> inUse = new ConcurrentHashMap<>();
+		AtomicReference<Throwable> problem = new AtomicReference<>();
+
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < threadCnt; t++) {
+			threads.add(new Thread(() -> {
+				try {
+					List<Integer> own = new ArrayList<>();
+					for (int n = 0; n < 20000; n++) {
+						if (own.size() < portCnt / threadCnt && (n % 3 != 0 || own.isEmpty())) {
+							Integer port = Integer.valueOf(pool.allocate());
+							Assertions.assertNull(inUse.put(port, Thread.currentThread()), "Port allocated twice: " + port);
+							own.add(port);
+						} else {
+							Integer port = own.remove(own.size() - 1);
+							inUse.remove(port);
+							pool.release(port.intValue());
+						}
+					}
+					for (Integer port : own) {
+						inUse.remove(port);
+						pool.release(port.intValue());
+					}
+				} catch (Throwable ex) {
+					problem.compareAndSet(null, ex);
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		Assertions.assertNull(problem.get());
+		Assertions.assertEquals(0, pool.getAllocatedCount());
+		for (int n = 0; n < portCnt; n++) {
+			pool.allocate();
+		}
+		Assertions.assertFalse(pool.isAvailable());
+	}
+
 }
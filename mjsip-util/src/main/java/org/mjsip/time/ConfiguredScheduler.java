@@ -3,6 +3,7 @@
  */
 package org.mjsip.time;
 
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
@@ -19,7 +20,7 @@ public class ConfiguredScheduler implements Scheduler {
 	 * Inner non-daemon scheduler. The program terminates only when all non-daemon timers
 	 * (associated to this scheduler) have ended (for timeout or explicitly halted)
 	 */
-	private ScheduledThreadPoolExecutor executor;
+	private ScheduledExecutorService executor;
 
 	/**
 	 * Inner daemon scheduler. Daemon timers (associated to the this scheduler) silently terminate
@@ -27,17 +28,46 @@ public class ConfiguredScheduler implements Scheduler {
 	 */
 	private ScheduledThreadPoolExecutor daemonExecutor;
 
+	/**
+	 * Executor for (long-running) tasks, <code>null</code> for using {@link #executor}.
+	 */
+	private ExecutorService taskExecutor;
+
+	/**
+	 * Factory for loop threads, see {@link #loopThreads()}.
+	 */
+	private final ThreadFactory loopThreads;
+
 	/**
 	 * Creates a {@link ConfiguredScheduler}.
 	 */
 	public ConfiguredScheduler(SchedulerConfig config) {
-		executor = new ScheduledThreadPoolExecutor(config.getThreadPoolSize(),
-				config.useDaemonThreads() ? new DaemonFactory() : Executors.defaultThreadFactory());
+		ThreadFactory threadFactory = config.useDaemonThreads() ? new DaemonFactory() : Executors.defaultThreadFactory();
+		if (config.useTimingWheel()) {
+			executor = new TimingWheelExecutor(config.getThreadPoolSize(), config.getTimingWheelTick(),
+					config.getTimingWheelSize(), threadFactory);
+		} else {
+			executor = new ScheduledThreadPoolExecutor(config.getThreadPoolSize(), threadFactory);
+		}
+		loopThreads = Threads.loopThreads(config.useVirtualThreads());
+		if (Threads.isVirtual(loopThreads)) {
+			taskExecutor = Threads.newVirtualThreadPerTaskExecutor();
+		}
+	}
+
+	@Override
+	public ExecutorService executor() {
+		return taskExecutor != null ? taskExecutor : executor;
 	}
 	
+	@Override
+	public ThreadFactory loopThreads() {
+		return loopThreads;
+	}
+
 	@Override
 	public void execute(Runnable command) {
-		executor.execute(command);
+		executor().execute(command);
 	}
 	
 	@Override
@@ -52,6 +82,24 @@ public class ConfiguredScheduler implements Scheduler {
 		return daemonExecutor;
 	}
 
+	/**
+	 * Stops this scheduler.
+	 *
+	 * <p>
+	 * Pending timers are cancelled and no new tasks are accepted. Tasks already running are not
+	 * interrupted.
+	 * </p>
+	 */
+	public void halt() {
+		executor.shutdown();
+		if (daemonExecutor != null) {
+			daemonExecutor.shutdown();
+		}
+		if (taskExecutor != null) {
+			taskExecutor.shutdown();
+		}
+	}
+
 	private static class DaemonFactory implements ThreadFactory {
 
 		private final ThreadFactory inner = Executors.defaultThreadFactory();
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.time;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Base class for a service running a loop in its own thread.
+ *
+ * <p>
+ * The thread is not created by subclassing {@link Thread}, since a virtual thread cannot be
+ * subclassed. Instead, the service is started with a {@link ThreadFactory}, and the lifecycle
+ * methods of the thread are available from the service.
+ * </p>
+ *
+ * @see Threads#loopThreads(boolean)
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+public abstract class Loop implements Runnable {
+
+	private volatile Thread _thread;
+
+	/**
+	 * Starts the thread running this loop.
+	 *
+	 * @param factory
+	 *        The factory creating the thread.
+	 * @param name
+	 *        The name of the thread.
+	 *
+	 * @throws IllegalStateException
+	 *         If the loop has already been started.
+	 */
+	protected final synchronized void start(ThreadFactory factory, String name) {
+		if (_thread != null) {
+			throw new IllegalStateException("Already started: " + this);
+		}
+		_thread = Threads.start(factory, name, this);
+	}
+
+	/**
+	 * The thread running this loop, <code>null</code> if not yet started.
+	 */
+	public final Thread getThread() {
+		return _thread;
+	}
+
+	/**
+	 * Whether the thread running this loop has been started and has not yet terminated.
+	 *
+	 * @see Thread#isAlive()
+	 */
+	public final boolean isAlive() {
+		Thread thread = _thread;
+		return thread != null && thread.isAlive();
+	}
+
+	/**
+	 * Waits for the thread running this loop to terminate.
+	 *
+	 * @see Thread#join()
+	 */
+	public final void join() throws InterruptedException {
+		Thread thread = _thread;
+		if (thread != null) {
+			thread.join();
+		}
+	}
+
+	/**
+	 * Waits at most the given time for the thread running this loop to terminate.
+	 *
+	 * @param millis
+	 *        The time to wait in milliseconds, 0 for waiting forever.
+	 *
+	 * @see Thread#join(long)
+	 */
+	public final void join(long millis) throws InterruptedException {
+		Thread thread = _thread;
+		if (thread != null) {
+			thread.join(millis);
+		}
+	}
+
+	/**
+	 * Sets the priority of the thread running this loop.
+	 *
+	 * <p>
+	 * Note: The priority of a virtual thread cannot be changed.
+	 * </p>
+	 *
+	 * @see Thread#setPriority(int)
+	 */
+	public final void setPriority(int priority) {
+		Thread thread = _thread;
+		if (thread != null) {
+			thread.setPriority(priority);
+		}
+	}
+
+}
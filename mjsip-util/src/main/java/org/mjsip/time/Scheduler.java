@@ -7,6 +7,7 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -26,6 +27,15 @@ public interface Scheduler extends Executor {
 	 */
 	ScheduledExecutorService scheduler();
 
+	/**
+	 * Factory for the threads running receive loops, see {@link Loop}.
+	 *
+	 * @see Threads#loopThreads(boolean)
+	 */
+	default ThreadFactory loopThreads() {
+		return Threads.platformThreads();
+	}
+
 	@Override
 	default void execute(Runnable command) {
 		executor().execute(command);
@@ -19,6 +19,18 @@ public class SchedulerConfig {
 	@Option(name = "--use-daemon-treads", handler = YesNoHandler.class)
 	private boolean _daemonThreads = true;
 
+	@Option(name = "--virtual-threads", handler = YesNoHandler.class, usage = "Whether to run receive and media loops in virtual threads, if supported by the JDK.")
+	private boolean _virtualThreads = false;
+
+	@Option(name = "--timing-wheel", handler = YesNoHandler.class, usage = "Whether to keep timers in a hashed timing wheel instead of a delay queue.")
+	private boolean _timingWheel = false;
+
+	@Option(name = "--timing-wheel-tick", usage = "Tick duration of the timing wheel in milliseconds.")
+	private long _timingWheelTick = 10;
+
+	@Option(name = "--timing-wheel-size", usage = "Number of buckets of the timing wheel.")
+	private int _timingWheelSize = 512;
+
 	/**
 	 * The core pool size of the scheduler's thread pool.
 	 */
@@ -33,4 +45,73 @@ public class SchedulerConfig {
 		return _daemonThreads;
 	}
 
+	/**
+	 * Whether receive loops and media streams run in virtual threads.
+	 *
+	 * <p>
+	 * Has only an effect with Java 21 and later, otherwise platform threads are used.
+	 * </p>
+	 *
+	 * @see Threads
+	 */
+	public boolean useVirtualThreads() {
+		return _virtualThreads;
+	}
+
+	/** @see #useVirtualThreads() */
+	public void setVirtualThreads(boolean value) {
+		_virtualThreads = value;
+	}
+
+	/**
+	 * Whether timers are kept in a {@link TimingWheelExecutor} instead of a
+	 * {@link java.util.concurrent.ScheduledThreadPoolExecutor}.
+	 *
+	 * <p>
+	 * A timing wheel schedules and cancels timers in constant time at the cost of a timer resolution
+	 * of {@link #getTimingWheelTick()}.
+	 * </p>
+	 */
+	public boolean useTimingWheel() {
+		return _timingWheel;
+	}
+
+	/** @see #useTimingWheel() */
+	public void setTimingWheel(boolean value) {
+		_timingWheel = value;
+	}
+
+	/**
+	 * The tick duration of the timing wheel in milliseconds.
+	 *
+	 * @see #useTimingWheel()
+	 */
+	public long getTimingWheelTick() {
+		return _timingWheelTick;
+	}
+
+	/** @see #getTimingWheelTick() */
+	public void setTimingWheelTick(long value) {
+		_timingWheelTick = value;
+	}
+
+	/**
+	 * The number of buckets of the timing wheel.
+	 *
+	 * <p>
+	 * Timers with a delay longer than the number of buckets times the tick duration are visited
+	 * multiple times before they expire.
+	 * </p>
+	 *
+	 * @see #useTimingWheel()
+	 */
+	public int getTimingWheelSize() {
+		return _timingWheelSize;
+	}
+
+	/** @see #getTimingWheelSize() */
+	public void setTimingWheelSize(int value) {
+		_timingWheelSize = value;
+	}
+
 }
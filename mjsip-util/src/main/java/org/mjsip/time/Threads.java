@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.time;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creation of the threads running the receive and media loops of the stack.
+ *
+ * <p>
+ * By default, each loop runs in a platform thread. If virtual threads are enabled (see
+ * {@link SchedulerConfig#useVirtualThreads()}) and the JDK supports them (Java 21 and later),
+ * loops run in virtual threads instead. This avoids an OS thread per socket and media stream.
+ * </p>
+ *
+ * <p>
+ * The mode is chosen per {@link Scheduler}, see {@link Scheduler#loopThreads()}. Classes running a
+ * loop accept the {@link ThreadFactory} to use, see {@link Loop}.
+ * </p>
+ *
+ * <p>
+ * Note: With Java 21, a virtual thread blocked in {@link java.net.DatagramSocket#receive} still
+ * occupies a carrier thread. UDP receive loops therefore only save OS threads with Java 22 and
+ * later, whereas TCP receive loops and media streams already do with Java 21.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+public final class Threads {
+
+	private static final Logger LOG = LoggerFactory.getLogger(Threads.class);
+
+	/**
+	 * Factory for virtual threads, <code>null</code> if not supported by the JDK.
+	 */
+	private static final ThreadFactory VIRTUAL_FACTORY = lookupVirtualFactory();
+
+	/**
+	 * Factory for platform threads, see {@link #platformThreads()}.
+	 */
+	private static final ThreadFactory PLATFORM_FACTORY = Thread::new;
+
+	private Threads() {
+		// Utility class.
+	}
+
+	/**
+	 * Whether the running JDK supports virtual threads.
+	 */
+	public static boolean isVirtualSupported() {
+		return VIRTUAL_FACTORY != null;
+	}
+
+	/**
+	 * Factory for platform threads.
+	 *
+	 * <p>
+	 * A thread is created in the same way as by {@link Thread#Thread(Runnable)}, and therefore
+	 * inherits the daemon status of the current thread.
+	 * </p>
+	 */
+	public static ThreadFactory platformThreads() {
+		return PLATFORM_FACTORY;
+	}
+
+	/**
+	 * Factory for loop threads.
+	 *
+	 * <p>
+	 * If the JDK does not support virtual threads, platform threads are used anyway. A virtual
+	 * thread is always a daemon thread.
+	 * </p>
+	 *
+	 * @param virtual
+	 *        Whether to create virtual threads.
+	 * @return The factory for virtual threads, if requested and supported, the
+	 *         {@link #platformThreads() platform factory} otherwise.
+	 */
+	public static ThreadFactory loopThreads(boolean virtual) {
+		if (!virtual) {
+			return PLATFORM_FACTORY;
+		}
+		if (!isVirtualSupported()) {
+			LOG.warn("Virtual threads are not supported by Java {}, using platform threads.",
+					System.getProperty("java.version"));
+			return PLATFORM_FACTORY;
+		}
+		return VIRTUAL_FACTORY;
+	}
+
+	/**
+	 * Whether the given factory creates virtual threads.
+	 */
+	public static boolean isVirtual(ThreadFactory factory) {
+		return factory != null && factory == VIRTUAL_FACTORY;
+	}
+
+	/**
+	 * Creates a thread for the given loop.
+	 *
+	 * @param factory
+	 *        The factory to create the thread with, see {@link #loopThreads(boolean)}.
+	 * @param name
+	 *        The name of the new thread.
+	 * @param loop
+	 *        The task to run.
+	 * @return The new thread, not yet started.
+	 */
+	public static Thread newThread(ThreadFactory factory, String name, Runnable loop) {
+		Thread result = factory.newThread(loop);
+		result.setName(name);
+		return result;
+	}
+
+	/**
+	 * Creates and starts a thread for the given loop.
+	 *
+	 * @see #newThread(ThreadFactory, String, Runnable)
+	 */
+	public static Thread start(ThreadFactory factory, String name, Runnable loop) {
+		Thread result = newThread(factory, name, loop);
+		result.start();
+		return result;
+	}
+
+	/**
+	 * Creates and starts a platform thread for the given loop.
+	 *
+	 * @see #platformThreads()
+	 */
+	public static Thread start(String name, Runnable loop) {
+		return start(PLATFORM_FACTORY, name, loop);
+	}
+
+	/**
+	 * Creates an executor that runs each task in a new virtual thread.
+	 *
+	 * <p>
+	 * In contrast to a pool of platform threads, the number of tasks running concurrently is not
+	 * limited. This is appropriate for long-running blocking tasks, such as media streams.
+	 * </p>
+	 *
+	 * @throws UnsupportedOperationException
+	 *         If the JDK does not support virtual threads.
+	 */
+	public static ExecutorService newVirtualThreadPerTaskExecutor() {
+		if (!isVirtualSupported()) {
+			throw new UnsupportedOperationException("Virtual threads are not supported.");
+		}
+		return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 0, TimeUnit.MILLISECONDS, new SynchronousQueue<>(),
+				VIRTUAL_FACTORY);
+	}
+
+	private static ThreadFactory lookupVirtualFactory() {
+		try {
+			// Note: Accessed reflectively, since the code must run with Java 11.
+			Method ofVirtual = Thread.class.getMethod("ofVirtual");
+			Object builder = ofVirtual.invoke(null);
+			Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+			return (ThreadFactory) factory.invoke(builder);
+		} catch (ReflectiveOperationException | RuntimeException ex) {
+			// Not supported, or only as preview feature.
+			return null;
+		}
+	}
+
+}
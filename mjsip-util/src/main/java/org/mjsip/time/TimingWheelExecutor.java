@@ -0,0 +1,422 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.time;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link ScheduledExecutorService} keeping its delayed tasks in a hashed timing wheel.
+ *
+ * <p>
+ * In contrast to a {@link java.util.concurrent.ScheduledThreadPoolExecutor}, scheduling and
+ * cancelling a task are constant time operations that do not contend on a shared delay queue.
+ * This makes a difference for SIP transactions that create several timers of which most are
+ * cancelled before they expire.
+ * </p>
+ *
+ * <p>
+ * A single timer thread advances the wheel in ticks of a fixed duration. Tasks are executed not
+ * before their deadline, but may be delayed by up to one tick. Expired tasks are executed in a
+ * separate thread pool.
+ * </p>
+ *
+ * <p>
+ * Newly scheduled and cancelled tasks are passed to the timer thread through lock-free stacks.
+ * Only the timer thread accesses the wheel itself.
+ * </p>
+ *
+ * <p>
+ * On {@link #shutdown()}, delayed tasks that have not yet expired are cancelled.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+public class TimingWheelExecutor extends AbstractExecutorService implements ScheduledExecutorService {
+
+	private static final Logger LOG = LoggerFactory.getLogger(TimingWheelExecutor.class);
+
+	private final ThreadPoolExecutor _workers;
+
+	private final long _tickNanos;
+
+	private final int _mask;
+
+	/**
+	 * Head of the doubly linked list of timeouts per bucket, only accessed by the timer thread.
+	 */
+	private final Timeout<?>[] _wheel;
+
+	/**
+	 * Stack of newly scheduled timeouts linked through {@link Timeout#_nextPending}.
+	 */
+	private final AtomicReference<Timeout<?>> _pending = new AtomicReference<>();
+
+	/**
+	 * Stack of cancelled timeouts linked through {@link Timeout#_nextCancelled}.
+	 */
+	private final AtomicReference<Timeout<?>> _cancelled = new AtomicReference<>();
+
+	private final Thread _timer;
+
+	private final long _startNanos;
+
+	private volatile boolean _shutdown;
+
+	/**
+	 * Creates a {@link TimingWheelExecutor}.
+	 *
+	 * @param threadPoolSize
+	 *        The number of threads executing expired tasks.
+	 * @param tickDuration
+	 *        The duration of a tick in milliseconds.
+	 * @param wheelSize
+	 *        The number of buckets of the wheel, rounded up to the next power of two.
+	 * @param threadFactory
+	 *        Factory for the timer thread and the threads executing tasks.
+	 */
+	public TimingWheelExecutor(int threadPoolSize, long tickDuration, int wheelSize, ThreadFactory threadFactory) {
+		if (tickDuration <= 0) {
+			throw new IllegalArgumentException("Tick duration must be positive: " + tickDuration);
+		}
+		if (wheelSize <= 0 || wheelSize > (1 << 30)) {
+			throw new IllegalArgumentException("Invalid wheel size: " + wheelSize);
+		}
+		int size = Integer.highestOneBit(wheelSize);
+		if (size < wheelSize) {
+			size <<= 1;
+		}
+
+		_workers = new ThreadPoolExecutor(threadPoolSize, threadPoolSize, 0, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<>(), threadFactory);
+		_tickNanos = TimeUnit.MILLISECONDS.toNanos(tickDuration);
+		_mask = size - 1;
+		_wheel = new Timeout<?>[size];
+
+		_startNanos = System.nanoTime();
+		_timer = threadFactory.newThread(this::runTimer);
+		_timer.setName("timing-wheel-" + _timer.getName());
+		_timer.start();
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		_workers.execute(command);
+	}
+
+	@Override
+	public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+		return enqueue(new Timeout<>(command, null, deadline(delay, unit), 0));
+	}
+
+	@Override
+	public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+		return enqueue(new Timeout<>(callable, deadline(delay, unit)));
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+		if (period <= 0) {
+			throw new IllegalArgumentException("Period must be positive: " + period);
+		}
+		return enqueue(new Timeout<>(command, null, deadline(initialDelay, unit), unit.toNanos(period)));
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+		if (delay <= 0) {
+			throw new IllegalArgumentException("Delay must be positive: " + delay);
+		}
+		return enqueue(new Timeout<>(command, null, deadline(initialDelay, unit), -unit.toNanos(delay)));
+	}
+
+	private static long deadline(long delay, TimeUnit unit) {
+		return System.nanoTime() + unit.toNanos(Math.max(0, delay));
+	}
+
+	private <V> Timeout<V> enqueue(Timeout<V> timeout) {
+		if (_shutdown) {
+			throw new RejectedExecutionException("Executor has been shut down.");
+		}
+		push(timeout);
+		return timeout;
+	}
+
+	private void push(Timeout<?> timeout) {
+		Timeout<?> head;
+		do {
+			head = _pending.get();
+			timeout._nextPending = head;
+		} while (!_pending.compareAndSet(head, timeout));
+	}
+
+	void onCancel(Timeout<?> timeout) {
+		Timeout<?> head;
+		do {
+			head = _cancelled.get();
+			timeout._nextCancelled = head;
+		} while (!_cancelled.compareAndSet(head, timeout));
+	}
+
+	private void runTimer() {
+		long tick = 0;
+		while (!_shutdown) {
+			long deadline = _startNanos + (tick + 1) * _tickNanos;
+			long wait;
+			while ((wait = deadline - System.nanoTime()) > 0) {
+				LockSupport.parkNanos(this, wait);
+				if (_shutdown) {
+					break;
+				}
+			}
+			if (_shutdown) {
+				break;
+			}
+			tick++;
+
+			addPending(tick);
+			removeCancelled();
+			expire(tick);
+		}
+
+		clear();
+	}
+
+	private void addPending(long tick) {
+		Timeout<?> timeout = _pending.getAndSet(null);
+		while (timeout != null) {
+			Timeout<?> next = timeout._nextPending;
+			timeout._nextPending = null;
+			if (!timeout.isCancelled()) {
+				// Round up, a timeout must not expire before its deadline.
+				long target = (timeout._time - _startNanos + _tickNanos - 1) / _tickNanos;
+				timeout._tick = Math.max(target, tick);
+				link(timeout);
+			}
+			timeout = next;
+		}
+	}
+
+	private void removeCancelled() {
+		Timeout<?> timeout = _cancelled.getAndSet(null);
+		while (timeout != null) {
+			Timeout<?> next = timeout._nextCancelled;
+			timeout._nextCancelled = null;
+			unlink(timeout);
+			timeout = next;
+		}
+	}
+
+	private void expire(long tick) {
+		Timeout<?> timeout = _wheel[(int) (tick & _mask)];
+		while (timeout != null) {
+			Timeout<?> next = timeout._next;
+			if (timeout.isCancelled()) {
+				unlink(timeout);
+			} else if (timeout._tick <= tick) {
+				unlink(timeout);
+				try {
+					_workers.execute(timeout);
+				} catch (RejectedExecutionException ex) {
+					LOG.debug("Dropping timer task after shutdown.", ex);
+				}
+			}
+			timeout = next;
+		}
+	}
+
+	private void link(Timeout<?> timeout) {
+		int bucket = (int) (timeout._tick & _mask);
+		Timeout<?> head = _wheel[bucket];
+		timeout._bucket = bucket;
+		timeout._prev = null;
+		timeout._next = head;
+		if (head != null) {
+			head._prev = timeout;
+		}
+		_wheel[bucket] = timeout;
+	}
+
+	private void unlink(Timeout<?> timeout) {
+		int bucket = timeout._bucket;
+		if (bucket < 0) {
+			return;
+		}
+		Timeout<?> prev = timeout._prev;
+		Timeout<?> next = timeout._next;
+		if (prev == null) {
+			_wheel[bucket] = next;
+		} else {
+			prev._next = next;
+		}
+		if (next != null) {
+			next._prev = prev;
+		}
+		timeout._bucket = -1;
+		timeout._prev = null;
+		timeout._next = null;
+	}
+
+	/**
+	 * Cancels all timeouts that have not yet expired.
+	 */
+	private List<Runnable> clear() {
+		List<Runnable> result = new ArrayList<>();
+		for (int n = 0, cnt = _wheel.length; n < cnt; n++) {
+			for (Timeout<?> timeout = _wheel[n]; timeout != null; timeout = timeout._next) {
+				timeout.cancelDelayed();
+				result.add(timeout);
+			}
+			_wheel[n] = null;
+		}
+		for (Timeout<?> timeout = _pending.getAndSet(null); timeout != null; timeout = timeout._nextPending) {
+			timeout.cancelDelayed();
+			result.add(timeout);
+		}
+		_cancelled.set(null);
+		return result;
+	}
+
+	@Override
+	public void shutdown() {
+		_shutdown = true;
+		LockSupport.unpark(_timer);
+		_workers.shutdown();
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		shutdown();
+		return _workers.shutdownNow();
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return _shutdown;
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return !_timer.isAlive() && _workers.isTerminated();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		_timer.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+		if (_timer.isAlive()) {
+			return false;
+		}
+		return _workers.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "(tick=" + TimeUnit.NANOSECONDS.toMillis(_tickNanos) + "ms, size="
+				+ _wheel.length + ", workers=" + _workers + ")";
+	}
+
+	/**
+	 * A task scheduled in the wheel.
+	 */
+	private final class Timeout<V> extends FutureTask<V> implements ScheduledFuture<V> {
+
+		/**
+		 * The deadline in {@link System#nanoTime()} units.
+		 */
+		long _time;
+
+		/**
+		 * The period of a repeated task in nanoseconds. A positive value for a fixed rate, a negative
+		 * value for a fixed delay, zero for a one-shot task.
+		 */
+		private final long _period;
+
+		/**
+		 * The tick in which this timeout expires, only accessed by the timer thread.
+		 */
+		long _tick;
+
+		/**
+		 * The bucket this timeout is linked into, or <code>-1</code>.
+		 */
+		int _bucket = -1;
+
+		Timeout<?> _prev;
+
+		Timeout<?> _next;
+
+		Timeout<?> _nextPending;
+
+		Timeout<?> _nextCancelled;
+
+		Timeout(Runnable task, V result, long time, long period) {
+			super(task, result);
+			_time = time;
+			_period = period;
+		}
+
+		Timeout(Callable<V> task, long time) {
+			super(task);
+			_time = time;
+			_period = 0;
+		}
+
+		@Override
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(_time - System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+
+		@Override
+		public int compareTo(Delayed other) {
+			if (other == this) {
+				return 0;
+			}
+			return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean result = super.cancel(mayInterruptIfRunning);
+			if (result) {
+				onCancel(this);
+			}
+			return result;
+		}
+
+		/**
+		 * Cancels this timeout from the timer thread without passing it to the cancellation stack.
+		 */
+		void cancelDelayed() {
+			super.cancel(false);
+		}
+
+		@Override
+		public void run() {
+			if (_period == 0) {
+				super.run();
+			} else if (runAndReset() && !_shutdown) {
+				_time = _period > 0 ? _time + _period : System.nanoTime() - _period;
+				push(this);
+			}
+		}
+	}
+
+}
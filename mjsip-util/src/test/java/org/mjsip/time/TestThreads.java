@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.time;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for {@link Threads} and {@link Loop}.
+ */
+@SuppressWarnings("javadoc")
+class TestThreads {
+
+	@Test
+	void testPlatformThread() throws InterruptedException {
+		assertFalse(Threads.isVirtual(Threads.loopThreads(false)));
+
+		AtomicReference<String> name = new AtomicReference<>();
+		Thread thread = Threads.start("loop-1", () -> name.set(Thread.currentThread().getName()));
+		thread.join(1000);
+
+		assertEquals("loop-1", name.get());
+	}
+
+	@Test
+	void testVirtualThreadsOnlyIfSupported() throws InterruptedException {
+		ThreadFactory factory = Threads.loopThreads(true);
+		boolean actual = Threads.isVirtual(factory);
+		assertEquals(Threads.isVirtualSupported(), actual);
+
+		AtomicReference<String> name = new AtomicReference<>();
+		Thread thread = Threads.start(factory, "loop-2", () -> name.set(Thread.currentThread().getName()));
+		thread.join(1000);
+
+		assertEquals("loop-2", name.get());
+		if (actual) {
+			assertTrue(thread.isDaemon());
+		}
+	}
+
+	@Test
+	void testSchedulerLoopThreads() {
+		SchedulerConfig config = new SchedulerConfig();
+		config.setVirtualThreads(true);
+		ConfiguredScheduler virtual = new ConfiguredScheduler(config);
+		ConfiguredScheduler platform = new ConfiguredScheduler(new SchedulerConfig());
+		try {
+			assertEquals(Threads.isVirtualSupported(), Threads.isVirtual(virtual.loopThreads()));
+
+			// The mode of one scheduler does not affect others.
+			assertFalse(Threads.isVirtual(platform.loopThreads()));
+		} finally {
+			virtual.halt();
+			platform.halt();
+		}
+	}
+
+	@Test
+	void testSchedulerHalt() {
+		SchedulerConfig config = new SchedulerConfig();
+		config.setVirtualThreads(true);
+		ConfiguredScheduler scheduler = new ConfiguredScheduler(config);
+		scheduler.halt();
+
+		// Also the executor for virtual threads is stopped.
+		assertTrue(scheduler.scheduler().isShutdown());
+		assertTrue(scheduler.executor().isShutdown());
+	}
+
+	@Test
+	void testLoop() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		Loop loop = new Loop() {
+			@Override
+			public void run() {
+				try {
+					release.await();
+				} catch (InterruptedException ex) {
+					// Stop.
+				}
+			}
+		};
+		assertFalse(loop.isAlive());
+		loop.start(Threads.platformThreads(), "loop-3");
+		assertTrue(loop.isAlive());
+		assertEquals("loop-3", loop.getThread().getName());
+		assertThrows(IllegalStateException.class, () -> loop.start(Threads.platformThreads(), "loop-4"));
+
+		release.countDown();
+		loop.join();
+		assertFalse(loop.isAlive());
+	}
+
+	@Test
+	void testVirtualExecutor() throws InterruptedException {
+		if (!Threads.isVirtualSupported()) {
+			return;
+		}
+
+		ExecutorService executor = Threads.newVirtualThreadPerTaskExecutor();
+		try {
+			// More blocking tasks than a platform pool would run concurrently.
+			int tasks = 1000;
+			CountDownLatch started = new CountDownLatch(tasks);
+			CountDownLatch release = new CountDownLatch(1);
+			for (int n = 0; n < tasks; n++) {
+				executor.execute(() -> {
+					started.countDown();
+					try {
+						release.await();
+					} catch (InterruptedException ex) {
+						// Stop.
+					}
+				});
+			}
+			assertTrue(started.await(10, TimeUnit.SECONDS));
+			release.countDown();
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2026 Bernhard Haumacher et al. All Rights Reserved.
+ */
+package org.mjsip.time;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for {@link TimingWheelExecutor}.
+ */
+@SuppressWarnings("javadoc")
+class TestTimingWheelExecutor {
+
+	private TimingWheelExecutor _executor;
+
+	@BeforeEach
+	void setUp() {
+		// A small wheel, so that timers wrap around.
+		_executor = new TimingWheelExecutor(2, 5, 8, Executors.defaultThreadFactory());
+	}
+
+	@AfterEach
+	void tearDown() throws InterruptedException {
+		_executor.shutdownNow();
+		assertTrue(_executor.awaitTermination(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void testNotBeforeDeadline() throws Exception {
+		long[] delays = { 0, 3, 17, 60, 130 };
+		List<ScheduledFuture<Long>> futures = new ArrayList<>();
+		for (long delay : delays) {
+			long start = System.nanoTime();
+			futures.add(_executor.schedule(() -> System.nanoTime() - start, delay, TimeUnit.MILLISECONDS));
+		}
+		for (int n = 0; n < delays.length; n++) {
+			long elapsed = futures.get(n).get(5, TimeUnit.SECONDS);
+			assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(delays[n]), "Expired early: " + delays[n]);
+		}
+	}
+
+	@Test
+	void testCancel() throws Exception {
+		AtomicInteger fired = new AtomicInteger();
+		List<ScheduledFuture<?>> futures = new ArrayList<>();
+		for (int n = 0; n < 1000; n++) {
+			futures.add(_executor.schedule(fired::incrementAndGet, 20 + n % 50, TimeUnit.MILLISECONDS));
+		}
+		for (int n = 0; n < futures.size(); n += 2) {
+			assertTrue(futures.get(n).cancel(false));
+		}
+
+		CountDownLatch done = new CountDownLatch(1);
+		_executor.schedule(done::countDown, 100, TimeUnit.MILLISECONDS);
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+
+		assertEquals(500, fired.get());
+		assertThrows(CancellationException.class, () -> futures.get(0).get());
+		assertFalse(futures.get(0).cancel(false));
+		assertFalse(futures.get(1).cancel(false));
+	}
+
+	@Test
+	void testFixedDelay() throws Exception {
+		CountDownLatch runs = new CountDownLatch(5);
+		ScheduledFuture<?> future = _executor.scheduleWithFixedDelay(runs::countDown, 0, 10, TimeUnit.MILLISECONDS);
+		assertTrue(runs.await(5, TimeUnit.SECONDS));
+		assertFalse(future.isDone());
+		assertTrue(future.cancel(false));
+		assertTrue(future.isDone());
+	}
+
+	@Test
+	void testShutdown() throws Exception {
+		ScheduledFuture<?> future = _executor.schedule(() -> {}, 1, TimeUnit.HOURS);
+		_executor.shutdown();
+		assertTrue(_executor.awaitTermination(5, TimeUnit.SECONDS));
+		assertTrue(future.isCancelled());
+		assertThrows(RejectedExecutionException.class, () -> _executor.schedule(() -> {}, 0, TimeUnit.MILLISECONDS));
+	}
+
+}